@@ -77,6 +77,19 @@ public abstract class LeaderConfig {
         return 5000L;
     }
 
+    /**
+     * If positive, the leader holds a lease of this duration which lets it answer requests without confirming its
+     * leadership with a quorum each time. Zero disables leases.
+     * <p>
+     * Every node in the cluster must use the same value. A newly elected leader only waits out leases as long as its
+     * own, so a node with a shorter lease, or with leases disabled, could start serving while a previous leader
+     * still answers reads from its lease.
+     */
+    @Value.Default
+    public long leaseDurationMs() {
+        return 0L;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkState(quorumSize() > leaders().size() / 2,
@@ -84,6 +97,8 @@ public abstract class LeaderConfig {
         Preconditions.checkState(leaders().size() >= quorumSize(),
                 "The quorumSize '%s' must be less than or equal to the amount of leader entries %s.",
                 quorumSize(), leaders());
+        Preconditions.checkState(leaseDurationMs() >= 0,
+                "The leaseDurationMs '%s' must not be negative.", leaseDurationMs());
 
         Preconditions.checkArgument(leaders().contains(localServer()),
                 "The localServer '%s' must included in the leader entries %s.", localServer(), leaders());
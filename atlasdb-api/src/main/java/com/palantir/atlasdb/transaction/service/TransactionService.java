@@ -48,4 +48,26 @@ public interface TransactionService {
      */
     void putUnlessExists(long startTimestamp, long commitTimestamp)
             throws KeyAlreadyExistsException;
+
+    /**
+     * Batch version of {@link #putUnlessExists(long, long)}. Every entry is attempted, and each one is only set
+     * if it hasn't already been set; there is no atomicity across entries.
+     * @throws KeyAlreadyExistsException If any of the values was already set, after all entries have been
+     * attempted. {@link #get(Iterable)} should be called to check what the values were set to.
+     */
+    default void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) throws KeyAlreadyExistsException {
+        KeyAlreadyExistsException firstFailure = null;
+        for (Map.Entry<Long, Long> entry : startTimestampToCommitTimestamp.entrySet()) {
+            try {
+                putUnlessExists(entry.getKey(), entry.getValue());
+            } catch (KeyAlreadyExistsException e) {
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            }
+        }
+        if (firstFailure != null) {
+            throw firstFailure;
+        }
+    }
 }
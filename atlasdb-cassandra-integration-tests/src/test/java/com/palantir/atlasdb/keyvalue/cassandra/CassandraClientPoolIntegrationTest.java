@@ -316,6 +316,28 @@ public class CassandraClientPoolIntegrationTest {
         assertEquals(hostsToWeight, numTimesSelected);
     }
 
+    @Test
+    public void testWeightedHostsPreferFasterHostsWithEqualActivity() {
+        InetSocketAddress fastHost = new InetSocketAddress(0);
+        InetSocketAddress slowHost = new InetSocketAddress(1);
+        Map<InetSocketAddress, CassandraClientPoolingContainer> pools = ImmutableMap.of(
+                fastHost, createMockClientPoolingContainerWithUtilization(5),
+                slowHost, createMockClientPoolingContainerWithUtilization(5));
+        HostLatencyTracker latencyTracker = new HostLatencyTracker();
+        latencyTracker.recordLatency(fastHost, 1_000_000);
+        latencyTracker.recordLatency(slowHost, 4_000_000);
+
+        WeightedHosts weightedHosts = WeightedHosts.create(pools, latencyTracker);
+        Map<InetSocketAddress, Integer> hostsToWeight = new HashMap<>();
+        int prevKey = 0;
+        for (Map.Entry<Integer, InetSocketAddress> entry : weightedHosts.hosts.entrySet()) {
+            hostsToWeight.put(entry.getValue(), entry.getKey() - prevKey);
+            prevKey = entry.getKey();
+        }
+
+        assertEquals(4 * hostsToWeight.get(slowHost), (int) hostsToWeight.get(fastHost));
+    }
+
     private static CassandraClientPoolingContainer createMockClientPoolingContainerWithUtilization(int utilization) {
         CassandraClientPoolingContainer mock = Mockito.mock(CassandraClientPoolingContainer.class);
         Mockito.when(mock.getOpenRequests()).thenReturn(utilization);
@@ -165,6 +165,38 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 62 * 1000;
     }
 
+    /**
+     * The maximum number of asynchronous requests in flight to a single host. Each one uses its own
+     * non-blocking connection; requests over this limit are queued without holding a thread.
+     */
+    @Value.Default
+    public int asyncMaxInFlightRequestsPerHost() {
+        return 32;
+    }
+
+    /**
+     * If true, idempotent reads that have not completed within the {@link #speculativeRetryPercentile()}
+     * of recent request latencies are also sent to a second replica, and whichever answers first is used.
+     */
+    @Value.Default
+    public boolean speculativeReadRetries() {
+        return false;
+    }
+
+    @Value.Default
+    public double speculativeRetryPercentile() {
+        return 99.0;
+    }
+
+    /**
+     * The maximum percentage of reads that may be retried speculatively, so that a cluster-wide slowdown
+     * cannot double the read load.
+     */
+    @Value.Default
+    public double speculativeRetryBudgetPercent() {
+        return 5.0;
+    }
+
     @Value.Default
     public int cqlPoolTimeoutMillis() {
         return 20 * 1000;
@@ -210,5 +242,11 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         double evictionCheckProportion = proportionConnectionsToCheckPerEvictionRun();
         Preconditions.checkArgument(evictionCheckProportion > 0.01 && evictionCheckProportion <= 1,
                 "'proportionConnectionsToCheckPerEvictionRun' must be between 0.01 and 1");
+        Preconditions.checkArgument(asyncMaxInFlightRequestsPerHost() > 0,
+                "'asyncMaxInFlightRequestsPerHost' must be positive");
+        Preconditions.checkArgument(speculativeRetryPercentile() > 0 && speculativeRetryPercentile() < 100,
+                "'speculativeRetryPercentile' must be between 0 and 100");
+        Preconditions.checkArgument(speculativeRetryBudgetPercent() >= 0 && speculativeRetryBudgetPercent() <= 100,
+                "'speculativeRetryBudgetPercent' must be between 0 and 100");
     }
 }
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.thrift.AuthenticationRequest;
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.palantir.atlasdb.cassandra.CassandraCredentialsConfig;
+import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.util.MetricsManager;
+import com.palantir.common.base.FunctionCheckedException;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * Sends Thrift requests to Cassandra without blocking a thread per request.
+ * <p>
+ * All connections share one selector thread, and results are decoded on a small, fixed pool of threads, so the
+ * number of threads does not grow with the number of requests in flight. Each host has at most
+ * {@link CassandraKeyValueServiceConfig#asyncMaxInFlightRequestsPerHost()} requests in flight, one per
+ * connection; further requests queue up without holding a thread until a connection is free.
+ * <p>
+ * Host selection, blacklisting and the retry policy are those of the {@link CassandraClientPool}, whose blacklist
+ * this shares; only the transport differs. Non-blocking sockets do not support SSL, so {@link #create} returns
+ * nothing when SSL is configured and callers should fall back to the blocking pool.
+ */
+public class CassandraAsyncClientPool {
+    private static final Logger log = LoggerFactory.getLogger(CassandraAsyncClientPool.class);
+
+    /**
+     * Starts a Thrift call on an asynchronous client; the callback receives the completed call object.
+     */
+    @FunctionalInterface
+    public interface AsyncCall<C> {
+        void start(Cassandra.AsyncClient client, AsyncMethodCallback<C> callback) throws TException;
+    }
+
+    private final CassandraKeyValueServiceConfig config;
+    private final CassandraClientPool clientPool;
+    private final TAsyncClientManager clientManager;
+    private final TProtocolFactory protocolFactory = new TBinaryProtocol.Factory();
+    private final ExecutorService callbackExecutor;
+    private final ScheduledExecutorService retryScheduler;
+    private final Map<InetSocketAddress, HostConnections> connectionsByHost = new ConcurrentHashMap<>();
+    private final MetricsManager metricsManager = new MetricsManager();
+
+    private volatile boolean shutdown = false;
+
+    private CassandraAsyncClientPool(
+            CassandraKeyValueServiceConfig config,
+            CassandraClientPool clientPool,
+            TAsyncClientManager clientManager) {
+        this.config = config;
+        this.clientPool = clientPool;
+        this.clientManager = clientManager;
+        this.callbackExecutor = PTExecutors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("CassandraAsyncCallback-%d").build());
+        this.retryScheduler = PTExecutors.newScheduledThreadPool(1,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("CassandraAsyncRetry-%d").build());
+        metricsManager.registerMetric(CassandraAsyncClientPool.class, "requestsInFlight",
+                () -> connectionsByHost.values().stream().mapToInt(HostConnections::inUse).sum());
+        metricsManager.registerMetric(CassandraAsyncClientPool.class, "requestsQueued",
+                () -> connectionsByHost.values().stream().mapToInt(HostConnections::queued).sum());
+    }
+
+    public static Optional<CassandraAsyncClientPool> create(
+            CassandraKeyValueServiceConfig config,
+            CassandraClientPool clientPool) {
+        if (config.usingSsl()) {
+            log.info("Asynchronous Cassandra requests are not supported over SSL;"
+                    + " they will be run on the blocking client pool instead.");
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new CassandraAsyncClientPool(config, clientPool, new TAsyncClientManager()));
+        } catch (IOException e) {
+            log.warn("Could not start the asynchronous Cassandra client;"
+                    + " asynchronous requests will be run on the blocking client pool instead.", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Runs the call against the given host, retrying on the same errors and with the same backoff as
+     * {@link CassandraClientPool#runWithRetryOnHost}. The result extractor runs on a callback thread, never on
+     * the selector thread. Cancelling the returned future drops the request if it has not been sent yet.
+     */
+    public <C, V> CompletableFuture<V> runWithRetryOnHost(
+            InetSocketAddress specifiedHost,
+            AsyncCall<C> call,
+            FunctionCheckedException<C, V, Exception> resultExtractor) {
+        Request<C, V> request = new Request<>(call, resultExtractor);
+        attempt(request, specifiedHost);
+        return request.future;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        connectionsByHost.values().forEach(HostConnections::close);
+        clientManager.stop();
+        retryScheduler.shutdownNow();
+        callbackExecutor.shutdown();
+        metricsManager.deregisterMetrics();
+    }
+
+    private <C, V> void attempt(Request<C, V> request, InetSocketAddress host) {
+        if (request.future.isDone()) {
+            return;
+        }
+        if (shutdown) {
+            request.future.completeExceptionally(new IllegalStateException("The Cassandra client pool is closed."));
+            return;
+        }
+        if (clientPool.isBlacklisted(host)) {
+            Optional<InetSocketAddress> otherHost = clientPool
+                    .getRandomGoodHostForPredicate(address -> !request.triedHosts.contains(address))
+                    .map(CassandraClientPoolingContainer::getHost);
+            if (otherHost.isPresent()) {
+                log.warn("Randomly redirected a query intended for host {}.", host);
+                attempt(request, otherHost.get());
+                return;
+            }
+        }
+        HostConnections connections = connectionsByHost.computeIfAbsent(host, HostConnections::new);
+        connections.acquire().whenComplete((connection, connectFailure) -> {
+            if (connectFailure != null) {
+                handleFailure(request, host, connectFailure);
+            } else if (request.future.isDone()) {
+                connections.release(connection);
+            } else {
+                send(request, host, connections, connection);
+            }
+        });
+    }
+
+    private <C, V> void send(
+            Request<C, V> request,
+            InetSocketAddress host,
+            HostConnections connections,
+            Connection connection) {
+        invoke(connection.client, request.call).whenComplete((response, error) -> {
+            connections.release(connection);
+            if (error != null) {
+                handleFailure(request, host, error);
+                return;
+            }
+            try {
+                request.future.complete(request.resultExtractor.apply(response));
+            } catch (Exception e) {
+                handleFailure(request, host, e);
+            }
+        });
+    }
+
+    private <C> CompletableFuture<C> invoke(Cassandra.AsyncClient client, AsyncCall<C> call) {
+        CompletableFuture<C> result = new CompletableFuture<>();
+        try {
+            call.start(client, new AsyncMethodCallback<C>() {
+                @Override
+                public void onComplete(C response) {
+                    // Keep the selector thread free for I/O.
+                    callbackExecutor.execute(() -> result.complete(response));
+                }
+
+                @Override
+                public void onError(Exception exception) {
+                    callbackExecutor.execute(() -> result.completeExceptionally(exception));
+                }
+            });
+        } catch (TException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private <C, V> void handleFailure(Request<C, V> request, InetSocketAddress host, Throwable error) {
+        request.numTries++;
+        request.triedHosts.add(host);
+        boolean retriable = CassandraClientPool.isRetriableException(error);
+        boolean retriableWithBackoff = CassandraClientPool.isRetriableWithBackoffException(error);
+        if (!(retriable || retriableWithBackoff) || request.numTries >= CassandraClientPool.MAX_TRIES_TOTAL) {
+            if (request.numTries > 1) {
+                log.error("Tried to connect to cassandra {} times.", request.numTries, error);
+            }
+            request.future.completeExceptionally(error);
+            return;
+        }
+        log.warn("Error occurred talking to cassandra. Attempt {} of {}.",
+                request.numTries, CassandraClientPool.MAX_TRIES_TOTAL, error);
+        if (CassandraClientPool.isConnectionException(error)
+                && request.numTries >= CassandraClientPool.MAX_TRIES_SAME_HOST) {
+            clientPool.addToBlacklist(host);
+        }
+        if (!retriableWithBackoff) {
+            attempt(request, host);
+            return;
+        }
+        InetSocketAddress nextHost = request.numTries >= CassandraClientPool.MAX_TRIES_SAME_HOST
+                ? clientPool.getRandomGoodHostForPredicate(address -> !request.triedHosts.contains(address))
+                        .map(CassandraClientPoolingContainer::getHost)
+                        .orElse(host)
+                : host;
+        // And value between -500 and +500ms to backoff to better spread load on failover
+        long backoffMillis = request.numTries * 1000 + (ThreadLocalRandom.current().nextInt(1000) - 500);
+        try {
+            retryScheduler.schedule(() -> attempt(request, nextHost), backoffMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            request.future.completeExceptionally(error);
+        }
+    }
+
+    private CompletableFuture<Connection> connect(InetSocketAddress host) {
+        Connection connection;
+        try {
+            TNonblockingSocket socket = new TNonblockingSocket(
+                    host.getHostString(), host.getPort(), config.socketTimeoutMillis());
+            Cassandra.AsyncClient client = new Cassandra.AsyncClient(protocolFactory, clientManager, socket);
+            client.setTimeout(config.socketQueryTimeoutMillis());
+            connection = new Connection(client, socket);
+        } catch (IOException e) {
+            CompletableFuture<Connection> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new CassandraClientFactory.ClientCreationFailedException(
+                    String.format("Failed to construct client for %s/%s", host, config.keyspace()), e));
+            return failed;
+        }
+        CompletableFuture<Void> loggedIn = config.credentials().isPresent()
+                ? login(connection.client, config.credentials().get())
+                : CompletableFuture.completedFuture(null);
+        return loggedIn
+                .thenCompose(unused -> this.<Cassandra.AsyncClient.set_keyspace_call>invoke(connection.client,
+                        (asyncClient, callback) -> asyncClient.set_keyspace(config.keyspace(), callback)))
+                .thenApply(setKeyspaceCall -> {
+                    try {
+                        setKeyspaceCall.getResult();
+                    } catch (TException e) {
+                        throw new CassandraClientFactory.ClientCreationFailedException(
+                                String.format("Failed to set keyspace for %s/%s", host, config.keyspace()), e);
+                    }
+                    return connection;
+                })
+                .handle((connected, error) -> {
+                    if (error == null) {
+                        return connected;
+                    }
+                    connection.close();
+                    // Report every way of failing to connect like the blocking client factory does, so that the
+                    // host is retried with backoff and eventually blacklisted.
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof CassandraClientFactory.ClientCreationFailedException
+                            || !(cause instanceof Exception)) {
+                        throw Throwables.throwUncheckedException(cause);
+                    }
+                    throw new CassandraClientFactory.ClientCreationFailedException(
+                            String.format("Failed to connect to %s/%s", host, config.keyspace()), (Exception) cause);
+                });
+    }
+
+    private CompletableFuture<Void> login(Cassandra.AsyncClient client, CassandraCredentialsConfig credentials) {
+        AuthenticationRequest authenticationRequest = new AuthenticationRequest(ImmutableMap.of(
+                "username", credentials.username(),
+                "password", credentials.password()));
+        return this.<Cassandra.AsyncClient.login_call>invoke(client,
+                (asyncClient, callback) -> asyncClient.login(authenticationRequest, callback))
+                .thenApply(loginCall -> {
+                    try {
+                        loginCall.getResult();
+                        return null;
+                    } catch (TException e) {
+                        log.error("Exception thrown attempting to authenticate with config provided credentials", e);
+                        throw new CassandraClientFactory.ClientCreationFailedException(
+                                "Failed to authenticate with Cassandra", e);
+                    }
+                });
+    }
+
+    private static final class Connection {
+        private final Cassandra.AsyncClient client;
+        private final TNonblockingSocket socket;
+
+        private Connection(Cassandra.AsyncClient client, TNonblockingSocket socket) {
+            this.client = client;
+            this.socket = socket;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (RuntimeException e) {
+                log.debug("Failed to close an asynchronous Cassandra connection", e);
+            }
+        }
+    }
+
+    private static final class Request<C, V> {
+        private final AsyncCall<C> call;
+        private final FunctionCheckedException<C, V, Exception> resultExtractor;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private final Set<InetSocketAddress> triedHosts = Sets.newConcurrentHashSet();
+        private volatile int numTries = 0;
+
+        private Request(AsyncCall<C> call, FunctionCheckedException<C, V, Exception> resultExtractor) {
+            this.call = call;
+            this.resultExtractor = resultExtractor;
+        }
+    }
+
+    /**
+     * The connections to a single host. A connection carries one request at a time, so the number of open
+     * connections bounds the requests in flight to the host.
+     */
+    private final class HostConnections {
+        private final InetSocketAddress host;
+        private final Deque<Connection> idle = new ArrayDeque<>();
+        private final Deque<CompletableFuture<Connection>> waiters = new ArrayDeque<>();
+        private int open = 0;
+        private int inUse = 0;
+
+        private HostConnections(InetSocketAddress host) {
+            this.host = host;
+        }
+
+        CompletableFuture<Connection> acquire() {
+            synchronized (this) {
+                if (!idle.isEmpty()) {
+                    inUse++;
+                    return CompletableFuture.completedFuture(idle.pop());
+                }
+                if (open >= config.asyncMaxInFlightRequestsPerHost()) {
+                    CompletableFuture<Connection> waiter = new CompletableFuture<>();
+                    waiters.add(waiter);
+                    return waiter;
+                }
+                open++;
+                inUse++;
+            }
+            return connect(host).whenComplete((connection, error) -> {
+                if (error != null) {
+                    connectionLost();
+                }
+            });
+        }
+
+        void release(Connection connection) {
+            if (connection.client.hasError() || shutdown) {
+                connection.close();
+                connectionLost();
+                return;
+            }
+            CompletableFuture<Connection> waiter;
+            synchronized (this) {
+                waiter = waiters.poll();
+                if (waiter == null) {
+                    inUse--;
+                    idle.push(connection);
+                    return;
+                }
+            }
+            callbackExecutor.execute(() -> waiter.complete(connection));
+        }
+
+        private void connectionLost() {
+            CompletableFuture<Connection> waiter;
+            synchronized (this) {
+                open--;
+                inUse--;
+                waiter = waiters.poll();
+                if (waiter == null) {
+                    return;
+                }
+                open++;
+                inUse++;
+            }
+            // Hand the freed slot to the next waiter with a fresh connection.
+            connect(host).whenComplete((connection, error) -> {
+                if (error != null) {
+                    connectionLost();
+                    waiter.completeExceptionally(error);
+                } else {
+                    waiter.complete(connection);
+                }
+            });
+        }
+
+        synchronized int inUse() {
+            return inUse;
+        }
+
+        synchronized int queued() {
+            return waiters.size();
+        }
+
+        void close() {
+            synchronized (this) {
+                idle.forEach(Connection::close);
+                idle.clear();
+                waiters.forEach(waiter -> waiter.completeExceptionally(
+                        new IllegalStateException("The Cassandra client pool is closed.")));
+                waiters.clear();
+            }
+        }
+    }
+}
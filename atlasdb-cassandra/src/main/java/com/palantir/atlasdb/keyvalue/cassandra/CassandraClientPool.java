@@ -28,13 +28,22 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.ToIntBiFunction;
 import java.util.stream.Collectors;
 
 import org.apache.cassandra.thrift.Cassandra;
@@ -82,6 +91,7 @@ import com.palantir.remoting2.tracing.Tracers;
  *   - Pool refreshing
  *   - Pool node autodiscovery
  *   - Pool member health checking*
+ *   - Latency aware host selection / speculative retries of idempotent reads*
  *
  *   *entirely new features
  *
@@ -115,6 +125,12 @@ public class CassandraClientPool {
     private final MetricsManager metricsManager = new MetricsManager();
     private final RequestMetrics aggregateMetrics = new RequestMetrics(null);
     private final Map<InetSocketAddress, RequestMetrics> metricsByHost = new HashMap<>();
+    private final HostLatencyTracker latencyTracker = new HostLatencyTracker();
+    private final SpeculativeRetryBudget speculativeRetryBudget;
+    private final Meter speculativeRetries;
+    private final Meter speculativeRetryWins;
+    private final Optional<ExecutorService> speculativeReadExecutor;
+    private final Optional<ScheduledExecutorService> speculativeReadTimer;
 
     public static class LightweightOppToken implements Comparable<LightweightOppToken> {
         final byte[] bytes;
@@ -204,6 +220,26 @@ public class CassandraClientPool {
 
     private CassandraClientPool(CassandraKeyValueServiceConfig config, StartupChecks startupChecks) {
         this.config = config;
+        this.speculativeRetryBudget = new SpeculativeRetryBudget(config.speculativeRetryBudgetPercent());
+        this.speculativeRetries = metricsManager.registerMeter(CassandraClientPool.class, null, "speculativeRetries");
+        this.speculativeRetryWins = metricsManager.registerMeter(
+                CassandraClientPool.class, null, "speculativeRetryWins");
+        // Speculative reads are dropped rather than queued when every thread is busy, since by the time a queued
+        // one ran the original read would likely have finished anyway.
+        this.speculativeReadExecutor = config.speculativeReadRetries()
+                ? Optional.of(PTExecutors.newThreadPoolExecutor(0, config.poolSize(), 1, TimeUnit.MINUTES,
+                        new SynchronousQueue<>(),
+                        new ThreadFactoryBuilder()
+                                .setDaemon(true)
+                                .setNameFormat("CassandraSpeculativeRead-%d")
+                                .build()))
+                : Optional.empty();
+        this.speculativeReadTimer = config.speculativeReadRetries()
+                ? Optional.of(PTExecutors.newScheduledThreadPool(1, new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("CassandraSpeculativeReadTimer-%d")
+                        .build()))
+                : Optional.empty();
         config.servers().forEach(this::addPool);
         refreshDaemon = Tracers.wrap(PTExecutors.newScheduledThreadPool(1, new ThreadFactoryBuilder()
                 .setDaemon(true)
@@ -228,6 +264,8 @@ public class CassandraClientPool {
 
     public void shutdown() {
         refreshDaemon.shutdown();
+        speculativeReadTimer.ifPresent(ExecutorService::shutdownNow);
+        speculativeReadExecutor.ifPresent(ExecutorService::shutdownNow);
         currentPools.forEach((address, cassandraClientPoolingContainer) ->
                 cassandraClientPoolingContainer.shutdownPooling());
         metricsManager.deregisterMetrics();
@@ -243,6 +281,14 @@ public class CassandraClientPool {
         metricsManager.registerMetric(
                 CassandraClientPool.class, "requestConnectionExceptionProportion",
                 aggregateMetrics::getConnectionExceptionProportion);
+        metricsManager.registerMetric(
+                CassandraClientPool.class, "requestLatency",
+                latencyTracker.getRequestLatency());
+        metricsManager.registerMetric(
+                CassandraClientPool.class, "speculativeRetryWinProportion",
+                () -> speculativeRetries.getCount() == 0
+                        ? 0.0
+                        : ((double) speculativeRetryWins.getCount()) / ((double) speculativeRetries.getCount()));
     }
 
     private synchronized void refreshPool() {
@@ -292,6 +338,7 @@ public class CassandraClientPool {
 
     private void removePool(InetSocketAddress removedServerAddress) {
         deregisterMetricsForHost(removedServerAddress);
+        latencyTracker.removeHost(removedServerAddress);
         blacklistedHosts.remove(removedServerAddress);
         try {
             currentPools.get(removedServerAddress).shutdownPooling();
@@ -355,7 +402,11 @@ public class CassandraClientPool {
         }
     }
 
-    private void addToBlacklist(InetSocketAddress badHost) {
+    boolean isBlacklisted(InetSocketAddress host) {
+        return blacklistedHosts.containsKey(host);
+    }
+
+    void addToBlacklist(InetSocketAddress badHost) {
         blacklistedHosts.put(badHost, System.currentTimeMillis());
         log.info("Blacklisted host '{}'", badHost);
     }
@@ -402,6 +453,17 @@ public class CassandraClientPool {
         return Optional.ofNullable(pools.get(randomLivingHost));
     }
 
+    /**
+     * Returns the inclusive upper bounds of the token ranges in our current view of the ring, in ascending order.
+     */
+    public List<byte[]> getTokenRangeUpperBounds() {
+        return tokenMap.asMapOfRanges().keySet().stream()
+                .filter(Range::hasUpperBound)
+                .map(range -> range.upperEndpoint().bytes)
+                .sorted(UnsignedBytes.lexicographicalComparator())
+                .collect(Collectors.toList());
+    }
+
     public InetSocketAddress getRandomHostForKey(byte[] key) {
         List<InetSocketAddress> hostsForKey = tokenMap.get(new LightweightOppToken(key));
 
@@ -427,9 +489,28 @@ public class CassandraClientPool {
         }
     }
 
-    private static InetSocketAddress getRandomHostByActiveConnections(
+    private InetSocketAddress getRandomHostByActiveConnections(
             Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
-        return WeightedHosts.create(pools).getRandomHost();
+        return WeightedHosts.create(pools, latencyTracker).getRandomHost();
+    }
+
+    /**
+     * Picks a live host other than the given one to send a speculative retry to, preferring the other replicas of
+     * the given key. Any host can coordinate the read, so we fall back to the rest of the cluster if needed.
+     */
+    private Optional<InetSocketAddress> getSpeculativeRetryHost(byte[] routingKey, InetSocketAddress excludedHost) {
+        List<InetSocketAddress> hostsForKey = tokenMap.get(new LightweightOppToken(routingKey));
+        Set<InetSocketAddress> candidates = hostsForKey == null
+                ? ImmutableSet.of()
+                : Sets.difference(ImmutableSet.copyOf(hostsForKey), blacklistedHosts.keySet());
+        if (Sets.difference(candidates, ImmutableSet.of(excludedHost)).isEmpty()) {
+            candidates = Sets.difference(currentPools.keySet(), blacklistedHosts.keySet());
+        }
+        Set<InetSocketAddress> otherHosts = ImmutableSet.copyOf(
+                Sets.difference(candidates, ImmutableSet.of(excludedHost)));
+        Map<InetSocketAddress, CassandraClientPoolingContainer> pools =
+                Maps.filterKeys(currentPools, otherHosts::contains);
+        return pools.isEmpty() ? Optional.empty() : Optional.of(getRandomHostByActiveConnections(pools));
     }
 
     public void runOneTimeStartupChecks() {
@@ -617,6 +698,165 @@ public class CassandraClientPool {
         }
     }
 
+    /**
+     * Runs an idempotent read on the given host, as {@link #runWithRetryOnHost} does. If speculative retries are
+     * enabled and the read has not completed within the configured percentile of recent latencies, it is also
+     * sent to another replica of {@code routingKey}, and whichever succeeds first is returned.
+     * <p>
+     * The original read runs on the calling thread; only the speculative one is handed to another thread. If the
+     * speculative read wins, the original read's connection is closed to release the calling thread.
+     */
+    public <V, K extends Exception> V runIdempotentReadWithRetryOnHost(
+            InetSocketAddress specifiedHost,
+            byte[] routingKey,
+            FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
+        if (!speculativeReadExecutor.isPresent()) {
+            return runWithRetryOnHost(specifiedHost, fn);
+        }
+        speculativeRetryBudget.recordRequest();
+        OptionalLong speculationDelayNanos = latencyTracker.getLatencyPercentileNanos(
+                config.speculativeRetryPercentile());
+        if (!speculationDelayNanos.isPresent()) {
+            return runWithRetryOnHost(specifiedHost, fn);
+        }
+        return new SpeculativeRead<>(specifiedHost, routingKey, fn).run(speculationDelayNanos.getAsLong());
+    }
+
+    /**
+     * A read which is run on the calling thread, and also on another host if it is slow.
+     */
+    private final class SpeculativeRead<V, K extends Exception>
+            implements FunctionCheckedException<Cassandra.Client, V, K> {
+        private final InetSocketAddress host;
+        private final byte[] routingKey;
+        private final FunctionCheckedException<Cassandra.Client, V, K> fn;
+
+        private Cassandra.Client originalReadClient = null;
+        private boolean originalReadFinished = false;
+        private boolean originalReadAbandoned = false;
+        private CompletableFuture<V> speculativeRead = null;
+
+        private SpeculativeRead(
+                InetSocketAddress host,
+                byte[] routingKey,
+                FunctionCheckedException<Cassandra.Client, V, K> fn) {
+            this.host = host;
+            this.routingKey = routingKey;
+            this.fn = fn;
+        }
+
+        @SuppressWarnings("unchecked")
+        V run(long speculationDelayNanos) throws K {
+            ScheduledFuture<?> speculation = speculativeReadTimer.get().schedule(
+                    this::startSpeculativeRead, speculationDelayNanos, TimeUnit.NANOSECONDS);
+            V result = null;
+            Exception failure = null;
+            try {
+                result = runWithRetryOnHost(host, this);
+            } catch (Exception e) {
+                failure = e;
+            }
+            CompletableFuture<V> speculativeResult;
+            boolean abandoned;
+            synchronized (this) {
+                originalReadFinished = true;
+                speculativeResult = speculativeRead;
+                abandoned = originalReadAbandoned;
+            }
+            speculation.cancel(false);
+            if (abandoned) {
+                // The original read is only abandoned once the speculative retry has succeeded.
+                return speculativeResult.join();
+            }
+            if (failure == null) {
+                return result;
+            }
+            // Only fail if both reads do, and then with the original failure.
+            if (speculativeResult != null) {
+                try {
+                    return speculativeResult.get();
+                } catch (ExecutionException e) {
+                    log.debug("The speculative retry of a failed read also failed.", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw Throwables.rewrapAndThrowUncheckedException(e);
+                }
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw (K) failure;
+        }
+
+        /**
+         * Once the original read has been abandoned, its failure (typically the {@link TTransportException} from
+         * closing its connection) is the expected outcome rather than a problem with the host, so it is swallowed
+         * here instead of being logged, counted against the host and retried by {@link #runWithRetryOnHost};
+         * {@link #run} then returns the speculative result.
+         */
+        @Override
+        public V apply(Cassandra.Client client) throws K {
+            synchronized (this) {
+                if (originalReadAbandoned) {
+                    return null;
+                }
+                originalReadClient = client;
+            }
+            try {
+                return fn.apply(client);
+            } catch (Exception e) {
+                synchronized (this) {
+                    if (originalReadAbandoned) {
+                        log.debug("Ignoring the failure of a read whose speculative retry succeeded first.", e);
+                        return null;
+                    }
+                }
+                throw e;
+            } finally {
+                synchronized (this) {
+                    originalReadClient = null;
+                }
+            }
+        }
+
+        private void startSpeculativeRead() {
+            Optional<InetSocketAddress> speculativeHost = getSpeculativeRetryHost(routingKey, host);
+            synchronized (this) {
+                if (originalReadFinished
+                        || !speculativeHost.isPresent()
+                        || !speculativeRetryBudget.tryAcquireRetry()) {
+                    return;
+                }
+                try {
+                    speculativeRead = CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return runWithRetryOnHost(speculativeHost.get(), fn);
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }, speculativeReadExecutor.get());
+                } catch (RejectedExecutionException e) {
+                    log.debug("Not retrying a slow read speculatively, as all speculative read threads are busy.");
+                    return;
+                }
+            }
+            speculativeRetries.mark();
+            speculativeRead.thenAccept(unused -> abandonOriginalRead());
+        }
+
+        private synchronized void abandonOriginalRead() {
+            if (originalReadFinished || originalReadAbandoned) {
+                return;
+            }
+            originalReadAbandoned = true;
+            speculativeRetryWins.mark();
+            if (originalReadClient != null) {
+                // Unblocks the calling thread; the pool discards clients whose transport failed.
+                originalReadClient.getInputProtocol().getTransport().close();
+            }
+        }
+    }
+
     public <V, K extends Exception> V run(FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
         return runOnHost(getRandomGoodHost().getHost(), fn);
     }
@@ -633,6 +873,7 @@ public class CassandraClientPool {
             FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
 
         recordRequestOnHost(hostPool);
+        long startNanos = System.nanoTime();
         try {
             return hostPool.runWithPooledResource(fn);
         } catch (Exception e) {
@@ -641,6 +882,9 @@ public class CassandraClientPool {
                 recordConnectionExceptionOnHost(hostPool);
             }
             throw e;
+        } finally {
+            // failures count too: a host that times out is the slowest host of all
+            latencyTracker.recordLatency(hostPool.getHost(), System.nanoTime() - startNanos);
         }
     }
 
@@ -790,11 +1034,14 @@ public class CassandraClientPool {
             };
 
     /**
-     * Weights hosts inversely by the number of active connections. {@link #getRandomHost()} should then be used to
-     * pick a random host
+     * Weights hosts inversely by the number of active connections and, optionally, by their recent latency.
+     * {@link #getRandomHost()} should then be used to pick a random host
      */
     @VisibleForTesting
     static final class WeightedHosts {
+        // Latency weights are fractional; scale them up so that rounding to an int keeps them distinguishable
+        private static final int LATENCY_WEIGHT_RESOLUTION = 100;
+
         final NavigableMap<Integer, InetSocketAddress> hosts;
 
         private WeightedHosts(NavigableMap<Integer, InetSocketAddress> hosts) {
@@ -803,7 +1050,21 @@ public class CassandraClientPool {
 
         static WeightedHosts create(Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
             Preconditions.checkArgument(!pools.isEmpty(), "pools should be non-empty");
-            return new WeightedHosts(buildHostsWeightedByActiveConnections(pools));
+            return new WeightedHosts(buildHostsWeightedByActiveConnections(pools, (host, weight) -> weight));
+        }
+
+        /**
+         * As {@link #create(Map)}, but scales each host's weight down by how much slower it has recently been than
+         * the fastest of the given hosts, so that slow (but not blacklisted) replicas receive fewer requests.
+         */
+        static WeightedHosts create(
+                Map<InetSocketAddress, CassandraClientPoolingContainer> pools,
+                HostLatencyTracker latencyTracker) {
+            Preconditions.checkArgument(!pools.isEmpty(), "pools should be non-empty");
+            Set<InetSocketAddress> hosts = pools.keySet();
+            return new WeightedHosts(buildHostsWeightedByActiveConnections(pools, (host, weight) ->
+                    Math.max(1, (int) Math.round(
+                            weight * LATENCY_WEIGHT_RESOLUTION * latencyTracker.getLatencyWeight(host, hosts)))));
         }
 
         /**
@@ -816,7 +1077,8 @@ public class CassandraClientPool {
          * than the previous key.
          */
         private static NavigableMap<Integer, InetSocketAddress> buildHostsWeightedByActiveConnections(
-                Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+                Map<InetSocketAddress, CassandraClientPoolingContainer> pools,
+                ToIntBiFunction<InetSocketAddress, Integer> weightAdjuster) {
 
             Map<InetSocketAddress, Integer> openRequestsByHost = new HashMap<>(pools.size());
             int totalOpenRequests = 0;
@@ -831,7 +1093,7 @@ public class CassandraClientPool {
             for (Entry<InetSocketAddress, Integer> entry : openRequestsByHost.entrySet()) {
                 // We want the weight to be inversely proportional to the number of open requests so that we pick
                 // less-active hosts. We add 1 to make sure that all ranges are non-empty
-                int weight = totalOpenRequests - entry.getValue() + 1;
+                int weight = weightAdjuster.applyAsInt(entry.getKey(), totalOpenRequests - entry.getValue() + 1);
                 weightedHosts.put(lowerBoundInclusive + weight, entry.getKey());
                 lowerBoundInclusive += weight;
             }
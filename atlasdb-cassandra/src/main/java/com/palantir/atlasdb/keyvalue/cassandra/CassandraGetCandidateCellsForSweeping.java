@@ -0,0 +1,309 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.KeyRange;
+import org.apache.cassandra.thrift.KeySlice;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.RowGetter;
+import com.palantir.atlasdb.keyvalue.impl.CandidateCellsForSweeping;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.common.base.Throwables;
+import com.palantir.util.Pair;
+
+/**
+ * Finds candidate cells for sweeping with a single paged get_range_slices scan, building the candidates directly
+ * from the returned columns rather than going through {@link ResultsExtractor} row results.
+ * <p>
+ * The scan is split at the token range boundaries of the ring. Pages of each token range are fetched in order,
+ * but the first pages of the next few token ranges are fetched concurrently with the current one, so that their
+ * replicas work in parallel. Results are still returned in row order.
+ */
+final class CassandraGetCandidateCellsForSweeping {
+    private static final int MAX_CONCURRENT_TOKEN_RANGES = 8;
+
+    private final RowGetter rowGetter;
+    private final ExecutorService executor;
+    private final List<byte[]> tokenRangeUpperBounds;
+    private final int concurrentTokenRanges;
+
+    CassandraGetCandidateCellsForSweeping(
+            RowGetter rowGetter,
+            ExecutorService executor,
+            List<byte[]> tokenRangeUpperBounds,
+            int rangesConcurrency) {
+        this.rowGetter = rowGetter;
+        this.executor = executor;
+        this.tokenRangeUpperBounds = tokenRangeUpperBounds;
+        this.concurrentTokenRanges = Math.max(1, Math.min(rangesConcurrency, MAX_CONCURRENT_TOKEN_RANGES));
+    }
+
+    ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(
+            CandidateCellForSweepingRequest request) {
+        int batchHint = Math.max(1,
+                request.batchSizeHint().orElse(AtlasDbConstants.DEFAULT_SWEEP_CANDIDATE_BATCH_HINT));
+        CandidateIterator iterator = new CandidateIterator(
+                request, splitByTokenRanges(request.startRowInclusive(), tokenRangeUpperBounds, batchHint));
+        return ClosableIterators.wrap(iterator, iterator::cancelOutstandingScans);
+    }
+
+    /**
+     * Splits the rows from startRowInclusive onwards into key ranges that each lie within one token range.
+     */
+    @VisibleForTesting
+    static Deque<TokenRangeScan> splitByTokenRanges(
+            byte[] startRowInclusive,
+            List<byte[]> tokenRangeUpperBounds,
+            int batchHint) {
+        Deque<TokenRangeScan> scans = new ArrayDeque<>();
+        byte[] start = startRowInclusive;
+        for (byte[] upperBound : tokenRangeUpperBounds) {
+            if (upperBound.length == 0 || UnsignedBytes.lexicographicalComparator().compare(upperBound, start) < 0) {
+                continue;
+            }
+            scans.add(new TokenRangeScan(start, upperBound, batchHint));
+            if (RangeRequests.isLastRowName(upperBound)) {
+                return scans;
+            }
+            start = RangeRequests.nextLexicographicName(upperBound);
+        }
+        scans.add(new TokenRangeScan(start, PtBytes.EMPTY_BYTE_ARRAY, batchHint));
+        return scans;
+    }
+
+    @VisibleForTesting
+    static final class TokenRangeScan {
+        private final byte[] endInclusive;
+        private final int batchHint;
+        private byte[] nextStartInclusive;
+
+        TokenRangeScan(byte[] startInclusive, byte[] endInclusive, int batchHint) {
+            this.nextStartInclusive = startInclusive;
+            this.endInclusive = endInclusive;
+            this.batchHint = batchHint;
+        }
+
+        KeyRange nextKeyRange() {
+            KeyRange keyRange = new KeyRange(batchHint);
+            keyRange.setStart_key(nextStartInclusive);
+            keyRange.setEnd_key(endInclusive);
+            return keyRange;
+        }
+
+        /**
+         * Records that a page was read, and returns whether there may be more rows in this token range.
+         */
+        boolean advancePast(List<KeySlice> page) {
+            if (page.size() < batchHint) {
+                return false;
+            }
+            byte[] lastRow = page.get(page.size() - 1).getKey();
+            if (RangeRequests.isLastRowName(lastRow) || PtBytes.BYTES_COMPARATOR.compare(lastRow, endInclusive) == 0) {
+                return false;
+            }
+            nextStartInclusive = RangeRequests.nextLexicographicName(lastRow);
+            return true;
+        }
+
+        byte[] getStartInclusive() {
+            return nextStartInclusive;
+        }
+
+        byte[] getEndInclusive() {
+            return endInclusive;
+        }
+    }
+
+    private final class CandidateIterator extends AbstractIterator<List<CandidateCellForSweeping>> {
+        private final CandidateCellForSweepingRequest request;
+        private final Deque<TokenRangeScan> scans;
+        private final Deque<Future<List<KeySlice>>> pendingPages = new ArrayDeque<>();
+        private long numCellTsPairsExamined = 0;
+
+        CandidateIterator(CandidateCellForSweepingRequest request, Deque<TokenRangeScan> scans) {
+            this.request = request;
+            this.scans = scans;
+        }
+
+        @Override
+        protected List<CandidateCellForSweeping> computeNext() {
+            while (!scans.isEmpty()) {
+                fetchAhead();
+                TokenRangeScan scan = scans.peekFirst();
+                List<KeySlice> page = getPage(pendingPages.removeFirst());
+                if (scan.advancePast(page)) {
+                    pendingPages.addFirst(submit(scan));
+                } else {
+                    scans.removeFirst();
+                }
+                List<CandidateCellForSweeping> candidates = getCandidates(page);
+                if (!candidates.isEmpty()) {
+                    return candidates;
+                }
+            }
+            return endOfData();
+        }
+
+        /**
+         * Makes sure that the next page of each of the first few token ranges is being fetched.
+         */
+        private void fetchAhead() {
+            int index = 0;
+            for (TokenRangeScan scan : scans) {
+                if (index >= concurrentTokenRanges) {
+                    return;
+                }
+                if (index >= pendingPages.size()) {
+                    pendingPages.addLast(submit(scan));
+                }
+                index++;
+            }
+        }
+
+        private List<KeySlice> getPage(Future<List<KeySlice>> pendingPage) {
+            try {
+                return pendingPage.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.rewrapAndThrowUncheckedException(e);
+            } catch (ExecutionException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+            }
+        }
+
+        private Future<List<KeySlice>> submit(TokenRangeScan scan) {
+            KeyRange keyRange = scan.nextKeyRange();
+            return executor.submit(() -> rowGetter.getRows(keyRange));
+        }
+
+        private List<CandidateCellForSweeping> getCandidates(List<KeySlice> page) {
+            List<CandidateCellForSweeping> candidates = Lists.newArrayList();
+            for (KeySlice row : page) {
+                for (CellTimestamps cell : getCellTimestamps(row, request).values()) {
+                    long[] timestamps = cell.getSortedTimestamps();
+                    numCellTsPairsExamined += timestamps.length;
+                    boolean candidate = CandidateCellsForSweeping.isCandidate(
+                            timestamps, cell.isLatestValueEmpty(), request);
+                    candidates.add(ImmutableCandidateCellForSweeping.builder()
+                            .cell(Cell.create(row.getKey(), cell.getColumnName()))
+                            .sortedTimestamps(candidate ? timestamps : CandidateCellsForSweeping.EMPTY_LONG_ARRAY)
+                            .isLatestValueEmpty(cell.isLatestValueEmpty())
+                            .numCellsTsPairsExamined(numCellTsPairsExamined)
+                            .build());
+                }
+            }
+            return candidates;
+        }
+
+        void cancelOutstandingScans() {
+            for (Future<List<KeySlice>> pendingPage : pendingPages) {
+                pendingPage.cancel(true);
+            }
+            pendingPages.clear();
+            scans.clear();
+        }
+    }
+
+    /**
+     * Collects the timestamps of each column of a row that are below the sweep timestamp and not ignored,
+     * keyed and ordered by column name. Columns whose timestamps below the sweep timestamp are all ignored are
+     * still included, with no timestamps, so that they are returned to the sweeper like any other cell.
+     */
+    @VisibleForTesting
+    static Map<byte[], CellTimestamps> getCellTimestamps(KeySlice row, CandidateCellForSweepingRequest request) {
+        Map<byte[], CellTimestamps> cells = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+        for (ColumnOrSuperColumn column : row.getColumns()) {
+            Pair<byte[], Long> nameAndTs = CassandraKeyValueServices.decomposeName(column.getColumn());
+            long ts = nameAndTs.rhSide;
+            if (ts >= request.sweepTimestamp()) {
+                continue;
+            }
+            CellTimestamps cell = cells.computeIfAbsent(nameAndTs.lhSide, CellTimestamps::new);
+            if (!contains(request.timestampsToIgnore(), ts)) {
+                cell.add(ts, column.getColumn().bufferForValue().remaining() == 0);
+            }
+        }
+        return cells;
+    }
+
+    private static boolean contains(long[] timestamps, long ts) {
+        for (long timestamp : timestamps) {
+            if (timestamp == ts) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @VisibleForTesting
+    static final class CellTimestamps {
+        private final byte[] columnName;
+        private final List<Long> timestamps = Lists.newArrayList();
+        private long latestTimestamp = Long.MIN_VALUE;
+        private boolean latestValueEmpty = false;
+
+        CellTimestamps(byte[] columnName) {
+            this.columnName = columnName;
+        }
+
+        void add(long ts, boolean valueEmpty) {
+            timestamps.add(ts);
+            if (ts > latestTimestamp) {
+                latestTimestamp = ts;
+                latestValueEmpty = valueEmpty;
+            }
+        }
+
+        byte[] getColumnName() {
+            return columnName;
+        }
+
+        long[] getSortedTimestamps() {
+            long[] sorted = Longs.toArray(timestamps);
+            // Cassandra returns the timestamps of a column in descending order.
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        boolean isLatestValueEmpty() {
+            return latestValueEmpty;
+        }
+    }
+}
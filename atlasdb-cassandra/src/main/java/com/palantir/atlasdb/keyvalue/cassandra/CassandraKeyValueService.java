@@ -31,6 +31,8 @@ import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -38,6 +40,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.cassandra.thrift.CASResult;
+import org.apache.cassandra.thrift.Cassandra;
 import org.apache.cassandra.thrift.Cassandra.Client;
 import org.apache.cassandra.thrift.CfDef;
 import org.apache.cassandra.thrift.Column;
@@ -45,6 +48,8 @@ import org.apache.cassandra.thrift.ColumnOrSuperColumn;
 import org.apache.cassandra.thrift.ColumnParent;
 import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.cassandra.thrift.Deletion;
+import org.apache.cassandra.thrift.KeyRange;
+import org.apache.cassandra.thrift.KeySlice;
 import org.apache.cassandra.thrift.KsDef;
 import org.apache.cassandra.thrift.Mutation;
 import org.apache.cassandra.thrift.SlicePredicate;
@@ -60,6 +65,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
 import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
@@ -153,6 +159,9 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
 
     private final Optional<CassandraJmxCompactionManager> compactionManager;
     private final CassandraClientPool clientPool;
+    private final Supplier<Optional<CassandraAsyncClientPool>> asyncClientPool;
+    private volatile boolean asyncClientPoolCreated = false;
+    private final ExecutorService asyncFallbackExecutor;
     private SchemaMutationLock schemaMutationLock;
     private final Optional<LeaderConfig> leaderConfig;
     private final HiddenTables hiddenTables;
@@ -197,6 +206,16 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         this.log = log;
         this.configManager = configManager;
         this.clientPool = new CassandraClientPool(configManager.getConfig());
+        // Most users never make asynchronous requests, so the selector and callback threads are only started
+        // by the first one.
+        this.asyncClientPool = Suppliers.memoize(() -> {
+            asyncClientPoolCreated = true;
+            return CassandraAsyncClientPool.create(configManager.getConfig(), clientPool);
+        });
+        // Kept apart from the main executor, which the blocking methods use for their own sub-requests: running
+        // them on it could leave no thread free for those sub-requests.
+        this.asyncFallbackExecutor = createFixedThreadPool("Atlas Cassandra KVS async fallback",
+                configManager.getConfig().poolSize() * configManager.getConfig().servers().size());
         this.compactionManager = compactionManager;
         this.leaderConfig = leaderConfig;
         this.hiddenTables = new HiddenTables();
@@ -372,18 +391,11 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             int fetchBatchCount = configManager.getConfig().fetchBatchCount();
             for (final List<byte[]> batch : Lists.partition(rows, fetchBatchCount)) {
                 rowCount += batch.size();
-                result.putAll(clientPool.runWithRetryOnHost(host,
+                result.putAll(clientPool.runIdempotentReadWithRetryOnHost(host, batch.get(0),
                         new FunctionCheckedException<Client, Map<Cell, Value>, Exception>() {
                             @Override
                             public Map<Cell, Value> apply(Client client) throws Exception {
-                                // We want to get all the columns in the row so set start and end to empty.
-                                SliceRange slice = new SliceRange(
-                                        ByteBuffer.wrap(PtBytes.EMPTY_BYTE_ARRAY),
-                                        ByteBuffer.wrap(PtBytes.EMPTY_BYTE_ARRAY),
-                                        false,
-                                        Integer.MAX_VALUE);
-                                SlicePredicate pred = new SlicePredicate();
-                                pred.setSlice_range(slice);
+                                SlicePredicate pred = getAllColumnsPredicate();
 
                                 List<ByteBuffer> rowNames = wrap(batch);
 
@@ -420,6 +432,18 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    private static SlicePredicate getAllColumnsPredicate() {
+        // We want to get all the columns in the row so set start and end to empty.
+        SliceRange slice = new SliceRange(
+                ByteBuffer.wrap(PtBytes.EMPTY_BYTE_ARRAY),
+                ByteBuffer.wrap(PtBytes.EMPTY_BYTE_ARRAY),
+                false,
+                Integer.MAX_VALUE);
+        SlicePredicate pred = new SlicePredicate();
+        pred.setSlice_range(slice);
+        return pred;
+    }
+
     private List<ByteBuffer> wrap(List<byte[]> arrays) {
         List<ByteBuffer> byteBuffers = Lists.newArrayListWithCapacity(arrays.size());
         for (byte[] r : arrays) {
@@ -432,6 +456,13 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                                        final Iterable<byte[]> rows,
                                                        ColumnSelection selection,
                                                        final long startTs) {
+        Set<Cell> cells = getCellsForSpecificColumns(rows, selection);
+        StartTsResultsCollector collector = new StartTsResultsCollector(startTs);
+        loadWithTs(tableRef, cells, startTs, false, collector, readConsistency);
+        return collector.getCollectedResults();
+    }
+
+    private static Set<Cell> getCellsForSpecificColumns(Iterable<byte[]> rows, ColumnSelection selection) {
         Preconditions.checkArgument(!selection.allColumnsSelected(), "Must select specific columns");
 
         Collection<byte[]> selectedColumns = selection.getSelectedColumns();
@@ -441,10 +472,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                 cells.add(Cell.create(row, col));
             }
         }
-
-        StartTsResultsCollector collector = new StartTsResultsCollector(startTs);
-        loadWithTs(tableRef, cells, startTs, false, collector, readConsistency);
-        return collector.getCollectedResults();
+        return cells;
     }
 
     /**
@@ -537,14 +565,9 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                                                  final ThreadSafeResultVisitor visitor,
                                                                  final ConsistencyLevel consistency) {
         final ColumnParent colFam = new ColumnParent(internalTableName(tableRef));
-        Multimap<byte[], Cell> cellsByCol =
-                TreeMultimap.create(UnsignedBytes.lexicographicalComparator(), Ordering.natural());
-        for (Cell cell : cells) {
-            cellsByCol.put(cell.getColumnName(), cell);
-        }
         List<Callable<Void>> tasks = Lists.newArrayList();
         int fetchBatchCount = configManager.getConfig().fetchBatchCount();
-        for (Entry<byte[], Collection<Cell>> entry : Multimaps.asMap(cellsByCol).entrySet()) {
+        for (Entry<byte[], Collection<Cell>> entry : groupByColumn(cells).entrySet()) {
             final byte[] col = entry.getKey();
             Collection<Cell> columnCells = entry.getValue();
             if (columnCells.size() > fetchBatchCount) {
@@ -560,16 +583,8 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                         new FunctionCheckedException<Client, Void, Exception>() {
                             @Override
                             public Void apply(Client client) throws Exception {
-                                ByteBuffer start = CassandraKeyValueServices.makeCompositeBuffer(col, startTs - 1);
-                                ByteBuffer end = CassandraKeyValueServices.makeCompositeBuffer(col, -1);
-                                SliceRange slice = new SliceRange(start, end, false, loadAllTs ? Integer.MAX_VALUE : 1);
-                                SlicePredicate predicate = new SlicePredicate();
-                                predicate.setSlice_range(slice);
-
-                                List<ByteBuffer> rowNames = Lists.newArrayListWithCapacity(partition.size());
-                                for (Cell c : partition) {
-                                    rowNames.add(ByteBuffer.wrap(c.getRowName()));
-                                }
+                                SlicePredicate predicate = getColumnBeforeTimestampPredicate(col, startTs, loadAllTs);
+                                List<ByteBuffer> rowNames = getRowNames(partition);
 
                                 if (log.isTraceEnabled()) {
                                     log.trace("Requesting {} cells from {} {}starting at timestamp {} on {}",
@@ -601,6 +616,32 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         return tasks;
     }
 
+    private static Map<byte[], Collection<Cell>> groupByColumn(Collection<Cell> cells) {
+        Multimap<byte[], Cell> cellsByCol =
+                TreeMultimap.create(UnsignedBytes.lexicographicalComparator(), Ordering.natural());
+        for (Cell cell : cells) {
+            cellsByCol.put(cell.getColumnName(), cell);
+        }
+        return Multimaps.asMap(cellsByCol);
+    }
+
+    private static SlicePredicate getColumnBeforeTimestampPredicate(byte[] col, long startTs, boolean loadAllTs) {
+        ByteBuffer start = CassandraKeyValueServices.makeCompositeBuffer(col, startTs - 1);
+        ByteBuffer end = CassandraKeyValueServices.makeCompositeBuffer(col, -1);
+        SliceRange slice = new SliceRange(start, end, false, loadAllTs ? Integer.MAX_VALUE : 1);
+        SlicePredicate predicate = new SlicePredicate();
+        predicate.setSlice_range(slice);
+        return predicate;
+    }
+
+    private static List<ByteBuffer> getRowNames(List<Cell> cells) {
+        List<ByteBuffer> rowNames = Lists.newArrayListWithCapacity(cells.size());
+        for (Cell c : cells) {
+            rowNames.add(ByteBuffer.wrap(c.getRowName()));
+        }
+        return rowNames;
+    }
+
     /**
      * Gets values from the key-value store for the specified rows and column range
      * as separate iterators for each row.
@@ -713,7 +754,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                                              BatchColumnRangeSelection batchColumnRangeSelection,
                                                              long startTs) {
         try {
-            return clientPool.runWithRetryOnHost(host,
+            return clientPool.runIdempotentReadWithRetryOnHost(host, rows.get(0),
                     new FunctionCheckedException<Client, RowColumnRangeExtractor.RowColumnRangeResult, Exception>() {
                         @Override
                         public RowColumnRangeExtractor.RowColumnRangeResult apply(Client client) throws Exception {
@@ -1007,33 +1048,39 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
     @Override
     public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp)
             throws KeyAlreadyExistsException {
+        Map<InetSocketAddress, List<TableCellAndValue>> partitionedByHost = partitionByHost(
+                flatten(valuesByTable), TableCellAndValue.EXTRACT_ROW_NAME_FUNCTION);
+
+        List<Callable<Void>> callables = Lists.newArrayList();
+        for (Map.Entry<InetSocketAddress, List<TableCellAndValue>> entry : partitionedByHost.entrySet()) {
+            callables.addAll(getMultiPutTasksForSingleHost(entry.getKey(), entry.getValue(), timestamp));
+        }
+        runAllTasksCancelOnFailure(callables);
+    }
+
+    private static List<TableCellAndValue> flatten(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable) {
         List<TableCellAndValue> flattened = Lists.newArrayList();
         for (Map.Entry<TableReference, ? extends Map<Cell, byte[]>> tableAndValues : valuesByTable.entrySet()) {
             for (Map.Entry<Cell, byte[]> entry : tableAndValues.getValue().entrySet()) {
                 flattened.add(new TableCellAndValue(tableAndValues.getKey(), entry.getKey(), entry.getValue()));
             }
         }
-        Map<InetSocketAddress, List<TableCellAndValue>> partitionedByHost =
-                partitionByHost(flattened, TableCellAndValue.EXTRACT_ROW_NAME_FUNCTION);
+        return flattened;
+    }
 
-        List<Callable<Void>> callables = Lists.newArrayList();
-        for (Map.Entry<InetSocketAddress, List<TableCellAndValue>> entry : partitionedByHost.entrySet()) {
-            callables.addAll(getMultiPutTasksForSingleHost(entry.getKey(), entry.getValue(), timestamp));
-        }
-        runAllTasksCancelOnFailure(callables);
+    private Iterable<List<TableCellAndValue>> partitionIntoMultiPutBatches(Collection<TableCellAndValue> values) {
+        return partitionByCountAndBytes(values,
+                getMultiPutBatchCount(),
+                getMultiPutBatchSizeBytes(),
+                extractTableNames(values).toString(),
+                TableCellAndValue.SIZING_FUNCTION);
     }
 
     private List<Callable<Void>> getMultiPutTasksForSingleHost(final InetSocketAddress host,
                                                                Collection<TableCellAndValue> values,
                                                                final long timestamp) {
-        Iterable<List<TableCellAndValue>> partitioned =
-                partitionByCountAndBytes(values,
-                        getMultiPutBatchCount(),
-                        getMultiPutBatchSizeBytes(),
-                        extractTableNames(values).toString(),
-                        TableCellAndValue.SIZING_FUNCTION);
         List<Callable<Void>> tasks = Lists.newArrayList();
-        for (final List<TableCellAndValue> batch : partitioned) {
+        for (final List<TableCellAndValue> batch : partitionIntoMultiPutBatches(values)) {
             final Set<TableReference> tableRefs = extractTableNames(batch);
             tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
                     "Atlas multiPut of " + batch.size() + " cells into " + tableRefs + " on " + host,
@@ -1150,6 +1197,176 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         return queryRunner.run(client, tableRef, () -> client.multiget_slice(rowNames, colFam, pred, consistency));
     }
 
+    /**
+     * Asynchronous version of {@link #getRows}. Requests do not hold a thread while they are in flight; see
+     * {@link CassandraAsyncClientPool}. When asynchronous requests are unavailable (over SSL), the blocking
+     * version is run on a separate executor instead.
+     */
+    public CompletableFuture<Map<Cell, Value>> getRowsAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection selection,
+            long startTs) {
+        if (!asyncClientPool.get().isPresent()) {
+            return CompletableFuture.supplyAsync(
+                    () -> getRows(tableRef, rows, selection, startTs), asyncFallbackExecutor);
+        }
+        if (!selection.allColumnsSelected()) {
+            return loadWithTsAsync(tableRef, getCellsForSpecificColumns(rows, selection), startTs);
+        }
+
+        ColumnParent colFam = new ColumnParent(internalTableName(tableRef));
+        int fetchBatchCount = configManager.getConfig().fetchBatchCount();
+        List<CompletableFuture<Map<Cell, Value>>> futures = Lists.newArrayList();
+        for (Map.Entry<InetSocketAddress, List<byte[]>> hostAndRows
+                : partitionByHost(rows, Functions.<byte[]>identity()).entrySet()) {
+            for (List<byte[]> batch : Lists.partition(hostAndRows.getValue(), fetchBatchCount)) {
+                futures.add(multigetAsync(hostAndRows.getKey(), wrap(batch), colFam, getAllColumnsPredicate())
+                        .thenApply(results -> {
+                            Map<Cell, Value> ret = Maps.newHashMapWithExpectedSize(batch.size());
+                            new ValueExtractor(ret).extractResults(results, startTs, ColumnSelection.all());
+                            return ret;
+                        }));
+            }
+        }
+        return allAsList(futures).thenApply(CassandraKeyValueService::mergeResults);
+    }
+
+    /**
+     * Asynchronous version of {@link #get}; see {@link #getRowsAsync}.
+     */
+    public CompletableFuture<Map<Cell, Value>> getAsync(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        if (!asyncClientPool.get().isPresent()) {
+            return CompletableFuture.supplyAsync(() -> get(tableRef, timestampByCell), asyncFallbackExecutor);
+        }
+        SetMultimap<Long, Cell> cellsByTs = Multimaps.invertFrom(
+                Multimaps.forMap(timestampByCell), HashMultimap.<Long, Cell>create());
+        List<CompletableFuture<Map<Cell, Value>>> futures = Lists.newArrayList();
+        for (long ts : cellsByTs.keySet()) {
+            futures.add(loadWithTsAsync(tableRef, cellsByTs.get(ts), ts));
+        }
+        return allAsList(futures).thenApply(CassandraKeyValueService::mergeResults);
+    }
+
+    private CompletableFuture<Map<Cell, Value>> loadWithTsAsync(
+            TableReference tableRef,
+            Set<Cell> cells,
+            long startTs) {
+        ColumnParent colFam = new ColumnParent(internalTableName(tableRef));
+        int fetchBatchCount = configManager.getConfig().fetchBatchCount();
+        StartTsResultsCollector collector = new StartTsResultsCollector(startTs);
+        List<CompletableFuture<Void>> futures = Lists.newArrayList();
+        for (Map.Entry<InetSocketAddress, List<Cell>> hostAndCells
+                : partitionByHost(cells, Cells.getRowFunction()).entrySet()) {
+            for (Entry<byte[], Collection<Cell>> entry : groupByColumn(hostAndCells.getValue()).entrySet()) {
+                SlicePredicate predicate = getColumnBeforeTimestampPredicate(entry.getKey(), startTs, false);
+                List<Cell> columnCells = ImmutableList.copyOf(entry.getValue());
+                for (List<Cell> partition : Lists.partition(columnCells, fetchBatchCount)) {
+                    futures.add(multigetAsync(hostAndCells.getKey(), getRowNames(partition), colFam, predicate)
+                            .thenAccept(collector::visit));
+                }
+            }
+        }
+        return allAsList(futures).thenApply(unused -> collector.getCollectedResults());
+    }
+
+    private CompletableFuture<Map<ByteBuffer, List<ColumnOrSuperColumn>>> multigetAsync(
+            InetSocketAddress host,
+            List<ByteBuffer> rowNames,
+            ColumnParent colFam,
+            SlicePredicate pred) {
+        return asyncClientPool.get().get().runWithRetryOnHost(
+                host,
+                (client, callback) -> client.multiget_slice(rowNames, colFam, pred, readConsistency, callback),
+                (Cassandra.AsyncClient.multiget_slice_call call) -> call.getResult());
+    }
+
+    /**
+     * Asynchronous version of {@link #multiPut}; see {@link #getRowsAsync}.
+     */
+    public CompletableFuture<Void> multiPutAsync(
+            Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
+            long timestamp) {
+        if (!asyncClientPool.get().isPresent()) {
+            return CompletableFuture.runAsync(() -> multiPut(valuesByTable, timestamp), asyncFallbackExecutor);
+        }
+        Map<InetSocketAddress, List<TableCellAndValue>> partitionedByHost = partitionByHost(
+                flatten(valuesByTable), TableCellAndValue.EXTRACT_ROW_NAME_FUNCTION);
+        List<CompletableFuture<Void>> futures = Lists.newArrayList();
+        for (Map.Entry<InetSocketAddress, List<TableCellAndValue>> hostAndValues : partitionedByHost.entrySet()) {
+            for (List<TableCellAndValue> batch : partitionIntoMultiPutBatches(hostAndValues.getValue())) {
+                Map<ByteBuffer, Map<String, List<Mutation>>> mutations = convertToMutations(batch, timestamp);
+                futures.add(asyncClientPool.get().get().runWithRetryOnHost(
+                        hostAndValues.getKey(),
+                        (client, callback) -> client.batch_mutate(mutations, writeConsistency, callback),
+                        (Cassandra.AsyncClient.batch_mutate_call call) -> {
+                            call.getResult();
+                            return null;
+                        }));
+            }
+        }
+        return allAsList(futures).thenApply(unused -> null);
+    }
+
+    /**
+     * Asynchronously fetches the first page of {@link #getRange} for the given range request. To fetch the
+     * following page, call this again with a range starting at the page's token for the next page.
+     */
+    public CompletableFuture<TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getRangePageAsync(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        if (rangeRequest.isReverse()) {
+            throw new UnsupportedOperationException();
+        }
+        if (rangeRequest.isEmptyRange()) {
+            return CompletableFuture.completedFuture(SimpleTokenBackedResultsPage.create(
+                    rangeRequest.getEndExclusive(), ImmutableList.<RowResult<Value>>of(), false));
+        }
+        RowGetter rowGetter = new RowGetter(
+                clientPool, queryRunner, readConsistency, tableRef, ColumnFetchMode.FETCH_ALL);
+        CassandraRangePagingIterable<Value> pager = new CassandraRangePagingIterable<>(
+                rowGetter, new ThriftColumnGetter(), rangeRequest, ValueExtractor::create, timestamp);
+        KeyRange keyRange = pager.getKeyRangeForPage(rangeRequest.getStartInclusive());
+        CompletableFuture<List<KeySlice>> rows;
+        if (asyncClientPool.get().isPresent()) {
+            rows = rowGetter.getRowsAsync(asyncClientPool.get().get(), keyRange);
+        } else {
+            rows = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return rowGetter.getRows(keyRange);
+                } catch (Exception e) {
+                    throw Throwables.throwUncheckedException(e);
+                }
+            }, asyncFallbackExecutor);
+        }
+        return rows.thenApply(pager::getPageFromRows);
+    }
+
+    /*
+     * Like runAllTasksCancelOnFailure: fails as soon as any request fails, and drops the requests that have not
+     * been sent yet.
+     */
+    private static <V> CompletableFuture<List<V>> allAsList(List<CompletableFuture<V>> futures) {
+        CompletableFuture<List<V>> result = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(unused -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+        for (CompletableFuture<V> future : futures) {
+            future.whenComplete((unused, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    futures.forEach(otherFuture -> otherFuture.cancel(false));
+                }
+            });
+        }
+        return result;
+    }
+
+    private static Map<Cell, Value> mergeResults(List<Map<Cell, Value>> results) {
+        Map<Cell, Value> merged = Maps.newHashMap();
+        results.forEach(merged::putAll);
+        return merged;
+    }
+
     /**
      * Truncate a table in the key-value store.
      * <p>
@@ -1402,7 +1619,18 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
     @Override
     public ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(TableReference tableRef,
             CandidateCellForSweepingRequest request) {
-        return new GetCandidateCellsForSweepingShim(this).getCandidateCellsForSweeping(tableRef, request);
+        if (configManager.getConfig().timestampsGetterBatchSize().isPresent()) {
+            // Rows may be too wide to read whole, so page through their columns as getRangeOfTimestamps does.
+            return new GetCandidateCellsForSweepingShim(this).getCandidateCellsForSweeping(tableRef, request);
+        }
+        RowGetter rowGetter = new RowGetter(
+                clientPool, queryRunner, deleteConsistency, tableRef, ColumnFetchMode.FETCH_ALL);
+        return new CassandraGetCandidateCellsForSweeping(
+                rowGetter,
+                executor,
+                clientPool.getTokenRangeUpperBounds(),
+                configManager.getConfig().rangesConcurrency())
+                .getCandidateCellsForSweeping(request);
     }
 
     private ClosableIterator<RowResult<Set<Long>>> getTimestampsInBatchesWithPageCreator(
@@ -1938,6 +2166,10 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
      */
     @Override
     public void close() {
+        if (asyncClientPoolCreated) {
+            asyncClientPool.get().ifPresent(CassandraAsyncClientPool::shutdown);
+        }
+        asyncFallbackExecutor.shutdown();
         clientPool.shutdown();
         if (compactionManager.isPresent()) {
             compactionManager.get().close();
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+
+/**
+ * Tracks an exponentially weighted moving average of request latency for each host, used to steer requests
+ * away from slow replicas, and a histogram of latencies across all hosts, used to decide when a read has
+ * taken long enough to be worth retrying speculatively.
+ */
+final class HostLatencyTracker {
+    /**
+     * Weight given to each new sample. Low enough that a single slow request does not dominate, high enough
+     * that a host which recovers is noticed within a few dozen requests.
+     */
+    @VisibleForTesting
+    static final double EWMA_ALPHA = 0.1;
+
+    /**
+     * However slow a host is, it keeps at least this fraction of the weight of the fastest host, so that it still
+     * sees enough traffic for us to notice when it recovers.
+     */
+    @VisibleForTesting
+    static final double MIN_LATENCY_WEIGHT = 0.1;
+
+    /** Fewer samples than this and the latency histogram is too noisy to derive a speculation delay from. */
+    @VisibleForTesting
+    static final long MIN_SAMPLES_FOR_PERCENTILE = 100;
+
+    private static final long PERCENTILE_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<InetSocketAddress, AtomicLong> ewmaNanosBitsByHost = Maps.newConcurrentMap();
+    private final Timer requestLatency;
+    private final Clock clock;
+
+    private volatile CachedPercentile cachedPercentile;
+
+    HostLatencyTracker() {
+        this(Clock.defaultClock());
+    }
+
+    @VisibleForTesting
+    HostLatencyTracker(Clock clock) {
+        this.clock = clock;
+        this.requestLatency = new Timer();
+    }
+
+    Timer getRequestLatency() {
+        return requestLatency;
+    }
+
+    void recordLatency(InetSocketAddress host, long latencyNanos) {
+        requestLatency.update(latencyNanos, TimeUnit.NANOSECONDS);
+        AtomicLong ewmaBits = ewmaNanosBitsByHost.computeIfAbsent(host,
+                unused -> new AtomicLong(Double.doubleToLongBits(Double.NaN)));
+        while (true) {
+            long currentBits = ewmaBits.get();
+            double current = Double.longBitsToDouble(currentBits);
+            double updated = Double.isNaN(current)
+                    ? latencyNanos
+                    : EWMA_ALPHA * latencyNanos + (1 - EWMA_ALPHA) * current;
+            if (ewmaBits.compareAndSet(currentBits, Double.doubleToLongBits(updated))) {
+                return;
+            }
+        }
+    }
+
+    OptionalDouble getEwmaLatencyNanos(InetSocketAddress host) {
+        AtomicLong ewmaBits = ewmaNanosBitsByHost.get(host);
+        if (ewmaBits == null) {
+            return OptionalDouble.empty();
+        }
+        double ewma = Double.longBitsToDouble(ewmaBits.get());
+        return Double.isNaN(ewma) ? OptionalDouble.empty() : OptionalDouble.of(ewma);
+    }
+
+    /**
+     * Returns a multiplier in [{@link #MIN_LATENCY_WEIGHT}, 1] for the given host, relative to the fastest host
+     * in the given set. Hosts we have not yet measured are treated as being as fast as the fastest host.
+     */
+    double getLatencyWeight(InetSocketAddress host, Iterable<InetSocketAddress> candidates) {
+        OptionalDouble hostLatency = getEwmaLatencyNanos(host);
+        if (!hostLatency.isPresent() || hostLatency.getAsDouble() <= 0) {
+            return 1.0;
+        }
+        double fastest = Double.MAX_VALUE;
+        for (InetSocketAddress candidate : candidates) {
+            OptionalDouble latency = getEwmaLatencyNanos(candidate);
+            if (latency.isPresent()) {
+                fastest = Math.min(fastest, latency.getAsDouble());
+            }
+        }
+        return Math.max(MIN_LATENCY_WEIGHT, Math.min(1.0, fastest / hostLatency.getAsDouble()));
+    }
+
+    /**
+     * Returns the given percentile of recent request latencies across all hosts, or empty if we have not yet seen
+     * enough requests. The value is recomputed at most once a second, as taking a snapshot is not free.
+     */
+    OptionalLong getLatencyPercentileNanos(double percentile) {
+        if (requestLatency.getCount() < MIN_SAMPLES_FOR_PERCENTILE) {
+            return OptionalLong.empty();
+        }
+        long now = clock.getTick();
+        CachedPercentile cached = cachedPercentile;
+        if (cached == null || cached.percentile != percentile
+                || now - cached.computedAtNanos > PERCENTILE_REFRESH_INTERVAL_NANOS) {
+            long value = (long) requestLatency.getSnapshot().getValue(percentile / 100);
+            cached = new CachedPercentile(percentile, value, now);
+            cachedPercentile = cached;
+        }
+        return OptionalLong.of(cached.valueNanos);
+    }
+
+    void removeHost(InetSocketAddress host) {
+        ewmaNanosBitsByHost.remove(host);
+    }
+
+    private static final class CachedPercentile {
+        private final double percentile;
+        private final long valueNanos;
+        private final long computedAtNanos;
+
+        CachedPercentile(double percentile, long valueNanos, long computedAtNanos) {
+            this.percentile = percentile;
+            this.valueNanos = valueNanos;
+            this.computedAtNanos = computedAtNanos;
+        }
+    }
+}
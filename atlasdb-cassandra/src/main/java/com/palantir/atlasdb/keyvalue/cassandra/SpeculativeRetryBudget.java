@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * Limits speculative retries to a fixed percentage of requests. Every request deposits a fraction of a token, and
+ * every speculative retry withdraws a whole one; the balance is capped so that a long quiet period cannot be used
+ * to justify a burst of retries when the cluster does become slow.
+ */
+final class SpeculativeRetryBudget {
+    private static final long MILLI_TOKENS_PER_RETRY = 1000;
+
+    @VisibleForTesting
+    static final long MAX_RETRIES_BANKED = 10;
+
+    private final long milliTokensPerRequest;
+    private final AtomicLong milliTokens = new AtomicLong();
+
+    SpeculativeRetryBudget(double budgetPercent) {
+        Preconditions.checkArgument(budgetPercent >= 0 && budgetPercent <= 100,
+                "budgetPercent must be between 0 and 100");
+        this.milliTokensPerRequest = Math.round(budgetPercent * MILLI_TOKENS_PER_RETRY / 100);
+    }
+
+    void recordRequest() {
+        long maxMilliTokens = MAX_RETRIES_BANKED * MILLI_TOKENS_PER_RETRY;
+        milliTokens.getAndUpdate(current -> Math.min(maxMilliTokens, current + milliTokensPerRequest));
+    }
+
+    boolean tryAcquireRetry() {
+        while (true) {
+            long current = milliTokens.get();
+            if (current < MILLI_TOKENS_PER_RETRY) {
+                return false;
+            }
+            if (milliTokens.compareAndSet(current, current - MILLI_TOKENS_PER_RETRY)) {
+                return true;
+            }
+        }
+    }
+}
@@ -74,7 +74,20 @@ public class CassandraRangePagingIterable<T>
     }
 
     private TokenBackedBasicResultsPage<RowResult<T>, byte[]> getSinglePage(byte[] startKey) throws Exception {
-        List<KeySlice> rows = getRows(startKey);
+        return getPageFromRows(rowGetter.getRows(getKeyRangeForPage(startKey)));
+    }
+
+    /**
+     * The key range to fetch for the page starting at startKey, for callers fetching the rows themselves.
+     */
+    public KeyRange getKeyRangeForPage(byte[] startKey) {
+        return getKeyRange(startKey, rangeRequest.getEndExclusive());
+    }
+
+    /**
+     * Builds a page from the rows fetched for {@link #getKeyRangeForPage(byte[])}.
+     */
+    public TokenBackedBasicResultsPage<RowResult<T>, byte[]> getPageFromRows(List<KeySlice> rows) {
         Map<ByteBuffer, List<ColumnOrSuperColumn>> columnsByRow = getColumns(rows);
         TokenBackedBasicResultsPage<RowResult<T>, byte[]> page = getPage(columnsByRow);
 
@@ -85,11 +98,6 @@ public class CassandraRangePagingIterable<T>
         return page;
     }
 
-    private List<KeySlice> getRows(byte[] startKey) throws Exception {
-        KeyRange keyRange = getKeyRange(startKey, rangeRequest.getEndExclusive());
-        return rowGetter.getRows(keyRange);
-    }
-
     private Map<ByteBuffer, List<ColumnOrSuperColumn>> getColumns(List<KeySlice> firstPage) {
         return columnGetter.getColumnsByRow(firstPage);
     }
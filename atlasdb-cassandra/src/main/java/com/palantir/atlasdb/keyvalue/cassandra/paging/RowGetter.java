@@ -18,6 +18,7 @@ package com.palantir.atlasdb.keyvalue.cassandra.paging;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.cassandra.thrift.Cassandra;
 import org.apache.cassandra.thrift.ColumnParent;
@@ -31,6 +32,7 @@ import org.apache.cassandra.thrift.UnavailableException;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraAsyncClientPool;
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientPool;
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraKeyValueService;
 import com.palantir.atlasdb.keyvalue.cassandra.TracingQueryRunner;
@@ -59,8 +61,9 @@ public class RowGetter {
     public List<KeySlice> getRows(KeyRange keyRange) throws Exception {
         ColumnParent colFam = new ColumnParent(CassandraKeyValueService.internalTableName(tableRef));
         InetSocketAddress host = clientPool.getRandomHostForKey(keyRange.getStart_key());
-        return clientPool.runWithRetryOnHost(
+        return clientPool.runIdempotentReadWithRetryOnHost(
                 host,
+                keyRange.getStart_key(),
                 new FunctionCheckedException<Cassandra.Client, List<KeySlice>, Exception>() {
                     @Override
                     public List<KeySlice> apply(Cassandra.Client client) throws Exception {
@@ -68,12 +71,7 @@ public class RowGetter {
                             return queryRunner.run(client, tableRef,
                                     () -> client.get_range_slices(colFam, getSlicePredicate(), keyRange, consistency));
                         } catch (UnavailableException e) {
-                            if (consistency.equals(ConsistencyLevel.ALL)) {
-                                throw new InsufficientConsistencyException("This operation requires all Cassandra"
-                                        + " nodes to be up and available.", e);
-                            } else {
-                                throw e;
-                            }
+                            throw mapUnavailableException(e);
                         }
                     }
 
@@ -84,6 +82,34 @@ public class RowGetter {
                 });
     }
 
+    /**
+     * Asynchronous version of {@link #getRows(KeyRange)}.
+     */
+    public CompletableFuture<List<KeySlice>> getRowsAsync(CassandraAsyncClientPool asyncClientPool, KeyRange keyRange) {
+        ColumnParent colFam = new ColumnParent(CassandraKeyValueService.internalTableName(tableRef));
+        InetSocketAddress host = clientPool.getRandomHostForKey(keyRange.getStart_key());
+        SlicePredicate predicate = getSlicePredicate();
+        return asyncClientPool.runWithRetryOnHost(
+                host,
+                (client, callback) -> client.get_range_slices(colFam, predicate, keyRange, consistency, callback),
+                (Cassandra.AsyncClient.get_range_slices_call call) -> {
+                    try {
+                        return call.getResult();
+                    } catch (UnavailableException e) {
+                        throw mapUnavailableException(e);
+                    }
+                });
+    }
+
+    private Exception mapUnavailableException(UnavailableException e) {
+        if (consistency.equals(ConsistencyLevel.ALL)) {
+            return new InsufficientConsistencyException("This operation requires all Cassandra"
+                    + " nodes to be up and available.", e);
+        } else {
+            return e;
+        }
+    }
+
     private SlicePredicate getSlicePredicate() {
         SliceRange slice = new SliceRange(
                 ByteBuffer.wrap(PtBytes.EMPTY_BYTE_ARRAY),
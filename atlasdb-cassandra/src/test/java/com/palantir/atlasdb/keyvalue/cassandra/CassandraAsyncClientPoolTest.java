@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.cassandra.ImmutableCassandraKeyValueServiceConfig;
+
+public class CassandraAsyncClientPoolTest {
+    private static final int MAX_IN_FLIGHT = 2;
+
+    private final List<Socket> acceptedConnections = new CopyOnWriteArrayList<>();
+    private ServerSocket unresponsiveServer;
+    private Thread acceptor;
+    private CassandraAsyncClientPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        unresponsiveServer = new ServerSocket(0);
+        acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    acceptedConnections.add(unresponsiveServer.accept());
+                }
+            } catch (IOException e) {
+                // server closed
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        unresponsiveServer.close();
+        for (Socket socket : acceptedConnections) {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void asyncRequestsAreNotAvailableOverSsl() {
+        assertThat(CassandraAsyncClientPool.create(config().withSsl(true), mock(CassandraClientPool.class)))
+                .isEmpty();
+    }
+
+    @Test
+    public void requestsOverThePerHostLimitQueueWithoutOpeningConnections() throws InterruptedException {
+        pool = CassandraAsyncClientPool.create(config(), mock(CassandraClientPool.class)).get();
+
+        List<CompletableFuture<String>> futures = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            futures.add(pool.runWithRetryOnHost(
+                    serverAddress(),
+                    (client, callback) -> client.describe_version(callback),
+                    (Cassandra.AsyncClient.describe_version_call call) -> call.getResult()));
+        }
+
+        waitForConnections(MAX_IN_FLIGHT);
+        Thread.sleep(200);
+        assertThat(acceptedConnections).hasSize(MAX_IN_FLIGHT);
+        assertThat(futures).allMatch(future -> !future.isDone());
+    }
+
+    @Test
+    public void hostIsBlacklistedAfterRepeatedConnectionFailures() throws IOException {
+        InetSocketAddress deadHost;
+        try (ServerSocket closedServer = new ServerSocket(0)) {
+            deadHost = new InetSocketAddress("localhost", closedServer.getLocalPort());
+        }
+        CassandraClientPool clientPool = mock(CassandraClientPool.class);
+        when(clientPool.getRandomGoodHostForPredicate(any())).thenReturn(Optional.empty());
+        pool = CassandraAsyncClientPool.create(config(), clientPool).get();
+
+        pool.runWithRetryOnHost(
+                deadHost,
+                (client, callback) -> client.describe_version(callback),
+                (Cassandra.AsyncClient.describe_version_call call) -> call.getResult());
+
+        verify(clientPool, timeout(TimeUnit.SECONDS.toMillis(20))).addToBlacklist(deadHost);
+    }
+
+    private void waitForConnections(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (acceptedConnections.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private InetSocketAddress serverAddress() {
+        return new InetSocketAddress("localhost", unresponsiveServer.getLocalPort());
+    }
+
+    private ImmutableCassandraKeyValueServiceConfig config() {
+        return ImmutableCassandraKeyValueServiceConfig.builder()
+                .addServers(serverAddress())
+                .replicationFactor(1)
+                .keyspace("atlasdb")
+                .asyncMaxInFlightRequestsPerHost(MAX_IN_FLIGHT)
+                .build();
+    }
+}
@@ -29,8 +29,13 @@ import java.net.UnknownHostException;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.cassandra.thrift.Cassandra;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -207,6 +212,56 @@ public class CassandraClientPoolTest {
         verifyBlacklistMetric(1);
     }
 
+    @Test
+    public void speculativeRetryWinProportionIsZeroBeforeAnySpeculativeRetries() {
+        clientPoolWithServersInCurrentPool(ImmutableSet.of(HOST_1));
+        assertEquals(0.0, getAggregateMetricValueForMetricName("speculativeRetryWinProportion"));
+    }
+
+    @Test
+    public void speculativeRetryWinReleasesOriginalReadOnCallingThread() throws Exception {
+        Cassandra.Client slowClient = mock(Cassandra.Client.class);
+        TTransport slowTransport = mock(TTransport.class);
+        TProtocol slowProtocol = mock(TProtocol.class);
+        when(slowClient.getInputProtocol()).thenReturn(slowProtocol);
+        when(slowProtocol.getTransport()).thenReturn(slowTransport);
+        CountDownLatch slowTransportClosed = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            slowTransportClosed.countDown();
+            return null;
+        }).when(slowTransport).close();
+
+        CassandraClientPool cassandraClientPool = speculativeClientPoolWithServersInCurrentPool(
+                ImmutableSet.of(HOST_1, HOST_2));
+        answerWithClient(cassandraClientPool.currentPools.get(HOST_1), slowClient);
+        answerWithClient(cassandraClientPool.currentPools.get(HOST_2), mock(Cassandra.Client.class));
+        for (int i = 0; i < HostLatencyTracker.MIN_SAMPLES_FOR_PERCENTILE; i++) {
+            runNoopWithRetryOnHost(HOST_2, cassandraClientPool);
+        }
+
+        Thread callingThread = Thread.currentThread();
+        try {
+            String result = cassandraClientPool.runIdempotentReadWithRetryOnHost(HOST_1, new byte[] {1}, client -> {
+                if (client != slowClient) {
+                    return "speculative";
+                }
+                assertThat(Thread.currentThread(), is(callingThread));
+                if (!slowTransportClosed.await(10, TimeUnit.SECONDS)) {
+                    return "original";
+                }
+                throw new TTransportException();
+            });
+
+            assertThat(result, is("speculative"));
+            assertEquals(1.0, getAggregateMetricValueForMetricName("speculativeRetryWinProportion"));
+            // Closing the original read's connection is not a failure of its host, nor a reason to retry it.
+            verifyFailureMetricsOnHost(HOST_1, 0.0, 0.0);
+            verifyNumberOfAttemptsOnHost(HOST_1, cassandraClientPool, 1);
+        } finally {
+            cassandraClientPool.shutdown();
+        }
+    }
+
     private void verifyNumberOfAttemptsOnHost(InetSocketAddress host,
                                               CassandraClientPool cassandraClientPool,
                                               int numAttempts) {
@@ -228,15 +283,35 @@ public class CassandraClientPoolTest {
         return clientPoolWith(ImmutableSet.of(), servers, Optional.of(exception));
     }
 
+    private CassandraClientPool speculativeClientPoolWithServersInCurrentPool(
+            ImmutableSet<InetSocketAddress> servers) {
+        CassandraKeyValueServiceConfig config = mockConfig(ImmutableSet.of());
+        when(config.poolSize()).thenReturn(2);
+        when(config.speculativeReadRetries()).thenReturn(true);
+        when(config.speculativeRetryPercentile()).thenReturn(99.0);
+        when(config.speculativeRetryBudgetPercent()).thenReturn(100.0);
+        return clientPoolWith(config, servers, Optional.empty());
+    }
+
     private CassandraClientPool clientPoolWith(
             ImmutableSet<InetSocketAddress> servers,
             ImmutableSet<InetSocketAddress> serversInPool,
             Optional<Exception> failureMode) {
+        return clientPoolWith(mockConfig(servers), serversInPool, failureMode);
+    }
+
+    private CassandraKeyValueServiceConfig mockConfig(ImmutableSet<InetSocketAddress> servers) {
         CassandraKeyValueServiceConfig config = mock(CassandraKeyValueServiceConfig.class);
         when(config.poolRefreshIntervalSeconds()).thenReturn(POOL_REFRESH_INTERVAL_SECONDS);
         when(config.timeBetweenConnectionEvictionRunsSeconds()).thenReturn(TIME_BETWEEN_EVICTION_RUNS_SECONDS);
         when(config.servers()).thenReturn(servers);
+        return config;
+    }
 
+    private CassandraClientPool clientPoolWith(
+            CassandraKeyValueServiceConfig config,
+            ImmutableSet<InetSocketAddress> serversInPool,
+            Optional<Exception> failureMode) {
         CassandraClientPool cassandraClientPool = CassandraClientPool.createWithoutChecksForTesting(config);
 
         serversInPool.forEach(address ->
@@ -265,6 +340,18 @@ public class CassandraClientPoolTest {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private void answerWithClient(CassandraClientPoolingContainer poolingContainer, Cassandra.Client client) {
+        try {
+            when(poolingContainer.runWithPooledResource(
+                    Mockito.<FunctionCheckedException<Cassandra.Client, Object, Exception>>any()))
+                    .thenAnswer(invocation -> ((FunctionCheckedException<Cassandra.Client, Object, Exception>)
+                            invocation.getArguments()[0]).apply(client));
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     private void runNoopOnHost(InetSocketAddress host, CassandraClientPool pool) {
         pool.runOnHost(host, input -> null);
     }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.KeyRange;
+import org.apache.cassandra.thrift.KeySlice;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.RowGetter;
+import com.palantir.common.base.ClosableIterator;
+
+public class CassandraGetCandidateCellsForSweepingPagingTest {
+    private static final byte[] VALUE = { 1, 2, 3 };
+
+    @Test
+    public void splitsScanAtTokenRangeBoundaries() {
+        Deque<CassandraGetCandidateCellsForSweeping.TokenRangeScan> scans =
+                CassandraGetCandidateCellsForSweeping.splitByTokenRanges(
+                        PtBytes.EMPTY_BYTE_ARRAY, ImmutableList.of(bytes("b"), bytes("d")), 10);
+
+        assertThat(scans.stream().map(scan -> PtBytes.toString(scan.getStartInclusive())).collect(Collectors.toList()))
+                .containsExactly("", "b\0", "d\0");
+        assertThat(scans.stream().map(scan -> PtBytes.toString(scan.getEndInclusive())).collect(Collectors.toList()))
+                .containsExactly("b", "d", "");
+    }
+
+    @Test
+    public void skipsTokenRangesBeforeTheStartRow() {
+        Deque<CassandraGetCandidateCellsForSweeping.TokenRangeScan> scans =
+                CassandraGetCandidateCellsForSweeping.splitByTokenRanges(
+                        bytes("c"), ImmutableList.of(bytes("b"), bytes("d")), 10);
+
+        assertThat(scans.stream().map(scan -> PtBytes.toString(scan.getStartInclusive())).collect(Collectors.toList()))
+                .containsExactly("c", "d\0");
+    }
+
+    @Test
+    public void collectsTimestampsBelowSweepTimestampAndNotIgnored() {
+        KeySlice row = row("r", column("a", 30L, VALUE), column("a", 20L, VALUE), column("a", 10L, VALUE),
+                column("b", 5L, PtBytes.EMPTY_BYTE_ARRAY), column("b", Value.INVALID_VALUE_TIMESTAMP, VALUE));
+
+        Map<byte[], CassandraGetCandidateCellsForSweeping.CellTimestamps> cells =
+                CassandraGetCandidateCellsForSweeping.getCellTimestamps(row, request(25L, 1));
+
+        assertThat(cells.keySet().stream().map(PtBytes::toString).collect(Collectors.toList()))
+                .containsExactly("a", "b");
+        CassandraGetCandidateCellsForSweeping.CellTimestamps cellA = cells.get(bytes("a"));
+        assertThat(cellA.getSortedTimestamps()).containsExactly(10L, 20L);
+        assertThat(cellA.isLatestValueEmpty()).isFalse();
+        CassandraGetCandidateCellsForSweeping.CellTimestamps cellB = cells.get(bytes("b"));
+        assertThat(cellB.getSortedTimestamps()).containsExactly(5L);
+        assertThat(cellB.isLatestValueEmpty()).isTrue();
+    }
+
+    @Test
+    public void keepsColumnsWhoseTimestampsAreAllIgnored() {
+        KeySlice row = row("r", column("a", 10L, VALUE), column("b", Value.INVALID_VALUE_TIMESTAMP, VALUE),
+                column("c", 30L, VALUE));
+
+        Map<byte[], CassandraGetCandidateCellsForSweeping.CellTimestamps> cells =
+                CassandraGetCandidateCellsForSweeping.getCellTimestamps(row, request(25L, 1));
+
+        assertThat(cells.keySet().stream().map(PtBytes::toString).collect(Collectors.toList()))
+                .containsExactly("a", "b");
+        assertThat(cells.get(bytes("b")).getSortedTimestamps()).isEmpty();
+        assertThat(cells.get(bytes("b")).isLatestValueEmpty()).isFalse();
+    }
+
+    @Test
+    public void returnsCellsOfAllTokenRangesInOrder() throws Exception {
+        List<KeySlice> rows = ImmutableList.of(
+                row("a", column("x", 10L, VALUE), column("x", 5L, VALUE)),
+                row("b", column("x", 10L, VALUE), column("x", 5L, VALUE)),
+                row("c", column("x", 10L, VALUE), column("x", 5L, VALUE)),
+                row("d", column("x", 10L, VALUE), column("x", 5L, VALUE)),
+                row("e", column("x", 10L, VALUE), column("x", 5L, VALUE)));
+        RowGetter rowGetter = mock(RowGetter.class);
+        when(rowGetter.getRows(any(KeyRange.class))).thenAnswer(invocation ->
+                getRows(rows, (KeyRange) invocation.getArguments()[0]));
+
+        CassandraGetCandidateCellsForSweeping getCandidates = new CassandraGetCandidateCellsForSweeping(
+                rowGetter,
+                MoreExecutors.newDirectExecutorService(),
+                ImmutableList.of(bytes("b"), bytes("d")),
+                4);
+        List<CandidateCellForSweeping> candidates;
+        try (ClosableIterator<List<CandidateCellForSweeping>> iterator =
+                     getCandidates.getCandidateCellsForSweeping(request(20L, 1))) {
+            candidates = ImmutableList.copyOf(Iterators.concat(Iterators.transform(iterator, List::iterator)));
+        }
+
+        assertThat(candidates.stream().map(CandidateCellForSweeping::cell).collect(Collectors.toList()))
+                .containsExactly(cell("a", "x"), cell("b", "x"), cell("c", "x"), cell("d", "x"), cell("e", "x"));
+        assertThat(candidates.stream().map(CandidateCellForSweeping::numCellsTsPairsExamined)
+                .collect(Collectors.toList()))
+                .containsExactly(2L, 4L, 6L, 8L, 10L);
+    }
+
+    private static List<KeySlice> getRows(List<KeySlice> rows, KeyRange keyRange) {
+        byte[] start = keyRange.getStart_key();
+        byte[] end = keyRange.getEnd_key();
+        return rows.stream()
+                .filter(row -> PtBytes.BYTES_COMPARATOR.compare(row.getKey(), start) >= 0)
+                .filter(row -> end.length == 0 || PtBytes.BYTES_COMPARATOR.compare(row.getKey(), end) <= 0)
+                .limit(keyRange.getCount())
+                .collect(Collectors.toList());
+    }
+
+    private static CandidateCellForSweepingRequest request(long sweepTimestamp, int batchSize) {
+        return ImmutableCandidateCellForSweepingRequest.builder()
+                .startRowInclusive(PtBytes.EMPTY_BYTE_ARRAY)
+                .sweepTimestamp(sweepTimestamp)
+                .minUncommittedStartTimestamp(0L)
+                .shouldCheckIfLatestValueIsEmpty(true)
+                .timestampsToIgnore(Value.INVALID_VALUE_TIMESTAMP)
+                .batchSizeHint(batchSize)
+                .build();
+    }
+
+    private static KeySlice row(String rowName, ColumnOrSuperColumn... columns) {
+        return new KeySlice(ByteBuffer.wrap(bytes(rowName)), ImmutableList.copyOf(columns));
+    }
+
+    private static ColumnOrSuperColumn column(String columnName, long ts, byte[] value) {
+        Column column = new Column(CassandraKeyValueServices.makeCompositeBuffer(bytes(columnName), ts));
+        column.setValue(value);
+        column.setTimestamp(ts);
+        return new ColumnOrSuperColumn().setColumn(column);
+    }
+
+    private static Cell cell(String row, String column) {
+        return Cell.create(bytes(row), bytes(column));
+    }
+
+    private static byte[] bytes(String string) {
+        return PtBytes.toBytes(string);
+    }
+}
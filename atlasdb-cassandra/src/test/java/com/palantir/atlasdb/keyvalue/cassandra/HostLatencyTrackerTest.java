@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Clock;
+import com.google.common.collect.ImmutableList;
+
+public class HostLatencyTrackerTest {
+    private static final InetSocketAddress HOST_1 = new InetSocketAddress("1.0.0.0", 9160);
+    private static final InetSocketAddress HOST_2 = new InetSocketAddress("2.0.0.0", 9160);
+    private static final InetSocketAddress HOST_3 = new InetSocketAddress("3.0.0.0", 9160);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final HostLatencyTracker tracker = new HostLatencyTracker(new Clock() {
+        @Override
+        public long getTick() {
+            return nanoTime.get();
+        }
+    });
+
+    @Test
+    public void firstSampleSeedsTheAverage() {
+        tracker.recordLatency(HOST_1, 1000);
+
+        assertThat(tracker.getEwmaLatencyNanos(HOST_1).getAsDouble()).isEqualTo(1000.0);
+        assertThat(tracker.getEwmaLatencyNanos(HOST_2).isPresent()).isFalse();
+    }
+
+    @Test
+    public void laterSamplesAreWeightedByAlpha() {
+        tracker.recordLatency(HOST_1, 1000);
+        tracker.recordLatency(HOST_1, 2000);
+
+        double expected = HostLatencyTracker.EWMA_ALPHA * 2000 + (1 - HostLatencyTracker.EWMA_ALPHA) * 1000;
+        assertThat(tracker.getEwmaLatencyNanos(HOST_1).getAsDouble()).isCloseTo(expected, within(1e-6));
+    }
+
+    @Test
+    public void latencyWeightIsRelativeToFastestCandidate() {
+        tracker.recordLatency(HOST_1, 1000);
+        tracker.recordLatency(HOST_2, 2000);
+        ImmutableList<InetSocketAddress> candidates = ImmutableList.of(HOST_1, HOST_2, HOST_3);
+
+        assertThat(tracker.getLatencyWeight(HOST_1, candidates)).isEqualTo(1.0);
+        assertThat(tracker.getLatencyWeight(HOST_2, candidates)).isEqualTo(0.5);
+        assertThat(tracker.getLatencyWeight(HOST_3, candidates)).isEqualTo(1.0);
+    }
+
+    @Test
+    public void latencyWeightIsBoundedBelow() {
+        tracker.recordLatency(HOST_1, 1);
+        tracker.recordLatency(HOST_2, 1_000_000);
+
+        assertThat(tracker.getLatencyWeight(HOST_2, ImmutableList.of(HOST_1, HOST_2)))
+                .isEqualTo(HostLatencyTracker.MIN_LATENCY_WEIGHT);
+    }
+
+    @Test
+    public void noPercentileUntilEnoughSamples() {
+        for (int i = 0; i < HostLatencyTracker.MIN_SAMPLES_FOR_PERCENTILE - 1; i++) {
+            tracker.recordLatency(HOST_1, 1000);
+        }
+        assertThat(tracker.getLatencyPercentileNanos(99.0).isPresent()).isFalse();
+
+        tracker.recordLatency(HOST_1, 1000);
+        assertThat(tracker.getLatencyPercentileNanos(99.0).getAsLong()).isEqualTo(1000);
+    }
+
+    @Test
+    public void percentileIsCachedBetweenRefreshes() {
+        for (int i = 0; i < HostLatencyTracker.MIN_SAMPLES_FOR_PERCENTILE; i++) {
+            tracker.recordLatency(HOST_1, 1000);
+        }
+        assertThat(tracker.getLatencyPercentileNanos(50.0).getAsLong()).isEqualTo(1000);
+
+        for (int i = 0; i < 10 * HostLatencyTracker.MIN_SAMPLES_FOR_PERCENTILE; i++) {
+            tracker.recordLatency(HOST_1, 5000);
+        }
+        assertThat(tracker.getLatencyPercentileNanos(50.0).getAsLong()).isEqualTo(1000);
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertThat(tracker.getLatencyPercentileNanos(50.0).getAsLong()).isEqualTo(5000);
+    }
+
+    @Test
+    public void removedHostsForgetTheirLatency() {
+        tracker.recordLatency(HOST_1, 1000);
+        tracker.removeHost(HOST_1);
+
+        assertThat(tracker.getEwmaLatencyNanos(HOST_1).isPresent()).isFalse();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class SpeculativeRetryBudgetTest {
+    @Test
+    public void noRetriesBeforeAnyRequests() {
+        assertThat(new SpeculativeRetryBudget(100).tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void allowsRetriesInProportionToRequests() {
+        SpeculativeRetryBudget budget = new SpeculativeRetryBudget(10);
+        for (int i = 0; i < 9; i++) {
+            budget.recordRequest();
+        }
+        assertThat(budget.tryAcquireRetry()).isFalse();
+
+        budget.recordRequest();
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void zeroBudgetNeverAllowsRetries() {
+        SpeculativeRetryBudget budget = new SpeculativeRetryBudget(0);
+        for (int i = 0; i < 1000; i++) {
+            budget.recordRequest();
+        }
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void unusedBudgetIsCapped() {
+        SpeculativeRetryBudget budget = new SpeculativeRetryBudget(100);
+        for (int i = 0; i < 10 * SpeculativeRetryBudget.MAX_RETRIES_BANKED; i++) {
+            budget.recordRequest();
+        }
+
+        for (int i = 0; i < SpeculativeRetryBudget.MAX_RETRIES_BANKED; i++) {
+            assertThat(budget.tryAcquireRetry()).isTrue();
+        }
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+}
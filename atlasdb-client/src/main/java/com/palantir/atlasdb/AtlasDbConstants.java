@@ -96,6 +96,10 @@ public class AtlasDbConstants {
     public static final int DEFAULT_SWEEP_DELETE_BATCH_HINT = 1000;
     public static final int DEFAULT_SWEEP_CANDIDATE_BATCH_HINT = 100; // TODO(gsheasby): Bump up this default once getRangeOfTimestamps has been replaced.
     public static final int DEFAULT_SWEEP_READ_LIMIT = 1_000_000;
+    public static final int DEFAULT_SWEEP_THREADS = 1;
+    public static final long DEFAULT_SWEEP_CELL_TS_PAIRS_PER_SHARD = 100_000_000L;
+
+    public static final long DEFAULT_IMMUTABLE_TABLE_CACHE_MAX_CELLS = 100_000L;
 
     public static final int DEFAULT_STREAM_IN_MEMORY_THRESHOLD = 4 * 1024 * 1024;
 
@@ -103,4 +107,7 @@ public class AtlasDbConstants {
     public static final int MAX_OVERFLOW_TABLE_PREFIX_LENGTH = 6;
 
     public static final int DEFAULT_LOCK_TIMEOUT_SECONDS = 120;
+
+    public static final boolean DEFAULT_ENABLE_GROUP_COMMIT = false;
+    public static final int DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE = 500;
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.util.Pair;
+
+/**
+ * Caches committed values of tables whose cells are written at most once and never overwritten or deleted, shared
+ * across all transactions of a transaction manager.
+ * <p>
+ * Each value is cached together with the commit timestamp of the transaction that wrote it. A transaction may use
+ * a cached value if that commit timestamp is below its own start timestamp: as the cell is only ever written once,
+ * that value is exactly what the transaction would otherwise have read from the key value service. Transactions
+ * that started earlier must still go to the key value service, where they will not see the value at all.
+ * <p>
+ * Only point reads of cells are served from the cache; row, column range and range reads always go to the key value
+ * service, although the values they read are cached for later point reads.
+ * <p>
+ * Truncating, dropping or deleting a range of a cached table must be followed by {@link #invalidate}, which also
+ * stops transactions that were already running from caching what they read before the table was cleared. Declaring
+ * a table here that is in fact overwritten, deleted from, or swept with hard deletes will cause stale reads.
+ */
+public final class ImmutableTableCache {
+    private static final ImmutableTableCache DISABLED = new ImmutableTableCache(ImmutableSet.of(), 0);
+
+    private final Set<TableReference> cachedTables;
+    private final Cache<Pair<TableReference, Cell>, CachedValue> values;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final AtomicLong generation = new AtomicLong();
+
+    public static ImmutableTableCache create(Set<TableReference> cachedTables, long maxCachedCells) {
+        ImmutableTableCache cache = new ImmutableTableCache(cachedTables, maxCachedCells);
+        if (!cachedTables.isEmpty()) {
+            cache.registerMetrics(MetricRegistry.name(ImmutableTableCache.class, "cells"));
+        }
+        return cache;
+    }
+
+    /**
+     * Returns a cache that caches no tables.
+     */
+    public static ImmutableTableCache disabled() {
+        return DISABLED;
+    }
+
+    @VisibleForTesting
+    ImmutableTableCache(Set<TableReference> cachedTables, long maxCachedCells) {
+        Preconditions.checkArgument(maxCachedCells >= 0, "maxCachedCells must be non-negative");
+        this.cachedTables = ImmutableSet.copyOf(cachedTables);
+        this.values = CacheBuilder.newBuilder()
+                .maximumSize(maxCachedCells)
+                .recordStats()
+                .build();
+    }
+
+    private void registerMetrics(String metricsPrefix) {
+        String prefix = MetricRegistry.name(metricsPrefix, "cache");
+        AtlasDbMetrics.registerGauges(prefix, ImmutableMap.<String, Gauge<?>>builder()
+                .put("hit.count", (Gauge<Long>) hitCount::sum)
+                .put("miss.count", (Gauge<Long>) missCount::sum)
+                .put("request.count", (Gauge<Long>) () -> hitCount.sum() + missCount.sum())
+                .put("eviction.count", (Gauge<Long>) () -> values.stats().evictionCount())
+                .put("size", (Gauge<Long>) values::size)
+                .put("hit.ratio", ratio(hitCount))
+                .put("miss.ratio", ratio(missCount))
+                .build());
+    }
+
+    private RatioGauge ratio(LongAdder counter) {
+        return new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(counter.sum(), hitCount.sum() + missCount.sum());
+            }
+        };
+    }
+
+    public boolean isCached(TableReference tableRef) {
+        return cachedTables.contains(tableRef);
+    }
+
+    /**
+     * Returns the cached values of those of the given cells that a transaction starting at {@code startTimestamp}
+     * can see. Cells not in the result must be read from the key value service.
+     */
+    public Map<Cell, byte[]> getVisible(TableReference tableRef, Set<Cell> cells, long startTimestamp) {
+        if (!isCached(tableRef)) {
+            return ImmutableMap.of();
+        }
+        Map<Cell, byte[]> result = Maps.newHashMapWithExpectedSize(cells.size());
+        for (Cell cell : cells) {
+            CachedValue value = values.getIfPresent(Pair.create(tableRef, cell));
+            if (value != null && value.commitTimestamp < startTimestamp) {
+                result.put(cell, value.contents);
+            }
+        }
+        hitCount.add(result.size());
+        missCount.add(cells.size() - result.size());
+        return result;
+    }
+
+    /**
+     * Returns the number of times cached tables have been invalidated. A reader should get this before it starts
+     * reading, and pass it to {@link #put} with the values it read.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Be very careful to only cache values here whose writing transaction is known to have committed at
+     * {@code commitTimestamp}. Empty (deleted) values are not cached, and neither are values read before a
+     * cached table was last invalidated, as they may have been truncated since.
+     *
+     * @param readGeneration the value of {@link #getGeneration()} from before the value was read
+     */
+    public void put(TableReference tableRef, Cell cell, byte[] contents, long commitTimestamp, long readGeneration) {
+        if (contents.length == 0 || !isCached(tableRef) || readGeneration != generation.get()) {
+            return;
+        }
+        Pair<TableReference, Cell> key = Pair.create(tableRef, cell);
+        values.put(key, new CachedValue(contents, commitTimestamp));
+        if (readGeneration != generation.get()) {
+            // Raced with invalidate(), which may have already cleared the table.
+            values.invalidate(key);
+        }
+    }
+
+    /**
+     * Removes the cached values of the given table. This must be called after the table is truncated, dropped or has
+     * a range deleted, as its cells may then be written again.
+     */
+    public void invalidate(TableReference tableRef) {
+        if (isCached(tableRef)) {
+            generation.incrementAndGet();
+            values.asMap().keySet().removeIf(key -> key.lhSide.equals(tableRef));
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        values.invalidateAll();
+    }
+
+    private static final class CachedValue {
+        private final byte[] contents;
+        private final long commitTimestamp;
+
+        CachedValue(byte[] contents, long commitTimestamp) {
+            this.contents = contents;
+            this.commitTimestamp = commitTimestamp;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded map from start timestamp to commit timestamp which stores its entries in primitive arrays.
+ * <p>
+ * Start timestamps are hashed to a set of {@link #WAYS} entries, and a new entry replaces the least recently used
+ * entry of its set once the set is full. Eviction therefore approximates LRU over the whole map: a start timestamp
+ * that keeps being read stays cached however old it is, and sparse timestamps cost one entry each. Each entry takes
+ * 20 bytes, and neither lookups nor inserts allocate.
+ * <p>
+ * Sets are guarded by a fixed number of striped monitors, so concurrent readers of different sets rarely contend.
+ */
+final class SetAssociativeTimestampMap {
+    static final int WAYS = 8;
+    private static final int MAX_LOCKS = 1024;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final int setBits;
+    private final long[] startTimestamps;
+    private final long[] commitTimestamps;
+    private final int[] lastAccesses;
+    private final int[] setClocks;
+    private final Object[] locks;
+    private final int lockMask;
+    private final LongAdder size = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    SetAssociativeTimestampMap(int capacity) {
+        Preconditions.checkArgument(capacity >= WAYS && Integer.bitCount(capacity) == 1,
+                "capacity must be a power of two of at least %s, but was %s", WAYS, capacity);
+        int numSets = capacity / WAYS;
+        this.setBits = Integer.numberOfTrailingZeros(numSets);
+        this.startTimestamps = new long[capacity];
+        this.commitTimestamps = new long[capacity];
+        this.lastAccesses = new int[capacity];
+        this.setClocks = new int[numSets];
+        Arrays.fill(startTimestamps, EMPTY);
+        this.locks = new Object[Math.min(numSets, MAX_LOCKS)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.lockMask = locks.length - 1;
+    }
+
+    /**
+     * @return the commit timestamp for the given start timestamp, or {@code defaultValue} if it is not present
+     */
+    long getOrDefault(long startTimestamp, long defaultValue) {
+        int set = set(startTimestamp);
+        int base = set * WAYS;
+        synchronized (locks[set & lockMask]) {
+            for (int index = base; index < base + WAYS; index++) {
+                if (startTimestamps[index] == startTimestamp) {
+                    touch(set, index);
+                    hitCount.increment();
+                    return commitTimestamps[index];
+                }
+            }
+        }
+        missCount.increment();
+        return defaultValue;
+    }
+
+    void put(long startTimestamp, long commitTimestamp) {
+        int set = set(startTimestamp);
+        int base = set * WAYS;
+        synchronized (locks[set & lockMask]) {
+            // Prefer an empty entry, and otherwise the least recently used one.
+            int victim = base;
+            for (int index = base; index < base + WAYS; index++) {
+                long existing = startTimestamps[index];
+                if (existing == startTimestamp) {
+                    commitTimestamps[index] = commitTimestamp;
+                    touch(set, index);
+                    return;
+                }
+                if (startTimestamps[victim] != EMPTY
+                        && (existing == EMPTY || lastAccesses[index] - lastAccesses[victim] < 0)) {
+                    victim = index;
+                }
+            }
+            if (startTimestamps[victim] == EMPTY) {
+                size.increment();
+            } else {
+                evictionCount.increment();
+            }
+            startTimestamps[victim] = startTimestamp;
+            commitTimestamps[victim] = commitTimestamp;
+            touch(set, victim);
+        }
+    }
+
+    void clear() {
+        for (int set = 0; set < setClocks.length; set++) {
+            int base = set * WAYS;
+            synchronized (locks[set & lockMask]) {
+                for (int index = base; index < base + WAYS; index++) {
+                    if (startTimestamps[index] != EMPTY) {
+                        startTimestamps[index] = EMPTY;
+                        size.decrement();
+                    }
+                }
+            }
+        }
+    }
+
+    long size() {
+        return size.sum();
+    }
+
+    long hitCount() {
+        return hitCount.sum();
+    }
+
+    long missCount() {
+        return missCount.sum();
+    }
+
+    long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    int capacity() {
+        return startTimestamps.length;
+    }
+
+    private int set(long startTimestamp) {
+        // Fibonacci hashing spreads runs of consecutive start timestamps evenly over the sets.
+        return setBits == 0 ? 0 : (int) ((startTimestamp * HASH_MULTIPLIER) >>> (Long.SIZE - setBits));
+    }
+
+    /**
+     * Marks the entry as the most recently used of its set. Access times are compared by their difference, so the
+     * per-set clock may wrap around.
+     */
+    private void touch(int set, int index) {
+        lastAccesses[index] = ++setClocks[set];
+    }
+}
@@ -15,39 +15,65 @@
  */
 package com.palantir.atlasdb.cache;
 
+import java.util.function.LongSupplier;
+
 import javax.annotation.Nullable;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
 
 /**
- * This class just here for readability and not directly leaking / tying us down to a Guava class in our API.
+ * Caches the commit timestamps of transactions by start timestamp.
+ * <p>
+ * Entries are kept in primitive arrays (see {@link SetAssociativeTimestampMap}), so the default capacity of ~1M
+ * start timestamps takes ~20MB, and looking up a commit timestamp does not allocate.
  */
 public class TimestampCache {
+    @VisibleForTesting
+    static final int DEFAULT_CAPACITY = 1 << 20;
 
-    private final Cache<Long, Long> startToCommitTimestampCache;
+    private final SetAssociativeTimestampMap startToCommitTimestamps;
 
     public static TimestampCache create() {
-        TimestampCache timestampCache = new TimestampCache(createDefaultCache());
-        AtlasDbMetrics.registerCache(timestampCache.startToCommitTimestampCache,
-                MetricRegistry.name(TimestampCache.class, "startToCommitTimestamp"));
+        TimestampCache timestampCache = new TimestampCache(DEFAULT_CAPACITY);
+        timestampCache.registerMetrics(MetricRegistry.name(TimestampCache.class, "startToCommitTimestamp"));
         return timestampCache;
     }
 
     @VisibleForTesting
-    TimestampCache(Cache<Long, Long> cache) {
-        this.startToCommitTimestampCache = cache;
+    TimestampCache(int capacity) {
+        this.startToCommitTimestamps = new SetAssociativeTimestampMap(capacity);
     }
 
     @VisibleForTesting
-    static Cache<Long, Long> createDefaultCache() {
-        return CacheBuilder.newBuilder()
-                .maximumSize(1_000_000) // up to ~72MB with java Long object bloat
-                .recordStats()
-                .build();
+    void registerMetrics(String metricsPrefix) {
+        String prefix = MetricRegistry.name(metricsPrefix, "cache");
+        AtlasDbMetrics.registerGauges(prefix, ImmutableMap.<String, Gauge<?>>builder()
+                .put("hit.count", (Gauge<Long>) startToCommitTimestamps::hitCount)
+                .put("miss.count", (Gauge<Long>) startToCommitTimestamps::missCount)
+                .put("request.count", (Gauge<Long>) this::requestCount)
+                .put("eviction.count", (Gauge<Long>) startToCommitTimestamps::evictionCount)
+                .put("size", (Gauge<Long>) startToCommitTimestamps::size)
+                .put("hit.ratio", ratio(startToCommitTimestamps::hitCount))
+                .put("miss.ratio", ratio(startToCommitTimestamps::missCount))
+                .build());
+    }
+
+    private long requestCount() {
+        return startToCommitTimestamps.hitCount() + startToCommitTimestamps.missCount();
+    }
+
+    private RatioGauge ratio(LongSupplier count) {
+        return new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(count.getAsLong(), requestCount());
+            }
+        };
     }
 
     /**
@@ -58,7 +84,20 @@ public class TimestampCache {
      */
     @Nullable
     public Long getCommitTimestampIfPresent(Long startTimestamp) {
-        return startToCommitTimestampCache.getIfPresent(startTimestamp);
+        long commitTimestamp = getCommitTimestampOrDefault(startTimestamp, Long.MIN_VALUE);
+        return commitTimestamp == Long.MIN_VALUE ? null : commitTimestamp;
+    }
+
+    /**
+     * Allocation-free variant of {@link #getCommitTimestampIfPresent(Long)}.
+     *
+     * @param startTimestamp transaction start timestamp
+     * @param defaultValue value to return if the start timestamp is not present in the cache
+     * @return commit timestamp for the specified transaction start timestamp if present in cache, otherwise
+     * {@code defaultValue}
+     */
+    public long getCommitTimestampOrDefault(long startTimestamp, long defaultValue) {
+        return startToCommitTimestamps.getOrDefault(startTimestamp, defaultValue);
     }
 
     /**
@@ -69,13 +108,13 @@ public class TimestampCache {
      * @param commitTimestamp transaction commit timestamp
      */
     public void putAlreadyCommittedTransaction(Long startTimestamp, Long commitTimestamp) {
-        startToCommitTimestampCache.put(startTimestamp, commitTimestamp);
+        startToCommitTimestamps.put(startTimestamp, commitTimestamp);
     }
 
     /**
      * Clear all values from the cache.
      */
     public void clear() {
-        startToCommitTimestampCache.invalidateAll();
+        startToCommitTimestamps.clear();
     }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+/**
+ * Shared logic for key value services implementing
+ * {@link com.palantir.atlasdb.keyvalue.api.KeyValueService#getCandidateCellsForSweeping}.
+ */
+public final class CandidateCellsForSweeping {
+    public static final long[] EMPTY_LONG_ARRAY = new long[0];
+
+    private CandidateCellsForSweeping() {
+        // utility
+    }
+
+    /**
+     * Whether a cell with the given timestamps (in ascending order, with the request's timestamps to ignore already
+     * removed) may have something to sweep. Cells that are not candidates are still returned to the sweeper, with
+     * no timestamps, so that it can report how many cells it examined.
+     */
+    public static boolean isCandidate(long[] sortedTimestamps,
+                                      boolean latestValueEmpty,
+                                      CandidateCellForSweepingRequest request) {
+        return sortedTimestamps.length > 1
+                || (request.shouldCheckIfLatestValueIsEmpty() && latestValueEmpty)
+                || (sortedTimestamps.length == 1 && timestampIsPotentiallySweepable(sortedTimestamps[0], request));
+    }
+
+    private static boolean timestampIsPotentiallySweepable(long ts, CandidateCellForSweepingRequest request) {
+        return ts == Value.INVALID_VALUE_TIMESTAMP || ts >= request.minUncommittedStartTimestamp();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Set;
+
+import com.palantir.atlasdb.cache.ImmutableTableCache;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+/**
+ * Invalidates an {@link ImmutableTableCache} whenever one of its tables is truncated, dropped or has a range deleted,
+ * as the table's cells may then be written again with different values. The cache is invalidated once the delegate
+ * call returns, so that transactions that read the table while it was being cleared do not cache what they read.
+ */
+public final class ImmutableTableCacheInvalidatingKeyValueService extends ForwardingKeyValueService {
+    private final KeyValueService delegate;
+    private final ImmutableTableCache immutableTableCache;
+
+    public static KeyValueService create(KeyValueService delegate, ImmutableTableCache immutableTableCache) {
+        return new ImmutableTableCacheInvalidatingKeyValueService(delegate, immutableTableCache);
+    }
+
+    private ImmutableTableCacheInvalidatingKeyValueService(
+            KeyValueService delegate,
+            ImmutableTableCache immutableTableCache) {
+        this.delegate = delegate;
+        this.immutableTableCache = immutableTableCache;
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void deleteRange(TableReference tableRef, RangeRequest range) {
+        try {
+            delegate().deleteRange(tableRef, range);
+        } finally {
+            immutableTableCache.invalidate(tableRef);
+        }
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        try {
+            delegate().dropTable(tableRef);
+        } finally {
+            immutableTableCache.invalidate(tableRef);
+        }
+    }
+
+    @Override
+    public void dropTables(Set<TableReference> tableRefs) {
+        try {
+            delegate().dropTables(tableRefs);
+        } finally {
+            tableRefs.forEach(immutableTableCache::invalidate);
+        }
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        try {
+            delegate().truncateTable(tableRef);
+        } finally {
+            immutableTableCache.invalidate(tableRef);
+        }
+    }
+
+    @Override
+    public void truncateTables(Set<TableReference> tableRefs) {
+        try {
+            delegate().truncateTables(tableRefs);
+        } finally {
+            tableRefs.forEach(immutableTableCache::invalidate);
+        }
+    }
+}
@@ -36,6 +36,10 @@ public class StreamStoreDefinition {
     private final String shortName, longName;
     private final ValueType idType;
     private final boolean compressStream;
+    private final int prefetchDepth;
+    private final long prefetchMemoryBudget;
+    private final int writeParallelism;
+    private final int writeBatchSizeInBlocks;
 
     private int inMemoryThreshold;
 
@@ -45,13 +49,21 @@ public class StreamStoreDefinition {
             String longName,
             ValueType idType,
             int inMemoryThreshold,
-            boolean compressStream) {
+            boolean compressStream,
+            int prefetchDepth,
+            long prefetchMemoryBudget,
+            int writeParallelism,
+            int writeBatchSizeInBlocks) {
         this.streamStoreTables = streamStoreTables;
         this.shortName = shortName;
         this.longName = longName;
         this.idType = idType;
         this.inMemoryThreshold = inMemoryThreshold;
         this.compressStream = compressStream;
+        this.prefetchDepth = prefetchDepth;
+        this.prefetchMemoryBudget = prefetchMemoryBudget;
+        this.writeParallelism = writeParallelism;
+        this.writeBatchSizeInBlocks = writeBatchSizeInBlocks;
     }
 
     public Map<String, TableDefinition> getTables() {
@@ -60,7 +72,8 @@ public class StreamStoreDefinition {
 
     public StreamStoreRenderer getRenderer(String packageName, String name) {
         String renderedLongName = Renderers.CamelCase(longName);
-        return new StreamStoreRenderer(renderedLongName, idType, packageName, name, inMemoryThreshold, compressStream);
+        return new StreamStoreRenderer(renderedLongName, idType, packageName, name, inMemoryThreshold, compressStream,
+                prefetchDepth, prefetchMemoryBudget, writeParallelism, writeBatchSizeInBlocks);
     }
 
     public Multimap<String, Supplier<OnCleanupTask>> getCleanupTasks(
@@ -21,6 +21,8 @@ import java.util.stream.Collectors;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.stream.AbstractGenericStreamStore;
+import com.palantir.atlasdb.stream.AbstractPersistentStreamStore;
 import com.palantir.atlasdb.table.description.TableDefinition;
 import com.palantir.atlasdb.table.description.ValueType;
 
@@ -31,6 +33,10 @@ public class StreamStoreDefinitionBuilder {
             Maps.newHashMapWithExpectedSize(StreamTableType.values().length);
     private int inMemoryThreshold = AtlasDbConstants.DEFAULT_STREAM_IN_MEMORY_THRESHOLD;
     private boolean compressStream;
+    private int prefetchDepth = 0;
+    private long prefetchMemoryBudget = AbstractGenericStreamStore.DEFAULT_PREFETCH_MEMORY_BUDGET;
+    private int writeParallelism = 1;
+    private int writeBatchSizeInBlocks = AbstractPersistentStreamStore.DEFAULT_WRITE_BATCH_SIZE_IN_BLOCKS;
 
     public StreamStoreDefinitionBuilder(String shortName, String longName, ValueType valueType) {
         for (StreamTableType tableType : StreamTableType.values()) {
@@ -68,6 +74,26 @@ public class StreamStoreDefinitionBuilder {
         return this;
     }
 
+    /**
+     * Makes loaded streams fetch up to prefetchDepth further batches of blocks in the background while the
+     * current batch is being read, holding at most prefetchMemoryBudget bytes of prefetched blocks per stream.
+     */
+    public StreamStoreDefinitionBuilder prefetchBlocks(int prefetchDepth, long prefetchMemoryBudget) {
+        this.prefetchDepth = prefetchDepth;
+        this.prefetchMemoryBudget = prefetchMemoryBudget;
+        return this;
+    }
+
+    /**
+     * Makes storeStream write up to writeParallelism batches of blocksPerTransaction blocks concurrently,
+     * each in its own transaction, while the input is still being read.
+     */
+    public StreamStoreDefinitionBuilder parallelWrites(int writeParallelism, int blocksPerTransaction) {
+        this.writeParallelism = writeParallelism;
+        this.writeBatchSizeInBlocks = blocksPerTransaction;
+        return this;
+    }
+
     public StreamStoreDefinition build() {
         Map<String, TableDefinition> tablesToCreate = streamTables.entrySet().stream()
                 .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().build()));
@@ -75,6 +101,10 @@ public class StreamStoreDefinitionBuilder {
         Preconditions.checkArgument(valueType.getJavaClassName().equals("long"), "Stream ids must be a long");
         Preconditions.checkArgument(inMemoryThreshold <= StreamStoreDefinition.MAX_IN_MEMORY_THRESHOLD,
                 "inMemoryThreshold cannot be greater than %s", StreamStoreDefinition.MAX_IN_MEMORY_THRESHOLD);
+        Preconditions.checkArgument(prefetchDepth >= 0, "prefetchDepth cannot be negative");
+        Preconditions.checkArgument(prefetchMemoryBudget >= 0, "prefetchMemoryBudget cannot be negative");
+        Preconditions.checkArgument(writeParallelism >= 1, "writeParallelism must be at least 1");
+        Preconditions.checkArgument(writeBatchSizeInBlocks >= 1, "blocksPerTransaction must be at least 1");
 
         return new StreamStoreDefinition(
                 tablesToCreate,
@@ -82,7 +112,11 @@ public class StreamStoreDefinitionBuilder {
                 longName,
                 valueType,
                 inMemoryThreshold,
-                compressStream);
+                compressStream,
+                prefetchDepth,
+                prefetchMemoryBudget,
+                writeParallelism,
+                writeBatchSizeInBlocks);
     }
 
 }
@@ -25,6 +25,7 @@ import java.io.OutputStream;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 import javax.annotation.CheckForNull;
@@ -41,11 +42,16 @@ import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.ByteArrayIOStream;
 
 public abstract class AbstractGenericStreamStore<ID> implements GenericStreamStore<ID> {
     protected static final Logger log = LoggerFactory.getLogger(AbstractGenericStreamStore.class);
 
+    public static final long DEFAULT_PREFETCH_MEMORY_BUDGET = 64L * 1024 * 1024;
+    private static final int PREFETCH_THREADS = 16;
+
     @CheckForNull protected final TransactionManager txnMgr;
 
     protected AbstractGenericStreamStore(TransactionManager txManager) {
@@ -66,6 +72,31 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
 
     protected abstract long getInMemoryThreshold();
 
+    /**
+     * The number of batches of blocks which streams returned by {@link #loadStream} load ahead of the reader,
+     * in parallel on {@link #getPrefetchExecutor()}. Zero disables prefetching, so each batch is only loaded
+     * once the reader reaches it.
+     */
+    protected int getPrefetchDepth() {
+        return 0;
+    }
+
+    /**
+     * The maximum number of bytes of prefetched blocks each stream may hold in memory. This caps
+     * {@link #getPrefetchDepth()} to the number of whole batches that fit.
+     */
+    protected long getPrefetchMemoryBudget() {
+        return DEFAULT_PREFETCH_MEMORY_BUDGET;
+    }
+
+    /**
+     * The executor which prefetched blocks are loaded on. By default this is a bounded pool shared by all
+     * stream stores.
+     */
+    protected ExecutorService getPrefetchExecutor() {
+        return PrefetchExecutorHolder.EXECUTOR;
+    }
+
     @Override
     public InputStream loadStream(Transaction transaction, final ID id) {
         StreamMetadata metadata = getMetadata(transaction, id);
@@ -139,12 +170,23 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
         };
 
         try {
+            int prefetchDepth = getEffectivePrefetchDepth(blocksInMemory);
+            if (prefetchDepth > 0 && totalBlocks > blocksInMemory) {
+                return BlockConsumingInputStream.create(
+                        pageRefresher, totalBlocks, blocksInMemory, getPrefetchExecutor(), prefetchDepth);
+            }
             return BlockConsumingInputStream.create(pageRefresher, totalBlocks, blocksInMemory);
         } catch (IOException e) {
             throw Throwables.throwUncheckedException(e);
         }
     }
 
+    private int getEffectivePrefetchDepth(int blocksInMemory) {
+        long batchSizeInBytes = (long) blocksInMemory * BLOCK_SIZE_IN_BYTES;
+        long batchesWithinBudget = getPrefetchMemoryBudget() / batchSizeInBytes;
+        return (int) Math.min(getPrefetchDepth(), batchesWithinBudget);
+    }
+
     protected int getNumberOfBlocksThatFitInMemory() {
         int inMemoryThreshold = (int) getInMemoryThreshold(); // safe; actually defined as an int in generated code.
         int blocksInMemory = inMemoryThreshold / BLOCK_SIZE_IN_BYTES;
@@ -230,4 +272,13 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
     private StreamMetadata getOnlyStreamMetadata(Map<ID, StreamMetadata> idToMetadata) {
         return Iterables.getOnlyElement(idToMetadata.values());
     }
+
+    private static final class PrefetchExecutorHolder {
+        private static final ExecutorService EXECUTOR = PTExecutors.newFixedThreadPool(
+                PREFETCH_THREADS, new NamedThreadFactory("stream-store-prefetch", true));
+
+        private PrefetchExecutorHolder() {
+            // holder for lazy initialisation
+        }
+    }
 }
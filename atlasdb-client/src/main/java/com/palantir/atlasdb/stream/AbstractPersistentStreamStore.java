@@ -17,9 +17,16 @@ package com.palantir.atlasdb.stream;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
 
@@ -28,6 +35,7 @@ import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
@@ -41,14 +49,43 @@ import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.impl.TxTask;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.Pair;
 import com.palantir.util.crypto.Sha256Hash;
 
 public abstract class AbstractPersistentStreamStore extends AbstractGenericStreamStore<Long> implements PersistentStreamStore {
+    private static final int WRITER_THREADS = 16;
+    public static final int DEFAULT_WRITE_BATCH_SIZE_IN_BLOCKS = 4;
+
     protected AbstractPersistentStreamStore(TransactionManager txManager) {
         super(txManager);
     }
 
+    /**
+     * The number of batches of blocks which {@link #storeStream} writes concurrently, each in its own
+     * transaction, while the calling thread keeps reading, hashing and compressing the input. One, the default,
+     * writes each block on the calling thread before reading the next.
+     */
+    protected int getWriteParallelism() {
+        return 1;
+    }
+
+    /**
+     * The number of blocks written per transaction when writing in parallel.
+     */
+    protected int getWriteBatchSizeInBlocks() {
+        return DEFAULT_WRITE_BATCH_SIZE_IN_BLOCKS;
+    }
+
+    /**
+     * The executor which block batches are written on when writing in parallel. By default this is a bounded pool
+     * shared by all stream stores.
+     */
+    protected ExecutorService getWriteExecutor() {
+        return WriteExecutorHolder.EXECUTOR;
+    }
+
     protected final void storeMetadataAndIndex(final long streamId, final StreamMetadata metadata) {
         Preconditions.checkNotNull(txnMgr);
         txnMgr.runTaskThrowOnConflict(new TxTask() {
@@ -184,6 +221,10 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
     }
 
     private void storeBlocksFromStream(@Nullable Transaction t, long id, InputStream stream) throws IOException {
+        if (t == null && getWriteParallelism() > 1) {
+            storeBlocksFromStreamInParallel(id, stream);
+            return;
+        }
         long blockNumber = 0;
 
         while (true) {
@@ -205,6 +246,107 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
         }
     }
 
+    private void storeBlocksFromStreamInParallel(long id, InputStream stream) throws IOException {
+        Preconditions.checkNotNull(txnMgr);
+        int batchSize = Math.max(1, getWriteBatchSizeInBlocks());
+        Semaphore writePermits = new Semaphore(getWriteParallelism());
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        List<Future<?>> writes = Lists.newArrayList();
+        ExecutorService executor = getWriteExecutor();
+
+        boolean success = false;
+        try {
+            long blockNumber = 0;
+            boolean endOfStream = false;
+            while (!endOfStream) {
+                List<byte[]> batch = Lists.newArrayListWithCapacity(batchSize);
+                while (batch.size() < batchSize && !endOfStream) {
+                    byte[] block = readBlock(stream);
+                    if (block.length > 0) {
+                        batch.add(block);
+                    }
+                    endOfStream = block.length < BLOCK_SIZE_IN_BYTES;
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                acquireWritePermit(writePermits);
+                throwIfWriteFailed(firstFailure);
+                long firstBlockNumber = blockNumber;
+                writes.add(executor.submit(() -> {
+                    try {
+                        storeBlocksInNewTransaction(id, firstBlockNumber, batch);
+                    } catch (Throwable th) {
+                        firstFailure.compareAndSet(null, th);
+                        throw th;
+                    } finally {
+                        writePermits.release();
+                    }
+                    return null;
+                }));
+                blockNumber += batch.size();
+            }
+
+            for (Future<?> write : writes) {
+                awaitWrite(write);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                for (Future<?> write : writes) {
+                    write.cancel(false);
+                }
+            }
+        }
+    }
+
+    private static byte[] readBlock(InputStream stream) throws IOException {
+        byte[] bytes = new byte[BLOCK_SIZE_IN_BYTES];
+        int length = ByteStreams.read(stream, bytes, 0, BLOCK_SIZE_IN_BYTES);
+        return length < BLOCK_SIZE_IN_BYTES ? PtBytes.head(bytes, length) : bytes;
+    }
+
+    private void storeBlocksInNewTransaction(long id, long firstBlockNumber, List<byte[]> blocks) {
+        // Concurrent writers touch the same metadata row, so retry rather than fail on conflicts.
+        txnMgr.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) throws RuntimeException {
+                for (int i = 0; i < blocks.size(); i++) {
+                    storeBlock(t, id, firstBlockNumber + i, blocks.get(i));
+                }
+                return null;
+            }
+        });
+    }
+
+    private static void acquireWritePermit(Semaphore writePermits) throws InterruptedIOException {
+        try {
+            writePermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to store blocks.");
+        }
+    }
+
+    private static void throwIfWriteFailed(AtomicReference<Throwable> firstFailure) {
+        Throwable failure = firstFailure.get();
+        if (failure != null) {
+            throw Throwables.rewrapAndThrowUncheckedException("Failed to store blocks.", failure);
+        }
+    }
+
+    private static void awaitWrite(Future<?> write) throws InterruptedIOException {
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for blocks to be stored.");
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Failed to store blocks.", e.getCause());
+        }
+    }
+
     protected void storeBlockWithNonNullTransaction(@Nullable Transaction t, final long id, final long blockNumber, final byte[] bytesToStore) {
         if (t != null) {
             storeBlock(t, id, blockNumber, bytesToStore);
@@ -221,6 +363,15 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
         }
     }
 
+    private static final class WriteExecutorHolder {
+        private static final ExecutorService EXECUTOR = PTExecutors.newFixedThreadPool(
+                WRITER_THREADS, new NamedThreadFactory("stream-store-writer", true));
+
+        private WriteExecutorHolder() {
+            // holder for lazy initialisation
+        }
+    }
+
     private void putMetadataAndHashIndexTask(Transaction t, Long streamId, StreamMetadata metadata) {
         putMetadataAndHashIndexTask(t, ImmutableMap.<Long, StreamMetadata>builder().put(streamId, metadata).build());
     }
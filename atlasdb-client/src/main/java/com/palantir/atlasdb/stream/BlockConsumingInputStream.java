@@ -18,17 +18,33 @@ package com.palantir.atlasdb.stream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.schema.stream.StreamStoreDefinition;
 
 public final class BlockConsumingInputStream extends InputStream {
+    private static final Logger log = LoggerFactory.getLogger(BlockConsumingInputStream.class);
+
     private final BlockGetter blockGetter;
     private final long numBlocks;
     private final int blocksInMemory;
+    private final ExecutorService prefetchExecutor;
+    private final Deque<PrefetchedBatch> prefetchedBatches = new ArrayDeque<>();
 
+    private int prefetchDepth;
     private long nextBlockToRead;
+    private long nextBlockToPrefetch;
 
     private byte[] buffer;
     private int positionInBuffer;
@@ -38,7 +54,23 @@ public final class BlockConsumingInputStream extends InputStream {
             long numBlocks,
             int blocksInMemory) throws IOException {
         ensureExpectedArraySizeDoesNotOverflow(blockGetter, blocksInMemory);
-        return new BlockConsumingInputStream(blockGetter, numBlocks, blocksInMemory);
+        return new BlockConsumingInputStream(blockGetter, numBlocks, blocksInMemory, null, 0);
+    }
+
+    /**
+     * Creates a stream which, while the caller consumes one batch of blocksInMemory blocks, loads up to
+     * prefetchDepth following batches in parallel on the given executor. The blockGetter must therefore
+     * support concurrent calls. At most prefetchDepth + 1 batches are held in memory at a time.
+     */
+    public static BlockConsumingInputStream create(
+            BlockGetter blockGetter,
+            long numBlocks,
+            int blocksInMemory,
+            ExecutorService prefetchExecutor,
+            int prefetchDepth) throws IOException {
+        Preconditions.checkArgument(prefetchDepth >= 0, "prefetchDepth cannot be negative: %s", prefetchDepth);
+        ensureExpectedArraySizeDoesNotOverflow(blockGetter, blocksInMemory);
+        return new BlockConsumingInputStream(blockGetter, numBlocks, blocksInMemory, prefetchExecutor, prefetchDepth);
     }
 
     // we don't want to actually create a very large array in tests, as the external test VM would run out of memory.
@@ -57,11 +89,19 @@ public final class BlockConsumingInputStream extends InputStream {
                 expectedBufferSize);
     }
 
-    private BlockConsumingInputStream(BlockGetter blockGetter, long numBlocks, int blocksInMemory) {
+    private BlockConsumingInputStream(
+            BlockGetter blockGetter,
+            long numBlocks,
+            int blocksInMemory,
+            ExecutorService prefetchExecutor,
+            int prefetchDepth) {
         this.blockGetter = blockGetter;
         this.numBlocks = numBlocks;
         this.blocksInMemory = blocksInMemory;
+        this.prefetchExecutor = prefetchExecutor;
+        this.prefetchDepth = prefetchExecutor == null ? 0 : prefetchDepth;
         this.nextBlockToRead = 0L;
+        this.nextBlockToPrefetch = 0L;
         this.positionInBuffer = 0;
         this.buffer = new byte[0];
     }
@@ -117,24 +157,109 @@ public final class BlockConsumingInputStream extends InputStream {
         return bytesRead;
     }
 
+    /**
+     * Cancels any batches that are still being prefetched; reads after closing load blocks synchronously.
+     */
+    @Override
+    public void close() throws IOException {
+        prefetchDepth = 0;
+        cancelPrefetches();
+    }
+
     private boolean refillBuffer() throws IOException {
+        schedulePrefetches();
+        PrefetchedBatch batch = prefetchedBatches.poll();
+        if (batch != null) {
+            // keep the executor busy with the following batches while we wait for this one
+            schedulePrefetches();
+            try {
+                buffer = batch.await();
+            } catch (IOException | RuntimeException e) {
+                // start again from the batch that failed if the caller keeps reading
+                cancelPrefetches();
+                throw e;
+            }
+            nextBlockToRead += batch.numBlocks;
+            positionInBuffer = 0;
+            return true;
+        }
+
         // since blocksInMemory is an int, the min is guaranteed to fit in an int
         int numBlocksToGet = (int) Math.min(blocksLeft(), blocksInMemory);
         if (numBlocksToGet <= 0) {
             return false;
         }
 
+        buffer = loadBlocks(nextBlockToRead, numBlocksToGet);
+        nextBlockToRead += numBlocksToGet;
+        nextBlockToPrefetch = nextBlockToRead;
+        positionInBuffer = 0;
+        return true;
+    }
+
+    private void schedulePrefetches() {
+        while (prefetchedBatches.size() < prefetchDepth && nextBlockToPrefetch < numBlocks) {
+            // since blocksInMemory is an int, the min is guaranteed to fit in an int
+            int numBlocksToGet = (int) Math.min(numBlocks - nextBlockToPrefetch, blocksInMemory);
+            long firstBlock = nextBlockToPrefetch;
+            Future<byte[]> future;
+            try {
+                future = prefetchExecutor.submit(() -> loadBlocks(firstBlock, numBlocksToGet));
+            } catch (RejectedExecutionException e) {
+                log.warn("Could not prefetch stream blocks, falling back to loading them when they are read.", e);
+                prefetchDepth = 0;
+                return;
+            }
+            prefetchedBatches.add(new PrefetchedBatch(firstBlock, numBlocksToGet, future));
+            nextBlockToPrefetch += numBlocksToGet;
+        }
+    }
+
+    private void cancelPrefetches() {
+        for (PrefetchedBatch batch : prefetchedBatches) {
+            batch.future.cancel(false);
+        }
+        prefetchedBatches.clear();
+        nextBlockToPrefetch = nextBlockToRead;
+    }
+
+    private byte[] loadBlocks(long firstBlock, int numBlocksToGet) throws IOException {
         int expectedLength = blockGetter.expectedBlockLength() * numBlocksToGet;
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream(expectedLength)) {
-            blockGetter.get(nextBlockToRead, numBlocksToGet, outputStream);
-            nextBlockToRead += numBlocksToGet;
-            buffer = outputStream.toByteArray();
-            positionInBuffer = 0;
-            return true;
+            blockGetter.get(firstBlock, numBlocksToGet, outputStream);
+            return outputStream.toByteArray();
         }
     }
 
     private long blocksLeft() {
         return Math.max(0L, numBlocks - nextBlockToRead);
     }
+
+    private final class PrefetchedBatch {
+        private final long firstBlock;
+        private final int numBlocks;
+        private final Future<byte[]> future;
+
+        PrefetchedBatch(long firstBlock, int numBlocks, Future<byte[]> future) {
+            this.firstBlock = firstBlock;
+            this.numBlocks = numBlocks;
+            this.future = future;
+        }
+
+        byte[] await() throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(false);
+                throw new InterruptedIOException("Interrupted while waiting for stream blocks to load.");
+            } catch (ExecutionException e) {
+                // The load may have raced with something the caller's thread does not see, e.g. the parent
+                // transaction committing; retry it here so that failures surface exactly as without prefetching.
+                log.debug("Prefetching blocks {} to {} failed, loading them again.",
+                        firstBlock, firstBlock + numBlocks - 1, e.getCause());
+                return loadBlocks(firstBlock, numBlocks);
+            }
+        }
+    }
 }
@@ -25,6 +25,7 @@ public interface BlockGetter {
      * Fills the OutputStream with data from some source.
      * The source should be divisible into an ordered set of blocks.
      * The behaviour when too many blocks are requested is unspecified (in practice, an exception should be thrown).
+     * When a {@link BlockConsumingInputStream} prefetches blocks, this may be called from several threads at once.
      *
      * @param firstBlock the first block (0-indexed) to put into the OutputStream.
      * @param numBlocks the number of blocks to put into the OutputStream.
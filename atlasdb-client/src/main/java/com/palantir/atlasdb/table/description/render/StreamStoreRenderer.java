@@ -60,6 +60,7 @@ import com.google.protobuf.ByteString;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.stream.AbstractGenericStreamStore;
 import com.palantir.atlasdb.stream.AbstractPersistentStreamStore;
 import com.palantir.atlasdb.stream.BlockConsumingInputStream;
 import com.palantir.atlasdb.stream.BlockGetter;
@@ -92,14 +93,28 @@ public class StreamStoreRenderer {
     private final String schemaName;
     private final int inMemoryThreshold;
     private final boolean clientSideCompression;
+    private final int prefetchDepth;
+    private final long prefetchMemoryBudget;
+    private final int writeParallelism;
+    private final int writeBatchSizeInBlocks;
 
     public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, boolean clientSideCompression) {
+        this(name, streamIdType, packageName, schemaName, inMemoryThreshold, clientSideCompression,
+                0, AbstractGenericStreamStore.DEFAULT_PREFETCH_MEMORY_BUDGET,
+                1, AbstractPersistentStreamStore.DEFAULT_WRITE_BATCH_SIZE_IN_BLOCKS);
+    }
+
+    public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, boolean clientSideCompression, int prefetchDepth, long prefetchMemoryBudget, int writeParallelism, int writeBatchSizeInBlocks) {
         this.name = name;
         this.streamIdType = streamIdType;
         this.packageName = packageName;
         this.schemaName = schemaName;
         this.inMemoryThreshold = inMemoryThreshold;
         this.clientSideCompression = clientSideCompression;
+        this.prefetchDepth = prefetchDepth;
+        this.prefetchMemoryBudget = prefetchMemoryBudget;
+        this.writeParallelism = writeParallelism;
+        this.writeBatchSizeInBlocks = writeBatchSizeInBlocks;
     }
 
     public String getPackageName() {
@@ -157,6 +172,18 @@ public class StreamStoreRenderer {
                     line();
                     getInMemoryThreshold();
                     line();
+                    if (prefetchDepth > 0) {
+                        getPrefetchDepth();
+                        line();
+                        getPrefetchMemoryBudget();
+                        line();
+                    }
+                    if (writeParallelism > 1) {
+                        getWriteParallelism();
+                        line();
+                        getWriteBatchSizeInBlocks();
+                        line();
+                    }
                     storeBlock();
                     line();
                     touchMetadataWhileStoringForConflicts();
@@ -211,6 +238,14 @@ public class StreamStoreRenderer {
             private void fields() {
                 line("public static final int BLOCK_SIZE_IN_BYTES = 1000000; // 1MB. DO NOT CHANGE THIS WITHOUT AN UPGRADE TASK");
                 line("public static final int IN_MEMORY_THRESHOLD = ", String.valueOf(inMemoryThreshold), "; // streams under this size are kept in memory when loaded");
+                if (prefetchDepth > 0) {
+                    line("public static final int PREFETCH_DEPTH = ", String.valueOf(prefetchDepth), "; // batches of blocks loaded ahead of the reader");
+                    line("public static final long PREFETCH_MEMORY_BUDGET = ", String.valueOf(prefetchMemoryBudget), "L; // bytes of prefetched blocks held per stream");
+                }
+                if (writeParallelism > 1) {
+                    line("public static final int WRITE_PARALLELISM = ", String.valueOf(writeParallelism), "; // batches of blocks stored concurrently");
+                    line("public static final int WRITE_BATCH_SIZE_IN_BLOCKS = ", String.valueOf(writeBatchSizeInBlocks), "; // blocks stored per transaction");
+                }
                 line("public static final String STREAM_FILE_PREFIX = \"", name, "_stream_\";");
                 line("public static final String STREAM_FILE_SUFFIX = \".tmp\";");
                 line();
@@ -259,9 +294,9 @@ public class StreamStoreRenderer {
                     line(StreamMetadataRow, " row = ", StreamMetadataRow, ".of(id);");
                     line("StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();");
                     line("Preconditions.checkState(metadata.getStatus() == Status.STORING, \"This stream is being cleaned up while storing blocks: \" + id);");
-                    line("Builder builder = StreamMetadata.newBuilder(metadata);");
-                    line("builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);");
-                    line("metaTable.putMetadata(row, builder.build());");
+                    line("// Write the metadata back unchanged, so that blocks stored concurrently do not conflict with each other");
+                    line("// but still conflict with anything that changes the metadata, such as cleanup.");
+                    line("metaTable.putMetadata(row, metadata);");
                 } line("}");
             }
 
@@ -314,6 +349,34 @@ public class StreamStoreRenderer {
                 } line("}");
             }
 
+            private void getPrefetchDepth() {
+                line("@Override");
+                line("protected int getPrefetchDepth() {"); {
+                    line("return PREFETCH_DEPTH;");
+                } line("}");
+            }
+
+            private void getPrefetchMemoryBudget() {
+                line("@Override");
+                line("protected long getPrefetchMemoryBudget() {"); {
+                    line("return PREFETCH_MEMORY_BUDGET;");
+                } line("}");
+            }
+
+            private void getWriteParallelism() {
+                line("@Override");
+                line("protected int getWriteParallelism() {"); {
+                    line("return WRITE_PARALLELISM;");
+                } line("}");
+            }
+
+            private void getWriteBatchSizeInBlocks() {
+                line("@Override");
+                line("protected int getWriteBatchSizeInBlocks() {"); {
+                    line("return WRITE_BATCH_SIZE_IN_BLOCKS;");
+                } line("}");
+            }
+
             private void createTempFile() {
                 line("@Override");
                 line("protected File createTempFile(", StreamId, " id) throws IOException {"); {
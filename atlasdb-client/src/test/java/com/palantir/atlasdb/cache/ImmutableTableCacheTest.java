@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public class ImmutableTableCacheTest {
+    private static final TableReference CACHED_TABLE = TableReference.createFromFullyQualifiedName("ns.cached");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("ns.other");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final long COMMIT_TS = 10L;
+
+    private final ImmutableTableCache cache = new ImmutableTableCache(ImmutableSet.of(CACHED_TABLE), 100);
+
+    @Test
+    public void servesValuesCommittedBeforeTheReaderStarted() {
+        cache.put(CACHED_TABLE, CELL, VALUE, COMMIT_TS, 0L);
+
+        Map<Cell, byte[]> visible = cache.getVisible(CACHED_TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1);
+
+        assertThat(visible).containsOnlyKeys(CELL);
+        assertThat(visible.get(CELL)).isEqualTo(VALUE);
+    }
+
+    @Test
+    public void doesNotServeValuesCommittedAfterTheReaderStarted() {
+        cache.put(CACHED_TABLE, CELL, VALUE, COMMIT_TS, 0L);
+
+        assertThat(cache.getVisible(CACHED_TABLE, ImmutableSet.of(CELL), COMMIT_TS)).isEmpty();
+        assertThat(cache.getVisible(CACHED_TABLE, ImmutableSet.of(CELL), COMMIT_TS - 1)).isEmpty();
+    }
+
+    @Test
+    public void ignoresTablesThatAreNotCached() {
+        cache.put(OTHER_TABLE, CELL, VALUE, COMMIT_TS, 0L);
+
+        assertThat(cache.isCached(OTHER_TABLE)).isFalse();
+        assertThat(cache.getVisible(OTHER_TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1)).isEmpty();
+    }
+
+    @Test
+    public void doesNotCacheDeletedValues() {
+        cache.put(CACHED_TABLE, CELL, PtBytes.EMPTY_BYTE_ARRAY, COMMIT_TS, 0L);
+
+        assertThat(cache.getVisible(CACHED_TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1)).isEmpty();
+    }
+
+    @Test
+    public void evictsBeyondMaximumSize() {
+        ImmutableTableCache smallCache = new ImmutableTableCache(ImmutableSet.of(CACHED_TABLE), 1);
+        Cell otherCell = Cell.create(PtBytes.toBytes("row2"), PtBytes.toBytes("col"));
+
+        smallCache.put(CACHED_TABLE, CELL, VALUE, COMMIT_TS, 0L);
+        smallCache.put(CACHED_TABLE, otherCell, VALUE, COMMIT_TS, 0L);
+
+        assertThat(smallCache.getVisible(CACHED_TABLE, ImmutableSet.of(CELL, otherCell), COMMIT_TS + 1)).hasSize(1);
+    }
+
+    @Test
+    public void invalidateRemovesOnlyTheGivenTable() {
+        TableReference otherCachedTable = TableReference.createFromFullyQualifiedName("ns.cached2");
+        ImmutableTableCache twoTableCache = new ImmutableTableCache(
+                ImmutableSet.of(CACHED_TABLE, otherCachedTable), 100);
+        twoTableCache.put(CACHED_TABLE, CELL, VALUE, COMMIT_TS, 0L);
+        twoTableCache.put(otherCachedTable, CELL, VALUE, COMMIT_TS, 0L);
+
+        twoTableCache.invalidate(CACHED_TABLE);
+
+        assertThat(twoTableCache.getVisible(CACHED_TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1)).isEmpty();
+        assertThat(twoTableCache.getVisible(otherCachedTable, ImmutableSet.of(CELL), COMMIT_TS + 1))
+                .containsOnlyKeys(CELL);
+    }
+
+    @Test
+    public void doesNotCacheValuesReadBeforeAnInvalidation() {
+        long readGeneration = cache.getGeneration();
+        cache.invalidate(CACHED_TABLE);
+
+        cache.put(CACHED_TABLE, CELL, VALUE, COMMIT_TS, readGeneration);
+        assertThat(cache.getVisible(CACHED_TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1)).isEmpty();
+
+        cache.put(CACHED_TABLE, CELL, VALUE, COMMIT_TS, cache.getGeneration());
+        assertThat(cache.getVisible(CACHED_TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1)).containsOnlyKeys(CELL);
+    }
+
+    @Test
+    public void disabledCacheCachesNothing() {
+        ImmutableTableCache.disabled().put(CACHED_TABLE, CELL, VALUE, COMMIT_TS, 0L);
+
+        assertThat(ImmutableTableCache.disabled().isCached(CACHED_TABLE)).isFalse();
+        assertThat(ImmutableTableCache.disabled().getVisible(CACHED_TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1))
+                .isEmpty();
+    }
+}
@@ -29,8 +29,7 @@ import org.junit.Test;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.cache.Cache;
-import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
 import com.palantir.atlasdb.util.MetricsRule;
 
 public class TimestampCacheTest {
@@ -42,12 +41,10 @@ public class TimestampCacheTest {
 
     @Test
     public void cacheExposesMetrics() throws Exception {
-        Cache<Long, Long> cache = TimestampCache.createDefaultCache();
-        AtlasDbMetrics.registerCache(cache, TEST_CACHE_NAME);
+        TimestampCache timestampCache = new TimestampCache(TimestampCache.DEFAULT_CAPACITY);
+        timestampCache.registerMetrics(TEST_CACHE_NAME);
 
-        TimestampCache timestampCache = new TimestampCache(cache);
-
-        SortedMap<String, Gauge> gauges = metricsRule.metrics().getGauges(startsWith(TimestampCache.class.getName()));
+        SortedMap<String, Gauge> gauges = metricsRule.metrics().getGauges(startsWith(TEST_CACHE_NAME));
         assertThat(gauges.keySet(), hasItems(cacheMetricName("hit.count"), cacheMetricName("miss.ratio")));
 
         assertThat(timestampCache.getCommitTimestampIfPresent(1L), is(nullValue()));
@@ -69,6 +66,82 @@ public class TimestampCacheTest {
         assertThat(gauges.get(cacheMetricName("request.count")).getValue(), equalTo(5L));
     }
 
+    @Test
+    public void cachesRolledBackTransactions() {
+        TimestampCache timestampCache = new TimestampCache(TimestampCache.DEFAULT_CAPACITY);
+
+        timestampCache.putAlreadyCommittedTransaction(5L, TransactionConstants.FAILED_COMMIT_TS);
+
+        assertThat(timestampCache.getCommitTimestampIfPresent(5L), is(TransactionConstants.FAILED_COMMIT_TS));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        TimestampCache timestampCache = new TimestampCache(SetAssociativeTimestampMap.WAYS);
+        for (long startTimestamp = 1; startTimestamp <= SetAssociativeTimestampMap.WAYS; startTimestamp++) {
+            timestampCache.putAlreadyCommittedTransaction(startTimestamp, startTimestamp + 100);
+        }
+
+        assertThat(timestampCache.getCommitTimestampIfPresent(1L), is(101L));
+        timestampCache.putAlreadyCommittedTransaction(50L, 150L);
+
+        assertThat(timestampCache.getCommitTimestampIfPresent(1L), is(101L));
+        assertThat(timestampCache.getCommitTimestampIfPresent(2L), is(nullValue()));
+        assertThat(timestampCache.getCommitTimestampIfPresent(50L), is(150L));
+    }
+
+    @Test
+    public void timestampsOlderThanRecentOnesAreStillCached() {
+        TimestampCache timestampCache = new TimestampCache(TimestampCache.DEFAULT_CAPACITY);
+        timestampCache.registerMetrics(TEST_CACHE_NAME);
+        SortedMap<String, Gauge> gauges = metricsRule.metrics().getGauges(startsWith(TEST_CACHE_NAME));
+        long recentStartTimestamp = 100L * TimestampCache.DEFAULT_CAPACITY;
+        for (int i = 0; i < 1000; i++) {
+            timestampCache.putAlreadyCommittedTransaction(recentStartTimestamp + i, recentStartTimestamp + i + 1);
+        }
+
+        assertThat(timestampCache.getCommitTimestampIfPresent(1L), is(nullValue()));
+        timestampCache.putAlreadyCommittedTransaction(1L, 2L);
+        assertThat(timestampCache.getCommitTimestampIfPresent(1L), is(2L));
+
+        assertThat(gauges.get(cacheMetricName("hit.count")).getValue(), equalTo(1L));
+        assertThat(gauges.get(cacheMetricName("miss.count")).getValue(), equalTo(1L));
+    }
+
+    @Test
+    public void hitIsCountedEvenIfCommitTimestampEqualsDefault() {
+        TimestampCache timestampCache = new TimestampCache(TimestampCache.DEFAULT_CAPACITY);
+        timestampCache.registerMetrics(TEST_CACHE_NAME);
+        SortedMap<String, Gauge> gauges = metricsRule.metrics().getGauges(startsWith(TEST_CACHE_NAME));
+
+        timestampCache.putAlreadyCommittedTransaction(1L, 2L);
+
+        assertThat(timestampCache.getCommitTimestampOrDefault(1L, 2L), is(2L));
+        assertThat(gauges.get(cacheMetricName("hit.count")).getValue(), equalTo(1L));
+        assertThat(gauges.get(cacheMetricName("miss.count")).getValue(), equalTo(0L));
+    }
+
+    @Test
+    public void sizeReflectsEntriesActuallyHeld() {
+        TimestampCache timestampCache = new TimestampCache(SetAssociativeTimestampMap.WAYS);
+        timestampCache.registerMetrics(TEST_CACHE_NAME);
+        SortedMap<String, Gauge> gauges = metricsRule.metrics().getGauges(startsWith(TEST_CACHE_NAME));
+
+        timestampCache.putAlreadyCommittedTransaction(1L, 2L);
+        timestampCache.putAlreadyCommittedTransaction(1L, 2L);
+        timestampCache.putAlreadyCommittedTransaction(3L, 4L);
+        assertThat(gauges.get(cacheMetricName("size")).getValue(), equalTo(2L));
+
+        for (long startTimestamp = 10; startTimestamp < 10 + SetAssociativeTimestampMap.WAYS; startTimestamp++) {
+            timestampCache.putAlreadyCommittedTransaction(startTimestamp, startTimestamp + 1);
+        }
+        assertThat(gauges.get(cacheMetricName("size")).getValue(), equalTo((long) SetAssociativeTimestampMap.WAYS));
+        assertThat(gauges.get(cacheMetricName("eviction.count")).getValue(), equalTo(2L));
+
+        timestampCache.clear();
+        assertThat(gauges.get(cacheMetricName("size")).getValue(), equalTo(0L));
+    }
+
     private static String cacheMetricName(String name) {
         return TEST_CACHE_NAME + ".cache." + name;
     }
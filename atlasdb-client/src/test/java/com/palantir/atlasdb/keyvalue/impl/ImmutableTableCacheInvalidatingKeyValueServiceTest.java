@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.cache.ImmutableTableCache;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public class ImmutableTableCacheInvalidatingKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final long COMMIT_TS = 10L;
+
+    private final ImmutableTableCache cache = ImmutableTableCache.create(ImmutableSet.of(TABLE), 100);
+    private final KeyValueService kvs = ImmutableTableCacheInvalidatingKeyValueService.create(
+            mock(KeyValueService.class), cache);
+
+    @Test
+    public void truncateTableInvalidatesCache() {
+        putInCache();
+        kvs.truncateTable(TABLE);
+        assertNotCached();
+    }
+
+    @Test
+    public void truncateTablesInvalidatesCache() {
+        putInCache();
+        kvs.truncateTables(ImmutableSet.of(TABLE));
+        assertNotCached();
+    }
+
+    @Test
+    public void dropTableInvalidatesCache() {
+        putInCache();
+        kvs.dropTable(TABLE);
+        assertNotCached();
+    }
+
+    @Test
+    public void dropTablesInvalidatesCache() {
+        putInCache();
+        kvs.dropTables(ImmutableSet.of(TABLE));
+        assertNotCached();
+    }
+
+    @Test
+    public void deleteRangeInvalidatesCache() {
+        putInCache();
+        kvs.deleteRange(TABLE, RangeRequest.all());
+        assertNotCached();
+    }
+
+    private void putInCache() {
+        cache.put(TABLE, CELL, VALUE, COMMIT_TS, cache.getGeneration());
+        assertThat(cache.getVisible(TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1)).containsOnlyKeys(CELL);
+    }
+
+    private void assertNotCached() {
+        assertThat(cache.getVisible(TABLE, ImmutableSet.of(CELL), COMMIT_TS + 1)).isEmpty();
+    }
+}
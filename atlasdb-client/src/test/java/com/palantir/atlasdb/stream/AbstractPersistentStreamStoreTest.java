@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.util.crypto.Sha256Hash;
+
+public class AbstractPersistentStreamStoreTest {
+    private static final int NUM_BLOCKS = 4;
+    private static final long FAILING_BLOCK = 0;
+
+    private final QueueingExecutor writeExecutor = new QueueingExecutor();
+    private final ExecutorService callerExecutor = Executors.newSingleThreadExecutor();
+    private final List<Long> storedBlocks = Collections.synchronizedList(Lists.newArrayList());
+
+    private TestStreamStore streamStore;
+
+    @Before
+    public void setUp() throws Exception {
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.getTimestamp()).thenReturn(1L);
+        TransactionManager txManager = mock(TransactionManager.class);
+        when(txManager.runTaskWithRetry(any(TransactionTask.class))).thenAnswer(invocation ->
+                ((TransactionTask<?, ?>) invocation.getArguments()[0]).execute(transaction));
+        when(txManager.runTaskThrowOnConflict(any(TransactionTask.class))).thenAnswer(invocation ->
+                ((TransactionTask<?, ?>) invocation.getArguments()[0]).execute(transaction));
+        streamStore = new TestStreamStore(txManager);
+    }
+
+    @After
+    public void tearDown() {
+        callerExecutor.shutdownNow();
+    }
+
+    @Test
+    public void failedBlockWriteIsPropagatedToTheCaller() throws Exception {
+        Future<?> storing = callerExecutor.submit(() -> streamStore.storeStream(createStream()));
+
+        writeExecutor.runNext();
+
+        assertThatThrownBy(() -> storing.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasStackTraceContaining("Failed to store block " + FAILING_BLOCK);
+    }
+
+    @Test
+    public void failedBlockWriteCancelsOutstandingWrites() throws Exception {
+        Future<?> storing = callerExecutor.submit(() -> streamStore.storeStream(createStream()));
+
+        writeExecutor.runNext();
+        assertThatThrownBy(() -> storing.get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+
+        FutureTask<?> outstandingWrite = writeExecutor.takeNext();
+        assertThat(outstandingWrite.isCancelled()).isTrue();
+        outstandingWrite.run();
+        assertThat(storedBlocks).isEmpty();
+    }
+
+    @Test
+    public void cancellingTheStoreCancelsOutstandingWrites() throws Exception {
+        streamStore.failBlocks = false;
+        Future<?> storing = callerExecutor.submit(() -> streamStore.storeStream(createStream()));
+        FutureTask<?> firstWrite = writeExecutor.takeNext();
+        FutureTask<?> secondWrite = writeExecutor.takeNext();
+
+        storing.cancel(true);
+        callerExecutor.shutdown();
+        assertThat(callerExecutor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(firstWrite.isCancelled()).isTrue();
+        assertThat(secondWrite.isCancelled()).isTrue();
+        firstWrite.run();
+        secondWrite.run();
+        assertThat(storedBlocks).isEmpty();
+    }
+
+    private static ByteArrayInputStream createStream() {
+        return new ByteArrayInputStream(new byte[NUM_BLOCKS * AbstractPersistentStreamStore.BLOCK_SIZE_IN_BYTES]);
+    }
+
+    /** Queues submitted tasks so that the test decides when, and whether, each of them runs. */
+    private static final class QueueingExecutor extends AbstractExecutorService {
+        private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+        FutureTask<?> takeNext() throws InterruptedException {
+            Runnable task = tasks.poll(10, TimeUnit.SECONDS);
+            assertThat(task).as("a write should have been submitted").isNotNull();
+            return (FutureTask<?>) task;
+        }
+
+        void runNext() throws InterruptedException {
+            takeNext().run();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+            // not needed
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Lists.newArrayList(tasks);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+
+    private final class TestStreamStore extends AbstractPersistentStreamStore {
+        private volatile boolean failBlocks = true;
+
+        TestStreamStore(TransactionManager txManager) {
+            super(txManager);
+        }
+
+        @Override
+        protected int getWriteParallelism() {
+            return 2;
+        }
+
+        @Override
+        protected int getWriteBatchSizeInBlocks() {
+            return 1;
+        }
+
+        @Override
+        protected ExecutorService getWriteExecutor() {
+            return writeExecutor;
+        }
+
+        @Override
+        protected void storeBlock(Transaction t, long id, long blockNumber, byte[] block) {
+            if (failBlocks && blockNumber == FAILING_BLOCK) {
+                throw new IllegalStateException("Failed to store block " + blockNumber);
+            }
+            storedBlocks.add(blockNumber);
+        }
+
+        @Override
+        protected long getInMemoryThreshold() {
+            return BLOCK_SIZE_IN_BYTES;
+        }
+
+        @Override
+        protected File createTempFile(Long id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void loadSingleBlockToOutputStream(Transaction tx, Long streamId, long blockId, OutputStream os) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected Map<Long, StreamMetadata> getMetadata(Transaction tx, Set<Long> streamIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void touchMetadataWhileMarkingUsedForConflicts(Transaction t, Iterable<Long> ids) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void markStreamsAsUsedInternal(Transaction t, Map<Long, byte[]> streamIdsToReference) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void putMetadataAndHashIndexTask(Transaction t, Map<Long, StreamMetadata> streamIdsToMetadata) {
+            // metadata is not inspected by these tests
+        }
+
+        @Override
+        public Map<Sha256Hash, Long> lookupStreamIdsByHash(Transaction t, Set<Sha256Hash> hashes) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void unmarkStreamsAsUsed(Transaction t, Map<Long, byte[]> streamIdsToReference) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -29,7 +29,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -92,10 +96,17 @@ public class BlockConsumingInputStreamTest {
     };
 
     private BlockConsumingInputStream dataStream;
+    private ExecutorService prefetchExecutor;
 
     @Before
     public void setUp() throws Exception {
         dataStream = BlockConsumingInputStream.create(dataConsumer, 1, 1);
+        prefetchExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        prefetchExecutor.shutdownNow();
     }
 
     @Test(expected = NullPointerException.class)
@@ -291,6 +302,75 @@ public class BlockConsumingInputStreamTest {
         verify(spiedGetter, times(1)).get(anyLong(), eq(1L), any());
     }
 
+    @Test
+    public void prefetchingStreamReadsBlocksInOrder() throws IOException {
+        BlockConsumingInputStream stream = BlockConsumingInputStream.create(threeByteConsumer, 3, 1,
+                prefetchExecutor, 2);
+        expectNextBytesFromStream(stream, "di");
+        expectNextBytesFromStream(stream, "vi");
+        expectNextBytesFromStream(stream, "si");
+        expectNextBytesFromStream(stream, "bl");
+
+        byte[] chunk = new byte[2];
+        int read = stream.read(chunk);
+        assertEquals(1, read);
+        assertArrayEquals("e".getBytes(StandardCharsets.UTF_8), Arrays.copyOf(chunk, 1));
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void prefetchingStreamLoadsEachBatchOnce() throws IOException {
+        BlockGetter spiedGetter = Mockito.spy(singleByteConsumer);
+        BlockConsumingInputStream stream = BlockConsumingInputStream.create(spiedGetter, DATA_SIZE, 1,
+                prefetchExecutor, 3);
+        byte[] result = new byte[DATA_SIZE];
+        int read = stream.read(result);
+
+        assertEquals(DATA_SIZE, read);
+        assertArrayEquals(data, result);
+        for (long block = 0; block < DATA_SIZE; block++) {
+            verify(spiedGetter, times(1)).get(eq(block), eq(1L), any());
+        }
+    }
+
+    @Test
+    public void failedPrefetchIsRetriedByReader() throws IOException {
+        AtomicBoolean failedOnce = new AtomicBoolean(false);
+        BlockGetter flakyGetter = new BlockGetter() {
+            @Override
+            public void get(long offset, long numBlocks, OutputStream os) {
+                if (offset == 2 && failedOnce.compareAndSet(false, true)) {
+                    throw new IllegalStateException("transient failure");
+                }
+                singleByteConsumer.get(offset, numBlocks, os);
+            }
+
+            @Override
+            public int expectedBlockLength() {
+                return data.length;
+            }
+        };
+
+        BlockConsumingInputStream stream = BlockConsumingInputStream.create(flakyGetter, DATA_SIZE, 1,
+                prefetchExecutor, 2);
+        byte[] result = new byte[DATA_SIZE];
+        int read = stream.read(result);
+
+        assertEquals(DATA_SIZE, read);
+        assertArrayEquals(data, result);
+        assertTrue(failedOnce.get());
+    }
+
+    @Test
+    public void closedPrefetchingStreamCanStillBeRead() throws IOException {
+        BlockConsumingInputStream stream = BlockConsumingInputStream.create(threeByteConsumer, 3, 1,
+                prefetchExecutor, 2);
+        expectNextBytesFromStream(stream, "di");
+        stream.close();
+        expectNextBytesFromStream(stream, "vi");
+        expectNextBytesFromStream(stream, "si");
+    }
+
     private void expectNextBytesFromStream(BlockConsumingInputStream stream, String expectedOutput) throws IOException {
         byte[] chunk = new byte[2];
         int read = stream.read(chunk);
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.config;
 
 import java.util.Optional;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -156,6 +157,24 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_SWEEP_PERSISTENT_LOCK_WAIT_MILLIS;
     }
 
+    /**
+     * The number of background sweep workers. Each worker sweeps a different table, or a different shard of
+     * a large table, at a time.
+     */
+    @Value.Default
+    public int getSweepThreads() {
+        return AtlasDbConstants.DEFAULT_SWEEP_THREADS;
+    }
+
+    /**
+     * Tables for which the last background sweep examined more than this many (cell, timestamp) pairs are split
+     * into row-range shards of about this size that can be swept concurrently.
+     */
+    @Value.Default
+    public long getSweepCellTsPairsPerShard() {
+        return AtlasDbConstants.DEFAULT_SWEEP_CELL_TS_PAIRS_PER_SHARD;
+    }
+
     /**
      * The target number of (cell, timestamp) pairs to examine in a single run of the background sweeper.
      */
@@ -212,6 +231,40 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_LOCK_TIMEOUT_SECONDS;
     }
 
+    /**
+     * Fully qualified names ({@code namespace.table}) of tables whose cells are written at most once and never
+     * overwritten or deleted. Committed values read from these tables are cached and shared across transactions,
+     * so repeated reads of the same cells do not go to the key value service. Only point reads of cells are served
+     * from the cache; row and range reads always go to the key value service. The cache is invalidated when one of
+     * these tables is truncated, dropped or has a range deleted through the transaction manager's key value service.
+     */
+    public abstract Set<String> getImmutableTableCacheTables();
+
+    /**
+     * The maximum number of cells held by the cache of {@link #getImmutableTableCacheTables()}.
+     */
+    @Value.Default
+    public long getImmutableTableCacheMaxCells() {
+        return AtlasDbConstants.DEFAULT_IMMUTABLE_TABLE_CACHE_MAX_CELLS;
+    }
+
+    /**
+     * If true, concurrent writes of commit timestamps to the transactions table are coalesced into batched
+     * putUnlessExists calls.
+     */
+    @Value.Default
+    public boolean enableGroupCommit() {
+        return AtlasDbConstants.DEFAULT_ENABLE_GROUP_COMMIT;
+    }
+
+    /**
+     * The maximum number of commit timestamps to write in one batch when {@link #enableGroupCommit()} is set.
+     */
+    @Value.Default
+    public int getGroupCommitMaxBatchSize() {
+        return AtlasDbConstants.DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE;
+    }
+
     @Value.Check
     protected final void check() {
         if (leader().isPresent()) {
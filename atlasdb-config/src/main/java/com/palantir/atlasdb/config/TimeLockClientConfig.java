@@ -31,6 +31,15 @@ public abstract class TimeLockClientConfig {
 
     public abstract ServerListConfig serversList();
 
+    /**
+     * If true, transactions are started through the timelock server's combined transaction start endpoint, which
+     * coalesces concurrent transaction starts into a single request.
+     */
+    @Value.Default
+    public boolean batchTransactionStarts() {
+        return false;
+    }
+
     public ServerListConfig toNamespacedServerList() {
         Set<String> serversWithNamespaces = serversList()
                 .servers()
@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.factory;
 
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -149,6 +150,7 @@ public final class Leaders {
                 .pingRateMs(config.pingRateMs())
                 .randomWaitBeforeProposingLeadershipMs(config.randomWaitBeforeProposingLeadershipMs())
                 .leaderPingResponseWaitMs(config.leaderPingResponseWaitMs())
+                .leaseDurationMs(config.leaseDurationMs())
                 .eventRecorder(leadershipEventRecorder)
                 .build();
 
@@ -164,6 +166,7 @@ public final class Leaders {
                 .ourLearner(ourLearner)
                 .leaderElectionService(leaderElectionService)
                 .pingableLeader(pingableLeader)
+                .leaderElectionServiceCloser(paxosLeaderElectionService)
                 .build();
     }
 
@@ -209,6 +212,11 @@ public final class Leaders {
         PaxosLearner ourLearner();
         LeaderElectionService leaderElectionService();
         PingableLeader pingableLeader();
+
+        /**
+         * Stops the background tasks of the local leader election service, such as renewing its leadership lease.
+         */
+        Closeable leaderElectionServiceCloser();
     }
 
     @Value.Immutable
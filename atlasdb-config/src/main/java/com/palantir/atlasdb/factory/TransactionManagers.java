@@ -19,6 +19,7 @@ import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSocketFactory;
@@ -35,6 +36,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.cache.ImmutableTableCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.CleanupFollower;
 import com.palantir.atlasdb.cleaner.DefaultCleanerBuilder;
@@ -46,6 +48,8 @@ import com.palantir.atlasdb.config.TimeLockClientConfig;
 import com.palantir.atlasdb.factory.startup.TimeLockMigrator;
 import com.palantir.atlasdb.http.UserAgents;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ImmutableTableCacheInvalidatingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.NamespacedKeyValueServices;
 import com.palantir.atlasdb.keyvalue.impl.ProfilingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
@@ -70,6 +74,8 @@ import com.palantir.atlasdb.sweep.SweepTaskRunner;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.atlasdb.transaction.impl.BatchingTransactionStarter;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
@@ -95,6 +101,7 @@ public final class TransactionManagers {
     private static final Logger log = LoggerFactory.getLogger(TransactionManagers.class);
     private static final ServiceLoader<AtlasDbFactory> loader = ServiceLoader.load(AtlasDbFactory.class);
     public static final LockClient LOCK_CLIENT = LockClient.of("atlas instance");
+    private static final int MAX_TRANSACTION_START_BATCH_SIZE = 1000;
 
     private TransactionManagers() {
         // Utility class
@@ -199,12 +206,20 @@ public final class TransactionManagers {
         kvs = AtlasDbMetrics.instrument(KeyValueService.class, kvs,
                 MetricRegistry.name(KeyValueService.class, userAgent));
         kvs = ValidatingQueryRewritingKeyValueService.create(kvs);
+        ImmutableTableCache immutableTableCache = ImmutableTableCache.create(
+                config.getImmutableTableCacheTables().stream()
+                        .map(TableReference::createFromFullyQualifiedName)
+                        .collect(Collectors.toSet()),
+                config.getImmutableTableCacheMaxCells());
+        kvs = ImmutableTableCacheInvalidatingKeyValueService.create(kvs, immutableTableCache);
 
         TransactionTables.createTables(kvs);
 
         PersistentLockService persistentLockService = createAndRegisterPersistentLockService(kvs, env);
 
-        TransactionService transactionService = TransactionServices.createTransactionService(kvs);
+        TransactionService transactionService = config.enableGroupCommit()
+                ? TransactionServices.createGroupCommitTransactionService(kvs, config.getGroupCommitMaxBatchSize())
+                : TransactionServices.createTransactionService(kvs);
         ConflictDetectionManager conflictManager = ConflictDetectionManagers.create(kvs);
         SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
 
@@ -233,6 +248,13 @@ public final class TransactionManagers {
                 .setTransactionReadTimeout(config.getTransactionReadTimeoutMillis())
                 .buildCleaner();
 
+        Optional<BatchingTransactionStarter> transactionStarter = lockAndTimestampServices.transactionStart()
+                .map(service -> BatchingTransactionStarter.create(
+                        service,
+                        lockAndTimestampServices.lock(),
+                        LOCK_CLIENT.getClientId(),
+                        MAX_TRANSACTION_START_BATCH_SIZE));
+
         SerializableTransactionManager transactionManager = new SerializableTransactionManager(kvs,
                 lockAndTimestampServices.time(),
                 LOCK_CLIENT,
@@ -242,7 +264,9 @@ public final class TransactionManagers {
                 conflictManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                transactionStarter,
+                immutableTableCache);
 
         PersistentLockManager persistentLockManager = new PersistentLockManager(
                 persistentLockService,
@@ -268,7 +292,9 @@ public final class TransactionManagers {
                 Suppliers.ofInstance(getSweepBatchConfig(config)),
                 SweepTableFactory.of(),
                 new NoOpBackgroundSweeperPerformanceLogger(),
-                persistentLockManager);
+                persistentLockManager,
+                config.getSweepThreads(),
+                config.getSweepCellTsPairsPerShard());
         backgroundSweeper.runInBackground();
 
         return transactionManager;
@@ -386,7 +412,16 @@ public final class TransactionManagers {
             TimeLockClientConfig config,
             String userAgent) {
         ServerListConfig namespacedServerListConfig = config.toNamespacedServerList();
-        return getLockAndTimestampServices(namespacedServerListConfig, userAgent);
+        LockAndTimestampServices lockAndTimestampServices =
+                getLockAndTimestampServices(namespacedServerListConfig, userAgent);
+        if (!config.batchTransactionStarts()) {
+            return lockAndTimestampServices;
+        }
+        return ImmutableLockAndTimestampServices.builder()
+                .from(lockAndTimestampServices)
+                .transactionStart(new ServiceCreator<>(TransactionStartService.class, userAgent)
+                        .apply(namespacedServerListConfig))
+                .build();
     }
 
     private static LockAndTimestampServices getLockAndTimestampServices(
@@ -463,6 +498,7 @@ public final class TransactionManagers {
     public interface LockAndTimestampServices {
         RemoteLockService lock();
         TimestampService time();
+        Optional<TransactionStartService> transactionStart();
     }
 
     public interface Environment {
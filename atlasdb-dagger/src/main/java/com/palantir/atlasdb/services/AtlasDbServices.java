@@ -50,6 +50,7 @@ public abstract class AtlasDbServices implements AutoCloseable {
 
     @Override
     public void close() {
+        getSweepTaskRunner().close();
         getKeyValueService().close();
     }
 }
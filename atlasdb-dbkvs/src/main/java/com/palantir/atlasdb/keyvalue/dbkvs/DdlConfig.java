@@ -57,6 +57,28 @@ public abstract class DdlConfig {
         return 2 * 1024 * 1024;
     }
 
+    /**
+     * Run SQL on the calling thread, with a shared watchdog cancelling queries on interrupt or timeout,
+     * instead of handing every statement off to a SQL thread pool.
+     */
+    @Value.Default
+    public boolean executeSqlOnCallingThread() {
+        return false;
+    }
+
+    /**
+     * Timeout for queries when {@link #executeSqlOnCallingThread()} is set. Zero disables the timeout.
+     */
+    @Value.Default
+    public long sqlQueryTimeoutMillis() {
+        return 0;
+    }
+
+    @Value.Default
+    public boolean renameSqlThreads() {
+        return true;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkState(
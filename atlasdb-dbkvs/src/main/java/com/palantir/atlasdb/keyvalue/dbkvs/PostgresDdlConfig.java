@@ -36,6 +36,15 @@ public abstract class PostgresDdlConfig extends DdlConfig {
         return AtlasDbConstants.DEFAULT_METADATA_TABLE;
     }
 
+    /**
+     * Write batches with at least this many cells are streamed to Postgres with binary COPY rather than a batched
+     * INSERT. Batches are capped by {@link #mutationBatchCount()}. Zero or negative disables COPY.
+     */
+    @Value.Default
+    public int copyBatchThreshold() {
+        return 500;
+    }
+
     @Override
     public final String type() {
         return TYPE;
@@ -38,7 +38,7 @@ public abstract class AbstractDbWriteTable implements DbWriteTable {
     protected final DdlConfig config;
     protected final ConnectionSupplier conns;
     protected final TableReference tableRef;
-    private final PrefixedTableNames prefixedTableNames;
+    protected final PrefixedTableNames prefixedTableNames;
 
     protected AbstractDbWriteTable(
             DdlConfig config,
@@ -73,7 +73,10 @@ public abstract class AbstractDbWriteTable implements DbWriteTable {
         put(args);
     }
 
-    private void put(List<Object[]> args) {
+    /**
+     * Writes rows of (row_name, col_name, ts, val).
+     */
+    protected void put(List<Object[]> args) {
         try {
             String prefixedTableName = prefixedTableNames.get(tableRef, conns);
             conns.get().insertManyUnregisteredQuery("/* INSERT_ONE (" + prefixedTableName + ") */"
@@ -90,32 +93,36 @@ public abstract class AbstractDbWriteTable implements DbWriteTable {
 
     @Override
     public void putSentinels(Iterable<Cell> cells) {
+        for (List<Cell> batch : Iterables.partition(Ordering.natural().immutableSortedCopy(cells), 1000)) {
+            putSentinelBatch(batch);
+        }
+    }
+
+    protected void putSentinelBatch(List<Cell> batch) {
         byte[] value = new byte[0];
         long ts = Value.INVALID_VALUE_TIMESTAMP;
-        for (List<Cell> batch : Iterables.partition(Ordering.natural().immutableSortedCopy(cells), 1000)) {
-            List<Object[]> args = Lists.newArrayListWithCapacity(batch.size());
-            for (Cell cell : batch) {
-                args.add(new Object[] {cell.getRowName(), cell.getColumnName(), ts, value,
-                        cell.getRowName(), cell.getColumnName(), ts});
-            }
-            while (true) {
-                try {
-                    String prefixedTableName = prefixedTableNames.get(tableRef, conns);
-                    conns.get().insertManyUnregisteredQuery("/* INSERT_WHERE_NOT_EXISTS (" + prefixedTableName + ") */"
-                            + " INSERT INTO " + prefixedTableName + " (row_name, col_name, ts, val) "
-                            + " SELECT ?, ?, ?, ? FROM DUAL"
-                            + " WHERE NOT EXISTS (SELECT * FROM " + prefixedTableName + " WHERE"
-                            + " row_name = ? AND"
-                            + " col_name = ? AND"
-                            + " ts = ?)",
-                            args);
-                    break;
-                } catch (PalantirSqlException e) {
-                    // we can't do atomic put if not exists, so retry if we get constraint violations
-                    // TODO(jboreiko): Actually you can. Evaluate use of MERGE or UPSERT here.
-                    if (!ExceptionCheck.isUniqueConstraintViolation(e)) {
-                        throw e;
-                    }
+        List<Object[]> args = Lists.newArrayListWithCapacity(batch.size());
+        for (Cell cell : batch) {
+            args.add(new Object[] {cell.getRowName(), cell.getColumnName(), ts, value,
+                    cell.getRowName(), cell.getColumnName(), ts});
+        }
+        while (true) {
+            try {
+                String prefixedTableName = prefixedTableNames.get(tableRef, conns);
+                conns.get().insertManyUnregisteredQuery("/* INSERT_WHERE_NOT_EXISTS (" + prefixedTableName + ") */"
+                        + " INSERT INTO " + prefixedTableName + " (row_name, col_name, ts, val) "
+                        + " SELECT ?, ?, ?, ? FROM DUAL"
+                        + " WHERE NOT EXISTS (SELECT * FROM " + prefixedTableName + " WHERE"
+                        + " row_name = ? AND"
+                        + " col_name = ? AND"
+                        + " ts = ?)",
+                        args);
+                break;
+            } catch (PalantirSqlException e) {
+                // we can't do atomic put if not exists, so retry if we get constraint violations
+                // TODO(jboreiko): Actually you can. Evaluate use of MERGE or UPSERT here.
+                if (!ExceptionCheck.isUniqueConstraintViolation(e)) {
+                    throw e;
                 }
             }
         }
@@ -22,6 +22,7 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.DdlConfig;
 import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
 import com.palantir.nexus.db.monitoring.timer.SqlTimer;
 import com.palantir.nexus.db.monitoring.timer.SqlTimers;
@@ -41,13 +42,14 @@ public class ConnectionManagerAwareDbKvs extends ForwardingKeyValueService {
     public static ConnectionManagerAwareDbKvs create(DbKeyValueServiceConfig config) {
         HikariCPConnectionManager connManager = new HikariCPConnectionManager(config.connection());
         ReentrantManagedConnectionSupplier connSupplier = new ReentrantManagedConnectionSupplier(connManager);
-        SqlConnectionSupplier sqlConnSupplier = getSimpleTimedSqlConnectionSupplier(connSupplier);
+        SqlConnectionSupplier sqlConnSupplier = getSimpleTimedSqlConnectionSupplier(connSupplier, config.ddl());
 
         return new ConnectionManagerAwareDbKvs(DbKvs.create(config, sqlConnSupplier), connManager);
     }
 
     private static SqlConnectionSupplier getSimpleTimedSqlConnectionSupplier(
-            ReentrantManagedConnectionSupplier connectionSupplier) {
+            ReentrantManagedConnectionSupplier connectionSupplier,
+            DdlConfig ddlConfig) {
         Supplier<Connection> supplier = () -> connectionSupplier.get();
         SQL sql = new SQL() {
             @Override
@@ -58,6 +60,21 @@ public class ConnectionManagerAwareDbKvs extends ForwardingKeyValueService {
                         return false;
                     }
 
+                    @Override
+                    public boolean isSqlExecutedOnCallingThread() {
+                        return ddlConfig.executeSqlOnCallingThread();
+                    }
+
+                    @Override
+                    public long getSqlQueryTimeoutMillis() {
+                        return ddlConfig.sqlQueryTimeoutMillis();
+                    }
+
+                    @Override
+                    public boolean isThreadRenamingEnabled() {
+                        return ddlConfig.renameSqlThreads();
+                    }
+
                     protected Iterable<SqlTimer> getSqlTimers() {
                         return ImmutableList.of(
                                 SqlTimers.createDurationSqlTimer(),
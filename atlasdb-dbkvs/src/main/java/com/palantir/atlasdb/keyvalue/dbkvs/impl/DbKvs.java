@@ -103,10 +103,11 @@ import com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres.PostgresGetRange;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres.PostgresPrefixedTableNames;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.ranges.DbKvsGetRange;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.ranges.DbKvsGetRanges;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.sweep.CellTimestamps;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.sweep.DbKvsGetCandidateCellsForSweeping;
 import com.palantir.atlasdb.keyvalue.dbkvs.util.DbKvsPartitioners;
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
-import com.palantir.atlasdb.keyvalue.impl.GetCandidateCellsForSweepingShim;
 import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
@@ -639,7 +640,28 @@ public final class DbKvs extends AbstractKeyValueService {
     @Override
     public ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(TableReference tableRef,
             CandidateCellForSweepingRequest request) {
-        return new GetCandidateCellsForSweepingShim(this).getCandidateCellsForSweeping(tableRef, request);
+        return DbKvsGetCandidateCellsForSweeping.getCandidateCellsForSweeping(request,
+                (startCellExclusive, maxCells) ->
+                        getCandidateCellsForSweepingPage(tableRef, request, startCellExclusive, maxCells));
+    }
+
+    private List<CellTimestamps> getCandidateCellsForSweepingPage(
+            TableReference tableRef,
+            CandidateCellForSweepingRequest request,
+            @Nullable Cell startCellExclusive,
+            int maxCells) {
+        Stopwatch watch = Stopwatch.createStarted();
+        try {
+            return runRead(tableRef, table -> {
+                try (ClosableIterator<AgnosticLightResultRow> rows =
+                             table.getCandidateCellsForSweeping(request, startCellExclusive, maxCells)) {
+                    return DbKvsGetCandidateCellsForSweeping.readCellTimestamps(rows);
+                }
+            });
+        } finally {
+            log.debug("Call to KVS.getCandidateCellsForSweepingPage on table {} took {} ms.",
+                    tableRef, watch.elapsed(TimeUnit.MILLISECONDS));
+        }
     }
 
     private TokenBackedBasicResultsPage<RowResult<Set<Long>>, Token> getTimestampsPage(
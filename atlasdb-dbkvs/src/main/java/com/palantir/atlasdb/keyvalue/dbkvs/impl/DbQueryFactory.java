@@ -18,7 +18,10 @@ package com.palantir.atlasdb.keyvalue.dbkvs.impl;
 import java.util.Collection;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
@@ -48,4 +51,16 @@ public interface DbQueryFactory {
     FullQuery getRowsColumnRangeCountsQuery(Iterable<byte[]> rows, long ts, ColumnRangeSelection columnRangeSelection);
     FullQuery getRowsColumnRangeQuery(Map<byte[], BatchColumnRangeSelection> columnRangeSelectionsByRow, long ts);
     FullQuery getRowsColumnRangeQuery(RowsColumnRangeBatchRequest batch, long ts);
+
+    /**
+     * Returns row_name, col_name, ts and latest_val_empty for every (cell, timestamp) pair of up to maxCells cells
+     * that are eligible for sweeping, ordered by (row_name, col_name, ts). Only timestamps below the sweep timestamp
+     * and not among the timestamps to ignore are returned; a cell with no such timestamps is still returned, once,
+     * with a null ts. The cells start after startCellExclusive if it is present, and at the request's start row
+     * otherwise.
+     */
+    FullQuery getCandidateCellsForSweepingQuery(
+            CandidateCellForSweepingRequest request,
+            @Nullable Cell startCellExclusive,
+            int maxCells);
 }
@@ -22,9 +22,12 @@ import java.util.Map;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Supplier;
 import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
@@ -36,6 +39,7 @@ import com.palantir.nexus.db.sql.AgnosticLightResultSet;
 
 public class DbReadTable {
     private static final int MAX_ROW_COLUMN_RANGES_FETCH_SIZE = 1000;
+    private static final int CANDIDATE_CELLS_FOR_SWEEPING_FETCH_SIZE = 1000;
 
     private final ConnectionSupplier conns;
     private final DbQueryFactory queryFactory;
@@ -105,8 +109,7 @@ public class DbReadTable {
 
     public ClosableIterator<AgnosticLightResultRow> getRange(RangeRequest range, long ts, int maxRows) {
         FullQuery query = queryFactory.getRangeQuery(range, ts, maxRows);
-        AgnosticLightResultSet results = conns.get().selectLightResultSetUnregisteredQuery(
-                query.getQuery(), query.getArgs());
+        AgnosticLightResultSet results = select(query);
         results.setFetchSize(maxRows);
         return ClosableIterators.wrap(results.iterator(), results);
     }
@@ -119,8 +122,7 @@ public class DbReadTable {
             return ClosableIterators.emptyImmutableClosableIterator();
         } else {
             FullQuery query = queryFactory.getRowsColumnRangeCountsQuery(rows, ts, columnRangeSelection);
-            AgnosticLightResultSet results = conns.get()
-                    .selectLightResultSetUnregisteredQuery(query.getQuery(), query.getArgs());
+            AgnosticLightResultSet results = select(query);
             results.setFetchSize(Math.min(rows.size(), MAX_ROW_COLUMN_RANGES_FETCH_SIZE));
             return ClosableIterators.wrap(results.iterator(), results);
         }
@@ -133,8 +135,7 @@ public class DbReadTable {
             return ClosableIterators.emptyImmutableClosableIterator();
         } else {
             FullQuery query = queryFactory.getRowsColumnRangeQuery(columnRangeSelectionsByRow, ts);
-            AgnosticLightResultSet results =
-                    conns.get().selectLightResultSetUnregisteredQuery(query.getQuery(), query.getArgs());
+            AgnosticLightResultSet results = select(query);
             int totalSize =
                     columnRangeSelectionsByRow.values().stream().mapToInt(
                             BatchColumnRangeSelection::getBatchHint).sum();
@@ -147,12 +148,21 @@ public class DbReadTable {
             RowsColumnRangeBatchRequest rowsColumnRangeBatch,
             long ts) {
         FullQuery query = queryFactory.getRowsColumnRangeQuery(rowsColumnRangeBatch, ts);
-        AgnosticLightResultSet results =
-                conns.get().selectLightResultSetUnregisteredQuery(query.getQuery(), query.getArgs());
+        AgnosticLightResultSet results = select(query);
         results.setFetchSize(MAX_ROW_COLUMN_RANGES_FETCH_SIZE);
         return ClosableIterators.wrap(results.iterator(), results);
     }
 
+    public ClosableIterator<AgnosticLightResultRow> getCandidateCellsForSweeping(
+            CandidateCellForSweepingRequest request,
+            @Nullable Cell startCellExclusive,
+            int maxCells) {
+        FullQuery query = queryFactory.getCandidateCellsForSweepingQuery(request, startCellExclusive, maxCells);
+        AgnosticLightResultSet results = select(query);
+        results.setFetchSize(CANDIDATE_CELLS_FOR_SWEEPING_FETCH_SIZE);
+        return ClosableIterators.wrap(results.iterator(), results);
+    }
+
     public boolean hasOverflowValues() {
         return queryFactory.hasOverflowValues();
     }
@@ -192,11 +202,15 @@ public class DbReadTable {
     }
 
     private ClosableIterator<AgnosticLightResultRow> run(FullQuery query) {
-        AgnosticLightResultSet results = conns.get().selectLightResultSetUnregisteredQuery(
-                query.getQuery(), query.getArgs());
+        AgnosticLightResultSet results = select(query);
         return ClosableIterators.wrap(results.iterator(), results);
     }
 
+    private AgnosticLightResultSet select(FullQuery query) {
+        StatementCacheMetrics.record(query.getQuery());
+        return conns.get().selectLightResultSetUnregisteredQuery(query.getQuery(), query.getArgs());
+    }
+
     public enum Order {
         UNDEFINED(""),
         ASCENDING(" ORDER BY m.row_name ASC, m.col_name, m.ts"),
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.palantir.atlasdb.util.MetricsManager;
+
+/**
+ * Tracks how often DbKvs issues SQL text that it issued recently. JDBC drivers cache prepared statements, and
+ * databases cache plans, keyed by SQL text, so the hit rate approximates how often those caches can be reused.
+ * The tracked window matches the Postgres driver's default statement cache of 256 queries per connection.
+ */
+final class StatementCacheMetrics {
+    private static final int TRACKED_STATEMENTS = 256;
+
+    private static final StatementCacheMetrics INSTANCE = new StatementCacheMetrics(new MetricsManager());
+
+    private final Cache<String, Boolean> recentStatements = CacheBuilder.newBuilder()
+            .maximumSize(TRACKED_STATEMENTS)
+            .build();
+    private final Meter hits;
+    private final Meter misses;
+
+    @VisibleForTesting
+    StatementCacheMetrics(MetricsManager metricsManager) {
+        this.hits = metricsManager.registerMeter(StatementCacheMetrics.class, "statementCache", "hit");
+        this.misses = metricsManager.registerMeter(StatementCacheMetrics.class, "statementCache", "miss");
+        metricsManager.registerMetric(StatementCacheMetrics.class, "statementCache", "hitRatio", new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getOneMinuteRate(), hits.getOneMinuteRate() + misses.getOneMinuteRate());
+            }
+        });
+    }
+
+    static void record(String sql) {
+        INSTANCE.recordStatement(sql);
+    }
+
+    @VisibleForTesting
+    void recordStatement(String sql) {
+        if (recentStatements.asMap().putIfAbsent(sql, Boolean.TRUE) == null) {
+            misses.mark();
+        } else {
+            hits.mark();
+        }
+    }
+}
@@ -16,14 +16,19 @@
 package com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
@@ -330,6 +335,63 @@ public class OracleQueryFactory extends AbstractDbQueryFactory {
         return hasOverflowValues;
     }
 
+    @Override
+    public FullQuery getCandidateCellsForSweepingQuery(CandidateCellForSweepingRequest request,
+                                                       @Nullable Cell startCellExclusive,
+                                                       int maxCells) {
+        long[] timestampsToIgnore = request.timestampsToIgnore();
+        String ignoredTimestampParams =
+                "(" + Joiner.on(',').join(Collections.nCopies(timestampsToIgnore.length, "?")) + ")";
+        String ignoredTimestamps = timestampsToIgnore.length == 0 ? "" : " AND %s.ts NOT IN " + ignoredTimestampParams;
+        String startBound = "";
+        if (startCellExclusive != null) {
+            startBound = " AND s.row_name >= ? AND (s.row_name > ? OR s.col_name > ?) ";
+        } else if (request.startRowInclusive().length > 0) {
+            startBound = " AND s.row_name >= ? ";
+        }
+        // Oracle stores empty byte arrays as NULL, and empty values are never written to the overflow table.
+        String latestValueEmpty = request.shouldCheckIfLatestValueIsEmpty()
+                ? " CASE WHEN m.ts = c.max_ts AND m.val IS NULL"
+                        + (hasOverflowValues ? " AND m.overflow IS NULL" : "")
+                        + " THEN 1 ELSE 0 END"
+                : " 0";
+        // Cells whose timestamps are all ignored are still listed, with a single row and a null timestamp.
+        String latestTimestamp = timestampsToIgnore.length == 0 ? "s.ts"
+                : "CASE WHEN s.ts NOT IN " + ignoredTimestampParams + " THEN s.ts END";
+        String query = " /* GET_CANDIDATE_CELLS_FOR_SWEEPING (" + tableName + ") */ "
+                + " SELECT"
+                + "   /*+ USE_NL(c m) LEADING(c m) NO_MERGE(c) INDEX(m "
+                + PrimaryKeyConstraintNames.get(tableName) + ") */ "
+                + "   c.row_name, c.col_name, m.ts," + latestValueEmpty + " AS latest_val_empty "
+                + " FROM ( SELECT * FROM ( "
+                + "          SELECT /*+ INDEX(s " + PrimaryKeyConstraintNames.get(tableName) + ") */ "
+                + "            s.row_name, s.col_name, max(" + latestTimestamp + ") AS max_ts "
+                + "          FROM " + tableName + " s "
+                + "          WHERE s.ts < ? "
+                + startBound
+                + "          GROUP BY s.row_name, s.col_name "
+                + "          ORDER BY s.row_name ASC, s.col_name ASC "
+                + "        ) WHERE rownum <= " + maxCells + " ) c "
+                + " LEFT JOIN " + tableName + " m "
+                + "   ON m.row_name = c.row_name "
+                + "  AND m.col_name = c.col_name "
+                + "  AND m.ts < ? "
+                + String.format(ignoredTimestamps, "m")
+                + " ORDER BY c.row_name ASC, c.col_name ASC, m.ts ASC";
+        FullQuery fullQuery = new FullQuery(query)
+                .withArgs(Longs.asList(timestampsToIgnore))
+                .withArg(request.sweepTimestamp());
+        if (startCellExclusive != null) {
+            byte[] startRow = startCellExclusive.getRowName();
+            fullQuery.withArgs(startRow, startRow, startCellExclusive.getColumnName());
+        } else if (request.startRowInclusive().length > 0) {
+            fullQuery.withArg(request.startRowInclusive());
+        }
+        return fullQuery
+                .withArg(request.sweepTimestamp())
+                .withArgs(Longs.asList(timestampsToIgnore));
+    }
+
     @Override
     public FullQuery getRowsColumnRangeCountsQuery(
             Iterable<byte[]> rows,
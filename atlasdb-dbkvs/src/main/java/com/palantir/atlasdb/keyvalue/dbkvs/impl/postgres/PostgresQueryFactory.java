@@ -19,10 +19,15 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
 
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
@@ -32,6 +37,11 @@ import com.palantir.atlasdb.keyvalue.dbkvs.impl.AbstractDbQueryFactory;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
 
 public class PostgresQueryFactory extends AbstractDbQueryFactory {
+    private static final int MAX_PADDED_BATCH_SIZE = 1024;
+    // Cells always have non-empty row and column names, so padding entries never match anything.
+    private static final byte[] PADDING_NAME = new byte[0];
+    private static final long PADDING_TIMESTAMP = 0L;
+
     private final String tableName;
     private final PostgresDdlConfig config;
 
@@ -51,11 +61,11 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : withPaddedNames(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -66,14 +76,14 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedNumParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        FullQuery fullQuery = withPaddedNames(new FullQuery(query), rows).withArg(ts);
+        return columns.allColumnsSelected() ? fullQuery : withPaddedNames(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -83,15 +93,15 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, rows.size()) + ") t(row_name, ts) "
+                + "     (VALUES " + groupOfNumParams(2, paddedSize(rows.size())) + ") t(row_name, ts) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : withPaddedNames(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -105,9 +115,9 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())));
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : withPaddedNames(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -118,12 +128,12 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedNumParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())));
+        FullQuery fullQuery = withPaddedNames(new FullQuery(query), rows).withArg(ts);
+        return columns.allColumnsSelected() ? fullQuery : withPaddedNames(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -133,13 +143,13 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, rows.size()) + ") t(row_name, ts) "
+                + "     (VALUES " + groupOfNumParams(2, paddedSize(rows.size())) + ") t(row_name, ts) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())));
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : withPaddedNames(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -161,7 +171,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_CELLS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "    (VALUES " + groupOfNumParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
+                + "    (VALUES " + groupOfNumParams(2, paddedSize(Iterables.size(cells))) + ") t(row_name, col_name) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? "
@@ -175,7 +185,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_CELLS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
+                + "     (VALUES " + groupOfNumParams(3, paddedSize(cells.size())) + ") t(row_name, col_name, ts) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts "
@@ -200,7 +210,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_CELLS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
+                + "     (VALUES " + groupOfNumParams(2, paddedSize(Iterables.size(cells))) + ") t(row_name, col_name) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? ";
@@ -212,7 +222,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_CELLS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
+                + "     (VALUES " + groupOfNumParams(3, paddedSize(cells.size())) + ") t(row_name, col_name, ts) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts ";
@@ -238,8 +248,8 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + " FROM " + prefixedTableName() + " m "
                 + (bounds.isEmpty() ? "" : " WHERE  " + Joiner.on(" AND ").join(bounds))
                 + " ORDER BY m.row_name " + (range.isReverse() ? "DESC" : "ASC")
-                + " LIMIT " + maxRows;
-        return new FullQuery(query).withArgs(args);
+                + " LIMIT ?";
+        return new FullQuery(query).withArgs(args).withArg(maxRows);
     }
 
     @Override
@@ -247,6 +257,96 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         return false;
     }
 
+    @Override
+    public FullQuery getCandidateCellsForSweepingQuery(CandidateCellForSweepingRequest request,
+                                                       @Nullable Cell startCellExclusive,
+                                                       int maxCells) {
+        long[] timestampsToIgnore = request.timestampsToIgnore();
+        String ignoredTimestamps = timestampsToIgnore.length == 0 ? "" :
+                " AND %s.ts NOT IN " + paddedNumParams(timestampsToIgnore.length);
+        String startBound = "";
+        if (startCellExclusive != null) {
+            // Equivalent to (row_name, col_name) > (?, ?), but also bounds the index scan on row_name alone.
+            startBound = " AND s.row_name >= ? AND (s.row_name > ? OR s.col_name > ?) ";
+        } else if (request.startRowInclusive().length > 0) {
+            startBound = " AND s.row_name >= ? ";
+        }
+        // Cells whose timestamps are all ignored are still listed, with a single row and a null timestamp.
+        String latestTimestamp = timestampsToIgnore.length == 0 ? "s.ts"
+                : "CASE WHEN s.ts NOT IN " + paddedNumParams(timestampsToIgnore.length) + " THEN s.ts END";
+        String query = " /* GET_CANDIDATE_CELLS_FOR_SWEEPING (" + tableName + ") */ "
+                + " SELECT c.row_name, c.col_name, m.ts, "
+                + (request.shouldCheckIfLatestValueIsEmpty()
+                        ? " CASE WHEN m.ts = c.max_ts AND octet_length(m.val) = 0 THEN 1 ELSE 0 END"
+                        : " 0")
+                + "     AS latest_val_empty "
+                + "   FROM ( SELECT s.row_name, s.col_name, max(" + latestTimestamp + ") AS max_ts "
+                + "            FROM " + prefixedTableName() + " s "
+                + "           WHERE s.ts < ? "
+                + startBound
+                + "           GROUP BY s.row_name, s.col_name "
+                + "           ORDER BY s.row_name ASC, s.col_name ASC "
+                + "           LIMIT ? ) c "
+                + "   LEFT JOIN " + prefixedTableName() + " m "
+                + "     ON m.row_name = c.row_name "
+                + "    AND m.col_name = c.col_name "
+                + "    AND m.ts < ? "
+                + String.format(ignoredTimestamps, "m")
+                + "  ORDER BY c.row_name ASC, c.col_name ASC, m.ts ASC";
+        List<Long> paddedTimestampsToIgnore = padTimestamps(timestampsToIgnore);
+        FullQuery fullQuery = new FullQuery(query)
+                .withArgs(paddedTimestampsToIgnore)
+                .withArg(request.sweepTimestamp());
+        if (startCellExclusive != null) {
+            byte[] startRow = startCellExclusive.getRowName();
+            fullQuery.withArgs(startRow, startRow, startCellExclusive.getColumnName());
+        } else if (request.startRowInclusive().length > 0) {
+            fullQuery.withArg(request.startRowInclusive());
+        }
+        return fullQuery
+                .withArg(maxCells)
+                .withArg(request.sweepTimestamp())
+                .withArgs(paddedTimestampsToIgnore);
+    }
+
+    /**
+     * Rounds a batch size up to the next power of two, so that IN and VALUES lists of any size up to
+     * {@link #MAX_PADDED_BATCH_SIZE} produce one of a few distinct SQL strings. The JDBC driver's statement cache
+     * and the server's plan cache can then reuse them, rather than parsing and planning every batch size afresh.
+     */
+    @VisibleForTesting
+    static int paddedSize(int size) {
+        if (size <= 1 || size > MAX_PADDED_BATCH_SIZE) {
+            return size;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private String paddedNumParams(int numParams) {
+        return numParams(paddedSize(numParams));
+    }
+
+    private FullQuery withPaddedNames(FullQuery fullQuery, Iterable<byte[]> names) {
+        int size = 0;
+        for (byte[] name : names) {
+            fullQuery.withArg(name);
+            size++;
+        }
+        for (int i = size; i < paddedSize(size); i++) {
+            fullQuery.withArg(PADDING_NAME);
+        }
+        return fullQuery;
+    }
+
+    private List<Long> padTimestamps(long[] timestamps) {
+        List<Long> padded = Lists.newArrayList(Longs.asList(timestamps));
+        // repeating a timestamp leaves NOT IN unchanged
+        while (padded.size() < paddedSize(timestamps.length)) {
+            padded.add(timestamps[0]);
+        }
+        return padded;
+    }
+
     private String numParams(int numParams) {
         StringBuilder builder = new StringBuilder(2 * numParams + 1).append('(');
         Joiner.on(',').appendTo(builder, Iterables.limit(Iterables.cycle('?'), numParams));
@@ -270,16 +370,24 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "   AND wrap.ts = i.ts ";
     }
 
-    private FullQuery addRowTsArgs(FullQuery fullQuery, Iterable<Entry<byte[], Long>> rows) {
+    private FullQuery addRowTsArgs(FullQuery fullQuery, Collection<Entry<byte[], Long>> rows) {
         for (Entry<byte[], Long> entry : rows) {
             fullQuery.withArgs(entry.getKey(), entry.getValue());
         }
+        for (int i = rows.size(); i < paddedSize(rows.size()); i++) {
+            fullQuery.withArgs(PADDING_NAME, PADDING_TIMESTAMP);
+        }
         return fullQuery;
     }
 
     private FullQuery addCellArgs(FullQuery fullQuery, Iterable<Cell> cells) {
+        int size = 0;
         for (Cell cell : cells) {
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName());
+            size++;
+        }
+        for (int i = size; i < paddedSize(size); i++) {
+            fullQuery.withArgs(PADDING_NAME, PADDING_NAME);
         }
         return fullQuery;
     }
@@ -289,6 +397,9 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
             Cell cell = entry.getKey();
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName(), entry.getValue());
         }
+        for (int i = cells.size(); i < paddedSize(cells.size()); i++) {
+            fullQuery.withArgs(PADDING_NAME, PADDING_NAME, PADDING_TIMESTAMP);
+        }
         return fullQuery;
     }
 
@@ -304,12 +415,12 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_COUNT(" + tableName + ") */"
                 + " SELECT m.row_name, COUNT(m.col_name) AS column_count "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedNumParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name";
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = withPaddedNames(new FullQuery(query), rows).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
@@ -332,7 +443,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name, m.col_name"
-                + " ORDER BY m.col_name ASC LIMIT " + columnRangeSelection.getBatchHint();
+                + " ORDER BY m.col_name ASC LIMIT ?";
         FullQuery fullQuery = new FullQuery(wrapQueryWithIncludeValue("GET_ROWS_COLUMN_RANGE", query, true))
                 .withArg(row)
                 .withArg(ts);
@@ -342,7 +453,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         if (columnRangeSelection.getEndCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getEndCol());
         }
-        return fullQuery;
+        return fullQuery.withArg(columnRangeSelection.getBatchHint());
     }
 
     @Override
@@ -353,14 +464,14 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_FULLY_LOADED_ROW (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts"
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedNumParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name, m.col_name"
                 + " ORDER BY m.row_name ASC, m.col_name ASC";
         String wrappedQuery = wrapQueryWithIncludeValue("GET_ROWS_COLUMN_RANGE_FULLY_LOADED_ROW", query, true);
-        FullQuery fullQuery = new FullQuery(wrappedQuery).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = withPaddedNames(new FullQuery(wrappedQuery), rows).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
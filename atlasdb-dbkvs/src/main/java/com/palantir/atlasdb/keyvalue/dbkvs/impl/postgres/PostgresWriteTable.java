@@ -15,18 +15,109 @@
  */
 package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.keyvalue.dbkvs.DdlConfig;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.AbstractDbWriteTable;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionSupplier;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.PrefixedTableNames;
+import com.palantir.exception.PalantirSqlException;
+import com.palantir.nexus.db.sql.ExceptionCheck;
+import com.palantir.nexus.db.sql.SqlConnection;
 
 public class PostgresWriteTable extends AbstractDbWriteTable {
+    private static final String STAGING_TABLE = "atlasdb_copy_staging";
+
+    private final int copyBatchThreshold;
+
     public PostgresWriteTable(
-            DdlConfig config,
+            PostgresDdlConfig config,
             ConnectionSupplier conns,
             TableReference tableRef,
             PrefixedTableNames prefixedTableNames) {
         super(config, conns, tableRef, prefixedTableNames);
+        this.copyBatchThreshold = config.copyBatchThreshold();
+    }
+
+    @Override
+    protected void put(List<Object[]> args) {
+        if (!shouldCopy(args.size())) {
+            super.put(args);
+            return;
+        }
+        String prefixedTableName = prefixedTableNames.get(tableRef, conns);
+        try {
+            PostgresBinaryCopy.copyIn(conns.get().getUnderlyingConnection(), prefixedTableName, args);
+        } catch (SQLException e) {
+            PalantirSqlException sqlException = PalantirSqlException.create(e);
+            if (ExceptionCheck.isUniqueConstraintViolation(sqlException)) {
+                throw new KeyAlreadyExistsException("primary key violation", sqlException);
+            }
+            throw sqlException;
+        }
+    }
+
+    /**
+     * Large batches are copied into a session-local staging table and then inserted with a single
+     * INSERT ... SELECT that skips cells which already exist.
+     */
+    @Override
+    protected void putSentinelBatch(List<Cell> batch) {
+        if (!shouldCopy(batch.size())) {
+            super.putSentinelBatch(batch);
+            return;
+        }
+        byte[] value = new byte[0];
+        long ts = Value.INVALID_VALUE_TIMESTAMP;
+        List<Object[]> rows = Lists.newArrayListWithCapacity(batch.size());
+        for (Cell cell : batch) {
+            rows.add(new Object[] {cell.getRowName(), cell.getColumnName(), ts, value});
+        }
+
+        String prefixedTableName = prefixedTableNames.get(tableRef, conns);
+        SqlConnection conn = conns.get();
+        conn.executeUnregisteredQuery("CREATE TEMPORARY TABLE IF NOT EXISTS " + STAGING_TABLE + " ("
+                + "  row_name   BYTEA NOT NULL,"
+                + "  col_name   BYTEA NOT NULL,"
+                + "  ts         INT8 NOT NULL,"
+                + "  val        BYTEA)");
+        conn.executeUnregisteredQuery("TRUNCATE TABLE pg_temp." + STAGING_TABLE);
+        try {
+            PostgresBinaryCopy.copyIn(conn.getUnderlyingConnection(), "pg_temp." + STAGING_TABLE, rows);
+        } catch (SQLException e) {
+            throw PalantirSqlException.create(e);
+        }
+        while (true) {
+            try {
+                conn.executeUnregisteredQuery("/* INSERT_WHERE_NOT_EXISTS_STAGED (" + prefixedTableName + ") */"
+                        + " INSERT INTO " + prefixedTableName + " (row_name, col_name, ts, val) "
+                        + " SELECT DISTINCT s.row_name, s.col_name, s.ts, s.val FROM pg_temp." + STAGING_TABLE + " s"
+                        + " WHERE NOT EXISTS (SELECT * FROM " + prefixedTableName + " m WHERE"
+                        + " m.row_name = s.row_name AND"
+                        + " m.col_name = s.col_name AND"
+                        + " m.ts = s.ts)");
+                break;
+            } catch (PalantirSqlException e) {
+                // a concurrent writer may insert the same sentinels between our check and insert, so retry
+                if (!ExceptionCheck.isUniqueConstraintViolation(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private boolean shouldCopy(int numRows) {
+        if (copyBatchThreshold <= 0 || numRows < copyBatchThreshold) {
+            return false;
+        }
+        Connection connection = conns.get().getUnderlyingConnection();
+        return PostgresBinaryCopy.isSupported(connection);
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.sweep;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+
+/**
+ * A cell together with its timestamps below the sweep timestamp, as read by a single
+ * candidate cells for sweeping query.
+ */
+public final class CellTimestamps {
+    private final Cell cell;
+    private final long[] sortedTimestamps;
+    private final boolean latestValueEmpty;
+
+    public CellTimestamps(Cell cell, long[] sortedTimestamps, boolean latestValueEmpty) {
+        this.cell = cell;
+        this.sortedTimestamps = sortedTimestamps;
+        this.latestValueEmpty = latestValueEmpty;
+    }
+
+    public Cell getCell() {
+        return cell;
+    }
+
+    public long[] getSortedTimestamps() {
+        return sortedTimestamps;
+    }
+
+    public boolean isLatestValueEmpty() {
+        return latestValueEmpty;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.sweep;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.DbKvs;
+import com.palantir.atlasdb.keyvalue.impl.CandidateCellsForSweeping;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.nexus.db.sql.AgnosticLightResultRow;
+
+/**
+ * Pages through the candidate cells for sweeping of a table, one query per page. Each query returns every
+ * (cell, timestamp) pair below the sweep timestamp for up to a page of cells, ordered by (row, column, timestamp),
+ * along with whether the latest of those values is empty; so unlike
+ * {@link com.palantir.atlasdb.keyvalue.impl.GetCandidateCellsForSweepingShim} we scan the table once and never
+ * load any values. Pages are keyed on the last cell of the previous page rather than an offset, so each
+ * query starts where the last one left off.
+ */
+public final class DbKvsGetCandidateCellsForSweeping {
+    public static final String LATEST_VALUE_EMPTY = "latest_val_empty";
+
+    private DbKvsGetCandidateCellsForSweeping() {
+        // utility
+    }
+
+    public interface PageLoader {
+        /**
+         * Returns the timestamps of at most maxCells cells, in order, starting after startCellExclusive if it is
+         * present or at the request's start row otherwise.
+         */
+        List<CellTimestamps> loadPage(@Nullable Cell startCellExclusive, int maxCells);
+    }
+
+    public static ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(
+            CandidateCellForSweepingRequest request,
+            PageLoader pageLoader) {
+        int pageSize = Math.max(1, request.batchSizeHint().orElse(AtlasDbConstants.DEFAULT_SWEEP_CANDIDATE_BATCH_HINT));
+        return ClosableIterators.wrap(new CandidatePageIterator(request, pageLoader, pageSize));
+    }
+
+    /**
+     * Groups the rows of a candidate cells for sweeping query, which must be ordered by (row, column, timestamp),
+     * by cell. Cells whose timestamps are all ignored are kept, with no timestamps, so that they are still returned
+     * to the sweeper and count towards the page they were read in.
+     */
+    public static List<CellTimestamps> readCellTimestamps(Iterator<AgnosticLightResultRow> rows) {
+        List<CellTimestamps> cells = Lists.newArrayList();
+        byte[] currentRow = null;
+        byte[] currentCol = null;
+        List<Long> currentTimestamps = Lists.newArrayList();
+        boolean currentLatestValueEmpty = false;
+        while (rows.hasNext()) {
+            AgnosticLightResultRow row = rows.next();
+            byte[] rowName = row.getBytes(DbKvs.ROW);
+            byte[] colName = row.getBytes(DbKvs.COL);
+            if (currentRow == null || !Arrays.equals(currentRow, rowName) || !Arrays.equals(currentCol, colName)) {
+                if (currentRow != null) {
+                    cells.add(new CellTimestamps(
+                            Cell.create(currentRow, currentCol), Longs.toArray(currentTimestamps),
+                            currentLatestValueEmpty));
+                }
+                currentRow = rowName;
+                currentCol = colName;
+                currentTimestamps.clear();
+                currentLatestValueEmpty = false;
+            }
+            // A cell whose timestamps are all ignored comes back as a single row without a timestamp.
+            Long timestamp = row.getLongObject(DbKvs.TIMESTAMP);
+            if (timestamp != null) {
+                currentTimestamps.add(timestamp);
+            }
+            // Only the row for the latest timestamp of a cell can report an empty value.
+            currentLatestValueEmpty |= row.getInteger(LATEST_VALUE_EMPTY) == 1;
+        }
+        if (currentRow != null) {
+            cells.add(new CellTimestamps(
+                    Cell.create(currentRow, currentCol), Longs.toArray(currentTimestamps), currentLatestValueEmpty));
+        }
+        return cells;
+    }
+
+    private static final class CandidatePageIterator extends AbstractIterator<List<CandidateCellForSweeping>> {
+        private final CandidateCellForSweepingRequest request;
+        private final PageLoader pageLoader;
+        private final int pageSize;
+
+        @Nullable private Cell lastCellOfPreviousPage = null;
+        private boolean reachedEnd = false;
+        private long numCellTsPairsExamined = 0;
+
+        CandidatePageIterator(CandidateCellForSweepingRequest request, PageLoader pageLoader, int pageSize) {
+            this.request = request;
+            this.pageLoader = pageLoader;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        protected List<CandidateCellForSweeping> computeNext() {
+            if (reachedEnd) {
+                return endOfData();
+            }
+            List<CellTimestamps> page = pageLoader.loadPage(lastCellOfPreviousPage, pageSize);
+            reachedEnd = page.size() < pageSize;
+            if (page.isEmpty()) {
+                return endOfData();
+            }
+            lastCellOfPreviousPage = page.get(page.size() - 1).getCell();
+
+            List<CandidateCellForSweeping> candidates = Lists.newArrayListWithCapacity(page.size());
+            for (CellTimestamps cell : page) {
+                long[] timestamps = cell.getSortedTimestamps();
+                numCellTsPairsExamined += timestamps.length;
+                boolean candidate = CandidateCellsForSweeping.isCandidate(
+                        timestamps, cell.isLatestValueEmpty(), request);
+                candidates.add(ImmutableCandidateCellForSweeping.builder()
+                        .cell(cell.getCell())
+                        .sortedTimestamps(candidate ? timestamps : CandidateCellsForSweeping.EMPTY_LONG_ARRAY)
+                        .isLatestValueEmpty(cell.isLatestValueEmpty())
+                        .numCellsTsPairsExamined(numCellTsPairsExamined)
+                        .build());
+            }
+            return candidates;
+        }
+    }
+}
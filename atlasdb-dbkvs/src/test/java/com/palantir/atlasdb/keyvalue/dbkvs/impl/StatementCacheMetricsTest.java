@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.palantir.atlasdb.util.MetricsManager;
+
+public class StatementCacheMetricsTest {
+    private final MetricsManager metricsManager = new MetricsManager();
+    private final StatementCacheMetrics metrics = new StatementCacheMetrics(metricsManager);
+
+    @Test
+    public void repeatedStatementsAreHits() {
+        long hits = meter("hit").getCount();
+        long misses = meter("miss").getCount();
+
+        metrics.recordStatement("SELECT 1");
+        metrics.recordStatement("SELECT 1");
+        metrics.recordStatement("SELECT 2");
+
+        assertThat(meter("hit").getCount() - hits, is(1L));
+        assertThat(meter("miss").getCount() - misses, is(2L));
+    }
+
+    private Meter meter(String name) {
+        return metricsManager.getRegistry().meter(
+                MetricRegistry.name(StatementCacheMetrics.class, "statementCache", name));
+    }
+}
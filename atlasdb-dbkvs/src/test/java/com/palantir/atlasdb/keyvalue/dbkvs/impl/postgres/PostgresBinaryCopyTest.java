@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class PostgresBinaryCopyTest {
+    private static final byte[] ROW = {1, 2};
+    private static final byte[] COLUMN = {3};
+    private static final byte[] VALUE = {4, 5, 6};
+
+    @Test
+    public void encodesHeaderTuplesAndTrailer() throws Exception {
+        DataInputStream in = encode(ImmutableList.of(
+                new Object[] {ROW, COLUMN, 7L, VALUE},
+                new Object[] {ROW, COLUMN, 8L, null}));
+
+        assertHeader(in);
+        assertTuple(in, 7L, VALUE);
+        assertTuple(in, 8L, null);
+        assertThat(in.readShort(), is((short) -1));
+        assertThat(in.available(), is(0));
+    }
+
+    @Test
+    public void encodesEmptyBatch() throws Exception {
+        DataInputStream in = encode(Collections.emptyList());
+
+        assertHeader(in);
+        assertThat(in.readShort(), is((short) -1));
+        assertThat(in.available(), is(0));
+    }
+
+    @Test
+    public void flushesLargeBatchesInSeveralChunks() throws Exception {
+        byte[] largeValue = new byte[40 * 1024];
+        List<byte[]> chunks = new ArrayList<>();
+        PostgresBinaryCopy.encode(
+                ImmutableList.of(
+                        new Object[] {ROW, COLUMN, 1L, largeValue},
+                        new Object[] {ROW, COLUMN, 2L, largeValue}),
+                (bytes, length) -> chunks.add(Arrays.copyOf(bytes, length)));
+
+        assertThat(chunks.size() > 1, is(true));
+    }
+
+    private static DataInputStream encode(List<Object[]> rows) throws SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PostgresBinaryCopy.encode(rows, (bytes, length) -> out.write(bytes, 0, length));
+        return new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertHeader(DataInputStream in) throws IOException {
+        byte[] signature = new byte[PostgresBinaryCopy.SIGNATURE.length];
+        in.readFully(signature);
+        assertThat(signature, is(PostgresBinaryCopy.SIGNATURE));
+        assertThat(in.readInt(), is(0));
+        assertThat(in.readInt(), is(0));
+    }
+
+    private static void assertTuple(DataInputStream in, long timestamp, byte[] value) throws IOException {
+        assertThat(in.readShort(), is((short) 4));
+        assertThat(readField(in), is(ROW));
+        assertThat(readField(in), is(COLUMN));
+        assertThat(in.readInt(), is(Long.BYTES));
+        assertThat(in.readLong(), is(timestamp));
+        if (value == null) {
+            assertThat(in.readInt(), is(-1));
+        } else {
+            assertThat(readField(in), is(value));
+        }
+    }
+
+    private static byte[] readField(DataInputStream in) throws IOException {
+        byte[] field = new byte[in.readInt()];
+        in.readFully(field);
+        return field;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutablePostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
+
+public class PostgresQueryFactoryTest {
+    private static final long TS = 100L;
+
+    private final PostgresQueryFactory factory =
+            new PostgresQueryFactory("test_table", ImmutablePostgresDdlConfig.builder().build());
+
+    @Test
+    public void paddedSizeRoundsUpToPowersOfTwo() {
+        assertThat(PostgresQueryFactory.paddedSize(1), is(1));
+        assertThat(PostgresQueryFactory.paddedSize(2), is(2));
+        assertThat(PostgresQueryFactory.paddedSize(3), is(4));
+        assertThat(PostgresQueryFactory.paddedSize(5), is(8));
+        assertThat(PostgresQueryFactory.paddedSize(256), is(256));
+        assertThat(PostgresQueryFactory.paddedSize(257), is(512));
+        assertThat(PostgresQueryFactory.paddedSize(1024), is(1024));
+    }
+
+    @Test
+    public void paddedSizeLeavesVeryLargeBatchesAlone() {
+        assertThat(PostgresQueryFactory.paddedSize(1025), is(1025));
+    }
+
+    @Test
+    public void rowQueriesOfSimilarSizeShareSql() {
+        FullQuery threeRows = factory.getAllRowsQuery(rows(3), TS, ColumnSelection.all(), true);
+        FullQuery fourRows = factory.getAllRowsQuery(rows(4), TS, ColumnSelection.all(), true);
+
+        assertThat(threeRows.getQuery(), is(fourRows.getQuery()));
+        assertThat(threeRows.getArgs(), arrayWithSize(5));
+        assertThat((byte[]) threeRows.getArgs()[3], is(new byte[0]));
+        assertEquals(TS, threeRows.getArgs()[4]);
+    }
+
+    @Test
+    public void cellQueriesOfSimilarSizeShareSql() {
+        FullQuery threeCells = factory.getLatestCellsQuery(cellsAt(3).entrySet(), true);
+        FullQuery fourCells = factory.getLatestCellsQuery(cellsAt(4).entrySet(), true);
+
+        assertThat(threeCells.getQuery(), is(fourCells.getQuery()));
+        assertThat(threeCells.getArgs(), arrayWithSize(12));
+        assertThat((byte[]) threeCells.getArgs()[9], is(new byte[0]));
+        assertThat((byte[]) threeCells.getArgs()[10], is(new byte[0]));
+    }
+
+    @Test
+    public void rangeQueriesWithDifferentLimitsShareSql() {
+        FullQuery small = factory.getRangeQuery(RangeRequest.all(), TS, 10);
+        FullQuery large = factory.getRangeQuery(RangeRequest.all(), TS, 1000);
+
+        assertThat(small.getQuery(), is(large.getQuery()));
+        assertEquals(10, small.getArgs()[0]);
+    }
+
+    private static List<byte[]> rows(int numRows) {
+        ImmutableList.Builder<byte[]> rows = ImmutableList.builder();
+        for (int i = 0; i < numRows; i++) {
+            rows.add(new byte[] {(byte) (i + 1)});
+        }
+        return rows.build();
+    }
+
+    private static Map<Cell, Long> cellsAt(int numCells) {
+        ImmutableMap.Builder<Cell, Long> cells = ImmutableMap.builder();
+        for (byte[] row : rows(numCells)) {
+            cells.put(Cell.create(row, row), TS);
+        }
+        return cells.build();
+    }
+}
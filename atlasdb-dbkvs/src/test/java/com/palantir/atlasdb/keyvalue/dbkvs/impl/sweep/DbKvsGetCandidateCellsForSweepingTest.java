@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.sweep;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.DbKvs;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.nexus.db.sql.AgnosticLightResultRow;
+
+public class DbKvsGetCandidateCellsForSweepingTest {
+    private static final CandidateCellForSweepingRequest REQUEST = ImmutableCandidateCellForSweepingRequest.builder()
+            .startRowInclusive(PtBytes.EMPTY_BYTE_ARRAY)
+            .sweepTimestamp(100L)
+            .minUncommittedStartTimestamp(50L)
+            .shouldCheckIfLatestValueIsEmpty(false)
+            .timestampsToIgnore(Value.INVALID_VALUE_TIMESTAMP)
+            .batchSizeHint(2)
+            .build();
+
+    @Test
+    public void pagesFromTheLastCellOfThePreviousPage() {
+        List<CellTimestamps> cells = ImmutableList.of(
+                cellTimestamps(1, 1, 10L, 20L),
+                cellTimestamps(1, 2, 10L, 20L),
+                cellTimestamps(2, 1, 10L, 20L),
+                cellTimestamps(3, 1, 10L, 20L),
+                cellTimestamps(3, 2, 10L, 20L));
+        List<Cell> startCells = Lists.newArrayList();
+
+        List<List<CandidateCellForSweeping>> pages = getAllPages((startCellExclusive, maxCells) -> {
+            startCells.add(startCellExclusive);
+            int start = startCellExclusive == null ? 0 : indexOf(cells, startCellExclusive) + 1;
+            return cells.subList(start, Math.min(cells.size(), start + maxCells));
+        });
+
+        assertEquals(ImmutableList.of(2, 2, 1), pages.stream().map(List::size).collect(Collectors.toList()));
+        assertEquals(3, startCells.size());
+        assertNull(startCells.get(0));
+        assertEquals(cell(1, 2), startCells.get(1));
+        assertEquals(cell(3, 1), startCells.get(2));
+    }
+
+    @Test
+    public void loadsAnotherPageIfTheLastPageWasFull() {
+        List<Cell> startCells = Lists.newArrayList();
+        List<List<CandidateCellForSweeping>> pages = getAllPages((startCellExclusive, maxCells) -> {
+            startCells.add(startCellExclusive);
+            return startCellExclusive == null
+                    ? ImmutableList.of(cellTimestamps(1, 1, 10L), cellTimestamps(1, 2, 10L))
+                    : ImmutableList.of();
+        });
+
+        assertEquals(1, pages.size());
+        assertEquals(2, startCells.size());
+    }
+
+    @Test
+    public void onlyReturnsTimestampsOfCandidates() {
+        List<List<CandidateCellForSweeping>> pages = getAllPages((startCellExclusive, maxCells) ->
+                startCellExclusive == null
+                        ? ImmutableList.of(cellTimestamps(1, 1, 10L), cellTimestamps(1, 2, 60L))
+                        : ImmutableList.of());
+
+        List<CandidateCellForSweeping> page = pages.get(0);
+        assertArrayEquals(new long[0], page.get(0).sortedTimestamps());
+        assertArrayEquals(new long[] { 60L }, page.get(1).sortedTimestamps());
+    }
+
+    @Test
+    public void countsExaminedPairsAcrossPages() {
+        List<CellTimestamps> cells = ImmutableList.of(
+                cellTimestamps(1, 1, 10L, 20L),
+                cellTimestamps(1, 2, 10L),
+                cellTimestamps(2, 1, 10L, 20L, 30L));
+
+        List<List<CandidateCellForSweeping>> pages = getAllPages((startCellExclusive, maxCells) -> {
+            int start = startCellExclusive == null ? 0 : indexOf(cells, startCellExclusive) + 1;
+            return cells.subList(start, Math.min(cells.size(), start + maxCells));
+        });
+
+        assertEquals(ImmutableList.of(2L, 3L, 6L), pages.stream()
+                .flatMap(List::stream)
+                .map(CandidateCellForSweeping::numCellsTsPairsExamined)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void groupsQueryRowsByCell() {
+        List<AgnosticLightResultRow> rows = ImmutableList.of(
+                row(cell(1, 1), 10L, false),
+                row(cell(1, 1), 20L, true),
+                row(cell(1, 2), 10L, false),
+                row(cell(2, 1), 30L, false));
+
+        List<CellTimestamps> cells = DbKvsGetCandidateCellsForSweeping.readCellTimestamps(rows.iterator());
+
+        assertEquals(3, cells.size());
+        assertEquals(cell(1, 1), cells.get(0).getCell());
+        assertArrayEquals(new long[] { 10L, 20L }, cells.get(0).getSortedTimestamps());
+        assertTrue(cells.get(0).isLatestValueEmpty());
+        assertEquals(cell(1, 2), cells.get(1).getCell());
+        assertFalse(cells.get(1).isLatestValueEmpty());
+        assertEquals(cell(2, 1), cells.get(2).getCell());
+        assertArrayEquals(new long[] { 30L }, cells.get(2).getSortedTimestamps());
+    }
+
+    @Test
+    public void keepsCellsWhoseTimestampsAreAllIgnored() {
+        List<AgnosticLightResultRow> rows = ImmutableList.of(
+                row(cell(1, 1), 10L, false),
+                row(cell(1, 2), null, false),
+                row(cell(2, 1), 30L, false));
+
+        List<CellTimestamps> cells = DbKvsGetCandidateCellsForSweeping.readCellTimestamps(rows.iterator());
+
+        assertEquals(3, cells.size());
+        assertEquals(cell(1, 2), cells.get(1).getCell());
+        assertArrayEquals(new long[0], cells.get(1).getSortedTimestamps());
+    }
+
+    @Test
+    public void cellsWhoseTimestampsAreAllIgnoredCountTowardsThePage() {
+        List<CellTimestamps> cells = ImmutableList.of(
+                cellTimestamps(1, 1),
+                cellTimestamps(1, 2),
+                cellTimestamps(2, 1, 60L));
+        List<Cell> startCells = Lists.newArrayList();
+
+        List<List<CandidateCellForSweeping>> pages = getAllPages((startCellExclusive, maxCells) -> {
+            startCells.add(startCellExclusive);
+            int start = startCellExclusive == null ? 0 : indexOf(cells, startCellExclusive) + 1;
+            return cells.subList(start, Math.min(cells.size(), start + maxCells));
+        });
+
+        assertEquals(ImmutableList.of(2, 1), pages.stream().map(List::size).collect(Collectors.toList()));
+        assertEquals(cell(1, 2), startCells.get(1));
+        assertArrayEquals(new long[0], pages.get(0).get(0).sortedTimestamps());
+        assertArrayEquals(new long[] { 60L }, pages.get(1).get(0).sortedTimestamps());
+    }
+
+    private static List<List<CandidateCellForSweeping>> getAllPages(
+            DbKvsGetCandidateCellsForSweeping.PageLoader pageLoader) {
+        try (ClosableIterator<List<CandidateCellForSweeping>> iter =
+                     DbKvsGetCandidateCellsForSweeping.getCandidateCellsForSweeping(REQUEST, pageLoader)) {
+            return ImmutableList.copyOf(iter);
+        }
+    }
+
+    private static int indexOf(List<CellTimestamps> cells, Cell cell) {
+        for (int i = 0; i < cells.size(); i++) {
+            if (cells.get(i).getCell().equals(cell)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown cell " + cell);
+    }
+
+    private static AgnosticLightResultRow row(Cell cell, Long ts, boolean latestValueEmpty) {
+        AgnosticLightResultRow row = mock(AgnosticLightResultRow.class);
+        when(row.getBytes(DbKvs.ROW)).thenReturn(cell.getRowName());
+        when(row.getBytes(DbKvs.COL)).thenReturn(cell.getColumnName());
+        when(row.getLongObject(DbKvs.TIMESTAMP)).thenReturn(ts);
+        when(row.getInteger(DbKvsGetCandidateCellsForSweeping.LATEST_VALUE_EMPTY)).thenReturn(latestValueEmpty ? 1 : 0);
+        return row;
+    }
+
+    private static CellTimestamps cellTimestamps(int row, int col, long... timestamps) {
+        return new CellTimestamps(cell(row, col), timestamps, false);
+    }
+
+    private static Cell cell(int row, int col) {
+        return Cell.create(Ints.toByteArray(row), Ints.toByteArray(col));
+    }
+}
@@ -15,10 +15,13 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
@@ -29,6 +32,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -38,14 +43,15 @@ import com.palantir.atlasdb.schema.generated.SweepTableFactory;
 import com.palantir.atlasdb.sweep.priority.ImmutableUpdateSweepPriority;
 import com.palantir.atlasdb.sweep.priority.NextTableToSweepProvider;
 import com.palantir.atlasdb.sweep.priority.NextTableToSweepProviderImpl;
+import com.palantir.atlasdb.sweep.priority.SweepPriority;
 import com.palantir.atlasdb.sweep.priority.SweepPriorityStore;
 import com.palantir.atlasdb.sweep.progress.ImmutableSweepProgress;
 import com.palantir.atlasdb.sweep.progress.SweepProgress;
 import com.palantir.atlasdb.sweep.progress.SweepProgressStore;
+import com.palantir.atlasdb.sweep.progress.SweepShards;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
-import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.impl.TxTask;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.time.Clock;
@@ -53,8 +59,17 @@ import com.palantir.lock.RemoteLockService;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.logsafe.UnsafeArg;
 
+/**
+ * Runs background sweep on a fixed number of worker threads.
+ *
+ * Each worker sweeps one shard at a time, holding a lock on that shard. Tables that were large the last time
+ * they were swept are split into several row-range shards (see {@link SweepShards}) so that multiple workers,
+ * possibly on different hosts, can sweep them concurrently; other tables are swept as a single shard.
+ * Workers prefer resuming shards of tables that are already being swept over starting new tables.
+ */
 public final class BackgroundSweeperImpl implements BackgroundSweeper {
     private static final Logger log = LoggerFactory.getLogger(BackgroundSweeperImpl.class);
+    private static final long TABLE_COMPLETION_LOCK_WAIT_SECONDS = 60L;
     private final TransactionManager txManager;
     private final RemoteLockService lockService;
     private final KeyValueService kvs;
@@ -69,10 +84,10 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
     private final SweepMetrics sweepMetrics;
     private final PersistentLockManager persistentLockManager;
     private final Clock wallClock;
+    private final int sweepThreads;
+    private final long cellTsPairsPerShard;
 
-    private volatile double batchSizeMultiplier = 1.0;
-
-    private Thread daemon;
+    private final List<Thread> daemons = Lists.newArrayList();
 
     @VisibleForTesting
     BackgroundSweeperImpl(
@@ -89,7 +104,11 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
             BackgroundSweeperPerformanceLogger sweepPerfLogger,
             SweepMetrics sweepMetrics,
             PersistentLockManager persistentLockManager,
-            Clock wallClock) {
+            Clock wallClock,
+            int sweepThreads,
+            long cellTsPairsPerShard) {
+        Preconditions.checkArgument(sweepThreads > 0, "sweepThreads must be positive");
+        Preconditions.checkArgument(cellTsPairsPerShard > 0, "cellTsPairsPerShard must be positive");
         this.txManager = txManager;
         this.lockService = lockService;
         this.kvs = kvs;
@@ -104,6 +123,8 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         this.sweepMetrics = sweepMetrics;
         this.persistentLockManager = persistentLockManager;
         this.wallClock = wallClock;
+        this.sweepThreads = sweepThreads;
+        this.cellTsPairsPerShard = cellTsPairsPerShard;
     }
 
     public static BackgroundSweeperImpl create(
@@ -116,6 +137,32 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
             SweepTableFactory tableFactory,
             BackgroundSweeperPerformanceLogger sweepPerfLogger,
             PersistentLockManager persistentLockManager) {
+        return create(
+                txManager,
+                kvs,
+                sweepRunner,
+                isSweepEnabled,
+                sweepPauseMillis,
+                sweepBatchConfig,
+                tableFactory,
+                sweepPerfLogger,
+                persistentLockManager,
+                AtlasDbConstants.DEFAULT_SWEEP_THREADS,
+                AtlasDbConstants.DEFAULT_SWEEP_CELL_TS_PAIRS_PER_SHARD);
+    }
+
+    public static BackgroundSweeperImpl create(
+            LockAwareTransactionManager txManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<SweepBatchConfig> sweepBatchConfig,
+            SweepTableFactory tableFactory,
+            BackgroundSweeperPerformanceLogger sweepPerfLogger,
+            PersistentLockManager persistentLockManager,
+            int sweepThreads,
+            long cellTsPairsPerShard) {
         SweepMetrics sweepMetrics = new SweepMetrics();
         SweepProgressStore sweepProgressStore = new SweepProgressStore(kvs, tableFactory);
         SweepPriorityStore sweepPriorityStore = new SweepPriorityStore(tableFactory);
@@ -134,16 +181,21 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
                 sweepPerfLogger,
                 sweepMetrics,
                 persistentLockManager,
-                System::currentTimeMillis);
+                System::currentTimeMillis,
+                sweepThreads,
+                cellTsPairsPerShard);
     }
 
     @Override
     public synchronized void runInBackground() {
-        Preconditions.checkState(daemon == null);
-        daemon = new Thread(this);
-        daemon.setDaemon(true);
-        daemon.setName("BackgroundSweeper");
-        daemon.start();
+        Preconditions.checkState(daemons.isEmpty());
+        for (int workerIndex = 0; workerIndex < sweepThreads; workerIndex++) {
+            Thread daemon = new Thread(createWorker(workerIndex));
+            daemon.setDaemon(true);
+            daemon.setName(sweepThreads == 1 ? "BackgroundSweeper" : "BackgroundSweeper-" + workerIndex);
+            daemon.start();
+            daemons.add(daemon);
+        }
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             log.info("Shutting down persistent lock manager");
             try {
@@ -160,121 +212,409 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         }));
     }
 
+    /**
+     * Runs a single sweep worker on the calling thread.
+     */
     @Override
     public void run() {
-        try (SweepLocks locks = createSweepLocks()) {
-            // Wait a while before starting so short lived clis don't try to sweep.
-            Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
-            log.info("Starting background sweeper.");
-            while (true) {
-                long millisToSleep = grabLocksAndRun(locks);
-                Thread.sleep(millisToSleep);
-            }
-        } catch (InterruptedException e) {
-            log.warn("Shutting down background sweeper. Please restart the service to rerun background sweep.");
-        }
+        createWorker(0).run();
+    }
+
+    @VisibleForTesting
+    SweepWorker createWorker(int workerIndex) {
+        return new SweepWorker(workerIndex);
     }
 
-    // Returns milliseconds to sleep
     @VisibleForTesting
-    long grabLocksAndRun(SweepLocks locks) throws InterruptedException {
-        boolean sweptSuccessfully = false;
-        try {
-            if (isSweepEnabled.get()) {
-                locks.lockOrRefresh();
-                if (locks.haveLocks()) {
+    final class SweepWorker implements Runnable {
+        private final int workerIndex;
+
+        private double batchSizeMultiplier = 1.0;
+        @Nullable private ShardToSweep currentShard;
+
+        private SweepWorker(int workerIndex) {
+            this.workerIndex = workerIndex;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Wait a while before starting so short lived clis don't try to sweep.
+                Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+                log.info("Starting background sweeper worker {}.", SafeArg.of("workerIndex", workerIndex));
+                while (true) {
+                    long millisToSleep = grabLocksAndRun();
+                    Thread.sleep(millisToSleep);
+                }
+            } catch (InterruptedException e) {
+                log.warn("Shutting down background sweeper. Please restart the service to rerun background sweep.");
+            } finally {
+                releaseShard();
+            }
+        }
+
+        // Returns milliseconds to sleep
+        @VisibleForTesting
+        long grabLocksAndRun() throws InterruptedException {
+            boolean sweptSuccessfully = false;
+            try {
+                if (isSweepEnabled.get()) {
                     sweptSuccessfully = runOnce();
                 } else {
-                    log.debug("Skipping sweep because sweep is running elsewhere.");
+                    releaseShard();
+                    log.debug("Skipping sweep because it is currently disabled.");
+                }
+            } catch (InsufficientConsistencyException e) {
+                log.warn("Could not sweep because not all nodes of the database are online.", e);
+            } catch (RuntimeException e) {
+                sweepMetrics.sweepError();
+                if (checkAndRepairTableDrop()) {
+                    log.info("The table being swept by the background sweeper was dropped, moving on...");
+                } else {
+                    SweepBatchConfig lastBatchConfig = getAdjustedBatchConfig();
+                    log.warn("The background sweep job failed unexpectedly with batch config {}."
+                                    + " Attempting to continue with a lower batch size...",
+                            SafeArg.of("cell batch size", lastBatchConfig),
+                            e);
+                    // Cut batch size in half, always sweep at least one row (we round down).
+                    batchSizeMultiplier = Math.max(
+                            batchSizeMultiplier / 2, 1.5 / lastBatchConfig.candidateBatchSize());
                 }
+            }
+            if (sweptSuccessfully) {
+                batchSizeMultiplier = Math.min(1.0, batchSizeMultiplier * 1.01);
+                return sweepPauseMillis.get();
             } else {
-                log.debug("Skipping sweep because it is currently disabled.");
+                return 20 * (1000 + sweepPauseMillis.get());
             }
-        } catch (InsufficientConsistencyException e) {
-            log.warn("Could not sweep because not all nodes of the database are online.", e);
-        } catch (RuntimeException e) {
-            sweepMetrics.sweepError();
-            if (checkAndRepairTableDrop()) {
-                log.info("The table being swept by the background sweeper was dropped, moving on...");
+        }
+
+        @VisibleForTesting
+        boolean runOnce() throws InterruptedException {
+            Optional<ShardToSweep> shardToSweep = getShardToSweep();
+            if (!shardToSweep.isPresent()) {
+                // Don't change this log statement. It's parsed by test automation code.
+                log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
+                return false;
             } else {
-                SweepBatchConfig lastBatchConfig = getAdjustedBatchConfig();
-                log.warn("The background sweep job failed unexpectedly with batch config {}."
-                                + " Attempting to continue with a lower batch size...",
-                        SafeArg.of("cell batch size", lastBatchConfig),
-                        e);
-                // Cut batch size in half, always sweep at least one row (we round down).
-                batchSizeMultiplier = Math.max(batchSizeMultiplier / 2, 1.5 / lastBatchConfig.candidateBatchSize());
+                runOnceForShard(shardToSweep.get());
+                return true;
             }
         }
-        if (sweptSuccessfully) {
-            batchSizeMultiplier = Math.min(1.0, batchSizeMultiplier * 1.01);
-            return sweepPauseMillis.get();
-        } else {
-            return 20 * (1000 + sweepPauseMillis.get());
+
+        @VisibleForTesting
+        void releaseShard() {
+            if (currentShard != null) {
+                currentShard.locks.close();
+                currentShard = null;
+            }
         }
-    }
 
-    @VisibleForTesting
-    boolean runOnce() {
-        Optional<TableToSweep> tableToSweep = getTableToSweep();
-        if (!tableToSweep.isPresent()) {
-            // Don't change this log statement. It's parsed by test automation code.
-            log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
-            return false;
-        } else {
-            runOnceForTable(tableToSweep.get());
-            return true;
+        private Optional<ShardToSweep> getShardToSweep() throws InterruptedException {
+            if (currentShard != null) {
+                currentShard.locks.lockOrRefresh();
+                if (currentShard.locks.haveLocks()) {
+                    return Optional.of(currentShard);
+                }
+                log.info("Lost the sweep lock for {}, will choose another shard to sweep.",
+                        UnsafeArg.of("shard", currentShard));
+                currentShard = null;
+            }
+            currentShard = claimShard().orElse(null);
+            return Optional.ofNullable(currentShard);
         }
-    }
 
-    private void runOnceForTable(TableToSweep tableToSweep) {
-        Stopwatch watch = Stopwatch.createStarted();
-        TableReference tableRef = tableToSweep.getTableRef();
-        byte[] startRow = tableToSweep.getStartRow();
-        SweepBatchConfig batchConfig = getAdjustedBatchConfig();
-        try {
-            SweepResults results = sweepRunner.run(
-                    tableRef,
-                    batchConfig,
-                    startRow);
-            long elapsedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
-            log.info("Swept {} unique cells from {} starting at {}"
-                            + " and performed {} deletions in {} ms"
-                            + " up to timestamp {}.",
-                    SafeArg.of("cellsExamined", results.getCellTsPairsExamined()),
-                    UnsafeArg.of("table name", tableRef),
-                    UnsafeArg.of("start row hex", startRowToHex(startRow)),
-                    SafeArg.of("staleValuesDeleted", results.getStaleValuesDeleted()),
-                    SafeArg.of("elapsedMillis", elapsedMillis),
-                    SafeArg.of("sweptTimestamp", results.getSweptTimestamp()));
-            sweepPerfLogger.logSweepResults(
-                    SweepPerformanceResults.builder()
-                            .sweepResults(results)
-                            .tableName(tableRef.getQualifiedName())
-                            .elapsedMillis(elapsedMillis)
-                            .build());
-            saveSweepResults(tableToSweep, results);
-        } catch (RuntimeException e) {
-            // Error logged at a higher log level above.
-            log.debug("Failed to sweep {} with batch config {} starting from row {}",
+        private Optional<ShardToSweep> claimShard() throws InterruptedException {
+            List<SweepProgress> allProgress = txManager.runTaskWithRetry(sweepProgressStore::loadAllShardProgress);
+            Map<TableReference, List<SweepProgress>> progressByTable = allProgress.stream()
+                    .collect(Collectors.groupingBy(SweepProgress::tableRef));
+            for (List<SweepProgress> tableProgress : progressByTable.values()) {
+                int shardCount = tableProgress.get(0).shardCount();
+                if (allShardsFinished(tableProgress, shardCount)) {
+                    // The sweeper which finished the last shard did not get to record the table's results.
+                    finishTableIfAllShardsFinished(tableProgress.get(0).tableRef(), shardCount);
+                    continue;
+                }
+                Optional<ShardToSweep> shard = claimUnfinishedShard(tableProgress);
+                if (shard.isPresent()) {
+                    return shard;
+                }
+            }
+            return claimNewTable(progressByTable.keySet());
+        }
+
+        private Optional<ShardToSweep> claimUnfinishedShard(List<SweepProgress> tableProgress)
+                throws InterruptedException {
+            TableReference tableRef = tableProgress.get(0).tableRef();
+            int shardCount = tableProgress.get(0).shardCount();
+            Map<Integer, SweepProgress> progressByShard = tableProgress.stream()
+                    .collect(Collectors.toMap(SweepProgress::shardIndex, Function.identity(), (p1, p2) -> p1));
+            for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+                SweepProgress progress = progressByShard.get(shardIndex);
+                if (progress != null && progress.isFinished()) {
+                    continue;
+                }
+                Optional<ShardToSweep> shard = tryLockShard(tableRef, shardIndex, shardCount);
+                if (shard.isPresent()) {
+                    return shard;
+                }
+            }
+            return Optional.empty();
+        }
+
+        private Optional<ShardToSweep> claimNewTable(Set<TableReference> tablesBeingSwept)
+                throws InterruptedException {
+            Optional<SweepProgress> newTable = txManager.runTaskWithRetry(tx -> {
+                Optional<TableReference> nextTable = nextTableToSweepProvider.chooseNextTableToSweep(
+                        tx, sweepRunner.getConservativeSweepTimestamp(), tablesBeingSwept);
+                return nextTable.map(tableRef -> {
+                    long cellTsPairsExaminedPreviously = sweepPriorityStore.loadNewPriorities(tx).stream()
+                            .filter(priority -> priority.tableRef().equals(tableRef))
+                            .mapToLong(SweepPriority::cellTsPairsExamined)
+                            .findFirst()
+                            .orElse(0L);
+                    int shardCount = SweepShards.getShardCount(cellTsPairsExaminedPreviously, cellTsPairsPerShard);
+                    return initialProgress(tableRef, 0, shardCount);
+                });
+            });
+            if (!newTable.isPresent()) {
+                return Optional.empty();
+            }
+            TableReference tableRef = newTable.get().tableRef();
+            int shardCount = newTable.get().shardCount();
+            SweepLocks locks = SweepLocks.forShard(lockService, tableRef, 0, shardCount);
+            locks.lockOrRefresh();
+            if (!locks.haveLocks()) {
+                log.debug("Skipping sweep of {} because it is being swept elsewhere.",
+                        UnsafeArg.of("table name", tableRef));
+                return Optional.empty();
+            }
+            SweepProgress progress = txManager.runTaskWithRetry(tx -> {
+                List<SweepProgress> existingShards = sweepProgressStore.loadShardProgress(tx, tableRef, shardCount);
+                if (!existingShards.isEmpty()) {
+                    // Another sweeper started this table concurrently.
+                    return existingShards.stream().filter(shard -> shard.shardIndex() == 0).findFirst().orElse(null);
+                }
+                // This is the first set of progress being written for this table.
+                sweepPriorityStore.update(
+                        tx,
+                        tableRef,
+                        ImmutableUpdateSweepPriority.builder().newWriteCount(0L).build());
+                for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+                    sweepProgressStore.saveShardProgress(tx, initialProgress(tableRef, shardIndex, shardCount));
+                }
+                return initialProgress(tableRef, 0, shardCount);
+            });
+            if (progress == null || progress.isFinished()) {
+                locks.close();
+                return Optional.empty();
+            }
+            log.debug("Now starting to sweep {} in {} shards.",
                     UnsafeArg.of("table name", tableRef),
-                    SafeArg.of("cell batch size", batchConfig),
-                    UnsafeArg.of("start row hex", startRowToHex(startRow)));
-            throw e;
+                    SafeArg.of("shardCount", shardCount));
+            return Optional.of(new ShardToSweep(tableRef, progress, locks));
+        }
+
+        private Optional<ShardToSweep> tryLockShard(TableReference tableRef, int shardIndex, int shardCount)
+                throws InterruptedException {
+            SweepLocks locks = SweepLocks.forShard(lockService, tableRef, shardIndex, shardCount);
+            locks.lockOrRefresh();
+            if (!locks.haveLocks()) {
+                return Optional.empty();
+            }
+            // Re-read the progress now that we hold the lock, since another sweeper may have made progress.
+            Optional<SweepProgress> progress = txManager.runTaskWithRetry(tx ->
+                    sweepProgressStore.loadShardProgress(tx, tableRef, shardCount).stream()
+                            .filter(shard -> shard.shardIndex() == shardIndex)
+                            .findFirst());
+            if (progress.isPresent() && progress.get().isFinished()) {
+                locks.close();
+                return Optional.empty();
+            }
+            return Optional.of(new ShardToSweep(
+                    tableRef,
+                    progress.orElseGet(() -> initialProgress(tableRef, shardIndex, shardCount)),
+                    locks));
+        }
+
+        private void runOnceForShard(ShardToSweep shardToSweep) throws InterruptedException {
+            Stopwatch watch = Stopwatch.createStarted();
+            TableReference tableRef = shardToSweep.getTableRef();
+            byte[] startRow = shardToSweep.getStartRow();
+            SweepBatchConfig batchConfig = getAdjustedBatchConfig();
+            try {
+                SweepResults results = sweepRunner.run(
+                        tableRef,
+                        batchConfig,
+                        startRow,
+                        SweepShards.getEndRowExclusive(shardToSweep.getShardIndex(), shardToSweep.getShardCount()));
+                long elapsedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
+                log.info("Swept {} unique cells from {} starting at {}"
+                                + " and performed {} deletions in {} ms"
+                                + " up to timestamp {}.",
+                        SafeArg.of("cellsExamined", results.getCellTsPairsExamined()),
+                        UnsafeArg.of("table name", tableRef),
+                        UnsafeArg.of("start row hex", startRowToHex(startRow)),
+                        SafeArg.of("staleValuesDeleted", results.getStaleValuesDeleted()),
+                        SafeArg.of("elapsedMillis", elapsedMillis),
+                        SafeArg.of("sweptTimestamp", results.getSweptTimestamp()));
+                sweepPerfLogger.logSweepResults(
+                        SweepPerformanceResults.builder()
+                                .sweepResults(results)
+                                .tableName(tableRef.getQualifiedName())
+                                .elapsedMillis(elapsedMillis)
+                                .build());
+                sweepMetrics.workerSweptBatch(
+                        workerIndex, results.getCellTsPairsExamined(), results.getStaleValuesDeleted(), elapsedMillis);
+                saveSweepResults(shardToSweep, results);
+            } catch (RuntimeException e) {
+                // Error logged at a higher log level above.
+                log.debug("Failed to sweep {} with batch config {} starting from row {}",
+                        UnsafeArg.of("table name", tableRef),
+                        SafeArg.of("cell batch size", batchConfig),
+                        UnsafeArg.of("start row hex", startRowToHex(startRow)));
+                throw e;
+            }
+        }
+
+        private void saveSweepResults(ShardToSweep shardToSweep, SweepResults currentIteration)
+                throws InterruptedException {
+            SweepProgress previousProgress = shardToSweep.progress;
+            SweepProgress newProgress = ImmutableSweepProgress.builder()
+                    .from(previousProgress)
+                    .staleValuesDeleted(previousProgress.staleValuesDeleted()
+                            + currentIteration.getStaleValuesDeleted())
+                    .cellTsPairsExamined(previousProgress.cellTsPairsExamined()
+                            + currentIteration.getCellTsPairsExamined())
+                    .minimumSweptTimestamp(Math.min(
+                            previousProgress.minimumSweptTimestamp(),
+                            currentIteration.getSweptTimestamp()))
+                    .startRow(currentIteration.getNextStartRow().orElse(PtBytes.EMPTY_BYTE_ARRAY))
+                    .isFinished(!currentIteration.getNextStartRow().isPresent())
+                    .build();
+            if (!newProgress.isFinished()) {
+                txManager.runTaskWithRetry((TxTask) tx -> {
+                    sweepProgressStore.saveShardProgress(tx, newProgress);
+                    return null;
+                });
+                shardToSweep.progress = newProgress;
+                return;
+            }
+
+            txManager.runTaskWithRetry((TxTask) tx -> {
+                sweepProgressStore.saveShardProgress(tx, newProgress);
+                return null;
+            });
+            releaseShard();
+            log.info("Finished sweeping shard {} of {} of {}.",
+                    SafeArg.of("shardIndex", newProgress.shardIndex()),
+                    SafeArg.of("shardCount", newProgress.shardCount()),
+                    UnsafeArg.of("table name", newProgress.tableRef()));
+            finishTableIfAllShardsFinished(newProgress.tableRef(), newProgress.shardCount());
+        }
+
+        /**
+         * Records the results of the whole table if all of its shards are finished. This must happen in its own
+         * transaction, started after the one which finished our shard committed: the sweep progress table ignores
+         * conflicts, so two sweepers finishing the last two shards in concurrent transactions would each see the
+         * other's shard as unfinished, and nobody would ever record the table as swept. Holding the completion lock
+         * while checking means that whoever finishes last sees every shard finished, and that only one of them
+         * records the results.
+         */
+        private void finishTableIfAllShardsFinished(TableReference tableRef, int shardCount)
+                throws InterruptedException {
+            Optional<SweepResults> tableResults;
+            try (SweepLocks completionLock = SweepLocks.forTableCompletion(lockService, tableRef)) {
+                completionLock.lockWaitingAtMost(TABLE_COMPLETION_LOCK_WAIT_SECONDS);
+                if (!completionLock.haveLocks()) {
+                    // Whoever holds the lock, or the next sweeper to claim a shard, will finish the table.
+                    log.info("Could not lock the completion of the sweep of {}; leaving it to another sweeper.",
+                            UnsafeArg.of("table name", tableRef));
+                    return;
+                }
+                tableResults = txManager.runTaskWithRetry(tx -> {
+                    List<SweepProgress> shards = sweepProgressStore.loadShardProgress(tx, tableRef, shardCount);
+                    if (!allShardsFinished(shards, shardCount)) {
+                        return Optional.<SweepResults>empty();
+                    }
+                    SweepResults cumulativeResults = SweepResults.builder()
+                            .staleValuesDeleted(shards.stream().mapToLong(SweepProgress::staleValuesDeleted).sum())
+                            .cellTsPairsExamined(shards.stream().mapToLong(SweepProgress::cellTsPairsExamined).sum())
+                            .sweptTimestamp(shards.stream().mapToLong(SweepProgress::minimumSweptTimestamp).min()
+                                    .getAsLong())
+                            .build();
+                    saveFinalSweepResults(tx, tableRef, cumulativeResults);
+                    sweepProgressStore.clearShardProgress(tx, tableRef, shardCount);
+                    return Optional.of(cumulativeResults);
+                });
+            }
+            if (tableResults.isPresent()) {
+                SweepResults cumulativeResults = tableResults.get();
+                sweepMetrics.examinedCells(tableRef, cumulativeResults.getCellTsPairsExamined());
+                sweepMetrics.deletedCells(tableRef, cumulativeResults.getStaleValuesDeleted());
+                performInternalCompactionIfNecessary(tableRef, cumulativeResults);
+                log.info("Finished sweeping {}, examined {} unique cells, deleted {} stale values.",
+                        UnsafeArg.of("table name", tableRef),
+                        SafeArg.of("cellsExamined", cumulativeResults.getCellTsPairsExamined()),
+                        SafeArg.of("staleValuesDeleted", cumulativeResults.getStaleValuesDeleted()));
+            }
+        }
+
+        /**
+         * Check whether the table being swept was dropped. If so, stop sweeping it and move on.
+         * @return Whether the table being swept was dropped
+         */
+        private boolean checkAndRepairTableDrop() {
+            if (currentShard == null) {
+                return false;
+            }
+            try {
+                TableReference tableRef = currentShard.getTableRef();
+                if (kvs.getAllTableNames().contains(tableRef)) {
+                    return false;
+                }
+                int shardCount = currentShard.getShardCount();
+                txManager.runTaskWithRetry((TxTask) tx -> {
+                    sweepProgressStore.clearShardProgress(tx, tableRef, shardCount);
+                    return null;
+                });
+                releaseShard();
+                return true;
+            } catch (RuntimeException e) {
+                log.error("Failed to check whether the table being swept was dropped."
+                        + " Continuing under the assumption that it wasn't...", e);
+                return false;
+            }
+        }
+
+        private SweepBatchConfig getAdjustedBatchConfig() {
+            SweepBatchConfig baseConfig = sweepBatchConfig.get();
+            return ImmutableSweepBatchConfig.builder()
+                    .maxCellTsPairsToExamine(adjustBatchParameter(baseConfig.maxCellTsPairsToExamine()))
+                    .candidateBatchSize(adjustBatchParameter(baseConfig.candidateBatchSize()))
+                    .deleteBatchSize(adjustBatchParameter(baseConfig.deleteBatchSize()))
+                    .build();
+        }
+
+        private int adjustBatchParameter(int parameterValue) {
+            return Math.max(1, (int) (batchSizeMultiplier * parameterValue));
         }
     }
 
-    private SweepBatchConfig getAdjustedBatchConfig() {
-        SweepBatchConfig baseConfig = sweepBatchConfig.get();
-        return ImmutableSweepBatchConfig.builder()
-                .maxCellTsPairsToExamine(adjustBatchParameter(baseConfig.maxCellTsPairsToExamine()))
-                .candidateBatchSize(adjustBatchParameter(baseConfig.candidateBatchSize()))
-                .deleteBatchSize(adjustBatchParameter(baseConfig.deleteBatchSize()))
-                .build();
+    private static boolean allShardsFinished(List<SweepProgress> shards, int shardCount) {
+        return shards.size() == shardCount && shards.stream().allMatch(SweepProgress::isFinished);
     }
 
-    private int adjustBatchParameter(int parameterValue) {
-        return Math.max(1, (int) (batchSizeMultiplier * parameterValue));
+    private static SweepProgress initialProgress(TableReference tableRef, int shardIndex, int shardCount) {
+        return ImmutableSweepProgress.builder()
+                .tableRef(tableRef)
+                .startRow(SweepShards.getStartRowInclusive(shardIndex, shardCount))
+                .staleValuesDeleted(0L)
+                .cellTsPairsExamined(0L)
+                .minimumSweptTimestamp(Long.MAX_VALUE)
+                .shardIndex(shardIndex)
+                .shardCount(shardCount)
+                .build();
     }
 
     private static String startRowToHex(@Nullable byte[] row) {
@@ -285,85 +625,49 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         }
     }
 
-    private final class TableToSweep {
+    private static final class ShardToSweep {
         private final TableReference tableRef;
-        @Nullable private final SweepProgress progress;
+        private final SweepLocks locks;
+        private SweepProgress progress;
 
-        TableToSweep(TableReference tableRef, SweepProgress progress) {
+        ShardToSweep(TableReference tableRef, SweepProgress progress, SweepLocks locks) {
             this.tableRef = tableRef;
             this.progress = progress;
+            this.locks = locks;
         }
 
         TableReference getTableRef() {
             return tableRef;
         }
 
-        boolean hasPreviousProgress() {
-            return progress != null;
+        int getShardIndex() {
+            return progress.shardIndex();
         }
 
-        long getStaleValuesDeletedPreviously() {
-            return progress == null ? 0L : progress.staleValuesDeleted();
-        }
-
-        long getCellsExaminedPreviously() {
-            return progress == null ? 0L : progress.cellTsPairsExamined();
-        }
-
-        OptionalLong getPreviousMinimumSweptTimestamp() {
-            return progress == null ? OptionalLong.empty() : OptionalLong.of(progress.minimumSweptTimestamp());
+        int getShardCount() {
+            return progress.shardCount();
         }
 
         byte[] getStartRow() {
-            return progress == null ? PtBytes.EMPTY_BYTE_ARRAY : progress.startRow();
+            return progress.startRow();
         }
-    }
 
-    private Optional<TableToSweep> getTableToSweep() {
-        return txManager.runTaskWithRetry(new TransactionTask<Optional<TableToSweep>, RuntimeException>() {
-            @Override
-            public Optional<TableToSweep> execute(Transaction tx) {
-                Optional<SweepProgress> progress = sweepProgressStore.loadProgress(tx);
-                if (progress.isPresent()) {
-                    return Optional.of(new TableToSweep(progress.get().tableRef(), progress.get()));
-                } else {
-                    Optional<TableReference> nextTable = nextTableToSweepProvider.chooseNextTableToSweep(
-                            tx, sweepRunner.getConservativeSweepTimestamp());
-                    if (nextTable.isPresent()) {
-                        log.debug("Now starting to sweep {}.", UnsafeArg.of("table name", nextTable));
-                        return Optional.of(new TableToSweep(nextTable.get(), null));
-                    } else {
-                        return Optional.empty();
-                    }
-                }
-            }
-        });
+        @Override
+        public String toString() {
+            return String.format("%s (shard %d of %d)", tableRef, getShardIndex(), getShardCount());
+        }
     }
 
-    private void saveSweepResults(TableToSweep tableToSweep, SweepResults currentIteration) {
-        long staleValuesDeleted = tableToSweep.getStaleValuesDeletedPreviously()
-                + currentIteration.getStaleValuesDeleted();
-        long cellsExamined = tableToSweep.getCellsExaminedPreviously() + currentIteration.getCellTsPairsExamined();
-        long minimumSweptTimestamp = Math.min(
-                tableToSweep.getPreviousMinimumSweptTimestamp().orElse(Long.MAX_VALUE),
-                currentIteration.getSweptTimestamp());
-        SweepResults cumulativeResults = SweepResults.builder()
-                .staleValuesDeleted(staleValuesDeleted)
-                .cellTsPairsExamined(cellsExamined)
-                .sweptTimestamp(minimumSweptTimestamp)
-                .nextStartRow(currentIteration.getNextStartRow())
-                .build();
-        if (currentIteration.getNextStartRow().isPresent()) {
-            saveIntermediateSweepResults(tableToSweep, cumulativeResults);
-        } else {
-            saveFinalSweepResults(tableToSweep, cumulativeResults);
-            performInternalCompactionIfNecessary(tableToSweep.getTableRef(), cumulativeResults);
-            log.info("Finished sweeping {}, examined {} unique cells, deleted {} stale values.",
-                    UnsafeArg.of("table name", tableToSweep.getTableRef()),
-                    SafeArg.of("cellsExamined", cellsExamined),
-                    SafeArg.of("staleValuesDeleted", staleValuesDeleted));
-            sweepProgressStore.clearProgress();
-        }
+    private void saveFinalSweepResults(
+            Transaction tx,
+            TableReference tableRef,
+            SweepResults sweepResults) {
+        sweepPriorityStore.update(tx, tableRef, ImmutableUpdateSweepPriority.builder()
+                .newStaleValuesDeleted(sweepResults.getStaleValuesDeleted())
+                .newCellTsPairsExamined(sweepResults.getCellTsPairsExamined())
+                .newLastSweepTimeMillis(wallClock.getTimeMillis())
+                .newMinimumSweptTimestamp(sweepResults.getSweptTimestamp())
+                .build());
     }
 
     private void performInternalCompactionIfNecessary(TableReference tableRef, SweepResults results) {
@@ -384,88 +688,24 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         }
     }
 
-    private void saveIntermediateSweepResults(TableToSweep tableToSweep, SweepResults results) {
-        Preconditions.checkArgument(results.getNextStartRow().isPresent(),
-                "Next start row should be present when saving intermediate results!");
-        txManager.runTaskWithRetry((TxTask) tx -> {
-            if (!tableToSweep.hasPreviousProgress()) {
-                // This is the first set of results being written for this table.
-                sweepPriorityStore.update(
-                        tx,
-                        tableToSweep.getTableRef(),
-                        ImmutableUpdateSweepPriority.builder().newWriteCount(0L).build());
-            }
-            SweepProgress newProgress = ImmutableSweepProgress.builder()
-                    .tableRef(tableToSweep.getTableRef())
-                    .staleValuesDeleted(results.getStaleValuesDeleted())
-                    .cellTsPairsExamined(results.getCellTsPairsExamined())
-                    //noinspection OptionalGetWithoutIsPresent // covered by precondition above
-                    .startRow(results.getNextStartRow().get())
-                    .minimumSweptTimestamp(results.getSweptTimestamp())
-                    .build();
-            sweepProgressStore.saveProgress(tx, newProgress);
-            return null;
-        });
-    }
-
-    private void saveFinalSweepResults(TableToSweep tableToSweep, SweepResults sweepResults) {
-        txManager.runTaskWithRetry((TxTask) tx -> {
-            ImmutableUpdateSweepPriority.Builder update = ImmutableUpdateSweepPriority.builder()
-                    .newStaleValuesDeleted(sweepResults.getStaleValuesDeleted())
-                    .newCellTsPairsExamined(sweepResults.getCellTsPairsExamined())
-                    .newLastSweepTimeMillis(wallClock.getTimeMillis())
-                    .newMinimumSweptTimestamp(sweepResults.getSweptTimestamp());
-            if (!tableToSweep.hasPreviousProgress()) {
-                // This is the first (and only) set of results being written for this table.
-                update.newWriteCount(0L);
-            }
-            sweepPriorityStore.update(tx, tableToSweep.getTableRef(), update.build());
-            return null;
-        });
-
-        sweepMetrics.examinedCells(tableToSweep.getTableRef(), sweepResults.getCellTsPairsExamined());
-        sweepMetrics.deletedCells(tableToSweep.getTableRef(), sweepResults.getStaleValuesDeleted());
-    }
-
     /**
-     * Check whether the table being swept was dropped. If so, stop sweeping it and move on.
-     * @return Whether the table being swept was dropped
+     * Stops the background sweeper threads, and then closes the {@link SweepTaskRunner} they were using.
      */
-    private boolean checkAndRepairTableDrop() {
-        try {
-            Set<TableReference> tables = kvs.getAllTableNames();
-            Optional<SweepProgress> progress = txManager.runTaskReadOnly(sweepProgressStore::loadProgress);
-            if (!progress.isPresent() || tables.contains(progress.get().tableRef())) {
-                return false;
-            } else {
-                sweepProgressStore.clearProgress();
-                return true;
-            }
-        } catch (RuntimeException e) {
-            log.error("Failed to check whether the table being swept was dropped."
-                    + " Continuing under the assumption that it wasn't...", e);
-            return false;
-        }
-    }
-
-    @VisibleForTesting
-    SweepLocks createSweepLocks() {
-        return new SweepLocks(lockService);
-    }
-
     @Override
     public synchronized void shutdown() {
-        if (daemon == null) {
-            return;
-        }
-        log.debug("Signalling background sweeper to shut down.");
-        daemon.interrupt();
-        try {
-            daemon.join();
-            daemon = null;
-        } catch (InterruptedException e) {
-            throw Throwables.rewrapAndThrowUncheckedException(e);
+        if (!daemons.isEmpty()) {
+            log.debug("Signalling background sweeper to shut down.");
+            daemons.forEach(Thread::interrupt);
+            try {
+                for (Thread daemon : daemons) {
+                    daemon.join();
+                }
+                daemons.clear();
+            } catch (InterruptedException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e);
+            }
         }
+        sweepRunner.close();
     }
 
 }
@@ -15,9 +15,13 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
@@ -27,6 +31,7 @@ import gnu.trove.TDecorators;
 import gnu.trove.map.TLongLongMap;
 import gnu.trove.map.hash.TLongLongHashMap;
 import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 
 public final class CommitTsLoader {
     private static final Logger log = LoggerFactory.getLogger(CommitTsLoader.class);
@@ -39,11 +44,19 @@ public final class CommitTsLoader {
         this.transactionService = transactionService;
     }
 
+    /**
+     * Creates a loader with the commit timestamps of the given start timestamps already resolved. Start timestamps
+     * that have no commit timestamp yet are rolled back, all in one batch, just like {@link #load(long)} would
+     * do for each of them individually.
+     */
     public static CommitTsLoader create(TransactionService transactionService, TLongSet startTssToWarmingCache) {
         TLongLongMap cache = new TLongLongHashMap();
         if (!startTssToWarmingCache.isEmpty()) {
-            // Ideally TransactionService should work with primitive collections to avoid GC overhead..
             cache.putAll(transactionService.get(TDecorators.wrap(startTssToWarmingCache)));
+            long[] missing = getMissing(startTssToWarmingCache, cache);
+            if (missing.length > 0) {
+                cache.putAll(rollBackAll(transactionService, missing));
+            }
         }
         return new CommitTsLoader(cache, transactionService);
     }
@@ -66,7 +79,6 @@ public final class CommitTsLoader {
         // Roll back this transaction (note that rolling back arbitrary transactions
         // can never cause correctness issues, only liveness issues)
         try {
-            // TODO(carrino): use the batched version of putUnlessExists when it is available.
             transactionService.putUnlessExists(startTs, TransactionConstants.FAILED_COMMIT_TS);
         } catch (KeyAlreadyExistsException e) {
             String msg = "Could not roll back transaction with start timestamp " + startTs + "; either"
@@ -78,4 +90,30 @@ public final class CommitTsLoader {
 
         return transactionService.get(startTs);
     }
+
+    private static Map<Long, Long> rollBackAll(TransactionService transactionService, long[] startTss) {
+        // Roll back these transactions (note that rolling back arbitrary transactions
+        // can never cause correctness issues, only liveness issues)
+        Map<Long, Long> rollbacks = Maps.newHashMapWithExpectedSize(startTss.length);
+        for (long startTs : startTss) {
+            rollbacks.put(startTs, TransactionConstants.FAILED_COMMIT_TS);
+        }
+        try {
+            transactionService.putUnlessExists(rollbacks);
+        } catch (KeyAlreadyExistsException e) {
+            String msg = "Could not roll back some of " + startTss.length + " transactions; either they were"
+                    + " already rolled back (by a different transaction), or they committed successfully"
+                    + " before we could roll them back.";
+            log.warn("This isn't a bug but it should be very infrequent. {}", msg,
+                    new TransactionFailedRetriableException(msg, e));
+        }
+        // Anything still missing here is left out, and will be retried individually by load().
+        return transactionService.get(Longs.asList(startTss));
+    }
+
+    private static long[] getMissing(TLongSet startTss, TLongLongMap commitTsByStartTs) {
+        TLongSet missing = new TLongHashSet(startTss);
+        missing.removeAll(commitTsByStartTs.keySet());
+        return missing.toArray();
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.util.concurrent.Futures;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Fetches the next element of the delegate on an executor while the caller processes the current one.
+ * At most one element is fetched ahead, and the delegate is only ever accessed by one thread at a time.
+ * Closing waits for an in-flight fetch so that the delegate can be closed safely afterwards.
+ * The delegate must not return null elements.
+ */
+final class PrefetchingIterator<T> implements Iterator<T>, AutoCloseable {
+    private final Iterator<T> delegate;
+    private final ExecutorService executor;
+
+    private Future<T> pending = null;
+    private boolean exhausted = false;
+
+    PrefetchingIterator(Iterator<T> delegate, ExecutorService executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (exhausted) {
+            return false;
+        }
+        if (pending == null) {
+            prefetch();
+        }
+        if (await(pending) == null) {
+            exhausted = true;
+            pending = null;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T next = await(pending);
+        prefetch();
+        return next;
+    }
+
+    @Override
+    public void close() {
+        if (pending != null) {
+            try {
+                Futures.getUnchecked(pending);
+            } catch (RuntimeException e) {
+                // the caller has either already seen this failure or is abandoning the iteration
+            }
+            pending = null;
+        }
+        exhausted = true;
+    }
+
+    private void prefetch() {
+        pending = executor.submit(() -> delegate.hasNext() ? delegate.next() : null);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.throwUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+}
@@ -16,24 +16,74 @@
 package com.palantir.atlasdb.sweep;
 
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.SimpleTimeDuration;
 import com.palantir.lock.StringLockDescriptor;
 
 class SweepLocks implements AutoCloseable {
+    private static final LockDescriptor GLOBAL_SWEEP_LOCK = StringLockDescriptor.of("atlas sweep");
+
     private final RemoteLockService lockService;
+    private final SortedMap<LockDescriptor, LockMode> locks;
 
     private LockRefreshToken token = null;
 
     SweepLocks(RemoteLockService lockService) {
+        this(lockService, ImmutableSortedMap.of(GLOBAL_SWEEP_LOCK, LockMode.WRITE));
+    }
+
+    private SweepLocks(RemoteLockService lockService, SortedMap<LockDescriptor, LockMode> locks) {
         this.lockService = lockService;
+        this.locks = locks;
+    }
+
+    /**
+     * Locks a single shard of a table. The global sweep lock is also taken in shared mode, so that sweepers
+     * which still use the global lock exclusively never run concurrently with sharded sweep.
+     */
+    static SweepLocks forShard(RemoteLockService lockService, TableReference tableRef, int shardIndex,
+            int shardCount) {
+        LockDescriptor shardLock = StringLockDescriptor.of(String.format("atlas sweep %s shard %d of %d",
+                tableRef.getQualifiedName(), shardIndex, shardCount));
+        return new SweepLocks(lockService, ImmutableSortedMap.of(
+                GLOBAL_SWEEP_LOCK, LockMode.READ,
+                shardLock, LockMode.WRITE));
+    }
+
+    /**
+     * Locks the completion of a table's sweep, so that sweepers finishing the last shards of a table one after
+     * another check whether every shard is finished, and record the table's results, one at a time.
+     */
+    static SweepLocks forTableCompletion(RemoteLockService lockService, TableReference tableRef) {
+        LockDescriptor completionLock = StringLockDescriptor.of(String.format("atlas sweep %s completion",
+                tableRef.getQualifiedName()));
+        return new SweepLocks(lockService, ImmutableSortedMap.of(
+                GLOBAL_SWEEP_LOCK, LockMode.READ,
+                completionLock, LockMode.WRITE));
+    }
+
+    /**
+     * Like {@link #lockOrRefresh()}, but waits up to the given number of seconds for the locks if they are held
+     * elsewhere.
+     */
+    void lockWaitingAtMost(long seconds) throws InterruptedException {
+        if (token == null) {
+            LockRequest request = LockRequest.builder(locks)
+                    .blockForAtMost(SimpleTimeDuration.of(seconds, TimeUnit.SECONDS))
+                    .build();
+            token = lockService.lock(LockClient.ANONYMOUS.getClientId(), request);
+        }
     }
 
     void lockOrRefresh() throws InterruptedException {
@@ -43,9 +93,7 @@ class SweepLocks implements AutoCloseable {
                 token = null;
             }
         } else {
-            LockDescriptor lock = StringLockDescriptor.of("atlas sweep");
-            LockRequest request = LockRequest.builder(
-                    ImmutableSortedMap.of(lock, LockMode.WRITE)).doNotBlock().build();
+            LockRequest request = LockRequest.builder(locks).doNotBlock().build();
             token = lockService.lock(LockClient.ANONYMOUS.getClientId(), request);
         }
     }
@@ -58,6 +106,7 @@ class SweepLocks implements AutoCloseable {
     public void close() {
         if (token != null) {
             lockService.unlock(token);
+            token = null;
         }
     }
 }
@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.concurrent.TimeUnit;
+
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
@@ -80,4 +82,19 @@ class SweepMetrics {
     void sweepError() {
         sweepErrorMeter.update(1);
     }
+
+    /**
+     * Records a batch swept by one of the background sweep workers. The per-worker meters expose the
+     * throughput of each worker, and the timer how long its batches take.
+     */
+    void workerSweptBatch(int workerIndex, long numExamined, long numDeleted, long elapsedMillis) {
+        MetricRegistry registry = metricsManager.getRegistry();
+        registry.meter(getWorkerSpecificName(workerIndex, "cellTimestampPairsExamined")).mark(numExamined);
+        registry.meter(getWorkerSpecificName(workerIndex, "staleValuesDeleted")).mark(numDeleted);
+        registry.timer(getWorkerSpecificName(workerIndex, "batchTime")).update(elapsedMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static String getWorkerSpecificName(int workerIndex, String name) {
+        return MetricRegistry.name(SweepMetrics.class, "worker", String.valueOf(workerIndex), name);
+    }
 }
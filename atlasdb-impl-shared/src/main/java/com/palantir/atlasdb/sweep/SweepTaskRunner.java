@@ -19,17 +19,24 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.LongSupplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.Futures;
 import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
 import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -42,6 +49,9 @@ import com.palantir.atlasdb.sweep.CellsToSweepPartitioningIterator.ExaminedCellL
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.logsafe.UnsafeArg;
 
 import gnu.trove.TDecorators;
@@ -49,7 +59,7 @@ import gnu.trove.TDecorators;
 /**
  * Sweeps one individual table.
  */
-public class SweepTaskRunner {
+public class SweepTaskRunner implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(SweepTaskRunner.class);
 
     private final KeyValueService keyValueService;
@@ -58,6 +68,7 @@ public class SweepTaskRunner {
     private final TransactionService transactionService;
     private final SweepStrategyManager sweepStrategyManager;
     private final CellsSweeper cellsSweeper;
+    private final ExecutorService pipelineExecutor;
 
     public SweepTaskRunner(
             KeyValueService keyValueService,
@@ -72,6 +83,17 @@ public class SweepTaskRunner {
         this.transactionService = transactionService;
         this.sweepStrategyManager = sweepStrategyManager;
         this.cellsSweeper = cellsSweeper;
+        this.pipelineExecutor = PTExecutors.newCachedThreadPool(
+                new NamedThreadFactory("sweep-pipeline", true /* daemon */));
+    }
+
+    /**
+     * Stops the threads used to pipeline sweeps. Runs that are in progress are allowed to finish their deletes,
+     * but the runner cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        pipelineExecutor.shutdown();
     }
 
     /**
@@ -94,11 +116,20 @@ public class SweepTaskRunner {
     public SweepResults dryRun(TableReference tableRef,
                                SweepBatchConfig batchConfig,
                                byte[] startRow) {
-        return runInternal(tableRef, batchConfig, startRow, RunType.DRY);
+        return runInternal(tableRef, batchConfig, startRow, PtBytes.EMPTY_BYTE_ARRAY, RunType.DRY);
     }
 
     public SweepResults run(TableReference tableRef, SweepBatchConfig batchConfig, byte[] startRow) {
-        return runInternal(tableRef, batchConfig, startRow, RunType.FULL);
+        return run(tableRef, batchConfig, startRow, PtBytes.EMPTY_BYTE_ARRAY);
+    }
+
+    /**
+     * Sweeps one batch of the rows in [startRow, endRowExclusive). An empty endRowExclusive means the end
+     * of the table. The returned results have no next start row once the end of the range is reached.
+     */
+    public SweepResults run(TableReference tableRef, SweepBatchConfig batchConfig, byte[] startRow,
+            byte[] endRowExclusive) {
+        return runInternal(tableRef, batchConfig, startRow, endRowExclusive, RunType.FULL);
     }
 
     public long getConservativeSweepTimestamp() {
@@ -110,6 +141,7 @@ public class SweepTaskRunner {
             TableReference tableRef,
             SweepBatchConfig batchConfig,
             byte[] startRow,
+            byte[] endRowExclusive,
             RunType runType) {
         Preconditions.checkNotNull(tableRef, "tableRef cannot be null");
         Preconditions.checkState(!AtlasDbConstants.hiddenTables.contains(tableRef));
@@ -132,12 +164,13 @@ public class SweepTaskRunner {
         if (!sweeper.isPresent()) {
             return SweepResults.createEmptySweepResult();
         }
-        return doRun(tableRef, batchConfig, startRow, runType, sweeper.get());
+        return doRun(tableRef, batchConfig, startRow, endRowExclusive, runType, sweeper.get());
     }
 
     private SweepResults doRun(TableReference tableRef,
                                SweepBatchConfig batchConfig,
                                byte[] startRow,
+                               byte[] endRowExclusive,
                                RunType runType,
                                Sweeper sweeper) {
         // Earliest start timestamp of any currently open transaction, with two caveats:
@@ -164,19 +197,48 @@ public class SweepTaskRunner {
                 .build();
 
         SweepableCellFilter sweepableCellFilter = new SweepableCellFilter(transactionService, sweeper, sweepTs);
+        // The three stages of a sweep each mostly wait on the database, so they are overlapped: the next page of
+        // candidates is scanned in the background while commit timestamps for the current page are resolved on
+        // this thread, and the deletes for the previous batch run in the background too. At most one page is
+        // scanned ahead and one batch is being deleted, which keeps memory bounded. Commit timestamps are not
+        // resolved ahead of the examined cell limit, so we never roll back transactions for cells we don't sweep.
         try (ClosableIterator<List<CandidateCellForSweeping>> candidates = keyValueService.getCandidateCellsForSweeping(
-                    tableRef, request)) {
+                    tableRef, request);
+                PrefetchingIterator<List<CandidateCellForSweeping>> prefetchedCandidates = new PrefetchingIterator<>(
+                    truncateAtEndRow(candidates, endRowExclusive), pipelineExecutor)) {
             ExaminedCellLimit limit = new ExaminedCellLimit(startRow, batchConfig.maxCellTsPairsToExamine());
             Iterator<BatchOfCellsToSweep> batchesToSweep = getBatchesToSweep(
-                        candidates, batchConfig, sweepableCellFilter, limit);
+                        prefetchedCandidates, batchConfig, sweepableCellFilter, limit);
             long totalCellTsPairsExamined = 0;
             long totalCellTsPairsDeleted = 0;
             byte[] lastRow = startRow;
-            while (batchesToSweep.hasNext()) {
-                BatchOfCellsToSweep batch = batchesToSweep.next();
-                totalCellTsPairsDeleted += sweepBatch(tableRef, batch.cells(), runType);
-                totalCellTsPairsExamined = batch.numCellTsPairsExaminedSoFar();
-                lastRow = batch.lastCellExamined().getRowName();
+            Future<?> pendingDeletes = null;
+            try {
+                while (batchesToSweep.hasNext()) {
+                    BatchOfCellsToSweep batch = batchesToSweep.next();
+                    waitForDeletes(pendingDeletes);
+                    pendingDeletes = null;
+                    CellsAndSentinels cellsAndSentinels = getCellsAndSentinels(batch.cells());
+                    if (runType == RunType.FULL) {
+                        pendingDeletes = pipelineExecutor.submit(() -> cellsSweeper.sweepCells(
+                                tableRef, cellsAndSentinels.startTimestampsPerCell, cellsAndSentinels.sentinels));
+                    }
+                    totalCellTsPairsDeleted += cellsAndSentinels.startTimestampsPerCell.size();
+                    totalCellTsPairsExamined = batch.numCellTsPairsExaminedSoFar();
+                    lastRow = batch.lastCellExamined().getRowName();
+                }
+                waitForDeletes(pendingDeletes);
+                pendingDeletes = null;
+            } finally {
+                // Don't leave deletes running against the table once this run has returned or failed.
+                if (pendingDeletes != null) {
+                    try {
+                        Futures.getUnchecked(pendingDeletes);
+                    } catch (RuntimeException e) {
+                        log.warn("Deletes for a batch of table {} failed while aborting the sweep run.",
+                                UnsafeArg.of("table name", tableRef), e);
+                    }
+                }
             }
             return SweepResults.builder()
                     .previousStartRow(Optional.of(startRow))
@@ -198,10 +260,34 @@ public class SweepTaskRunner {
         return new CellsToSweepPartitioningIterator(cellsToSweep, batchConfig.deleteBatchSize(), limit);
     }
 
-    /**
-     * Returns the number of deleted (cell, timestamp) pairs.
-     */
-    private int sweepBatch(TableReference tableRef, List<CellToSweep> batch, RunType runType) {
+    private static Iterator<List<CandidateCellForSweeping>> truncateAtEndRow(
+            Iterator<List<CandidateCellForSweeping>> candidates,
+            byte[] endRowExclusive) {
+        if (endRowExclusive.length == 0) {
+            return candidates;
+        }
+        return new AbstractIterator<List<CandidateCellForSweeping>>() {
+            private boolean endReached = false;
+
+            @Override
+            protected List<CandidateCellForSweeping> computeNext() {
+                if (endReached || !candidates.hasNext()) {
+                    return endOfData();
+                }
+                List<CandidateCellForSweeping> batch = candidates.next();
+                for (int i = 0; i < batch.size(); i++) {
+                    if (UnsignedBytes.lexicographicalComparator().compare(
+                            batch.get(i).cell().getRowName(), endRowExclusive) >= 0) {
+                        endReached = true;
+                        return batch.subList(0, i);
+                    }
+                }
+                return batch;
+            }
+        };
+    }
+
+    private static CellsAndSentinels getCellsAndSentinels(List<CellToSweep> batch) {
         Multimap<Cell, Long> startTimestampsToSweepPerCell = ArrayListMultimap.create();
         List<Cell> sentinels = Lists.newArrayList();
         for (CellToSweep cell : batch) {
@@ -210,10 +296,31 @@ public class SweepTaskRunner {
                 sentinels.add(cell.cell());
             }
         }
-        if (runType == RunType.FULL) {
-            cellsSweeper.sweepCells(tableRef, startTimestampsToSweepPerCell, sentinels);
+        return new CellsAndSentinels(startTimestampsToSweepPerCell, sentinels);
+    }
+
+    private static void waitForDeletes(Future<?> pendingDeletes) {
+        if (pendingDeletes == null) {
+            return;
+        }
+        try {
+            pendingDeletes.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.throwUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    private static final class CellsAndSentinels {
+        private final Multimap<Cell, Long> startTimestampsPerCell;
+        private final List<Cell> sentinels;
+
+        CellsAndSentinels(Multimap<Cell, Long> startTimestampsPerCell, List<Cell> sentinels) {
+            this.startTimestampsPerCell = startTimestampsPerCell;
+            this.sentinels = sentinels;
         }
-        return startTimestampsToSweepPerCell.size();
     }
 
 }
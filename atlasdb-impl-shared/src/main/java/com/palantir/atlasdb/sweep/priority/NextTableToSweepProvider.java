@@ -16,10 +16,23 @@
 package com.palantir.atlasdb.sweep.priority;
 
 import java.util.Optional;
+import java.util.Set;
 
+import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.transaction.api.Transaction;
 
 public interface NextTableToSweepProvider {
-    Optional<TableReference> chooseNextTableToSweep(Transaction tx, long conservativeSweepTs);
+    default Optional<TableReference> chooseNextTableToSweep(Transaction tx, long conservativeSweepTs) {
+        return chooseNextTableToSweep(tx, conservativeSweepTs, ImmutableSet.of());
+    }
+
+    /**
+     * Chooses the table with the highest sweep priority that is not in tablesToExclude, for example
+     * because other sweep workers are already sweeping it.
+     */
+    Optional<TableReference> chooseNextTableToSweep(
+            Transaction tx,
+            long conservativeSweepTs,
+            Set<TableReference> tablesToExclude);
 }
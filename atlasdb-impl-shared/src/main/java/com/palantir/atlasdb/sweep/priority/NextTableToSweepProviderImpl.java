@@ -43,7 +43,10 @@ public class NextTableToSweepProviderImpl implements NextTableToSweepProvider {
     }
 
     @Override
-    public Optional<TableReference> chooseNextTableToSweep(Transaction tx, long conservativeSweepTs) {
+    public Optional<TableReference> chooseNextTableToSweep(
+            Transaction tx,
+            long conservativeSweepTs,
+            Set<TableReference> tablesToExclude) {
         Set<TableReference> allTables = Sets.difference(kvs.getAllTableNames(), AtlasDbConstants.hiddenTables);
 
         // We read priorities from the past because we should prioritize based on what the sweeper will
@@ -53,17 +56,21 @@ public class NextTableToSweepProviderImpl implements NextTableToSweepProvider {
         List<SweepPriority> newPriorities = sweepPriorityStore.loadNewPriorities(tx);
         Map<TableReference, SweepPriority> newPrioritiesByTableName = newPriorities.stream().collect(
                 Collectors.toMap(SweepPriority::tableRef, Function.identity()));
-        return getTableToSweep(tx, allTables, oldPriorities, newPrioritiesByTableName);
+        return getTableToSweep(tx, allTables, tablesToExclude, oldPriorities, newPrioritiesByTableName);
     }
 
     private Optional<TableReference> getTableToSweep(
             Transaction tx,
             Set<TableReference> allTables,
+            Set<TableReference> tablesToExclude,
             List<SweepPriority> oldPriorities,
             Map<TableReference, SweepPriority> newPrioritiesByTableName) {
         // Arbitrarily pick the first table alphabetically from the never-before-swept tables
         List<TableReference> unsweptTables = Sets.difference(allTables, newPrioritiesByTableName.keySet())
-                .stream().sorted(Comparator.comparing(TableReference::getTablename)).collect(Collectors.toList());
+                .stream()
+                .filter(table -> !tablesToExclude.contains(table))
+                .sorted(Comparator.comparing(TableReference::getTablename))
+                .collect(Collectors.toList());
         if (!unsweptTables.isEmpty()) {
             return Optional.of(unsweptTables.get(0));
         } else {
@@ -71,6 +78,9 @@ public class NextTableToSweepProviderImpl implements NextTableToSweepProvider {
             Optional<TableReference> toSweep = Optional.empty();
             Collection<TableReference> toDelete = Lists.newArrayList();
             for (SweepPriority oldPriority : oldPriorities) {
+                if (tablesToExclude.contains(oldPriority.tableRef())) {
+                    continue;
+                }
                 if (allTables.contains(oldPriority.tableRef())) {
                     SweepPriority newPriority = newPrioritiesByTableName.get(oldPriority.tableRef());
                     double priority = getSweepPriority(oldPriority, newPriority);
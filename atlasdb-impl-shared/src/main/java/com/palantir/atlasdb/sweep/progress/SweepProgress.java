@@ -32,4 +32,30 @@ public interface SweepProgress {
 
     long minimumSweptTimestamp();
 
+    /**
+     * The shard of {@link #tableRef()} this progress belongs to. Tables that are not split into
+     * row-range shards are swept as a single shard with index 0.
+     */
+    @Value.Default
+    default int shardIndex() {
+        return 0;
+    }
+
+    /**
+     * The number of row-range shards {@link #tableRef()} was split into when its sweep started.
+     */
+    @Value.Default
+    default int shardCount() {
+        return 1;
+    }
+
+    /**
+     * Whether this shard has been fully swept. A finished shard is kept until all other shards of the
+     * table have finished, so that the cumulative results of the table can be recorded.
+     */
+    @Value.Default
+    default boolean isFinished() {
+        return false;
+    }
+
 }
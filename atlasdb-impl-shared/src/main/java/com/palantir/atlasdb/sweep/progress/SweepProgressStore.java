@@ -15,8 +15,16 @@
  */
 package com.palantir.atlasdb.sweep.progress;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
@@ -26,7 +34,15 @@ import com.palantir.atlasdb.schema.generated.SweepProgressTable.SweepProgressRow
 import com.palantir.atlasdb.schema.generated.SweepTableFactory;
 import com.palantir.atlasdb.transaction.api.Transaction;
 
+/**
+ * Stores the progress of background sweep.
+ *
+ * The single-threaded sweeper kept its progress in row 0 of the sweep progress table. Sharded sweep keeps one
+ * row per (table, shard) instead, keyed by {@link #getShardRowId}; a shard row without a start row marks a
+ * finished shard.
+ */
 public class SweepProgressStore {
+    private static final long LEGACY_ROW_ID = 0L;
 
     private final KeyValueService kvs;
     private final SweepTableFactory tableFactory;
@@ -39,13 +55,13 @@ public class SweepProgressStore {
     public Optional<SweepProgress> loadProgress(Transaction tx)  {
         SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
         Optional<SweepProgressRowResult> result = Optional.ofNullable(
-                progressTable.getRow(SweepProgressRow.of(0)).orElse(null));
+                progressTable.getRow(SweepProgressRow.of(LEGACY_ROW_ID)).orElse(null));
         return result.map(SweepProgressStore::hydrateProgress);
     }
 
     public void saveProgress(Transaction tx, SweepProgress progress) {
         SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
-        SweepProgressRow row = SweepProgressRow.of(0);
+        SweepProgressRow row = SweepProgressRow.of(LEGACY_ROW_ID);
         progressTable.putFullTableName(row, progress.tableRef().getQualifiedName());
         progressTable.putStartRow(row, progress.startRow());
         progressTable.putCellsDeleted(row, progress.staleValuesDeleted());
@@ -64,6 +80,84 @@ public class SweepProgressStore {
         kvs.deleteRange(tableFactory.getSweepProgressTable(null).getTableRef(), RangeRequest.all());
     }
 
+    /**
+     * Loads the progress of every shard that is currently being swept, including finished shards of tables
+     * that still have unfinished shards. Progress left behind by the single-threaded sweeper is migrated to
+     * a single-shard entry, so this must be called from a read-write transaction.
+     */
+    public List<SweepProgress> loadAllShardProgress(Transaction tx) {
+        SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+        List<SweepProgress> shards = Lists.newArrayList();
+        Optional<SweepProgress> legacyProgress = Optional.empty();
+        for (SweepProgressRowResult rr : progressTable.getAllRowsUnordered().immutableCopy()) {
+            long rowId = rr.getRowName().getDummy();
+            if (rowId == LEGACY_ROW_ID) {
+                legacyProgress = Optional.of(hydrateProgress(rr));
+            } else {
+                shards.add(hydrateShardProgress(rowId, rr));
+            }
+        }
+        if (legacyProgress.isPresent()) {
+            SweepProgress progress = legacyProgress.get();
+            if (shards.stream().noneMatch(shard -> shard.tableRef().equals(progress.tableRef()))) {
+                saveShardProgress(tx, progress);
+                shards.add(progress);
+            }
+            progressTable.delete(SweepProgressRow.of(LEGACY_ROW_ID));
+        }
+        return shards;
+    }
+
+    /**
+     * Loads the progress of the shards of the given table. Shards that have not been started yet are absent.
+     */
+    public List<SweepProgress> loadShardProgress(Transaction tx, TableReference tableRef, int shardCount) {
+        SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+        return progressTable.getRows(getShardRows(tableRef, shardCount)).stream()
+                .map(rr -> hydrateShardProgress(rr.getRowName().getDummy(), rr))
+                .filter(progress -> progress.tableRef().equals(tableRef))
+                .collect(Collectors.toList());
+    }
+
+    public void saveShardProgress(Transaction tx, SweepProgress progress) {
+        SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+        SweepProgressRow row = SweepProgressRow.of(
+                getShardRowId(progress.tableRef(), progress.shardIndex(), progress.shardCount()));
+        progressTable.putFullTableName(row, progress.tableRef().getQualifiedName());
+        progressTable.putCellsDeleted(row, progress.staleValuesDeleted());
+        progressTable.putCellsExamined(row, progress.cellTsPairsExamined());
+        progressTable.putMinimumSweptTimestamp(row, progress.minimumSweptTimestamp());
+        if (progress.isFinished()) {
+            progressTable.deleteStartRow(row);
+        } else {
+            progressTable.putStartRow(row, progress.startRow());
+        }
+    }
+
+    public void clearShardProgress(Transaction tx, TableReference tableRef, int shardCount) {
+        tableFactory.getSweepProgressTable(tx).delete(getShardRows(tableRef, shardCount));
+    }
+
+    /**
+     * Row ids of shard rows are made of a 40-bit hash of the table name (with the top bit set, so that they
+     * never clash with the legacy row 0), followed by a byte each for the shard count and the shard index.
+     * Hash collisions are detected by comparing the full table name stored in the row.
+     */
+    @VisibleForTesting
+    static long getShardRowId(TableReference tableRef, int shardIndex, int shardCount) {
+        long hash = Hashing.murmur3_128()
+                .hashString(tableRef.getQualifiedName(), StandardCharsets.UTF_8)
+                .asLong();
+        long tableBits = (hash >>> 25) | (1L << 39);
+        return (tableBits << 16) | ((long) shardCount << 8) | shardIndex;
+    }
+
+    private static List<SweepProgressRow> getShardRows(TableReference tableRef, int shardCount) {
+        return IntStream.range(0, shardCount)
+                .mapToObj(shardIndex -> SweepProgressRow.of(getShardRowId(tableRef, shardIndex, shardCount)))
+                .collect(Collectors.toList());
+    }
+
     private static SweepProgress hydrateProgress(SweepProgressTable.SweepProgressRowResult rr) {
         return ImmutableSweepProgress.builder()
                 .tableRef(TableReference.createUnsafe(rr.getFullTableName()))
@@ -74,4 +168,17 @@ public class SweepProgressStore {
                 .build();
     }
 
+    private static SweepProgress hydrateShardProgress(long rowId, SweepProgressTable.SweepProgressRowResult rr) {
+        return ImmutableSweepProgress.builder()
+                .tableRef(TableReference.createUnsafe(rr.getFullTableName()))
+                .startRow(rr.hasStartRow() ? rr.getStartRow() : PtBytes.EMPTY_BYTE_ARRAY)
+                .cellTsPairsExamined(rr.getCellsExamined())
+                .staleValuesDeleted(rr.getCellsDeleted())
+                .minimumSweptTimestamp(rr.getMinimumSweptTimestamp())
+                .shardIndex((int) (rowId & 0xFF))
+                .shardCount((int) ((rowId >>> 8) & 0xFF))
+                .isFinished(!rr.hasStartRow())
+                .build();
+    }
+
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.progress;
+
+import java.math.RoundingMode;
+
+import com.google.common.base.Preconditions;
+import com.google.common.math.LongMath;
+import com.palantir.atlasdb.encoding.PtBytes;
+
+/**
+ * Splits a table into row-range shards that can be swept independently.
+ *
+ * Shards partition the row space by the first byte of the row name. This is cheap to compute without
+ * reading the table, and spreads rows evenly for the common case of tables whose row components are
+ * hashed; tables with skewed row names still get correct (if unbalanced) shards.
+ */
+public final class SweepShards {
+    public static final int MAX_SHARDS = 64;
+
+    private SweepShards() {
+        // utility
+    }
+
+    /**
+     * Chooses the number of shards for a table, given the number of (cell, timestamp) pairs examined the
+     * last time the table was swept.
+     */
+    public static int getShardCount(long cellTsPairsExaminedPreviously, long cellTsPairsPerShard) {
+        Preconditions.checkArgument(cellTsPairsPerShard > 0, "cellTsPairsPerShard must be positive");
+        long shards = LongMath.divide(
+                Math.max(1L, cellTsPairsExaminedPreviously), cellTsPairsPerShard, RoundingMode.CEILING);
+        return (int) Math.min(shards, MAX_SHARDS);
+    }
+
+    public static byte[] getStartRowInclusive(int shardIndex, int shardCount) {
+        checkShard(shardIndex, shardCount);
+        return shardIndex == 0 ? PtBytes.EMPTY_BYTE_ARRAY : new byte[] { getFirstByte(shardIndex, shardCount) };
+    }
+
+    /**
+     * Returns the exclusive end row of the shard, or an empty array if the shard extends to the end of the table.
+     */
+    public static byte[] getEndRowExclusive(int shardIndex, int shardCount) {
+        checkShard(shardIndex, shardCount);
+        return shardIndex == shardCount - 1
+                ? PtBytes.EMPTY_BYTE_ARRAY
+                : new byte[] { getFirstByte(shardIndex + 1, shardCount) };
+    }
+
+    private static byte getFirstByte(int shardIndex, int shardCount) {
+        return (byte) (shardIndex * 256 / shardCount);
+    }
+
+    private static void checkShard(int shardIndex, int shardCount) {
+        Preconditions.checkArgument(shardCount > 0 && shardCount <= MAX_SHARDS,
+                "Invalid shard count %s", shardCount);
+        Preconditions.checkArgument(shardIndex >= 0 && shardIndex < shardCount,
+                "Invalid shard index %s of %s", shardIndex, shardCount);
+    }
+}
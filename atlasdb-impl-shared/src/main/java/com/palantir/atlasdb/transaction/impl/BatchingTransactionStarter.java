@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.SettableFuture;
+import com.palantir.atlasdb.transaction.api.StartTransactionsResponse;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.RemoteLockService;
+
+/**
+ * Coalesces concurrent transaction starts from many threads into single calls to
+ * {@link TransactionStartService#startTransactions(String, int)}.
+ * <p>
+ * Callers enqueue a request and block; a single background thread drains all queued requests (up to
+ * {@code maxBatchSize}) and serves them with one remote call, so that under load the fixed cost of starting a
+ * transaction is paid once per batch rather than once per transaction.
+ */
+public final class BatchingTransactionStarter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(BatchingTransactionStarter.class);
+
+    private final TransactionStartService transactionStartService;
+    private final RemoteLockService lockService;
+    private final String client;
+    private final int maxBatchSize;
+    private final BlockingQueue<SettableFuture<StartedTransaction>> pendingRequests = new LinkedBlockingQueue<>();
+    private final ExecutorService executor = PTExecutors.newSingleThreadExecutor(
+            new NamedThreadFactory("transaction-starter", true /* daemon */));
+    private final Histogram batchSizes;
+    private final Timer startTransactionTimer;
+
+    private volatile boolean closed = false;
+
+    private BatchingTransactionStarter(
+            TransactionStartService transactionStartService,
+            RemoteLockService lockService,
+            String client,
+            int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive, but was %s", maxBatchSize);
+        this.transactionStartService = transactionStartService;
+        this.lockService = lockService;
+        this.client = client;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = AtlasDbMetrics.getMetricRegistry().histogram(
+                MetricRegistry.name(BatchingTransactionStarter.class, "batchSize"));
+        this.startTransactionTimer = AtlasDbMetrics.getMetricRegistry().timer(
+                MetricRegistry.name(BatchingTransactionStarter.class, "startTransaction"));
+    }
+
+    /**
+     * @param lockService used to release immutable timestamp locks that were acquired on behalf of callers
+     * that gave up waiting before their batch completed
+     */
+    public static BatchingTransactionStarter create(
+            TransactionStartService transactionStartService,
+            RemoteLockService lockService,
+            String client,
+            int maxBatchSize) {
+        BatchingTransactionStarter starter =
+                new BatchingTransactionStarter(transactionStartService, lockService, client, maxBatchSize);
+        starter.executor.execute(starter::processBatches);
+        return starter;
+    }
+
+    public StartedTransaction startTransaction() {
+        Preconditions.checkState(!closed, "The transaction starter has been closed");
+        Timer.Context timer = startTransactionTimer.time();
+        SettableFuture<StartedTransaction> future = SettableFuture.create();
+        pendingRequests.add(future);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private void processBatches() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<SettableFuture<StartedTransaction>> batch = new ArrayList<>();
+            try {
+                batch.add(pendingRequests.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            pendingRequests.drainTo(batch, maxBatchSize - 1);
+            processBatch(batch);
+        }
+        failPendingRequests();
+    }
+
+    private void processBatch(List<SettableFuture<StartedTransaction>> batch) {
+        batchSizes.update(batch.size());
+        int served = 0;
+        try {
+            while (served < batch.size()) {
+                StartTransactionsResponse response =
+                        transactionStartService.startTransactions(client, batch.size() - served);
+                long lowestStartTs = response.getStartTimestamps().getLowerBound();
+                for (int i = 0; i < response.getNumTransactions(); i++) {
+                    LockRefreshToken lock = response.getImmutableTimestampLocks().get(i);
+                    StartedTransaction started = new StartedTransaction(
+                            lowestStartTs + i,
+                            response.getImmutableTimestamp(),
+                            lock);
+                    if (!batch.get(served + i).set(started)) {
+                        lockService.unlock(lock);
+                    }
+                }
+                served += response.getNumTransactions();
+            }
+        } catch (Throwable t) {
+            log.warn("Failed to start a batch of {} transactions", batch.size() - served, t);
+            for (SettableFuture<StartedTransaction> future : batch.subList(served, batch.size())) {
+                future.setException(t);
+            }
+        }
+    }
+
+    private void failPendingRequests() {
+        List<SettableFuture<StartedTransaction>> remaining = new ArrayList<>();
+        pendingRequests.drainTo(remaining);
+        for (SettableFuture<StartedTransaction> future : remaining) {
+            future.setException(new IllegalStateException("The transaction starter has been closed"));
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Failed to shut down the transaction starter in a timely manner.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failPendingRequests();
+    }
+
+    public static final class StartedTransaction {
+        private final long startTimestamp;
+        private final long immutableTimestamp;
+        private final LockRefreshToken immutableTimestampLock;
+
+        StartedTransaction(long startTimestamp, long immutableTimestamp, LockRefreshToken immutableTimestampLock) {
+            this.startTimestamp = startTimestamp;
+            this.immutableTimestamp = immutableTimestamp;
+            this.immutableTimestampLock = immutableTimestampLock;
+        }
+
+        public long getStartTimestamp() {
+            return startTimestamp;
+        }
+
+        public long getImmutableTimestamp() {
+            return immutableTimestamp;
+        }
+
+        public LockRefreshToken getImmutableTimestampLock() {
+            return immutableTimestampLock;
+        }
+    }
+}
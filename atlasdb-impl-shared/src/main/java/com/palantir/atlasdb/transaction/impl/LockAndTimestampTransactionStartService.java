@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.transaction.api.StartTransactionsResponse;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.AtlasTimestampLockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Server side implementation of {@link TransactionStartService} which performs the same steps as
+ * {@link SnapshotTransactionManager#setupRunTaskWithLocksThrowOnConflict(Iterable)}, but against local lock and
+ * timestamp services and once for a whole batch of transactions.
+ * <p>
+ * All transactions in a batch share a single immutable timestamp lock descriptor; each of them gets its own
+ * (reentrant) read lock on it, so that they can be released independently.
+ * <p>
+ * The lock and timestamp services passed in should not be instrumented themselves: a batch makes one lock call per
+ * transaction, so per-call timers on them would count every batch many times over. Instead this class times the
+ * immutable timestamp locking and the start timestamp fetch once per batch, and callers should instrument the
+ * {@link TransactionStartService} itself at the service boundary.
+ */
+public class LockAndTimestampTransactionStartService implements TransactionStartService {
+    private final TimestampService timestampService;
+    private final RemoteLockService lockService;
+    private final Histogram batchSizes;
+    private final Timer immutableTimestampTimer;
+    private final Timer startTimestampsTimer;
+
+    public LockAndTimestampTransactionStartService(TimestampService timestampService, RemoteLockService lockService) {
+        this.timestampService = timestampService;
+        this.lockService = lockService;
+        this.batchSizes = AtlasDbMetrics.getMetricRegistry().histogram(
+                MetricRegistry.name(LockAndTimestampTransactionStartService.class, "batchSize"));
+        this.immutableTimestampTimer = AtlasDbMetrics.getMetricRegistry().timer(
+                MetricRegistry.name(LockAndTimestampTransactionStartService.class, "immutableTimestamp"));
+        this.startTimestampsTimer = AtlasDbMetrics.getMetricRegistry().timer(
+                MetricRegistry.name(LockAndTimestampTransactionStartService.class, "startTimestamps"));
+    }
+
+    @Override
+    public StartTransactionsResponse startTransactions(String client, int numTransactions) {
+        Preconditions.checkArgument(numTransactions > 0,
+                "Must start at least one transaction, but %s were requested", numTransactions);
+        batchSizes.update(numTransactions);
+
+        long immutableLockTs = timestampService.getFreshTimestamp();
+        LockRequest lockRequest = LockRequest.builder(
+                ImmutableSortedMap.of(AtlasTimestampLockDescriptor.of(immutableLockTs), LockMode.READ))
+                .withLockedInVersionId(immutableLockTs)
+                .build();
+
+        List<LockRefreshToken> locks = new ArrayList<>(numTransactions);
+        try {
+            Timer.Context immutableTimestampContext = immutableTimestampTimer.time();
+            for (int i = 0; i < numTransactions; i++) {
+                locks.add(lockService.lock(client, lockRequest));
+            }
+            Long minLocked = lockService.getMinLockedInVersionId(client);
+            long immutableTs = minLocked == null ? immutableLockTs : minLocked;
+            immutableTimestampContext.stop();
+
+            Timer.Context startTimestampsContext = startTimestampsTimer.time();
+            TimestampRange startTimestamps = timestampService.getFreshTimestamps(numTransactions);
+            startTimestampsContext.stop();
+            // The timestamp service may hand out fewer timestamps than requested; release the surplus locks
+            // and let the caller ask again for the remainder.
+            while (locks.size() > startTimestamps.size()) {
+                lockService.unlock(locks.remove(locks.size() - 1));
+            }
+            return new StartTransactionsResponse(immutableTs, startTimestamps, locks);
+        } catch (Throwable e) {
+            for (LockRefreshToken lock : locks) {
+                if (lock != null) {
+                    lockService.unlock(lock);
+                }
+            }
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+}
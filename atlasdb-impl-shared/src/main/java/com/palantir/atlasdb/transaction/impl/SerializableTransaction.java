@@ -16,16 +16,24 @@
 package com.palantir.atlasdb.transaction.impl;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -46,6 +54,8 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.palantir.atlasdb.cache.ImmutableTableCache;
 import com.palantir.atlasdb.cache.TimestampCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
@@ -69,8 +79,11 @@ import com.palantir.common.annotation.Idempotent;
 import com.palantir.common.base.AbortingVisitor;
 import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
 import com.palantir.common.collect.IterableUtils;
 import com.palantir.common.collect.Maps2;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
@@ -82,6 +95,10 @@ import com.palantir.util.Pair;
  * commitTs.  We ignore all cells that have been written to during this transaction because those will
  * result in write-write conflicts and we don't need to worry about them.
  * <p>
+ * Reads are validated by comparing the start timestamps of the versions we saw against the latest
+ * versions at our commitTs, which does not transfer any values.  Only the cells whose version has
+ * changed are re-read and compared by value, since a newer version may have written identical bytes.
+ * <p>
  * If every table was marked as Serializable then we wouldn't need to also do write write conflict checking.
  * However, it is very common that we will be running in a mixed mode so this implementation does the standard
  * write/write conflict checking as well as preventing read/write conflicts to attain serializability.
@@ -91,12 +108,27 @@ public class SerializableTransaction extends SnapshotTransaction {
 
     private static final int BATCH_SIZE = 1000;
 
+    private static final int MAX_READ_VALIDATION_THREADS = 16;
+
+    // Threads are only kept while validations are running. When they are all busy, tables are validated on the
+    // committing thread instead.
+    private static final ExecutorService readValidationExecutor = PTExecutors.newThreadPoolExecutor(
+            0, MAX_READ_VALIDATION_THREADS, 1, TimeUnit.MINUTES,
+            new SynchronousQueue<>(),
+            new ThreadFactoryBuilder()
+                    .setNameFormat("serializable-read-validation-%d")
+                    .setDaemon(true)
+                    .build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
     final ConcurrentMap<TableReference, ConcurrentNavigableMap<Cell, byte[]>> readsByTable = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, ConcurrentMap<RangeRequest, byte[]>> rangeEndByTable = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, ConcurrentMap<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>>>
             columnRangeEndsByTable = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, Set<Cell>> cellsRead = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, Set<RowRead>> rowsRead = Maps.newConcurrentMap();
+    final ConcurrentMap<TableReference, ConcurrentNavigableMap<Cell, Long>> versionsReadByTable =
+            Maps.newConcurrentMap();
 
     public SerializableTransaction(KeyValueService keyValueService,
                                    RemoteLockService lockService,
@@ -113,6 +145,40 @@ public class SerializableTransaction extends SnapshotTransaction {
                                    TransactionReadSentinelBehavior readSentinelBehavior,
                                    boolean allowHiddenTableAccess,
                                    TimestampCache timestampCache) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             timestampCache,
+             ImmutableTableCache.disabled());
+    }
+
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   TimestampCache timestampCache,
+                                   ImmutableTableCache immutableTableCache) {
         super(keyValueService,
               lockService,
               timestampService,
@@ -127,7 +193,8 @@ public class SerializableTransaction extends SnapshotTransaction {
               transactionTimeoutMillis,
               readSentinelBehavior,
               allowHiddenTableAccess,
-              timestampCache);
+              timestampCache,
+              immutableTableCache);
     }
 
     @Override
@@ -232,6 +299,15 @@ public class SerializableTransaction extends SnapshotTransaction {
         return reads;
     }
 
+    private ConcurrentNavigableMap<Cell, Long> getVersionsReadForTable(TableReference table) {
+        ConcurrentNavigableMap<Cell, Long> versions = versionsReadByTable.get(table);
+        if (versions == null) {
+            versionsReadByTable.putIfAbsent(table, new ConcurrentSkipListMap<>());
+            versions = versionsReadByTable.get(table);
+        }
+        return versions;
+    }
+
     private void setRangeEnd(TableReference table, RangeRequest range, byte[] maxRow) {
         Validate.notNull(maxRow, "maxRow cannot be null");
         ConcurrentMap<RangeRequest, byte[]> rangeEnds = rangeEndByTable.get(table);
@@ -315,6 +391,15 @@ public class SerializableTransaction extends SnapshotTransaction {
         return conflictDetectionManager.get(table) == ConflictHandler.SERIALIZABLE;
     }
 
+    @Override
+    protected boolean shouldTrackReadVersions(TableReference tableRef) {
+        return isSerializableTable(tableRef);
+    }
+
+    @Override
+    protected void markVersionRead(TableReference tableRef, Cell cell, long versionTimestamp) {
+        getVersionsReadForTable(tableRef).put(cell, versionTimestamp);
+    }
 
     /**
      * This exists to transform the incoming byte[] to cloned one to ensure that all the byte array
@@ -423,28 +508,88 @@ public class SerializableTransaction extends SnapshotTransaction {
     @Override
     protected void throwIfReadWriteConflictForSerializable(long commitTimestamp) {
         Transaction ro = getReadOnlyTransaction(commitTimestamp);
-        verifyRanges(ro);
-        verifyColumnRanges(ro);
-        verifyCells(ro);
-        verifyRows(ro);
-    }
-
-    private void verifyRows(Transaction ro) {
-        for (Map.Entry<TableReference, Set<RowRead>> tableAndRowsEntry : rowsRead.entrySet()) {
-            TableReference table = tableAndRowsEntry.getKey();
-            Set<RowRead> rows = tableAndRowsEntry.getValue();
-
-            ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
-            Multimap<ColumnSelection, byte[]> rowsReadByColumns = Multimaps.newSortedSetMultimap(
-                    Maps.newHashMap(),
-                    () -> Sets.newTreeSet(UnsignedBytes.lexicographicalComparator()));
-            for (RowRead r : rows) {
-                rowsReadByColumns.putAll(r.cols, r.rows);
+        Set<TableReference> tables = ImmutableSet.<TableReference>builder()
+                .addAll(rangeEndByTable.keySet())
+                .addAll(columnRangeEndsByTable.keySet())
+                .addAll(cellsRead.keySet())
+                .addAll(rowsRead.keySet())
+                .build();
+        if (tables.size() <= 1) {
+            for (TableReference table : tables) {
+                verifyTable(ro, table, commitTimestamp);
+            }
+            return;
+        }
+
+        // Reads from different tables are independent, so their round trips to the key value service can overlap.
+        List<Future<?>> futures = Lists.newArrayListWithCapacity(tables.size());
+        for (TableReference table : tables) {
+            futures.add(readValidationExecutor.submit(() -> verifyTable(ro, table, commitTimestamp)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(false);
             }
-            for (ColumnSelection cols : rowsReadByColumns.keySet()) {
+        }
+    }
+
+    private void verifyTable(Transaction ro, TableReference table, long commitTimestamp) {
+        verifyRanges(ro, table, commitTimestamp);
+        verifyColumnRanges(ro, table);
+        verifyCells(ro, table, commitTimestamp);
+        verifyRows(ro, table, commitTimestamp);
+    }
+
+    private void verifyRows(Transaction ro, TableReference table, long commitTimestamp) {
+        Set<RowRead> rows = rowsRead.get(table);
+        if (rows == null) {
+            return;
+        }
+
+        ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
+        Multimap<ColumnSelection, byte[]> rowsReadByColumns = Multimaps.newSortedSetMultimap(
+                Maps.newHashMap(),
+                () -> Sets.newTreeSet(UnsignedBytes.lexicographicalComparator()));
+        for (RowRead r : rows) {
+            rowsReadByColumns.putAll(r.cols, r.rows);
+        }
+        for (ColumnSelection cols : rowsReadByColumns.keySet()) {
+            if (cols.allColumnsSelected()) {
+                // We can't tell which cells of the row we would have to check, so compare the whole rows.
                 verifyColumns(ro, table, readsForTable, rowsReadByColumns, cols);
+            } else {
+                verifySelectedColumns(ro, table, rowsReadByColumns.get(cols), cols.getSelectedColumns(),
+                        commitTimestamp);
             }
+        }
+    }
 
+    private void verifySelectedColumns(
+            Transaction ro,
+            TableReference table,
+            Collection<byte[]> rows,
+            Collection<byte[]> columns,
+            long commitTimestamp) {
+        if (columns.isEmpty()) {
+            return;
+        }
+        int rowsPerBatch = Math.max(1, BATCH_SIZE / columns.size());
+        for (List<byte[]> batch : Iterables.partition(rows, rowsPerBatch)) {
+            Set<Cell> cells = Sets.newHashSetWithExpectedSize(batch.size() * columns.size());
+            for (byte[] row : batch) {
+                for (byte[] column : columns) {
+                    cells.add(Cell.create(row, column));
+                }
+            }
+            verifyCellBatch(ro, table, cells, commitTimestamp);
         }
     }
 
@@ -521,63 +666,125 @@ public class SerializableTransaction extends SnapshotTransaction {
         return true;
     }
 
-    private void verifyCells(Transaction readOnlyTransaction) {
-        for (Entry<TableReference, Set<Cell>> tableAndCellsEntry : cellsRead.entrySet()) {
-            TableReference table = tableAndCellsEntry.getKey();
-            Set<Cell> cells = tableAndCellsEntry.getValue();
-
-            final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
-            for (Iterable<Cell> batch : Iterables.partition(cells, BATCH_SIZE)) {
-                // We don't want to verify any reads that we wrote to cause we will just read our own values.
-                // NB: If the value has changed between read and write, our normal SI checking handles this case
-                Iterable<Cell> batchWithoutWrites = writesByTable.get(table) != null
-                        ? Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())))
-                        : batch;
-                ImmutableSet<Cell> batchWithoutWritesSet = ImmutableSet.copyOf(batchWithoutWrites);
-                Map<Cell, byte[]> currentBatch = readOnlyTransaction.get(table, batchWithoutWritesSet);
-                ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(
-                        Sets.intersection(batchWithoutWritesSet, readsForTable.keySet()),
-                        Functions.forMap(readsForTable));
-                if (!areMapsEqual(currentBatch, originalReads)) {
-                    throw TransactionSerializableConflictException.create(
-                            table,
-                            getTimestamp(),
-                            System.currentTimeMillis() - timeCreated);
-                }
-            }
+    private void verifyCells(Transaction readOnlyTransaction, TableReference table, long commitTimestamp) {
+        Set<Cell> cells = cellsRead.get(table);
+        if (cells == null) {
+            return;
+        }
+        for (Iterable<Cell> batch : Iterables.partition(cells, BATCH_SIZE)) {
+            verifyCellBatch(readOnlyTransaction, table, batch, commitTimestamp);
+        }
+    }
+
+    private void verifyCellBatch(
+            Transaction readOnlyTransaction,
+            TableReference table,
+            Iterable<Cell> batch,
+            long commitTimestamp) {
+        // We don't want to verify any reads that we wrote to cause we will just read our own values.
+        // NB: If the value has changed between read and write, our normal SI checking handles this case
+        Iterable<Cell> batchWithoutWrites = writesByTable.get(table) != null
+                ? Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())))
+                : batch;
+        Set<Cell> changedCells = getCellsWithChangedVersions(table, ImmutableSet.copyOf(batchWithoutWrites),
+                commitTimestamp);
+        if (changedCells.isEmpty()) {
+            return;
+        }
+
+        final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
+        Map<Cell, byte[]> currentBatch = readOnlyTransaction.get(table, changedCells);
+        ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(
+                Sets.intersection(changedCells, readsForTable.keySet()),
+                Functions.forMap(readsForTable));
+        if (!areMapsEqual(currentBatch, originalReads)) {
+            throw TransactionSerializableConflictException.create(
+                    table,
+                    getTimestamp(),
+                    System.currentTimeMillis() - timeCreated);
         }
     }
 
-    private void verifyRanges(Transaction readOnlyTransaction) {
+    /**
+     * Returns the cells whose latest version before our commitTs is not the version we read.  All other cells
+     * are guaranteed to read the same value at our commitTs.
+     */
+    private Set<Cell> getCellsWithChangedVersions(TableReference table, Set<Cell> cells, long commitTimestamp) {
+        if (cells.isEmpty()) {
+            return cells;
+        }
+        NavigableMap<Cell, Long> versionsRead = getVersionsReadForTable(table);
+        Map<Cell, Long> latestVersions = keyValueService.getLatestTimestamps(
+                table,
+                Cells.constantValueMap(cells, commitTimestamp + 1));
+        return ImmutableSet.copyOf(Sets.filter(
+                cells,
+                cell -> !Objects.equals(latestVersions.get(cell), versionsRead.get(cell))));
+    }
+
+    private void verifyRanges(Transaction readOnlyTransaction, TableReference table, long commitTimestamp) {
+        Map<RangeRequest, byte[]> rangeEnds = rangeEndByTable.get(table);
+        if (rangeEnds == null) {
+            return;
+        }
+
         // verify each set of reads to ensure they are the same.
-        for (Entry<TableReference, ConcurrentMap<RangeRequest, byte[]>> tableAndRange : rangeEndByTable.entrySet()) {
-            TableReference table = tableAndRange.getKey();
-            Map<RangeRequest, byte[]> rangeEnds = tableAndRange.getValue();
-
-            for (Entry<RangeRequest, byte[]> rangeAndRangeEndEntry : rangeEnds.entrySet()) {
-                RangeRequest range = rangeAndRangeEndEntry.getKey();
-                byte[] rangeEnd = rangeAndRangeEndEntry.getValue();
-
-                if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(range.isReverse(), rangeEnd)) {
-                    range = range.getBuilder()
-                            .endRowExclusive(RangeRequests.getNextStartRow(range.isReverse(), rangeEnd))
-                            .build();
-                }
+        for (Entry<RangeRequest, byte[]> rangeAndRangeEndEntry : rangeEnds.entrySet()) {
+            RangeRequest range = rangeAndRangeEndEntry.getKey();
+            byte[] rangeEnd = rangeAndRangeEndEntry.getValue();
+
+            if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(range.isReverse(), rangeEnd)) {
+                range = range.getBuilder()
+                        .endRowExclusive(RangeRequests.getNextStartRow(range.isReverse(), rangeEnd))
+                        .build();
+            }
 
-                ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
-                BatchingVisitableView<RowResult<byte[]>> bv = BatchingVisitableView.of(
-                        readOnlyTransaction.getRange(table, range));
-                NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
-                        getReadsInRange(table, range),
-                        ByteBuffer::wrap);
-                if (!bv.transformBatch(input -> filterWritesFromRows(input, writes)).isEqual(readsInRange.entrySet())) {
-                    throw TransactionSerializableConflictException.create(
-                            table,
-                            getTimestamp(),
-                            System.currentTimeMillis() - timeCreated);
+            if (!range.isReverse() && areRangeVersionsUnchanged(table, range, commitTimestamp)) {
+                continue;
+            }
+
+            ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
+            BatchingVisitableView<RowResult<byte[]>> bv = BatchingVisitableView.of(
+                    readOnlyTransaction.getRange(table, range));
+            NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
+                    getReadsInRange(table, range),
+                    ByteBuffer::wrap);
+            if (!bv.transformBatch(input -> filterWritesFromRows(input, writes)).isEqual(readsInRange.entrySet())) {
+                throw TransactionSerializableConflictException.create(
+                        table,
+                        getTimestamp(),
+                        System.currentTimeMillis() - timeCreated);
+            }
+        }
+    }
+
+    /**
+     * Scans only the timestamps of the range.  If every cell still has the version we read and no cells have
+     * appeared, the range reads the same at our commitTs.  Otherwise the caller falls back to comparing values.
+     */
+    private boolean areRangeVersionsUnchanged(TableReference table, RangeRequest range, long commitTimestamp) {
+        Map<Cell, Long> versionsRead = ImmutableMap.copyOf(getInRange(getVersionsReadForTable(table), table, range));
+        Map<Cell, byte[]> writes = writesByTable.get(table);
+        Set<byte[]> columns = range.getColumnNames();
+        Map<Cell, Long> latestVersions = Maps.newHashMapWithExpectedSize(versionsRead.size());
+        try (ClosableIterator<RowResult<Set<Long>>> timestamps =
+                     keyValueService.getRangeOfTimestamps(table, range, commitTimestamp + 1)) {
+            while (timestamps.hasNext()) {
+                for (Entry<Cell, Set<Long>> cellAndTimestamps : timestamps.next().getCells()) {
+                    Cell cell = cellAndTimestamps.getKey();
+                    if (cellAndTimestamps.getValue().isEmpty()
+                            || (writes != null && writes.containsKey(cell))
+                            || (!columns.isEmpty() && !columns.contains(cell.getColumnName()))) {
+                        continue;
+                    }
+                    latestVersions.put(cell, Collections.max(cellAndTimestamps.getValue()));
+                    if (latestVersions.size() > versionsRead.size()) {
+                        return false;
+                    }
                 }
             }
         }
+        return latestVersions.equals(versionsRead);
     }
 
     private NavigableMap<Cell, byte[]> getReadsInColumnRange(TableReference table,
@@ -605,56 +812,56 @@ public class SerializableTransaction extends SnapshotTransaction {
         return reads;
     }
 
-    private void verifyColumnRanges(Transaction readOnlyTransaction) {
+    private void verifyColumnRanges(Transaction readOnlyTransaction, TableReference table) {
+        Map<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> columnRangeEnds =
+                columnRangeEndsByTable.get(table);
+        if (columnRangeEnds == null) {
+            return;
+        }
+
         // verify each set of reads to ensure they are the same.
-        for (Entry<TableReference,
-                ConcurrentMap<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>>> tableAndRange :
-                columnRangeEndsByTable.entrySet()) {
-            TableReference table = tableAndRange.getKey();
-            Map<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> columnRangeEnds = tableAndRange.getValue();
-
-            Map<Cell, byte[]> writes = writesByTable.get(table);
-            Map<BatchColumnRangeSelection, List<byte[]>> rangesToRows = Maps.newHashMap();
-            for (Entry<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> rowAndRangeEnds :
-                    columnRangeEnds.entrySet()) {
-                byte[] row = rowAndRangeEnds.getKey();
-                Map<BatchColumnRangeSelection, byte[]> rangeEnds = columnRangeEnds.get(row);
-
-                for (Entry<BatchColumnRangeSelection, byte[]> e : rangeEnds.entrySet()) {
-                    BatchColumnRangeSelection range = e.getKey();
-                    byte[] rangeEnd = e.getValue();
-                    if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(false, rangeEnd)) {
-                        range = BatchColumnRangeSelection.create(
-                                range.getStartCol(),
-                                RangeRequests.getNextStartRow(false, rangeEnd),
-                                range.getBatchHint());
-                    }
-                    if (rangesToRows.get(range) != null) {
-                        rangesToRows.get(range).add(row);
-                    } else {
-                        rangesToRows.put(range, ImmutableList.of(row));
-                    }
+
+        Map<Cell, byte[]> writes = writesByTable.get(table);
+        Map<BatchColumnRangeSelection, List<byte[]>> rangesToRows = Maps.newHashMap();
+        for (Entry<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> rowAndRangeEnds :
+                columnRangeEnds.entrySet()) {
+            byte[] row = rowAndRangeEnds.getKey();
+            Map<BatchColumnRangeSelection, byte[]> rangeEnds = columnRangeEnds.get(row);
+
+            for (Entry<BatchColumnRangeSelection, byte[]> e : rangeEnds.entrySet()) {
+                BatchColumnRangeSelection range = e.getKey();
+                byte[] rangeEnd = e.getValue();
+                if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(false, rangeEnd)) {
+                    range = BatchColumnRangeSelection.create(
+                            range.getStartCol(),
+                            RangeRequests.getNextStartRow(false, rangeEnd),
+                            range.getBatchHint());
+                }
+                if (rangesToRows.get(range) != null) {
+                    rangesToRows.get(range).add(row);
+                } else {
+                    rangesToRows.put(range, ImmutableList.of(row));
                 }
             }
-            for (Entry<BatchColumnRangeSelection, List<byte[]>> e : rangesToRows.entrySet()) {
-                BatchColumnRangeSelection range = e.getKey();
-                List<byte[]> rows = e.getValue();
-                Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> result =
-                        readOnlyTransaction.getRowsColumnRange(table, rows, range);
-                for (Entry<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> res : result.entrySet()) {
-                    byte[] row = res.getKey();
-                    BatchingVisitableView<Entry<Cell, byte[]>> bv = BatchingVisitableView.of(res.getValue());
-                    NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
-                            getReadsInColumnRange(table, row, range),
-                            input -> ByteBuffer.wrap(input));
-                    boolean isEqual = bv.transformBatch(input -> filterWritesFromCells(input, writes))
-                            .isEqual(readsInRange.entrySet());
-                    if (!isEqual) {
-                        throw TransactionSerializableConflictException.create(
-                                table,
-                                getTimestamp(),
-                                System.currentTimeMillis() - timeCreated);
-                    }
+        }
+        for (Entry<BatchColumnRangeSelection, List<byte[]>> e : rangesToRows.entrySet()) {
+            BatchColumnRangeSelection range = e.getKey();
+            List<byte[]> rows = e.getValue();
+            Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> result =
+                    readOnlyTransaction.getRowsColumnRange(table, rows, range);
+            for (Entry<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> res : result.entrySet()) {
+                byte[] row = res.getKey();
+                BatchingVisitableView<Entry<Cell, byte[]>> bv = BatchingVisitableView.of(res.getValue());
+                NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
+                        getReadsInColumnRange(table, row, range),
+                        input -> ByteBuffer.wrap(input));
+                boolean isEqual = bv.transformBatch(input -> filterWritesFromCells(input, writes))
+                        .isEqual(readsInRange.entrySet());
+                if (!isEqual) {
+                    throw TransactionSerializableConflictException.create(
+                            table,
+                            getTimestamp(),
+                            System.currentTimeMillis() - timeCreated);
                 }
             }
         }
@@ -686,7 +893,12 @@ public class SerializableTransaction extends SnapshotTransaction {
 
     private NavigableMap<Cell, byte[]> getReadsInRange(TableReference table,
                                                        RangeRequest range) {
-        NavigableMap<Cell, byte[]> reads = getReadsForTable(table);
+        return getInRange(getReadsForTable(table), table, range);
+    }
+
+    private <T> NavigableMap<Cell, T> getInRange(NavigableMap<Cell, T> reads,
+                                                 TableReference table,
+                                                 RangeRequest range) {
         if (range.getStartInclusive().length != 0) {
             reads = reads.tailMap(Cells.createSmallestCellForRow(range.getStartInclusive()), true);
         }
@@ -71,6 +71,7 @@ import com.google.common.collect.Sets;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbPerformanceConstants;
+import com.palantir.atlasdb.cache.ImmutableTableCache;
 import com.palantir.atlasdb.cache.TimestampCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
@@ -151,6 +152,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private static final Logger constraintLogger = LoggerFactory.getLogger("dualschema.constraints");
 
     private static final int BATCH_SIZE_GET_FIRST_PAGE = 1000;
+    private static final long NOT_CACHED = Long.MIN_VALUE;
 
     private enum State {
         UNCOMMITTED,
@@ -193,6 +195,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     protected final boolean allowHiddenTableAccess;
     protected final Stopwatch transactionTimer = Stopwatch.createStarted();
     protected final TimestampCache timestampValidationReadCache;
+    protected final ImmutableTableCache immutableTableCache;
+    private final long immutableTableCacheGeneration;
 
     private final MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
     private final Timer.Context transactionTimerContext = getTimer("transactionMillis").time();
@@ -218,6 +222,31 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                TransactionReadSentinelBehavior readSentinelBehavior,
                                boolean allowHiddenTableAccess,
                                TimestampCache timestampValidationReadCache) {
+        this(keyValueService, lockService, timestampService, transactionService, cleaner, startTimeStamp,
+                conflictDetectionManager, sweepStrategyManager, immutableTimestamp, tokensValidForCommit,
+                constraintCheckingMode, transactionTimeoutMillis, readSentinelBehavior, allowHiddenTableAccess,
+                timestampValidationReadCache, ImmutableTableCache.disabled());
+    }
+
+    /**
+     * @param immutableTableCache committed values of write-once tables, shared with other transactions.
+     */
+    /* package */ SnapshotTransaction(KeyValueService keyValueService,
+                               RemoteLockService lockService,
+                               TimestampService timestampService,
+                               TransactionService transactionService,
+                               Cleaner cleaner,
+                               Supplier<Long> startTimeStamp,
+                               ConflictDetectionManager conflictDetectionManager,
+                               SweepStrategyManager sweepStrategyManager,
+                               long immutableTimestamp,
+                               Iterable<LockRefreshToken> tokensValidForCommit,
+                               AtlasDbConstraintCheckingMode constraintCheckingMode,
+                               Long transactionTimeoutMillis,
+                               TransactionReadSentinelBehavior readSentinelBehavior,
+                               boolean allowHiddenTableAccess,
+                               TimestampCache timestampValidationReadCache,
+                               ImmutableTableCache immutableTableCache) {
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
         this.defaultTransactionService = transactionService;
@@ -233,6 +262,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
         this.timestampValidationReadCache = timestampValidationReadCache;
+        this.immutableTableCache = immutableTableCache;
+        this.immutableTableCacheGeneration = immutableTableCache.getGeneration();
     }
 
     // TEST ONLY
@@ -261,6 +292,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = false;
         this.timestampValidationReadCache = timestampValidationReadCache;
+        this.immutableTableCache = ImmutableTableCache.disabled();
+        this.immutableTableCacheGeneration = immutableTableCache.getGeneration();
     }
 
     /**
@@ -301,6 +334,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
         this.timestampValidationReadCache = timestampValidationReadCache;
+        this.immutableTableCache = ImmutableTableCache.disabled();
+        this.immutableTableCacheGeneration = immutableTableCache.getGeneration();
     }
 
     @Override
@@ -607,7 +642,15 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      */
     private Map<Cell, byte[]> getFromKeyValueService(TableReference tableRef, Set<Cell> cells) {
         Map<Cell, byte[]> result = Maps.newHashMap();
-        Map<Cell, Long> toRead = Cells.constantValueMap(cells, getStartTimestamp());
+        Set<Cell> toLoad = cells;
+        if (immutableTableCache.isCached(tableRef)) {
+            result.putAll(immutableTableCache.getVisible(tableRef, cells, getStartTimestamp()));
+            if (result.size() == cells.size()) {
+                return result;
+            }
+            toLoad = Sets.difference(cells, result.keySet());
+        }
+        Map<Cell, Long> toRead = Cells.constantValueMap(toLoad, getStartTimestamp());
         Map<Cell, Value> rawResults = keyValueService.get(tableRef, toRead);
         getWithPostFiltering(tableRef, rawResults, result, Value.GET_VALUE);
         return result;
@@ -978,6 +1021,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Map<Long, Long> commitTimestamps = getCommitTimestamps(tableRef, startTimestampsForValues, true);
         Map<Cell, Long> keysToReload = Maps.newHashMapWithExpectedSize(0);
         Map<Cell, Long> keysToDelete = Maps.newHashMapWithExpectedSize(0);
+        boolean cacheVisibleValues = immutableTableCache.isCached(tableRef);
+        boolean trackReadVersions = shouldTrackReadVersions(tableRef);
         for (Map.Entry<Cell, Value> e :  rawResults.entrySet()) {
             Cell key = e.getKey();
             Value value = e.getValue();
@@ -1013,8 +1058,15 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                     keysToReload.put(key, value.getTimestamp());
                 } else {
                     // The value has a commit timestamp less than our start timestamp, and is visible and valid.
+                    if (trackReadVersions) {
+                        markVersionRead(tableRef, key, value.getTimestamp());
+                    }
                     if (value.getContents().length != 0) {
                         results.put(key, transformer.apply(value));
+                        if (cacheVisibleValues) {
+                            immutableTableCache.put(tableRef, key, value.getContents(), theirCommitTimestamp,
+                                    immutableTableCacheGeneration);
+                        }
                     }
                 }
             }
@@ -1036,6 +1088,22 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
     }
 
+    /**
+     * Returns true if {@link #markVersionRead} should be called for the values of this table that are
+     * visible to this transaction.
+     */
+    protected boolean shouldTrackReadVersions(TableReference tableRef) {
+        return false;
+    }
+
+    /**
+     * Called with the start timestamp of every version visible to this transaction, including deletes.
+     * This is for overriding to get serializable transactions.
+     */
+    protected void markVersionRead(TableReference tableRef, Cell cell, long versionTimestamp) {
+        // Versions are only tracked by subclasses
+    }
+
     /**
      * This is protected to allow for different post filter behavior.
      */
@@ -1443,8 +1511,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             if (!Transactions.cellValuesEqual(oldVal, writeVal)
                     || !Arrays.equals(writeVal, conflictingVal)) {
                 conflictingCells.add(cell);
-            } else if (log.isInfoEnabled()) {
-                log.info("Another transaction committed to the same cell before us but their value was the same."
+            } else if (log.isDebugEnabled()) {
+                // Expected on every commit of cells that concurrent writers rewrite unchanged, such as the stream
+                // metadata touched while storing blocks in parallel, so too frequent to log at info.
+                log.debug("Another transaction committed to the same cell before us but their value was the same."
                         + " Cell: {}"
                         + " Table: {}",
                         cell, table);
@@ -1694,8 +1764,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Map<Long, Long> result = Maps.newHashMap();
         Set<Long> gets = Sets.newHashSet();
         for (long startTs : startTimestamps) {
-            Long cached = timestampValidationReadCache.getCommitTimestampIfPresent(startTs);
-            if (cached != null) {
+            long cached = timestampValidationReadCache.getCommitTimestampOrDefault(startTs, NOT_CACHED);
+            if (cached != NOT_CACHED) {
                 result.put(startTs, cached);
             } else {
                 gets.add(startTs);
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.transaction.impl;
 
 import java.util.Collections;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
@@ -27,6 +28,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
+import com.palantir.atlasdb.cache.ImmutableTableCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.keyvalue.api.ClusterAvailabilityStatus;
@@ -65,6 +67,8 @@ import com.palantir.timestamp.TimestampService;
     final AtomicLong recentImmutableTs = new AtomicLong(-1L);
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
+    final Optional<BatchingTransactionStarter> transactionStarter;
+    final ImmutableTableCache immutableTableCache;
 
     protected SnapshotTransactionManager(
             KeyValueService keyValueService,
@@ -91,6 +95,41 @@ import com.palantir.timestamp.TimestampService;
             SweepStrategyManager sweepStrategyManager,
             Cleaner cleaner,
             boolean allowHiddenTableAccess) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner,
+                allowHiddenTableAccess, Optional.empty());
+    }
+
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            LockClient lockClient,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            Optional<BatchingTransactionStarter> transactionStarter) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner,
+                allowHiddenTableAccess, transactionStarter, ImmutableTableCache.disabled());
+    }
+
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            LockClient lockClient,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            Optional<BatchingTransactionStarter> transactionStarter,
+            ImmutableTableCache immutableTableCache) {
         Preconditions.checkArgument(lockClient != LockClient.ANONYMOUS);
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
@@ -102,6 +141,8 @@ import com.palantir.timestamp.TimestampService;
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.transactionStarter = transactionStarter;
+        this.immutableTableCache = immutableTableCache;
     }
 
     @Override
@@ -128,6 +169,9 @@ import com.palantir.timestamp.TimestampService;
     }
 
     public RawTransaction setupRunTaskWithLocksThrowOnConflict(Iterable<LockRefreshToken> lockTokens) {
+        if (transactionStarter.isPresent()) {
+            return setupBatchedRunTaskWithLocksThrowOnConflict(transactionStarter.get(), lockTokens);
+        }
         long immutableLockTs = timestampService.getFreshTimestamp();
         Supplier<Long> startTimestampSupplier = getStartTimestampSupplier();
         LockDescriptor lockDesc = AtlasTimestampLockDescriptor.of(immutableLockTs);
@@ -144,7 +188,10 @@ import com.palantir.timestamp.TimestampService;
                     .add(lock)
                     .addAll(lockTokens)
                     .build();
-            SnapshotTransaction transaction = createTransaction(immutableLockTs, startTimestampSupplier, allTokens);
+            SnapshotTransaction transaction = createTransaction(
+                    getImmutableTimestampInternal(immutableLockTs),
+                    startTimestampSupplier,
+                    allTokens);
             return new RawTransaction(transaction, lock);
         } catch (Throwable e) {
             if (lock != null) {
@@ -154,6 +201,34 @@ import com.palantir.timestamp.TimestampService;
         }
     }
 
+    /**
+     * Equivalent to the unbatched path, except that the immutable timestamp lock, the immutable timestamp and the
+     * start timestamp are obtained together (and together with those of concurrently starting transactions).
+     */
+    private RawTransaction setupBatchedRunTaskWithLocksThrowOnConflict(
+            BatchingTransactionStarter starter,
+            Iterable<LockRefreshToken> lockTokens) {
+        BatchingTransactionStarter.StartedTransaction started = starter.startTransaction();
+        LockRefreshToken lock = started.getImmutableTimestampLock();
+        try {
+            updateRecentImmutableTs(started.getImmutableTimestamp());
+            long startTimestamp = started.getStartTimestamp();
+            cleaner.punch(startTimestamp);
+            ImmutableList<LockRefreshToken> allTokens = ImmutableList.<LockRefreshToken>builder()
+                    .add(lock)
+                    .addAll(lockTokens)
+                    .build();
+            SnapshotTransaction transaction = createTransaction(
+                    started.getImmutableTimestamp(),
+                    Suppliers.ofInstance(startTimestamp),
+                    allTokens);
+            return new RawTransaction(transaction, lock);
+        } catch (Throwable e) {
+            lockService.unlock(lock);
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
     public <T, E extends Exception> T finishRunTaskWithLockThrowOnConflict(RawTransaction tx,
                                                                            TransactionTask<T, E> task)
             throws E, TransactionFailedRetriableException {
@@ -174,7 +249,7 @@ import com.palantir.timestamp.TimestampService;
     }
 
     protected SnapshotTransaction createTransaction(
-            long immutableLockTs,
+            long immutableTimestamp,
             Supplier<Long> startTimestampSupplier,
             ImmutableList<LockRefreshToken> allTokens) {
         return new SnapshotTransaction(
@@ -186,13 +261,14 @@ import com.palantir.timestamp.TimestampService;
                 startTimestampSupplier,
                 conflictDetectionManager,
                 sweepStrategyManager,
-                getImmutableTimestampInternal(immutableLockTs),
+                immutableTimestamp,
                 allTokens,
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
                 allowHiddenTableAccess,
-                timestampValidationReadCache);
+                timestampValidationReadCache,
+                immutableTableCache);
     }
 
     @Override
@@ -214,13 +290,15 @@ import com.palantir.timestamp.TimestampService;
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
                 allowHiddenTableAccess,
-                timestampValidationReadCache);
+                timestampValidationReadCache,
+                immutableTableCache);
         return runTaskThrowOnConflict(task, new ReadTransaction(transaction, sweepStrategyManager));
     }
 
     @Override
     public void close() {
         super.close();
+        transactionStarter.ifPresent(BatchingTransactionStarter::close);
         cleaner.close();
         keyValueService.close();
     }
@@ -264,15 +342,19 @@ import com.palantir.timestamp.TimestampService;
     protected long getImmutableTimestampInternal(long ts) {
         Long minLocked = lockService.getMinLockedInVersionId(lockClient.getClientId());
         long ret = minLocked == null ? ts : minLocked;
+        updateRecentImmutableTs(ret);
+        return ret;
+    }
+
+    private void updateRecentImmutableTs(long immutableTs) {
         long recentTs = recentImmutableTs.get();
-        while (recentTs < ret) {
-            if (recentImmutableTs.compareAndSet(recentTs, ret)) {
+        while (recentTs < immutableTs) {
+            if (recentImmutableTs.compareAndSet(recentTs, immutableTs)) {
                 break;
             } else {
                 recentTs = recentImmutableTs.get();
             }
         }
-        return ret;
     }
 
     @Override
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.exception.PalantirRuntimeException;
+
+/**
+ * A {@link TransactionService} which coalesces concurrent {@link #putUnlessExists(long, long)} calls (commits as
+ * well as rollbacks) into a single multi-cell putUnlessExists against the transactions table.
+ * <p>
+ * There is no background thread: a caller which finds no batch in flight writes everything queued so far, while
+ * the other callers block until that batch ends and usually find their own write already done. Each caller still
+ * gets the semantics of a single-cell putUnlessExists; since a multi-cell putUnlessExists is not atomic across
+ * cells, a batch that fails with {@link KeyAlreadyExistsException} is resolved cell by cell by reading back what
+ * was stored.
+ * Reads are delegated unchanged.
+ */
+public final class GroupCommitTransactionService implements TransactionService {
+    // All entries in transaction table are stored with timestamp 0
+    private static final long MAX_TIMESTAMP = 1L;
+
+    private final TransactionService delegate;
+    private final KeyValueService keyValueService;
+    private final int maxBatchSize;
+    private final Queue<PendingPut> pendingPuts = new ConcurrentLinkedQueue<>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition batchWritten = lock.newCondition();
+    private boolean batchInFlight = false; // guarded by lock
+    private final Histogram batchSizes;
+
+    public GroupCommitTransactionService(KeyValueService keyValueService, int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive, but was %s", maxBatchSize);
+        this.delegate = new SimpleTransactionService(keyValueService);
+        this.keyValueService = keyValueService;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = AtlasDbMetrics.getMetricRegistry().histogram(
+                MetricRegistry.name(GroupCommitTransactionService.class, "batchSize"));
+    }
+
+    @Override
+    public Long get(long startTimestamp) {
+        return delegate.get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        return delegate.get(startTimestamps);
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        PendingPut put = new PendingPut(startTimestamp, commitTimestamp);
+        pendingPuts.add(put);
+        lock.lock();
+        try {
+            while (!put.isDone()) {
+                if (batchInFlight) {
+                    // Not interruptible: once queued, the put may be written at any time, so giving up early would
+                    // leave the caller unsure whether it committed.
+                    batchWritten.awaitUninterruptibly();
+                } else {
+                    writeBatchWithoutLock();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        put.throwIfFailed();
+    }
+
+    /**
+     * Must be called holding the lock. The lock is released while writing so that callers can queue up for the next
+     * batch, and all waiters are woken once the batch ends, however it ends.
+     */
+    private void writeBatchWithoutLock() {
+        batchInFlight = true;
+        lock.unlock();
+        try {
+            writeBatch();
+        } finally {
+            lock.lock();
+            batchInFlight = false;
+            batchWritten.signalAll();
+        }
+    }
+
+    /**
+     * Callers writing many values at once have already batched them, so these are written directly.
+     */
+    @Override
+    public void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) throws KeyAlreadyExistsException {
+        delegate.putUnlessExists(startTimestampToCommitTimestamp);
+    }
+
+    private void writeBatch() {
+        Map<Cell, PendingPut> batch = Maps.newHashMap();
+        List<PendingPut> duplicates = new ArrayList<>();
+        PendingPut next;
+        while (batch.size() < maxBatchSize && (next = pendingPuts.poll()) != null) {
+            if (batch.putIfAbsent(getTransactionCell(next.startTimestamp), next) != null) {
+                duplicates.add(next);
+            }
+        }
+        try {
+            writeBatch(batch, duplicates);
+        } catch (Throwable t) {
+            // Errors are not caught further down; make sure nobody is left waiting on a put that was drained.
+            RuntimeException failure = new PalantirRuntimeException("Failed to write a batch of commits", t);
+            batch.values().forEach(put -> put.failIfNotDone(failure));
+            duplicates.forEach(put -> put.failIfNotDone(failure));
+            throw t;
+        }
+    }
+
+    private void writeBatch(Map<Cell, PendingPut> batch, List<PendingPut> duplicates) {
+        batchSizes.update(batch.size());
+
+        Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(batch.size());
+        batch.forEach((cell, put) -> values.put(cell, TransactionConstants.getValueForTimestamp(put.commitTimestamp)));
+        try {
+            keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE, values);
+            batch.values().forEach(PendingPut::succeed);
+        } catch (KeyAlreadyExistsException e) {
+            resolveIndividually(batch);
+        } catch (RuntimeException e) {
+            batch.values().forEach(put -> put.fail(e));
+        }
+        resolveDuplicates(batch, duplicates);
+    }
+
+    /**
+     * Only the first put for each start timestamp is written; the others end the same way as a single-cell
+     * putUnlessExists would have once it was written. They succeed if their own commit timestamp was stored and fail
+     * with {@link KeyAlreadyExistsException} if another one was. If nothing is known to have been stored, they fail
+     * the same way as the put that was written.
+     */
+    private void resolveDuplicates(Map<Cell, PendingPut> batch, List<PendingPut> duplicates) {
+        if (duplicates.isEmpty()) {
+            return;
+        }
+        Map<Cell, Long> cellsToRead = Maps.newHashMap();
+        for (PendingPut duplicate : duplicates) {
+            Cell cell = getTransactionCell(duplicate.startTimestamp);
+            PendingPut written = batch.get(cell);
+            if (written.failure == null) {
+                resolveAgainstStored(duplicate, cell, written.commitTimestamp);
+            } else {
+                cellsToRead.put(cell, MAX_TIMESTAMP);
+            }
+        }
+        if (cellsToRead.isEmpty()) {
+            return;
+        }
+        Map<Cell, Value> stored;
+        try {
+            stored = keyValueService.get(TransactionConstants.TRANSACTION_TABLE, cellsToRead);
+        } catch (RuntimeException e) {
+            stored = ImmutableMap.of();
+        }
+        for (PendingPut duplicate : duplicates) {
+            Cell cell = getTransactionCell(duplicate.startTimestamp);
+            if (!cellsToRead.containsKey(cell)) {
+                continue;
+            }
+            Value value = stored.get(cell);
+            if (value == null) {
+                duplicate.fail(batch.get(cell).failure);
+            } else {
+                resolveAgainstStored(duplicate, cell, TransactionConstants.getTimestampForValue(value.getContents()));
+            }
+        }
+    }
+
+    private static void resolveAgainstStored(PendingPut put, Cell cell, long storedCommitTimestamp) {
+        if (storedCommitTimestamp == put.commitTimestamp) {
+            put.succeed();
+        } else {
+            put.fail(new KeyAlreadyExistsException(
+                    "Start timestamp " + put.startTimestamp + " already has a commit timestamp",
+                    ImmutableList.of(cell)));
+        }
+    }
+
+    private void resolveIndividually(Map<Cell, PendingPut> batch) {
+        Map<Cell, Long> cellsToRead = Maps.transformValues(batch, unused -> MAX_TIMESTAMP);
+        Map<Cell, Value> stored;
+        try {
+            stored = keyValueService.get(TransactionConstants.TRANSACTION_TABLE, cellsToRead);
+        } catch (RuntimeException e) {
+            batch.values().forEach(put -> put.fail(e));
+            return;
+        }
+        for (Map.Entry<Cell, PendingPut> entry : batch.entrySet()) {
+            PendingPut put = entry.getValue();
+            Value value = stored.get(entry.getKey());
+            if (value == null) {
+                writeSingle(put);
+            } else {
+                long storedCommitTimestamp = TransactionConstants.getTimestampForValue(value.getContents());
+                resolveAgainstStored(put, entry.getKey(), storedCommitTimestamp);
+            }
+        }
+    }
+
+    private void writeSingle(PendingPut put) {
+        try {
+            delegate.putUnlessExists(put.startTimestamp, put.commitTimestamp);
+            put.succeed();
+        } catch (RuntimeException e) {
+            put.fail(e);
+        }
+    }
+
+    private static Cell getTransactionCell(long startTimestamp) {
+        return Cell.create(
+                TransactionConstants.getValueForTimestamp(startTimestamp),
+                TransactionConstants.COMMIT_TS_COLUMN);
+    }
+
+    private static final class PendingPut {
+        private final long startTimestamp;
+        private final long commitTimestamp;
+        private volatile boolean done = false;
+        private volatile RuntimeException failure = null;
+
+        private PendingPut(long startTimestamp, long commitTimestamp) {
+            this.startTimestamp = startTimestamp;
+            this.commitTimestamp = commitTimestamp;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        void succeed() {
+            done = true;
+        }
+
+        void fail(RuntimeException exception) {
+            failure = exception;
+            done = true;
+        }
+
+        void failIfNotDone(RuntimeException exception) {
+            if (!done) {
+                fail(exception);
+            }
+        }
+
+        void throwIfFailed() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
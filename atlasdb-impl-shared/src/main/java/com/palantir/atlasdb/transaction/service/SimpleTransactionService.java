@@ -20,6 +20,7 @@ import java.util.Map;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
@@ -82,6 +83,21 @@ public final class SimpleTransactionService implements TransactionService {
                 ImmutableMap.of(key, value));
     }
 
+    @Override
+    public void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) {
+        Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(startTimestampToCommitTimestamp.size());
+        for (Map.Entry<Long, Long> entry : startTimestampToCommitTimestamp.entrySet()) {
+            values.put(getTransactionCell(entry.getKey()), TransactionConstants.getValueForTimestamp(entry.getValue()));
+        }
+        try {
+            keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE, values);
+        } catch (KeyAlreadyExistsException e) {
+            // A multi-cell putUnlessExists is not atomic across cells, so we don't know which of the other
+            // cells were written. Retry them one by one; the ones that are already set will fail again.
+            TransactionService.super.putUnlessExists(startTimestampToCommitTimestamp);
+        }
+    }
+
     private Cell getTransactionCell(long startTimestamp) {
         return Cell.create(
                 TransactionConstants.getValueForTimestamp(startTimestamp),
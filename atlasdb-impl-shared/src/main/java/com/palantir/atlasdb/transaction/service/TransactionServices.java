@@ -26,4 +26,14 @@ public final class TransactionServices {
             KeyValueService keyValueService) {
         return new SimpleTransactionService(keyValueService);
     }
+
+    /**
+     * Creates a {@link TransactionService} which coalesces concurrent writes of commit timestamps into batches of
+     * at most {@code maxBatchSize} cells.
+     */
+    public static TransactionService createGroupCommitTransactionService(
+            KeyValueService keyValueService,
+            int maxBatchSize) {
+        return new GroupCommitTransactionService(keyValueService, maxBatchSize);
+    }
 }
@@ -16,15 +16,23 @@
 package com.palantir.atlasdb.sweep;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableMap;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 
@@ -88,4 +96,73 @@ public class CommitTsLoaderTest {
 
         loader.load(VALID_START_TIMESTAMP);
     }
+
+    @Test
+    public void createShouldResolveAllStartTimestampsInOneCall() {
+        when(mockTransactionService.get(anyIterableOfLongs())).thenReturn(ImmutableMap.of(1L, 2L, 3L, 4L));
+
+        CommitTsLoader warmLoader = CommitTsLoader.create(
+                mockTransactionService, new TLongHashSet(new long[] {1L, 3L}));
+
+        assertThat(warmLoader.load(1L)).isEqualTo(2L);
+        assertThat(warmLoader.load(3L)).isEqualTo(4L);
+        verify(mockTransactionService).get(anyIterableOfLongs());
+        verify(mockTransactionService, never()).get(anyLong());
+        verify(mockTransactionService, never()).putUnlessExists(anyMapOf(Long.class, Long.class));
+    }
+
+    @Test
+    public void createShouldRollBackAllMissingStartTimestampsInOneBatch() {
+        Map<Long, Long> stored = new HashMap<>();
+        stored.put(1L, 2L);
+        doAnswer(invocation -> copyOf(stored, (Iterable<Long>) invocation.getArguments()[0]))
+                .when(mockTransactionService).get(anyIterableOfLongs());
+        doAnswer(invocation -> {
+            stored.putAll((Map<Long, Long>) invocation.getArguments()[0]);
+            return null;
+        }).when(mockTransactionService).putUnlessExists(anyMapOf(Long.class, Long.class));
+
+        CommitTsLoader warmLoader = CommitTsLoader.create(
+                mockTransactionService, new TLongHashSet(new long[] {1L, 3L, 5L}));
+
+        assertThat(warmLoader.load(1L)).isEqualTo(2L);
+        assertThat(warmLoader.load(3L)).isEqualTo(ROLLBACK_TIMESTAMP);
+        assertThat(warmLoader.load(5L)).isEqualTo(ROLLBACK_TIMESTAMP);
+        verify(mockTransactionService).putUnlessExists(ImmutableMap.of(3L, ROLLBACK_TIMESTAMP, 5L, ROLLBACK_TIMESTAMP));
+        verify(mockTransactionService, times(2)).get(anyIterableOfLongs());
+    }
+
+    @Test
+    public void createShouldContinueIfSomeRollbacksFail() {
+        Map<Long, Long> stored = new HashMap<>();
+        doAnswer(invocation -> copyOf(stored, (Iterable<Long>) invocation.getArguments()[0]))
+                .when(mockTransactionService).get(anyIterableOfLongs());
+        doAnswer(invocation -> {
+            // a concurrent commit wins for 1, the rollback of 3 goes through
+            stored.put(1L, VALID_COMMIT_TIMESTAMP);
+            stored.put(3L, ROLLBACK_TIMESTAMP);
+            throw new KeyAlreadyExistsException("Already exists");
+        }).when(mockTransactionService).putUnlessExists(anyMapOf(Long.class, Long.class));
+
+        CommitTsLoader warmLoader = CommitTsLoader.create(
+                mockTransactionService, new TLongHashSet(new long[] {1L, 3L}));
+
+        assertThat(warmLoader.load(1L)).isEqualTo(VALID_COMMIT_TIMESTAMP);
+        assertThat(warmLoader.load(3L)).isEqualTo(ROLLBACK_TIMESTAMP);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Iterable<Long> anyIterableOfLongs() {
+        return any(Iterable.class);
+    }
+
+    private static Map<Long, Long> copyOf(Map<Long, Long> stored, Iterable<Long> startTimestamps) {
+        Map<Long, Long> result = new HashMap<>();
+        for (Long startTs : startTimestamps) {
+            if (stored.containsKey(startTs)) {
+                result.put(startTs, stored.get(startTs));
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class PrefetchingIteratorTest {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void returnsAllElementsInOrder() {
+        try (PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(
+                ImmutableList.of(1, 2, 3).iterator(), executor)) {
+            List<Integer> elements = Lists.newArrayList(iterator);
+            assertThat(elements).containsExactly(1, 2, 3);
+            assertThat(iterator.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void fetchesAtMostOneElementAhead() throws InterruptedException {
+        AtomicInteger fetched = new AtomicInteger();
+        CountDownLatch secondFetched = new CountDownLatch(1);
+        Iterator<Integer> delegate = new AbstractIterator<Integer>() {
+            @Override
+            protected Integer computeNext() {
+                int next = fetched.incrementAndGet();
+                if (next == 2) {
+                    secondFetched.countDown();
+                }
+                return next;
+            }
+        };
+        try (PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(delegate, executor)) {
+            assertThat(iterator.next()).isEqualTo(1);
+            assertThat(secondFetched.await(10, TimeUnit.SECONDS)).isTrue();
+            // give a misbehaving implementation a chance to fetch further ahead
+            Thread.sleep(50);
+            assertThat(fetched.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void propagatesExceptionsFromTheDelegate() {
+        Iterator<Integer> delegate = new AbstractIterator<Integer>() {
+            @Override
+            protected Integer computeNext() {
+                throw new IllegalStateException("scan failed");
+            }
+        };
+        try (PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(delegate, executor)) {
+            assertThatThrownBy(iterator::hasNext)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("scan failed");
+        }
+    }
+
+    @Test
+    public void closeWaitsForTheInFlightFetch() {
+        AtomicInteger fetchesCompleted = new AtomicInteger();
+        Iterator<Integer> delegate = new AbstractIterator<Integer>() {
+            @Override
+            protected Integer computeNext() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return fetchesCompleted.incrementAndGet();
+            }
+        };
+        PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(delegate, executor);
+        assertThat(iterator.next()).isEqualTo(1);
+        iterator.close();
+        assertThat(fetchesCompleted.get()).isEqualTo(2);
+        assertThat(iterator.hasNext()).isFalse();
+    }
+}
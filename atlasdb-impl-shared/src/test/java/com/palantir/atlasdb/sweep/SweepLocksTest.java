@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -26,14 +27,22 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.math.BigInteger;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockWithMode;
 import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.StringLockDescriptor;
 
 public class SweepLocksTest {
     private SweepLocks sweepLocks;
@@ -91,4 +100,18 @@ public class SweepLocksTest {
         sweepLocks.close();
         verify(mockLockService, atLeastOnce()).unlock(token);
     }
+
+    @Test
+    public void shardLocksShareTheGlobalSweepLock() throws InterruptedException {
+        ArgumentCaptor<LockRequest> request = ArgumentCaptor.forClass(LockRequest.class);
+        SweepLocks.forShard(mockLockService, TableReference.createFromFullyQualifiedName("foo.bar"), 1, 4)
+                .lockOrRefresh();
+
+        verify(mockLockService).lock(anyString(), request.capture());
+        assertEquals(ImmutableMap.of(
+                StringLockDescriptor.of("atlas sweep"), LockMode.READ,
+                StringLockDescriptor.of("atlas sweep foo.bar shard 1 of 4"), LockMode.WRITE),
+                request.getValue().getLocks().stream().collect(
+                        Collectors.toMap(LockWithMode::getLockDescriptor, LockWithMode::getLockMode)));
+    }
 }
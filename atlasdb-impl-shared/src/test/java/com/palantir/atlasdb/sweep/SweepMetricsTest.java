@@ -17,6 +17,7 @@ package com.palantir.atlasdb.sweep;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 import org.junit.After;
@@ -94,6 +95,20 @@ public class SweepMetricsTest {
         assertValuesRecorded("cellTimestampPairsExamined", EXAMINED, OTHER_EXAMINED);
     }
 
+    @Test
+    public void workerThroughputIsRecordedPerWorker() {
+        sweepMetrics.workerSweptBatch(0, EXAMINED, DELETED, 100L);
+        sweepMetrics.workerSweptBatch(1, OTHER_EXAMINED, OTHER_DELETED, 200L);
+        sweepMetrics.workerSweptBatch(1, OTHER_EXAMINED, OTHER_DELETED, 200L);
+
+        assertEquals(EXAMINED, METRIC_REGISTRY.meter(MetricRegistry.name(
+                SweepMetrics.class, "worker", "0", "cellTimestampPairsExamined")).getCount());
+        assertEquals(2 * OTHER_DELETED, METRIC_REGISTRY.meter(MetricRegistry.name(
+                SweepMetrics.class, "worker", "1", "staleValuesDeleted")).getCount());
+        assertEquals(2, METRIC_REGISTRY.timer(MetricRegistry.name(
+                SweepMetrics.class, "worker", "1", "batchTime")).getCount());
+    }
+
     private void assertValuesRecorded(String aggregateMetric, Long... values) {
         Histogram histogram = METRIC_REGISTRY.histogram(MetricRegistry.name(SweepMetrics.class, aggregateMetric));
         assertThat(Longs.asList(histogram.getSnapshot().getValues()), containsInAnyOrder(values));
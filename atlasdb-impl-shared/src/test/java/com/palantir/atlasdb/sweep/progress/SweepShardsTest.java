@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.progress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+
+public class SweepShardsTest {
+    @Test
+    public void smallTablesAreNotSharded() {
+        assertThat(SweepShards.getShardCount(0L, 1000L)).isEqualTo(1);
+        assertThat(SweepShards.getShardCount(1000L, 1000L)).isEqualTo(1);
+    }
+
+    @Test
+    public void largeTablesAreShardedByCellCount() {
+        assertThat(SweepShards.getShardCount(1001L, 1000L)).isEqualTo(2);
+        assertThat(SweepShards.getShardCount(10_000L, 1000L)).isEqualTo(10);
+    }
+
+    @Test
+    public void shardCountIsBounded() {
+        assertThat(SweepShards.getShardCount(Long.MAX_VALUE, 1L)).isEqualTo(SweepShards.MAX_SHARDS);
+    }
+
+    @Test
+    public void singleShardCoversWholeTable() {
+        assertThat(SweepShards.getStartRowInclusive(0, 1)).isEqualTo(PtBytes.EMPTY_BYTE_ARRAY);
+        assertThat(SweepShards.getEndRowExclusive(0, 1)).isEqualTo(PtBytes.EMPTY_BYTE_ARRAY);
+    }
+
+    @Test
+    public void shardsAreContiguousAndIncreasing() {
+        for (int shardCount = 2; shardCount <= SweepShards.MAX_SHARDS; shardCount++) {
+            assertThat(SweepShards.getStartRowInclusive(0, shardCount)).isEqualTo(PtBytes.EMPTY_BYTE_ARRAY);
+            assertThat(SweepShards.getEndRowExclusive(shardCount - 1, shardCount)).isEqualTo(PtBytes.EMPTY_BYTE_ARRAY);
+            for (int shardIndex = 1; shardIndex < shardCount; shardIndex++) {
+                byte[] start = SweepShards.getStartRowInclusive(shardIndex, shardCount);
+                assertThat(SweepShards.getEndRowExclusive(shardIndex - 1, shardCount)).isEqualTo(start);
+                assertThat(UnsignedBytes.lexicographicalComparator().compare(
+                        SweepShards.getStartRowInclusive(shardIndex - 1, shardCount), start)).isLessThan(0);
+            }
+        }
+    }
+}
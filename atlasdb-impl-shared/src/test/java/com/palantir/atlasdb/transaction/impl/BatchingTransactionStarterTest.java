@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+
+public class BatchingTransactionStarterTest {
+    private static final String CLIENT = "client";
+    private static final int NUM_THREADS = 16;
+
+    private final LockServiceImpl lockService = LockServiceImpl.create();
+    private final TransactionStartService startService =
+            new LockAndTimestampTransactionStartService(new InMemoryTimestampService(), lockService);
+    private final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+
+    private BatchingTransactionStarter starter;
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        if (starter != null) {
+            starter.close();
+        }
+        lockService.close();
+    }
+
+    @Test
+    public void concurrentStartsGetDistinctStartTimestampsAndLocks() throws Exception {
+        starter = BatchingTransactionStarter.create(startService, lockService, CLIENT, 4);
+
+        List<Future<BatchingTransactionStarter.StartedTransaction>> futures = executor.invokeAll(
+                IntStream.range(0, 100)
+                        .mapToObj(unused -> (Callable<BatchingTransactionStarter.StartedTransaction>)
+                                starter::startTransaction)
+                        .collect(Collectors.toList()));
+
+        ImmutableList.Builder<BatchingTransactionStarter.StartedTransaction> started = ImmutableList.builder();
+        for (Future<BatchingTransactionStarter.StartedTransaction> future : futures) {
+            started.add(future.get());
+        }
+        Set<Long> startTimestamps = started.build().stream()
+                .map(BatchingTransactionStarter.StartedTransaction::getStartTimestamp)
+                .collect(Collectors.toSet());
+        Set<LockRefreshToken> locks = started.build().stream()
+                .map(BatchingTransactionStarter.StartedTransaction::getImmutableTimestampLock)
+                .collect(Collectors.toSet());
+
+        assertThat(startTimestamps).hasSize(100);
+        assertThat(locks).hasSize(100);
+        started.build().forEach(transaction ->
+                assertThat(transaction.getImmutableTimestamp()).isLessThan(transaction.getStartTimestamp()));
+    }
+
+    @Test
+    public void failuresArePropagatedToCallers() {
+        TransactionStartService failingService = mock(TransactionStartService.class);
+        when(failingService.startTransactions(anyString(), anyInt())).thenThrow(new IllegalStateException("boom"));
+        starter = BatchingTransactionStarter.create(
+                failingService, mock(RemoteLockService.class), CLIENT, 4);
+
+        assertThatThrownBy(starter::startTransaction)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("boom");
+    }
+
+    @Test
+    public void startsAfterClosingFail() {
+        starter = BatchingTransactionStarter.create(startService, lockService, CLIENT, 4);
+        starter.close();
+
+        assertThatThrownBy(starter::startTransaction).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.palantir.atlasdb.transaction.api.StartTransactionsResponse;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+
+public class LockAndTimestampTransactionStartServiceTest {
+    private static final String CLIENT = "client";
+
+    private final InMemoryTimestampService timestampService = new InMemoryTimestampService();
+    private final LockServiceImpl lockService = LockServiceImpl.create();
+    private final LockAndTimestampTransactionStartService startService =
+            new LockAndTimestampTransactionStartService(timestampService, lockService);
+
+    @After
+    public void tearDown() {
+        lockService.close();
+    }
+
+    @Test
+    public void startsRequestedNumberOfTransactions() {
+        StartTransactionsResponse response = startService.startTransactions(CLIENT, 5);
+
+        assertThat(response.getNumTransactions()).isEqualTo(5);
+        assertThat(response.getStartTimestamps().size()).isEqualTo(5);
+        assertThat(response.getImmutableTimestampLocks()).doesNotContainNull().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void startTimestampsAreGreaterThanImmutableTimestamp() {
+        StartTransactionsResponse response = startService.startTransactions(CLIENT, 3);
+
+        assertThat(response.getStartTimestamps().getLowerBound()).isGreaterThan(response.getImmutableTimestamp());
+    }
+
+    @Test
+    public void immutableTimestampIsHeldBackByEarlierTransactions() {
+        StartTransactionsResponse first = startService.startTransactions(CLIENT, 1);
+        StartTransactionsResponse second = startService.startTransactions(CLIENT, 1);
+
+        assertThat(second.getImmutableTimestamp()).isEqualTo(first.getImmutableTimestamp());
+    }
+
+    @Test
+    public void immutableTimestampAdvancesOnceAllLocksAreReleased() {
+        StartTransactionsResponse first = startService.startTransactions(CLIENT, 2);
+        for (LockRefreshToken lock : first.getImmutableTimestampLocks()) {
+            lockService.unlock(lock);
+        }
+        StartTransactionsResponse second = startService.startTransactions(CLIENT, 1);
+
+        assertThat(second.getImmutableTimestamp()).isGreaterThan(first.getStartTimestamps().getUpperBound());
+    }
+}
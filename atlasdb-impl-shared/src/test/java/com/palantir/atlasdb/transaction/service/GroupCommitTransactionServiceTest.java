@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+
+public class GroupCommitTransactionServiceTest {
+    private static final int NUM_THREADS = 16;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    private KeyValueService kvs;
+    private TransactionService transactionService;
+
+    @Before
+    public void setUp() {
+        kvs = new InMemoryKeyValueService(false);
+        TransactionTables.createTables(kvs);
+        transactionService = new GroupCommitTransactionService(kvs, 10);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        kvs.close();
+    }
+
+    @Test
+    public void putThenGet() {
+        transactionService.putUnlessExists(1L, 2L);
+
+        assertThat(transactionService.get(1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void secondPutForSameStartTimestampFails() {
+        transactionService.putUnlessExists(1L, 2L);
+
+        assertThatThrownBy(() -> transactionService.putUnlessExists(1L, TransactionConstants.FAILED_COMMIT_TS))
+                .isInstanceOf(KeyAlreadyExistsException.class);
+        assertThat(transactionService.get(1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void concurrentPutsForDistinctStartTimestampsAllSucceed() throws Exception {
+        List<Future<Void>> futures = executor.invokeAll(LongStream.range(1, 200)
+                .mapToObj(startTs -> (Callable<Void>) () -> {
+                    transactionService.putUnlessExists(startTs, startTs + 1000);
+                    return null;
+                })
+                .collect(Collectors.toList()));
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+
+        LongStream.range(1, 200).forEach(startTs ->
+                assertThat(transactionService.get(startTs)).isEqualTo(startTs + 1000));
+    }
+
+    @Test
+    public void exactlyOneConcurrentPutForSameStartTimestampSucceeds() throws Exception {
+        List<Future<Void>> futures = executor.invokeAll(LongStream.range(0, 50)
+                .mapToObj(attempt -> (Callable<Void>) () -> {
+                    transactionService.putUnlessExists(5L, 100L + attempt);
+                    return null;
+                })
+                .collect(Collectors.toList()));
+
+        long successes = 0;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+                successes++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(KeyAlreadyExistsException.class);
+            }
+        }
+        assertThat(successes).isEqualTo(1);
+        assertThat(transactionService.get(5L)).isBetween(100L, 149L);
+    }
+
+    @Test
+    public void duplicatePutWithSameCommitTimestampSucceeds() throws Exception {
+        BlockedFirstBatch blocked = new BlockedFirstBatch(null);
+
+        Future<?> first = blocked.startFirstBatch();
+        Future<?> put = executor.submit(() -> blocked.service.putUnlessExists(5L, 10L));
+        Future<?> duplicate = executor.submit(() -> blocked.service.putUnlessExists(5L, 10L));
+        blocked.releaseOnceQueued();
+
+        first.get();
+        put.get();
+        duplicate.get();
+        assertThat(transactionService.get(5L)).isEqualTo(10L);
+    }
+
+    @Test
+    public void duplicatePutFailsWithTheWriteErrorIfNothingWasStored() throws Exception {
+        RuntimeException writeFailure = new RuntimeException("write failed");
+        BlockedFirstBatch blocked = new BlockedFirstBatch(writeFailure);
+
+        Future<?> first = blocked.startFirstBatch();
+        Future<?> commit = executor.submit(() -> blocked.service.putUnlessExists(5L, 10L));
+        Future<?> rollback = executor.submit(
+                () -> blocked.service.putUnlessExists(5L, TransactionConstants.FAILED_COMMIT_TS));
+        blocked.releaseOnceQueued();
+
+        first.get();
+        assertThatThrownBy(commit::get).hasCause(writeFailure);
+        assertThatThrownBy(rollback::get).hasCause(writeFailure);
+        assertThat(transactionService.get(5L)).isNull();
+    }
+
+    @Test
+    public void errorWhileWritingBatchFailsEveryDrainedPut() throws Exception {
+        KeyValueService failingKvs = spy(kvs);
+        doAnswer(invocation -> {
+            Map<?, ?> values = (Map<?, ?>) invocation.getArguments()[1];
+            if (values.size() > 1) {
+                throw new StackOverflowError();
+            }
+            Uninterruptibles.sleepUninterruptibly(5, TimeUnit.MILLISECONDS);
+            return invocation.callRealMethod();
+        }).when(failingKvs).putUnlessExists(any(TableReference.class), anyMapOf(Cell.class, byte[].class));
+        TransactionService failingService = new GroupCommitTransactionService(failingKvs, 10);
+
+        List<Future<Void>> futures = executor.invokeAll(LongStream.range(1, 200)
+                .mapToObj(startTs -> (Callable<Void>) () -> {
+                    failingService.putUnlessExists(startTs, startTs + 1000);
+                    return null;
+                })
+                .collect(Collectors.toList()), 30, TimeUnit.SECONDS);
+
+        long failures = 0;
+        for (Future<Void> future : futures) {
+            assertThat(future.isCancelled()).as("every put completes rather than waiting forever").isFalse();
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failures++;
+            }
+        }
+        assertThat(failures).isGreaterThan(0);
+    }
+
+    /**
+     * Holds up the first batch so that the puts submitted meanwhile are all written together in the second one,
+     * which fails with {@code laterBatchFailure} if it is set.
+     */
+    private final class BlockedFirstBatch {
+        private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        private final AtomicInteger batches = new AtomicInteger();
+        private final TransactionService service;
+
+        BlockedFirstBatch(@Nullable RuntimeException laterBatchFailure) {
+            KeyValueService blockingKvs = spy(kvs);
+            doAnswer(invocation -> {
+                if (batches.getAndIncrement() == 0) {
+                    firstBatchStarted.countDown();
+                    releaseFirstBatch.await();
+                } else if (laterBatchFailure != null) {
+                    throw laterBatchFailure;
+                }
+                return invocation.callRealMethod();
+            }).when(blockingKvs).putUnlessExists(any(TableReference.class), anyMapOf(Cell.class, byte[].class));
+            this.service = new GroupCommitTransactionService(blockingKvs, 10);
+        }
+
+        Future<?> startFirstBatch() throws InterruptedException {
+            Future<?> first = executor.submit(() -> service.putUnlessExists(1L, 2L));
+            firstBatchStarted.await();
+            return first;
+        }
+
+        void releaseOnceQueued() {
+            // Give the puts submitted since the first batch started time to queue up behind it.
+            Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+            releaseFirstBatch.countDown();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.api;
+
+import java.io.Serializable;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * The result of {@link TransactionStartService#startTransactions(String, int)}. The i-th transaction started has
+ * start timestamp {@code startTimestamps().getLowerBound() + i} and holds {@code immutableTimestampLocks().get(i)}.
+ */
+@Immutable
+public final class StartTransactionsResponse implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long immutableTimestamp;
+    private final TimestampRange startTimestamps;
+    private final List<LockRefreshToken> immutableTimestampLocks;
+
+    @JsonCreator
+    public StartTransactionsResponse(@JsonProperty("immutableTimestamp") long immutableTimestamp,
+                                     @JsonProperty("startTimestamps") TimestampRange startTimestamps,
+                                     @JsonProperty("immutableTimestampLocks") List<LockRefreshToken> locks) {
+        Preconditions.checkNotNull(startTimestamps, "startTimestamps should not be null");
+        Preconditions.checkArgument(startTimestamps.size() == locks.size(),
+                "Expected one immutable timestamp lock per start timestamp, but got %s locks for %s timestamps",
+                locks.size(),
+                startTimestamps.size());
+        this.immutableTimestamp = immutableTimestamp;
+        this.startTimestamps = startTimestamps;
+        this.immutableTimestampLocks = ImmutableList.copyOf(locks);
+    }
+
+    public long getImmutableTimestamp() {
+        return immutableTimestamp;
+    }
+
+    public TimestampRange getStartTimestamps() {
+        return startTimestamps;
+    }
+
+    public List<LockRefreshToken> getImmutableTimestampLocks() {
+        return immutableTimestampLocks;
+    }
+
+    @JsonIgnore
+    public int getNumTransactions() {
+        return immutableTimestampLocks.size();
+    }
+
+    @Override
+    public String toString() {
+        return "StartTransactionsResponse [immutableTimestamp=" + immutableTimestamp
+                + ", startTimestamps=[" + startTimestamps.getLowerBound() + ", " + startTimestamps.getUpperBound()
+                + "], numTransactions=" + getNumTransactions() + "]";
+    }
+}
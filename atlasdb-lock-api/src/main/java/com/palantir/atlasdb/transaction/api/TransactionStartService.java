@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.api;
+
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import com.palantir.common.annotation.NonIdempotent;
+import com.palantir.logsafe.Safe;
+
+/**
+ * Combines the remote calls needed to start a transaction (the immutable timestamp lock, the immutable timestamp
+ * and the start timestamp) into a single request, which may start several transactions at once.
+ */
+@Path("/transactions")
+public interface TransactionStartService {
+    /**
+     * Starts up to {@code numTransactions} transactions on behalf of the given lock client.
+     *
+     * @return never null; the returned response starts at least one and at most {@code numTransactions}
+     * transactions, all of which share the same immutable timestamp
+     */
+    @POST // This has to be POST because we can't allow caching.
+    @Path("start-transactions/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @NonIdempotent
+    StartTransactionsResponse startTransactions(
+            @Safe @PathParam("client") String client,
+            @QueryParam("number") int numTransactions);
+}
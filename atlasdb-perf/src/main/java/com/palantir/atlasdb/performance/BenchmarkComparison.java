@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.performance.PerformanceResults.PerformanceResult;
+
+/**
+ * Compares a run of the benchmarks against a stored baseline run.
+ *
+ * A benchmark has regressed if its mean time per operation grew by more than the threshold and its confidence
+ * interval lies entirely above the baseline's, i.e. the slowdown is both large and unlikely to be noise.
+ */
+public final class BenchmarkComparison {
+    public static final double DEFAULT_REGRESSION_THRESHOLD_PERCENT = 10.0;
+    public static final double DEFAULT_CONFIDENCE = 0.99;
+
+    private static final String ALLOCATION_METRIC_SUFFIX = "gc.alloc.rate.norm";
+
+    private final List<BenchmarkDelta> deltas;
+    private final List<String> missingBenchmarks;
+
+    private BenchmarkComparison(List<BenchmarkDelta> deltas, List<String> missingBenchmarks) {
+        this.deltas = deltas;
+        this.missingBenchmarks = missingBenchmarks;
+    }
+
+    public static BenchmarkComparison compare(
+            List<PerformanceResult> baseline,
+            List<PerformanceResult> current,
+            double regressionThresholdPercent,
+            double confidence) {
+        Preconditions.checkArgument(regressionThresholdPercent >= 0,
+                "Regression threshold must be non-negative, but was %s", regressionThresholdPercent);
+        Preconditions.checkArgument(confidence > 0 && confidence < 1,
+                "Confidence must be between 0 and 1 exclusive, but was %s", confidence);
+
+        Map<String, PerformanceResult> baselineByName = byBenchmark(baseline);
+        Map<String, PerformanceResult> currentByName = byBenchmark(current);
+        List<BenchmarkDelta> deltas = currentByName.values().stream()
+                .map(result -> new BenchmarkDelta(
+                        baselineByName.get(result.benchmark()),
+                        result,
+                        regressionThresholdPercent,
+                        confidence))
+                .collect(Collectors.toList());
+        List<String> missing = baselineByName.keySet().stream()
+                .filter(name -> !currentByName.containsKey(name))
+                .collect(Collectors.toList());
+        return new BenchmarkComparison(deltas, missing);
+    }
+
+    private static Map<String, PerformanceResult> byBenchmark(List<PerformanceResult> results) {
+        return Maps.newTreeMap(results.stream().collect(Collectors.toMap(
+                PerformanceResult::benchmark,
+                Function.identity(),
+                (first, second) -> second)));
+    }
+
+    public boolean hasRegressions() {
+        return deltas.stream().anyMatch(BenchmarkDelta::isRegression);
+    }
+
+    public List<String> getRegressedBenchmarks() {
+        return deltas.stream()
+                .filter(BenchmarkDelta::isRegression)
+                .map(delta -> delta.current.benchmark())
+                .collect(Collectors.toList());
+    }
+
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-70s %24s %24s %9s  %s%n",
+                "Benchmark", "Baseline", "Current", "Change", "Status"));
+        for (BenchmarkDelta delta : deltas) {
+            delta.appendTo(report);
+        }
+        for (String missing : missingBenchmarks) {
+            report.append(String.format("%-70s %24s %24s %9s  %s%n", missing, "", "", "", "NOT RUN"));
+        }
+        List<String> regressed = getRegressedBenchmarks();
+        if (regressed.isEmpty()) {
+            report.append(String.format("%nNo benchmarks regressed.%n"));
+        } else {
+            report.append(String.format("%n%d benchmark(s) regressed: %s%n", regressed.size(), regressed));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Returns the two-sided confidence interval of the mean, assuming the samples are roughly normal.
+     */
+    @VisibleForTesting
+    static double[] getConfidenceInterval(PerformanceResult result, double confidence) {
+        if (result.samples() < 2) {
+            return new double[] {result.mean(), result.mean()};
+        }
+        double quantile = new TDistribution(result.samples() - 1)
+                .inverseCumulativeProbability(1 - (1 - confidence) / 2);
+        double halfWidth = quantile * result.std() / Math.sqrt(result.samples());
+        return new double[] {result.mean() - halfWidth, result.mean() + halfWidth};
+    }
+
+    private static final class BenchmarkDelta {
+        private final PerformanceResult baseline;
+        private final PerformanceResult current;
+        private final double[] baselineInterval;
+        private final double[] currentInterval;
+        private final boolean regression;
+
+        BenchmarkDelta(PerformanceResult baseline, PerformanceResult current, double thresholdPercent,
+                double confidence) {
+            this.baseline = baseline;
+            this.current = current;
+            // Express the current run in the baseline's unit so that the two are comparable.
+            double scale = baseline == null ? 1.0 : toBaselineUnit(1.0, current.units(), baseline.units());
+            double[] interval = getConfidenceInterval(current, confidence);
+            this.currentInterval = new double[] {interval[0] * scale, interval[1] * scale};
+            this.baselineInterval = baseline == null ? null : getConfidenceInterval(baseline, confidence);
+            this.regression = baseline != null
+                    && current.mean() * scale > baseline.mean() * (1 + thresholdPercent / 100)
+                    && currentInterval[0] > baselineInterval[1];
+        }
+
+        boolean isRegression() {
+            return regression;
+        }
+
+        void appendTo(StringBuilder report) {
+            if (baseline == null) {
+                report.append(String.format("%-70s %24s %24s %9s  %s%n",
+                        current.benchmark(), "", format(currentInterval, current.units()), "", "NEW"));
+                return;
+            }
+            report.append(String.format("%-70s %24s %24s %+8.1f%%  %s%n",
+                    current.benchmark(),
+                    format(baselineInterval, baseline.units()),
+                    format(currentInterval, baseline.units()),
+                    percentChange(baseline.mean(), midpoint(currentInterval)),
+                    regression ? "REGRESSED" : "OK"));
+            for (Map.Entry<String, Double> metric : current.secondaryMetrics().entrySet()) {
+                Double baselineValue = baseline.secondaryMetrics().get(metric.getKey());
+                if (baselineValue != null && metric.getKey().endsWith(ALLOCATION_METRIC_SUFFIX)) {
+                    report.append(String.format("    %-66s %24.1f %24.1f %+8.1f%%%n",
+                            metric.getKey(),
+                            baselineValue,
+                            metric.getValue(),
+                            percentChange(baselineValue, metric.getValue())));
+                }
+            }
+        }
+
+        private static double midpoint(double[] interval) {
+            return (interval[0] + interval[1]) / 2;
+        }
+
+        private static double percentChange(double before, double after) {
+            return before == 0 ? 0 : 100 * (after - before) / before;
+        }
+
+        private static String format(double[] interval, TimeUnit unit) {
+            return String.format("%.3f..%.3f %s", interval[0], interval[1], abbreviate(unit));
+        }
+
+        private static double toBaselineUnit(double value, TimeUnit unit, TimeUnit baselineUnit) {
+            return value * unit.toNanos(1) / baselineUnit.toNanos(1);
+        }
+
+        private static String abbreviate(TimeUnit unit) {
+            switch (unit) {
+                case NANOSECONDS:
+                    return "ns";
+                case MICROSECONDS:
+                    return "us";
+                case MILLISECONDS:
+                    return "ms";
+                case SECONDS:
+                    return "s";
+                default:
+                    return unit.toString();
+            }
+        }
+    }
+}
@@ -27,22 +27,27 @@ import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.immutables.value.Value;
 import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
 import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.util.Multiset;
 import org.openjdk.jmh.util.Statistics;
 import org.openjdk.jmh.util.TreeMultiset;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.palantir.atlasdb.performance.backend.DockerizedDatabaseUri;
 
 public class PerformanceResults {
@@ -58,11 +63,21 @@ public class PerformanceResults {
 
     public void writeToFile(File file) throws IOException {
         try (BufferedWriter fout = openFileWriter(file)) {
-            List<ImmutablePerformanceResult> newResults = getPerformanceResults(results);
-            new ObjectMapper().writeValue(fout, newResults);
+            new ObjectMapper().writeValue(fout, getPerformanceResults());
         }
     }
 
+    public List<PerformanceResult> getPerformanceResults() {
+        return ImmutableList.copyOf(getPerformanceResults(results));
+    }
+
+    public static List<PerformanceResult> readFromFile(File file) throws IOException {
+        List<ImmutablePerformanceResult> results = new ObjectMapper().readValue(
+                file,
+                new TypeReference<List<ImmutablePerformanceResult>>() {});
+        return ImmutableList.copyOf(results);
+    }
+
     private static List<ImmutablePerformanceResult> getPerformanceResults(Collection<RunResult> results) {
         long date = System.currentTimeMillis();
         return results.stream().map(rs -> {
@@ -77,6 +92,7 @@ public class PerformanceResults {
                     .p50(rs.getPrimaryResult().getStatistics().getPercentile(50.0))
                     .p90(rs.getPrimaryResult().getStatistics().getPercentile(90.0))
                     .p99(rs.getPrimaryResult().getStatistics().getPercentile(99.0))
+                    .secondaryMetrics(getSecondaryMetrics(rs))
                     .build();
         }).collect(Collectors.toList());
     }
@@ -97,6 +113,17 @@ public class PerformanceResults {
         return String.format("%s#%s-%s", benchmarkSuite, benchmarkName, uriSuffix.orElse(KVS_AGNOSTIC_SUFFIX));
     }
 
+    /**
+     * Scores reported by profilers, e.g. the allocation rate per operation when running with the GC profiler.
+     */
+    private static Map<String, Double> getSecondaryMetrics(RunResult result) {
+        Map<String, Double> metrics = Maps.newTreeMap();
+        for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+            metrics.put(secondary.getKey(), secondary.getValue().getScore());
+        }
+        return metrics;
+    }
+
     private static BufferedWriter openFileWriter(File file) throws FileNotFoundException {
         return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
     }
@@ -166,7 +193,7 @@ public class PerformanceResults {
     @JsonDeserialize(as = ImmutablePerformanceResult.class)
     @JsonSerialize(as = ImmutablePerformanceResult.class)
     @Value.Immutable
-    abstract static class PerformanceResult {
+    public abstract static class PerformanceResult {
         public abstract long date();
         public abstract String benchmark();
         public abstract long samples();
@@ -177,6 +204,7 @@ public class PerformanceResults {
         public abstract double p50();
         public abstract double p90();
         public abstract double p99();
+        public abstract Map<String, Double> secondaryMetrics();
     }
 
 }
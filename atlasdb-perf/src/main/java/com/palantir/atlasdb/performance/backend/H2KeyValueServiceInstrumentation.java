@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import java.util.UUID;
+
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableDbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableH2DdlConfig;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+import com.palantir.nexus.db.pool.config.ImmutableH2ConnectionConfig;
+import com.palantir.nexus.db.pool.config.ImmutableMaskedValue;
+
+/**
+ * Relational KVS ({@code DbKvs}) on an in-memory H2 database, which runs the Postgres code paths.
+ */
+public class H2KeyValueServiceInstrumentation extends InProcessKeyValueServiceInstrumentation {
+
+    @Override
+    public KeyValueServiceConfig getKeyValueServiceConfig() {
+        return ImmutableDbKeyValueServiceConfig.builder()
+                .ddl(ImmutableH2DdlConfig.builder().build())
+                .connection(ImmutableH2ConnectionConfig.builder()
+                        .url("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL")
+                        .dbLogin("sa")
+                        .dbPassword(ImmutableMaskedValue.of(""))
+                        .build())
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "H2";
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import java.net.InetSocketAddress;
+
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+
+/**
+ * A backend that runs inside the benchmark JVM, so no docker container has to be started for it.
+ * Each call to {@link #getKeyValueServiceConfig()} must describe a fresh, empty store.
+ */
+public abstract class InProcessKeyValueServiceInstrumentation extends KeyValueServiceInstrumentation {
+
+    static final InetSocketAddress IN_PROCESS_ADDRESS = InetSocketAddress.createUnresolved("localhost", 0);
+
+    InProcessKeyValueServiceInstrumentation() {
+        super(0, null);
+    }
+
+    public abstract KeyValueServiceConfig getKeyValueServiceConfig();
+
+    @Override
+    public final KeyValueServiceConfig getKeyValueServiceConfig(InetSocketAddress addr) {
+        return getKeyValueServiceConfig();
+    }
+
+    @Override
+    public final boolean canConnect(InetSocketAddress addr) {
+        return true;
+    }
+
+    @Override
+    public final boolean isInProcess() {
+        return true;
+    }
+
+    public DockerizedDatabaseUri getUri() {
+        return new DockerizedDatabaseUri(this, IN_PROCESS_ADDRESS);
+    }
+}
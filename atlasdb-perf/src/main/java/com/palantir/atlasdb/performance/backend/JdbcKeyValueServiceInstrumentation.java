@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import java.util.Properties;
+import java.util.UUID;
+
+import com.palantir.atlasdb.jdbc.config.ImmutableHikariDataSourceConfiguration;
+import com.palantir.atlasdb.keyvalue.jdbc.ImmutableJdbcKeyValueConfiguration;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+
+/**
+ * JDBC KVS on an in-memory H2 database.
+ */
+public class JdbcKeyValueServiceInstrumentation extends InProcessKeyValueServiceInstrumentation {
+
+    @Override
+    public KeyValueServiceConfig getKeyValueServiceConfig() {
+        Properties properties = new Properties();
+        properties.put("jdbcUrl", "jdbc:h2:mem:" + UUID.randomUUID());
+        properties.put("username", "sa");
+        return ImmutableJdbcKeyValueConfiguration.builder()
+                .dataSourceConfig(ImmutableHikariDataSourceConfiguration.builder()
+                        .sqlDialect("H2")
+                        .properties(properties)
+                        .build())
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "JDBC";
+    }
+}
@@ -36,6 +36,10 @@ public abstract class KeyValueServiceInstrumentation {
     static {
         addNewBackendType(new CassandraKeyValueServiceInstrumentation());
         addNewBackendType(new PostgresKeyValueServiceInstrumentation());
+        addNewBackendType(new InMemoryKeyValueServiceInstrumentation());
+        addNewBackendType(new RocksDbKeyValueServiceInstrumentation());
+        addNewBackendType(new H2KeyValueServiceInstrumentation());
+        addNewBackendType(new JdbcKeyValueServiceInstrumentation());
     }
 
     KeyValueServiceInstrumentation(int kvsPort, String dockerComposeFileName) {
@@ -54,6 +58,13 @@ public abstract class KeyValueServiceInstrumentation {
     public abstract KeyValueServiceConfig getKeyValueServiceConfig(InetSocketAddress addr);
     public abstract boolean canConnect(InetSocketAddress addr);
 
+    /**
+     * Returns true if the backend runs inside the benchmark JVM, in which case there is no docker container to start.
+     */
+    public boolean isInProcess() {
+        return false;
+    }
+
     public static void addNewBackendType(KeyValueServiceInstrumentation backend) {
         if (!backendMap.containsKey(backend.getClassName())) {
             classNames.put(backend.toString(), backend.getClassName());
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.performance.benchmarks.endpoint.LockServiceEndpoint;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockRequest;
+
+/**
+ * Lock and unlock throughput of an in-process lock server. The same workloads are run with one thread, a few
+ * threads and one thread per core, so that comparing them shows how the lock server scales with cores.
+ */
+public class LockServiceBenchmarks {
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(1)
+    public boolean singleThreadLockAndUnlockDisjointLocks(LockServiceEndpoint lockService,
+            LockServiceEndpoint.Client client) throws InterruptedException {
+        return lockAndUnlock(lockService, client, client.nextPrivateWriteLockRequest());
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(4)
+    public boolean fewThreadsLockAndUnlockDisjointLocks(LockServiceEndpoint lockService,
+            LockServiceEndpoint.Client client) throws InterruptedException {
+        return lockAndUnlock(lockService, client, client.nextPrivateWriteLockRequest());
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public boolean allCoresLockAndUnlockDisjointLocks(LockServiceEndpoint lockService,
+            LockServiceEndpoint.Client client) throws InterruptedException {
+        return lockAndUnlock(lockService, client, client.nextPrivateWriteLockRequest());
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(1)
+    public boolean singleThreadLockAndUnlockSharedReadLocks(LockServiceEndpoint lockService,
+            LockServiceEndpoint.Client client) throws InterruptedException {
+        return lockAndUnlock(lockService, client, client.nextSharedReadLockRequest());
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public boolean allCoresLockAndUnlockSharedReadLocks(LockServiceEndpoint lockService,
+            LockServiceEndpoint.Client client) throws InterruptedException {
+        return lockAndUnlock(lockService, client, client.nextSharedReadLockRequest());
+    }
+
+    private static boolean lockAndUnlock(LockServiceEndpoint lockService, LockServiceEndpoint.Client client,
+            LockRequest request) throws InterruptedException {
+        HeldLocksToken token = lockService.lock(client.getClientId(), request);
+        Preconditions.checkState(token != null, "Failed to acquire an uncontended lock");
+        return lockService.unlock(token);
+    }
+}
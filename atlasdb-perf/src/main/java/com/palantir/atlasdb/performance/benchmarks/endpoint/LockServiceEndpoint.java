@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.endpoint;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+
+/**
+ * An in-process lock server. Unlike the other endpoints this does not need a database, so lock server
+ * benchmarks measure the lock server itself rather than any backing store.
+ */
+@State(Scope.Benchmark)
+public class LockServiceEndpoint {
+    private static final int NUM_SHARED_LOCKS = 16;
+
+    private final AtomicInteger clientIds = new AtomicInteger();
+    private LockServiceImpl lockService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        lockService = LockServiceImpl.create();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        lockService.close();
+    }
+
+    public HeldLocksToken lock(String client, LockRequest request) throws InterruptedException {
+        return lockService.lockAndGetHeldLocks(client, request);
+    }
+
+    public boolean unlock(HeldLocksToken token) {
+        return lockService.unlock(token);
+    }
+
+    String newClientId() {
+        return "benchmark-client-" + clientIds.getAndIncrement();
+    }
+
+    /** The lock requests of a single benchmark thread. */
+    @State(Scope.Thread)
+    public static class Client {
+        private static final int NUM_PRIVATE_LOCKS = 1024;
+
+        private String clientId;
+        private LockRequest[] privateWriteLockRequests;
+        private LockRequest[] sharedReadLockRequests;
+        private int next = 0;
+
+        @Setup(Level.Trial)
+        public void setup(LockServiceEndpoint endpoint) {
+            clientId = endpoint.newClientId();
+            privateWriteLockRequests = new LockRequest[NUM_PRIVATE_LOCKS];
+            for (int i = 0; i < NUM_PRIVATE_LOCKS; i++) {
+                privateWriteLockRequests[i] = request(StringLockDescriptor.of(clientId + "-" + i), LockMode.WRITE);
+            }
+            sharedReadLockRequests = new LockRequest[NUM_SHARED_LOCKS];
+            for (int i = 0; i < NUM_SHARED_LOCKS; i++) {
+                sharedReadLockRequests[i] = request(StringLockDescriptor.of("shared-" + i), LockMode.READ);
+            }
+        }
+
+        public String getClientId() {
+            return clientId;
+        }
+
+        /** Returns a write lock request for a lock which no other thread uses. */
+        public LockRequest nextPrivateWriteLockRequest() {
+            next = (next + 1) % NUM_PRIVATE_LOCKS;
+            return privateWriteLockRequests[next];
+        }
+
+        /** Returns a read lock request for one of a small set of locks which every thread uses. */
+        public LockRequest nextSharedReadLockRequest() {
+            next = (next + 1) % NUM_PRIVATE_LOCKS;
+            return sharedReadLockRequests[next % NUM_SHARED_LOCKS];
+        }
+
+        private static LockRequest request(LockDescriptor descriptor, LockMode mode) {
+            return LockRequest.builder(ImmutableSortedMap.of(descriptor, mode)).doNotBlock().build();
+        }
+    }
+}
@@ -18,8 +18,8 @@
 package com.palantir.atlasdb.performance.cli;
 
 import java.io.File;
-import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -28,7 +28,7 @@ import javax.inject.Inject;
 
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Mode;
-import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
@@ -36,12 +36,15 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 import org.reflections.Reflections;
 import org.reflections.scanners.MethodAnnotationsScanner;
 
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.performance.BenchmarkComparison;
 import com.palantir.atlasdb.performance.BenchmarkParam;
 import com.palantir.atlasdb.performance.MinimalReportFormatForTest;
 import com.palantir.atlasdb.performance.PerformanceResults;
 import com.palantir.atlasdb.performance.backend.DatabasesContainer;
 import com.palantir.atlasdb.performance.backend.DockerizedDatabase;
 import com.palantir.atlasdb.performance.backend.DockerizedDatabaseUri;
+import com.palantir.atlasdb.performance.backend.InProcessKeyValueServiceInstrumentation;
 import com.palantir.atlasdb.performance.backend.KeyValueServiceInstrumentation;
 
 import io.airlift.airline.Arguments;
@@ -53,7 +56,8 @@ import io.airlift.airline.SingleCommand;
 /**
  * The Atlas Perf(ormance) CLI is a tool for making and running AtlasDB performance tests.
  *
- * This requires you to have a docker-machine running and configured correctly.
+ * The POSTGRES and CASSANDRA backends require you to have a docker-machine running and configured correctly.
+ * The MEMORY, ROCKSDB, H2 and JDBC backends run inside the benchmark JVM and need no docker.
  *
  * @author mwakerman, bullman
  */
@@ -66,8 +70,8 @@ public class AtlasDbPerfCli {
     @Arguments(description = "The performance benchmarks to run. Leave blank to run all performance benchmarks.")
     private Set<String> tests;
 
-    @Option(name = {"-b", "--backend"}, description = "Backing KVS stores to use. (e.g. POSTGRES or CASSANDRA)"
-            + " Defaults to all backends if not specified.")
+    @Option(name = {"-b", "--backend"}, description = "Backing KVS stores to use. (e.g. POSTGRES, CASSANDRA, MEMORY,"
+            + " ROCKSDB, H2 or JDBC) Defaults to all backends if not specified.")
     private Set<String> backends;
 
     @Option(name = {"--db-uri"}, description = "Docker uri (e.g. POSTGRES@[phost:pport] or CASSANDRA@[chost:cport])."
@@ -85,6 +89,35 @@ public class AtlasDbPerfCli {
     @Option(name = {"--test-run"}, description = "Run a single iteration of the benchmarks for testing purposes.")
     private boolean testRun;
 
+    @Option(name = {"--baseline"}, description = "Store the results as a baseline in the given file, to be used"
+            + " with --compare later.")
+    private String baselineFile;
+
+    @Option(name = {"--compare"}, description = "Compare the results against the baseline in the given file and"
+            + " exit with a non-zero status if any benchmark regressed.")
+    private String compareFile;
+
+    @Option(name = {"--regression-threshold"}, description = "The increase in mean time per operation, in percent,"
+            + " above which a benchmark counts as regressed when using --compare. Defaults to 10.")
+    private double regressionThresholdPercent = BenchmarkComparison.DEFAULT_REGRESSION_THRESHOLD_PERCENT;
+
+    @Option(name = {"--confidence"}, description = "The confidence level of the intervals used by --compare."
+            + " Defaults to 0.99.")
+    private double confidence = BenchmarkComparison.DEFAULT_CONFIDENCE;
+
+    @Option(name = {"--forks"}, description = "The number of JVM forks per benchmark. Defaults to 1.")
+    private int forks = 1;
+
+    @Option(name = {"--warmup-iterations"}, description = "The number of warmup iterations per fork. Defaults to 1.")
+    private int warmupIterations = 1;
+
+    @Option(name = {"--measurement-iterations"},
+            description = "The number of measurement iterations per fork. Defaults to 1.")
+    private int measurementIterations = 1;
+
+    @Option(name = {"--profile-gc"}, description = "Attach GC and allocation rate results to each benchmark.")
+    private boolean profileGc;
+
     public static void main(String[] args) throws Exception {
         AtlasDbPerfCli cli = SingleCommand.singleCommand(AtlasDbPerfCli.class).parse(args);
 
@@ -97,34 +130,45 @@ public class AtlasDbPerfCli {
             return;
         }
 
-        if (hasValidArgs(cli)) {
-            run(cli);
-        } else {
+        if (!hasValidArgs(cli) || !run(cli)) {
             System.exit(1);
         }
     }
 
-    private static void run(AtlasDbPerfCli cli) throws Exception {
+    /**
+     * Returns false if the run was compared against a baseline and regressed.
+     */
+    private static boolean run(AtlasDbPerfCli cli) throws Exception {
         if (cli.dbUris != null) {
-            runJmh(cli, getDockerUris(cli));
+            return runJmh(cli, getDockerUris(cli));
         } else {
             Set<String> backends = cli.backends != null
                     ? cli.backends
                     : KeyValueServiceInstrumentation.getBackends();
-            try (DatabasesContainer container = startupDatabase(backends)) {
-                runJmh(cli,
-                        container.getDockerizedDatabases()
-                                .stream()
-                                .map(DockerizedDatabase::getUri)
-                                .collect(Collectors.toList()));
+            Map<Boolean, List<KeyValueServiceInstrumentation>> backendsByInProcess = backends.stream()
+                    .map(KeyValueServiceInstrumentation::forDatabase)
+                    .collect(Collectors.partitioningBy(KeyValueServiceInstrumentation::isInProcess));
+            List<DockerizedDatabaseUri> uris = Lists.newArrayList();
+            backendsByInProcess.get(true)
+                    .forEach(backend -> uris.add(((InProcessKeyValueServiceInstrumentation) backend).getUri()));
+            List<KeyValueServiceInstrumentation> dockerizedBackends = backendsByInProcess.get(false);
+            if (dockerizedBackends.isEmpty()) {
+                return runJmh(cli, uris);
+            }
+            try (DatabasesContainer container = DatabasesContainer.startup(dockerizedBackends)) {
+                container.getDockerizedDatabases()
+                        .stream()
+                        .map(DockerizedDatabase::getUri)
+                        .forEach(uris::add);
+                return runJmh(cli, uris);
             }
         }
     }
 
-    private static void runJmh(AtlasDbPerfCli cli, List<DockerizedDatabaseUri> uris) throws Exception {
+    private static boolean runJmh(AtlasDbPerfCli cli, List<DockerizedDatabaseUri> uris) throws Exception {
         ChainedOptionsBuilder optBuilder = new OptionsBuilder()
-                .forks(1)
-                .measurementIterations(1)
+                .forks(cli.forks)
+                .measurementIterations(cli.measurementIterations)
                 .timeUnit(TimeUnit.MICROSECONDS)
                 .shouldFailOnError(true)
                 .param(BenchmarkParam.URI.getKey(),
@@ -139,22 +183,40 @@ public class AtlasDbPerfCli {
             cli.tests.forEach(b -> optBuilder.include(".*" + b));
         }
 
+        if (cli.profileGc) {
+            optBuilder.addProfiler(GCProfiler.class);
+        }
+
         if (!cli.testRun) {
-            runCli(cli, optBuilder);
+            return runCli(cli, optBuilder);
         } else {
             runCliInTestMode(optBuilder);
+            return true;
         }
     }
 
-    private static void runCli(AtlasDbPerfCli cli, ChainedOptionsBuilder optBuilder) throws Exception {
-        optBuilder.warmupIterations(1)
+    private static boolean runCli(AtlasDbPerfCli cli, ChainedOptionsBuilder optBuilder) throws Exception {
+        optBuilder.warmupIterations(cli.warmupIterations)
                 .mode(Mode.SampleTime);
 
-        Collection<RunResult> results = new Runner(optBuilder.build()).run();
+        PerformanceResults results = new PerformanceResults(new Runner(optBuilder.build()).run());
 
         if (cli.outputFile != null) {
-            new PerformanceResults(results).writeToFile(new File(cli.outputFile));
+            results.writeToFile(new File(cli.outputFile));
+        }
+        if (cli.baselineFile != null) {
+            results.writeToFile(new File(cli.baselineFile));
         }
+        if (cli.compareFile != null) {
+            BenchmarkComparison comparison = BenchmarkComparison.compare(
+                    PerformanceResults.readFromFile(new File(cli.compareFile)),
+                    results.getPerformanceResults(),
+                    cli.regressionThresholdPercent,
+                    cli.confidence);
+            System.out.println(comparison.getReport());
+            return !comparison.hasRegressions();
+        }
+        return true;
     }
 
     private static void runCliInTestMode(ChainedOptionsBuilder optBuilder) throws RunnerException {
@@ -163,13 +225,6 @@ public class AtlasDbPerfCli {
         new Runner(optBuilder.build(), MinimalReportFormatForTest.get()).run();
     }
 
-    private static DatabasesContainer startupDatabase(Set<String> backends) {
-        return DatabasesContainer.startup(
-                backends.stream()
-                        .map(KeyValueServiceInstrumentation::forDatabase)
-                        .collect(Collectors.toList()));
-    }
-
     private static List<DockerizedDatabaseUri> getDockerUris(AtlasDbPerfCli cli) {
         return cli.dbUris.stream()
                 .map(DockerizedDatabaseUri::fromUriString)
@@ -180,6 +235,16 @@ public class AtlasDbPerfCli {
         if (cli.backends != null && cli.dbUris != null) {
             throw new RuntimeException("Cannot specify both --backends and --db-uris");
         }
+        if (cli.testRun && (cli.baselineFile != null || cli.compareFile != null)) {
+            throw new RuntimeException("Cannot use --baseline or --compare with --test-run");
+        }
+        if (cli.compareFile != null && !new File(cli.compareFile).isFile()) {
+            throw new RuntimeException("Baseline file " + cli.compareFile + " does not exist");
+        }
+        if (cli.forks < 1 || cli.warmupIterations < 0 || cli.measurementIterations < 1) {
+            throw new RuntimeException("--forks and --measurement-iterations must be positive"
+                    + " and --warmup-iterations must not be negative");
+        }
         if (cli.backends != null) {
             cli.backends.forEach(backend -> {
                 if (isInvalidBackend(backend)) {
@@ -122,9 +122,9 @@ public final class ValueStreamStore extends AbstractPersistentStreamStore {
         ValueStreamMetadataTable.ValueStreamMetadataRow row = ValueStreamMetadataTable.ValueStreamMetadataRow.of(id);
         StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();
         Preconditions.checkState(metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
-        Builder builder = StreamMetadata.newBuilder(metadata);
-        builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);
-        metaTable.putMetadata(row, builder.build());
+        // Write the metadata back unchanged, so that blocks stored concurrently do not conflict with each other
+        // but still conflict with anything that changes the metadata, such as cleanup.
+        metaTable.putMetadata(row, metadata);
     }
 
     @Override
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.performance.PerformanceResults.PerformanceResult;
+
+public class BenchmarkComparisonTest {
+    private static final String BENCHMARK = "KvsGetRangeBenchmarks#getSingleRange-MEMORY";
+    private static final String OTHER_BENCHMARK = "TransactionPutBenchmarks#singleRandomPut-MEMORY";
+    private static final double THRESHOLD = BenchmarkComparison.DEFAULT_REGRESSION_THRESHOLD_PERCENT;
+    private static final double CONFIDENCE = BenchmarkComparison.DEFAULT_CONFIDENCE;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void identicalRunsDoNotRegress() {
+        List<PerformanceResult> results = ImmutableList.of(result(BENCHMARK, 100.0, 5.0, TimeUnit.MICROSECONDS));
+
+        assertThat(BenchmarkComparison.compare(results, results, THRESHOLD, CONFIDENCE).hasRegressions()).isFalse();
+    }
+
+    @Test
+    public void largeAndSignificantSlowdownRegresses() {
+        BenchmarkComparison comparison = BenchmarkComparison.compare(
+                ImmutableList.of(result(BENCHMARK, 100.0, 5.0, TimeUnit.MICROSECONDS)),
+                ImmutableList.of(result(BENCHMARK, 150.0, 5.0, TimeUnit.MICROSECONDS)),
+                THRESHOLD,
+                CONFIDENCE);
+
+        assertThat(comparison.hasRegressions()).isTrue();
+        assertThat(comparison.getRegressedBenchmarks()).containsExactly(BENCHMARK);
+        assertThat(comparison.getReport()).contains(BENCHMARK, "REGRESSED", "+50.0%");
+    }
+
+    @Test
+    public void slowdownBelowThresholdDoesNotRegress() {
+        BenchmarkComparison comparison = BenchmarkComparison.compare(
+                ImmutableList.of(result(BENCHMARK, 100.0, 1.0, TimeUnit.MICROSECONDS)),
+                ImmutableList.of(result(BENCHMARK, 105.0, 1.0, TimeUnit.MICROSECONDS)),
+                THRESHOLD,
+                CONFIDENCE);
+
+        assertThat(comparison.hasRegressions()).isFalse();
+    }
+
+    @Test
+    public void noisySlowdownDoesNotRegress() {
+        BenchmarkComparison comparison = BenchmarkComparison.compare(
+                ImmutableList.of(result(BENCHMARK, 100.0, 500.0, TimeUnit.MICROSECONDS)),
+                ImmutableList.of(result(BENCHMARK, 150.0, 500.0, TimeUnit.MICROSECONDS)),
+                THRESHOLD,
+                CONFIDENCE);
+
+        assertThat(comparison.hasRegressions()).isFalse();
+    }
+
+    @Test
+    public void comparesAcrossTimeUnits() {
+        BenchmarkComparison comparison = BenchmarkComparison.compare(
+                ImmutableList.of(result(BENCHMARK, 100.0, 5.0, TimeUnit.MICROSECONDS)),
+                ImmutableList.of(result(BENCHMARK, 0.1, 0.005, TimeUnit.MILLISECONDS)),
+                THRESHOLD,
+                CONFIDENCE);
+
+        assertThat(comparison.hasRegressions()).isFalse();
+    }
+
+    @Test
+    public void newAndMissingBenchmarksAreReportedButDoNotRegress() {
+        BenchmarkComparison comparison = BenchmarkComparison.compare(
+                ImmutableList.of(result(BENCHMARK, 100.0, 5.0, TimeUnit.MICROSECONDS)),
+                ImmutableList.of(result(OTHER_BENCHMARK, 100.0, 5.0, TimeUnit.MICROSECONDS)),
+                THRESHOLD,
+                CONFIDENCE);
+
+        assertThat(comparison.hasRegressions()).isFalse();
+        assertThat(comparison.getReport()).contains("NEW", "NOT RUN");
+    }
+
+    @Test
+    public void confidenceIntervalNarrowsWithMoreSamples() {
+        double[] fewSamples = BenchmarkComparison.getConfidenceInterval(
+                result(BENCHMARK, 100.0, 10.0, TimeUnit.MICROSECONDS, 10), CONFIDENCE);
+        double[] manySamples = BenchmarkComparison.getConfidenceInterval(
+                result(BENCHMARK, 100.0, 10.0, TimeUnit.MICROSECONDS, 10_000), CONFIDENCE);
+
+        assertThat(fewSamples[0]).isLessThan(manySamples[0]);
+        assertThat(fewSamples[1]).isGreaterThan(manySamples[1]);
+        assertThat(manySamples[0]).isLessThan(100.0);
+        assertThat(manySamples[1]).isGreaterThan(100.0);
+    }
+
+    @Test
+    public void rejectsInvalidConfidence() {
+        assertThatThrownBy(() -> BenchmarkComparison.compare(ImmutableList.of(), ImmutableList.of(), THRESHOLD, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void baselineSurvivesRoundTripThroughFile() throws IOException {
+        PerformanceResult result = ImmutablePerformanceResult.builder()
+                .from(result(BENCHMARK, 100.0, 5.0, TimeUnit.MICROSECONDS))
+                .secondaryMetrics(ImmutableMap.of("gc.alloc.rate.norm", 1024.0))
+                .build();
+        File file = tempFolder.newFile();
+        new ObjectMapper().writeValue(file, ImmutableList.of(result));
+
+        assertThat(PerformanceResults.readFromFile(file)).containsExactly(result);
+    }
+
+    private static PerformanceResult result(String benchmark, double mean, double std, TimeUnit units) {
+        return result(benchmark, mean, std, units, 1000);
+    }
+
+    private static PerformanceResult result(String benchmark, double mean, double std, TimeUnit units,
+            long samples) {
+        return ImmutablePerformanceResult.builder()
+                .date(0L)
+                .benchmark(benchmark)
+                .samples(samples)
+                .std(std)
+                .mean(mean)
+                .units(units)
+                .p50(mean)
+                .p90(mean)
+                .p99(mean)
+                .build();
+    }
+}
@@ -21,6 +21,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.google.common.collect.ImmutableList;
+
 public class KeyValueServiceInstrumentationTest {
 
     @Test
@@ -62,4 +64,31 @@ public class KeyValueServiceInstrumentationTest {
         KeyValueServiceInstrumentation.removeBackendType(mockKeyValueServiceInstrumentation);
     }
 
+    @Test
+    public void inProcessBackendsAreRegisteredAndDoNotNeedDocker() {
+        assertThat(KeyValueServiceInstrumentation.getBackends()).contains("MEMORY", "ROCKSDB", "H2", "JDBC");
+        for (String backend : ImmutableList.of("MEMORY", "ROCKSDB", "H2", "JDBC")) {
+            assertThat(KeyValueServiceInstrumentation.forDatabase(backend).isInProcess()).isTrue();
+        }
+        assertThat(KeyValueServiceInstrumentation.forDatabase("POSTGRES").isInProcess()).isFalse();
+        assertThat(KeyValueServiceInstrumentation.forDatabase("CASSANDRA").isInProcess()).isFalse();
+    }
+
+    @Test
+    public void inProcessBackendUriRoundTrips() {
+        InProcessKeyValueServiceInstrumentation memory =
+                (InProcessKeyValueServiceInstrumentation) KeyValueServiceInstrumentation.forDatabase("MEMORY");
+
+        DockerizedDatabaseUri uri = DockerizedDatabaseUri.fromUriString(memory.getUri().toString());
+
+        assertThat(uri.getKeyValueServiceInstrumentation()).isSameAs(memory);
+    }
+
+    @Test
+    public void inProcessBackendsUseAFreshStoreForEachConfig() {
+        KeyValueServiceInstrumentation h2 = KeyValueServiceInstrumentation.forDatabase("H2");
+
+        assertThat(h2.getKeyValueServiceConfig(InProcessKeyValueServiceInstrumentation.IN_PROCESS_ADDRESS))
+                .isNotEqualTo(h2.getKeyValueServiceConfig(InProcessKeyValueServiceInstrumentation.IN_PROCESS_ADDRESS));
+    }
 }
@@ -47,7 +47,7 @@ public class RocksDbKeyValueSharedTest extends AbstractKeyValueServiceTest {
         cleanup(keyValueService);
     }
 
-    private static void cleanup(KeyValueService db) {
+    static void cleanup(KeyValueService db) {
         Set<TableReference> nonMetadataTables = db.getAllTableNames().stream()
                 .filter(tableRef -> !tableRef.getNamespace().getName().equals("default")
                         || !tableRef.getTablename().equals("_metadata"))
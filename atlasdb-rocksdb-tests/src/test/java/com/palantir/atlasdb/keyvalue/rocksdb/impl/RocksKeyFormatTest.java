@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.util.Pair;
+
+public class RocksKeyFormatTest {
+    private static final Comparator<byte[]> BYTES = UnsignedBytes.lexicographicalComparator();
+    private static final Comparator<Pair<Cell, Long>> CELL_ORDER = Comparator
+            .<Pair<Cell, Long>, byte[]>comparing(cellAndTs -> cellAndTs.lhSide.getRowName(), BYTES)
+            .thenComparing(cellAndTs -> cellAndTs.lhSide.getColumnName(), BYTES)
+            .thenComparing(cellAndTs -> cellAndTs.rhSide, Comparator.reverseOrder());
+    private static final long[] INTERESTING_TIMESTAMPS = {
+            Value.INVALID_VALUE_TIMESTAMP, 0L, 1L, 255L, 256L, Long.MAX_VALUE - 1, Long.MAX_VALUE };
+
+    @Test
+    public void byteComparableKeysRoundTrip() {
+        for (Pair<Cell, Long> cellAndTs : randomCells(new Random(0), 1000)) {
+            byte[] key = RocksKeyFormat.BYTE_COMPARABLE.getKey(cellAndTs.lhSide, cellAndTs.rhSide);
+            assertThat(RocksKeyFormat.BYTE_COMPARABLE.parseCellAndTs(key)).isEqualTo(cellAndTs);
+        }
+    }
+
+    @Test
+    public void byteComparableKeysSortInCellOrder() {
+        List<Pair<Cell, Long>> cells = randomCells(new Random(1), 2000);
+        List<Pair<Cell, Long>> expected = cells.stream().sorted(CELL_ORDER).collect(Collectors.toList());
+
+        List<Pair<Cell, Long>> actual = cells.stream()
+                .map(cellAndTs -> RocksKeyFormat.BYTE_COMPARABLE.getKey(cellAndTs.lhSide, cellAndTs.rhSide))
+                .sorted(BYTES)
+                .map(RocksKeyFormat.BYTE_COMPARABLE::parseCellAndTs)
+                .collect(Collectors.toList());
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void rowSeekKeySortsBeforeEveryKeyOfTheRow() {
+        byte[] row = {1, 0, 2};
+        byte[] seekKey = RocksKeyFormat.BYTE_COMPARABLE.getRowSeekKey(row, 10L);
+
+        assertThat(BYTES.compare(seekKey,
+                RocksKeyFormat.BYTE_COMPARABLE.getKey(row, new byte[0], Long.MAX_VALUE))).isLessThan(0);
+        assertThat(BYTES.compare(seekKey,
+                RocksKeyFormat.BYTE_COMPARABLE.getKey(new byte[] {1, 0}, new byte[] {(byte) 0xff}, 0L)))
+                .isGreaterThan(0);
+    }
+
+    private static List<Pair<Cell, Long>> randomCells(Random random, int count) {
+        List<Pair<Cell, Long>> cells = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            long timestamp = random.nextBoolean()
+                    ? INTERESTING_TIMESTAMPS[random.nextInt(INTERESTING_TIMESTAMPS.length)]
+                    : random.nextLong() & Long.MAX_VALUE;
+            cells.add(Pair.create(Cell.create(randomBytes(random, 1), randomBytes(random, 1)), timestamp));
+        }
+        return cells;
+    }
+
+    private static byte[] randomBytes(Random random, int minLength) {
+        // a tiny alphabet with lots of zeros makes prefixes and escaped bytes common
+        byte[] alphabet = {0, 0, 1, (byte) 0xff};
+        byte[] bytes = new byte[minLength + random.nextInt(4)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return bytes;
+    }
+}
@@ -33,12 +33,18 @@ import com.palantir.util.Pair;
 
 abstract class RangeIterator<T> extends AbstractIterator<RowResult<T>> implements ClosableIterator<RowResult<T>> {
     private final ColumnFamily table;
+    protected final RocksKeyFormat keyFormat;
     protected final RocksIterator it;
     private final RangeRequest request;
     protected final long maxTimestamp;
 
-    RangeIterator(ColumnFamily table, RocksIterator it, RangeRequest range, long maxTimestamp) {
+    RangeIterator(ColumnFamily table,
+                  RocksKeyFormat keyFormat,
+                  RocksIterator it,
+                  RangeRequest range,
+                  long maxTimestamp) {
         this.table = table;
+        this.keyFormat = keyFormat;
         this.it = it;
         this.request = range;
         this.maxTimestamp = maxTimestamp;
@@ -46,14 +52,14 @@ abstract class RangeIterator<T> extends AbstractIterator<RowResult<T>> implement
         if (start.length == 0) {
             it.seekToFirst();
         } else {
-            it.seek(RocksDbKeyValueServices.getKey(start, maxTimestamp - 1));
+            it.seek(keyFormat.getRowSeekKey(start, maxTimestamp - 1));
         }
     }
 
     @Override
     protected RowResult<T> computeNext() {
         while (it.isValid()) {
-            Pair<Cell, Long> cellAndTs = RocksDbKeyValueServices.parseCellAndTs(it.key());
+            Pair<Cell, Long> cellAndTs = keyFormat.parseCellAndTs(it.key());
             Cell cell = cellAndTs.lhSide;
             if (!RocksDbKeyValueServices.isInRange(cell.getRowName(), request.getEndExclusive())) {
                 break;
@@ -68,7 +74,7 @@ abstract class RangeIterator<T> extends AbstractIterator<RowResult<T>> implement
                 if (!it.isValid()) {
                     break;
                 }
-                cellAndTs = RocksDbKeyValueServices.parseCellAndTs(it.key());
+                cellAndTs = keyFormat.parseCellAndTs(it.key());
                 cell = cellAndTs.lhSide;
             } while (Arrays.equals(row, cell.getRowName()));
             SortedMap<byte[], T> columns = builder.build();
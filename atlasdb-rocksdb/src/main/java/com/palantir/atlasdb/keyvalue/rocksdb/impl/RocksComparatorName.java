@@ -20,7 +20,12 @@ import com.fasterxml.jackson.annotation.JsonValue;
 
 public enum RocksComparatorName {
     V1("atlasdb"),
-    V2("atlasdb-v2");
+    V2("atlasdb-v2"),
+    /**
+     * Same ordering as V2, but keys are encoded so that RocksDB's built-in bytewise comparator can be used.
+     * Existing databases can be converted with {@link RocksDbUpgrader}.
+     */
+    V3("atlasdb-v3");
 
     private final String comparatorName;
 
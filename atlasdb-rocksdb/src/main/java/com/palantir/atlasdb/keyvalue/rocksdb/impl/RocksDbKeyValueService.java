@@ -90,11 +90,12 @@ import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 public class RocksDbKeyValueService implements KeyValueService {
     private static final Logger log = LoggerFactory.getLogger(RocksDbKeyValueService.class);
-    private static final TableReference METADATA_TABLE_NAME = TableReference.createWithEmptyNamespace("_metadata");
+    static final TableReference METADATA_TABLE_NAME = TableReference.createWithEmptyNamespace("_metadata");
     private static final long PUT_UNLESS_EXISTS_TS = 0L;
     private static final String LOCK_FILE_PREFIX = ".pt_kv_lock";
     final RocksDB db;
     final ColumnFamilyMap columnFamilies;
+    final RocksKeyFormat keyFormat;
     private final FileLock lock;
     private final RandomAccessFile lockFile;
     private final WriteOpts writeOptions;
@@ -120,6 +121,10 @@ public class RocksDbKeyValueService implements KeyValueService {
         setReflectionOpts(cfMetadataOpts, cfOptions);
         ColumnFamilyOptions cfCommonOpts;
         switch (comparator) {
+        case "atlasdb-v3":
+            // keys are byte comparable, so the native bytewise comparator (the default) orders them correctly
+            cfCommonOpts = new ColumnFamilyOptions();
+            break;
         case "atlasdb-v2":
             cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksComparator.INSTANCE);
             break;
@@ -130,7 +135,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             throw new IllegalArgumentException("Unknown comparator " + comparator);
         }
         setReflectionOpts(cfCommonOpts, cfOptions);
-        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts);
+        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts, RocksKeyFormat.forComparator(comparator));
     }
 
     private static void setReflectionOpts(Object opts,
@@ -168,8 +173,32 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 ColumnFamilyOptions cfMetadataOptions,
                                                 ColumnFamilyOptions cfCommonOptions,
                                                 WriteOpts writeOptions) {
+        return create(dataDir, dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions, RocksComparatorName.V2);
+    }
+
+    /**
+     * The comparator set in cfCommonOptions must be the one named by comparatorName, which determines
+     * the layout of the keys.
+     */
+    public static RocksDbKeyValueService create(String dataDir,
+                                                DBOptions dbOptions,
+                                                ColumnFamilyOptions cfMetadataOptions,
+                                                ColumnFamilyOptions cfCommonOptions,
+                                                WriteOpts writeOptions,
+                                                RocksComparatorName comparatorName) {
+        return create(dataDir, dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions,
+                RocksKeyFormat.forComparator(comparatorName.getComparatorName()));
+    }
+
+    private static RocksDbKeyValueService create(String dataDir,
+                                                 DBOptions dbOptions,
+                                                 ColumnFamilyOptions cfMetadataOptions,
+                                                 ColumnFamilyOptions cfCommonOptions,
+                                                 WriteOpts writeOptions,
+                                                 RocksKeyFormat keyFormat) {
         try {
-            RocksDbKeyValueService kvs = lockAndCreateDb(new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions);
+            RocksDbKeyValueService kvs = lockAndCreateDb(
+                    new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions, keyFormat);
             registerMBean(kvs);
             return kvs;
         } catch (Exception e) {
@@ -193,7 +222,8 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                           final DBOptions dbOptions,
                                                           final ColumnFamilyOptions cfMetadataOptions,
                                                           final ColumnFamilyOptions cfCommonOptions,
-                                                          final WriteOpts writeOpts) throws IOException, RocksDBException {
+                                                          final WriteOpts writeOpts,
+                                                          final RocksKeyFormat keyFormat) throws IOException, RocksDBException {
         TempFileUtils.mkdirsWithRetry(dbDir);
         Preconditions.checkArgument(dbDir.exists() && dbDir.isDirectory(), "DB file must be a directory: " + dbDir);
         final RandomAccessFile randomAccessFile =
@@ -236,7 +266,8 @@ public class RocksDbKeyValueService implements KeyValueService {
                 }
             }, db);
             columnFamilies.initialize(cfDescriptors, cfHandles);
-            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, columnFamilies, lock, randomAccessFile, writeOpts);
+            RocksDbKeyValueService ret = new RocksDbKeyValueService(
+                    db, columnFamilies, lock, randomAccessFile, writeOpts, keyFormat);
             ret.createTable(METADATA_TABLE_NAME, AtlasDbConstants.EMPTY_TABLE_METADATA);
             success = true;
             return ret;
@@ -263,9 +294,11 @@ public class RocksDbKeyValueService implements KeyValueService {
                                    ColumnFamilyMap columnFamilies,
                                    FileLock lock,
                                    RandomAccessFile file,
-                                   WriteOpts writeOptions) {
+                                   WriteOpts writeOptions,
+                                   RocksKeyFormat keyFormat) {
         this.db = db;
         this.columnFamilies = columnFamilies;
+        this.keyFormat = keyFormat;
         this.lock = lock;
         this.lockFile = file;
         this.writeOptions = writeOptions;
@@ -301,7 +334,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             Map<Cell, Value> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
             for (byte[] row : rows) {
-                RocksDbKeyValueServices.getRow(iter, row, columnSelection, timestamp, results);
+                RocksDbKeyValueServices.getRow(keyFormat, iter, row, columnSelection, timestamp, results);
             }
             return results;
         }
@@ -315,7 +348,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             Map<Cell, Value> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
             for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Value value = RocksDbKeyValueServices.getCell(iter, entry.getKey(), entry.getValue());
+                Value value = RocksDbKeyValueServices.getCell(keyFormat, iter, entry.getKey(), entry.getValue());
                 if (value != null) {
                     results.put(entry.getKey(), value);
                 }
@@ -332,7 +365,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             Map<Cell, Long> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
             for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Long ts = RocksDbKeyValueServices.getTimestamp(iter, entry.getKey(), entry.getValue());
+                Long ts = RocksDbKeyValueServices.getTimestamp(keyFormat, iter, entry.getKey(), entry.getValue());
                 if (ts != null) {
                     results.put(entry.getKey(), ts);
                 }
@@ -348,7 +381,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), timestamp);
+                byte[] key = keyFormat.getKey(entry.getKey(), timestamp);
                 batch.put(table.getHandle(), key, entry.getValue());
             }
             getDb().write(options, batch);
@@ -370,7 +403,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                 for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
                     ColumnFamilyHandle table = cfs.get(entry.getKey().getQualifiedName()).getHandle();
                     for (Entry<Cell, byte[]> subEntry : entry.getValue().entrySet()) {
-                        byte[] key = RocksDbKeyValueServices.getKey(subEntry.getKey(), timestamp);
+                        byte[] key = keyFormat.getKey(subEntry.getKey(), timestamp);
                         batch.put(table, key, subEntry.getValue());
                     }
                 }
@@ -393,7 +426,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, Value> entry : cellValues.entries()) {
                 Value value = entry.getValue();
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), value.getTimestamp());
+                byte[] key = keyFormat.getKey(entry.getKey(), value.getTimestamp());
                 batch.put(table.getHandle(), key, value.getContents());
             }
             getDb().write(options, batch);
@@ -413,7 +446,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteBatch batch = d.register(new WriteBatch());
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
+                byte[] key = keyFormat.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
                 if (RocksDbKeyValueServices.keyExists(iter, key)) {
                     alreadyExists.add(entry.getKey());
                 } else {
@@ -448,7 +481,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, Long> entry : keys.entries()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), entry.getValue());
+                byte[] key = keyFormat.getKey(entry.getKey(), entry.getValue());
                 batch.remove(table.getHandle(), key);
             }
             getDb().write(options, batch);
@@ -500,7 +533,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                        long timestamp) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
-        return new ValueRangeIterator(table, iter, rangeRequest, timestamp);
+        return new ValueRangeIterator(table, keyFormat, iter, rangeRequest, timestamp);
     }
 
     @Override
@@ -509,7 +542,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                                        long timestamp) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
-        return new TimestampRangeIterator(table, iter, rangeRequest, timestamp);
+        return new TimestampRangeIterator(table, keyFormat, iter, rangeRequest, timestamp);
     }
 
     @Override
@@ -644,7 +677,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                 WriteOptions options = d.register(new WriteOptions().setSync(true));
                 WriteBatch batch = d.register(new WriteBatch());
                 for (Cell cell : cells) {
-                    byte[] key = RocksDbKeyValueServices.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
+                    byte[] key = keyFormat.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
                     batch.put(table.getHandle(), key, val);
                 }
                 getDb().write(options, batch);
@@ -663,7 +696,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             RocksIterator iter = getDb().newIterator(table.getHandle());
             try {
                 for (Cell cell : cells) {
-                    RocksDbKeyValueServices.getTimestamps(iter, cell, timestamp, results);
+                    RocksDbKeyValueServices.getTimestamps(keyFormat, iter, cell, timestamp, results);
                 }
             } finally {
                 iter.dispose();
@@ -46,15 +46,16 @@ public class RocksDbKeyValueServices {
         return iter.isValid() && Arrays.equals(key, iter.key());
     }
 
-    static void getRow(RocksIterator iter,
+    static void getRow(RocksKeyFormat keyFormat,
+                       RocksIterator iter,
                        byte[] row,
                        ColumnSelection columnSelection,
                        long timestamp,
                        @Output Map<Cell, Value> results) {
-        iter.seek(getKey(row, timestamp - 1));
+        iter.seek(keyFormat.getRowSeekKey(row, timestamp - 1));
         byte[] col = null;
         for (; iter.isValid(); iter.next()) {
-            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
+            Pair<Cell, Long> cellAndTs = keyFormat.parseCellAndTs(iter.key());
             if (!Arrays.equals(row, cellAndTs.lhSide.getRowName())) {
                 return;
             }
@@ -68,12 +69,13 @@ public class RocksDbKeyValueServices {
         }
     }
 
-    static Value getCell(RocksIterator iter,
+    static Value getCell(RocksKeyFormat keyFormat,
+                         RocksIterator iter,
                          Cell cell,
                          long timestamp) {
-        iter.seek(getKey(cell, timestamp - 1));
+        iter.seek(keyFormat.getKey(cell, timestamp - 1));
         if (iter.isValid()) {
-            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
+            Pair<Cell, Long> cellAndTs = keyFormat.parseCellAndTs(iter.key());
             if (cellAndTs.lhSide.equals(cell)) {
                 return Value.create(iter.value(), cellAndTs.rhSide);
             }
@@ -81,12 +83,13 @@ public class RocksDbKeyValueServices {
         return null;
     }
 
-    static Long getTimestamp(RocksIterator iter,
+    static Long getTimestamp(RocksKeyFormat keyFormat,
+                             RocksIterator iter,
                              Cell cell,
                              long timestamp) {
-        iter.seek(getKey(cell, timestamp - 1));
+        iter.seek(keyFormat.getKey(cell, timestamp - 1));
         if (iter.isValid()) {
-            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
+            Pair<Cell, Long> cellAndTs = keyFormat.parseCellAndTs(iter.key());
             if (cellAndTs.lhSide.equals(cell)) {
                 return cellAndTs.rhSide;
             }
@@ -94,13 +97,14 @@ public class RocksDbKeyValueServices {
         return null;
     }
 
-    static void getTimestamps(RocksIterator iter,
+    static void getTimestamps(RocksKeyFormat keyFormat,
+                              RocksIterator iter,
                               Cell cell,
                               long timestamp,
                               @Output Multimap<Cell, Long> results) {
-        iter.seek(getKey(cell, timestamp - 1));
+        iter.seek(keyFormat.getKey(cell, timestamp - 1));
         for (; iter.isValid(); iter.next()) {
-            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
+            Pair<Cell, Long> cellAndTs = keyFormat.parseCellAndTs(iter.key());
             if (!cell.equals(cellAndTs.lhSide)) {
                 return;
             }
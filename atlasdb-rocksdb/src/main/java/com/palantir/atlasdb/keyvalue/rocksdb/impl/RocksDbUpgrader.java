@@ -19,16 +19,20 @@ import java.io.File;
 import java.util.Optional;
 
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
 import org.rocksdb.RocksIterator;
 import org.rocksdb.WriteOptions;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.config.LeaderConfig;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
 import com.palantir.atlasdb.rocksdb.RocksDbAtlasDbFactory;
 import com.palantir.atlasdb.rocksdb.RocksDbKeyValueServiceConfig;
+import com.palantir.util.Pair;
 
 public class RocksDbUpgrader {
     private static final ObjectMapper MAPPER = new ObjectMapper();
@@ -67,11 +71,16 @@ public class RocksDbUpgrader {
             ColumnFamilyHandle newHandle = newCf.getHandle();
             WriteOptions opts = new WriteOptions().setDisableWAL(true).setSync(false);
             RocksIterator iter = oldKvs.db.newIterator(oldCf.getHandle());
+            boolean reencodeKeys = oldKvs.keyFormat != newKvs.keyFormat && hasCellKeys(table);
             iter.seekToFirst();
             long count = 0;
             while (iter.isValid()) {
                 byte[] key = iter.key();
                 byte[] value = iter.value();
+                if (reencodeKeys) {
+                    Pair<Cell, Long> cellAndTs = oldKvs.keyFormat.parseCellAndTs(key);
+                    key = newKvs.keyFormat.getKey(cellAndTs.lhSide, cellAndTs.rhSide);
+                }
                 newKvs.db.put(newHandle, opts, key, value);
                 iter.next();
                 if (++count % 10000 == 0) {
@@ -86,11 +95,20 @@ public class RocksDbUpgrader {
         System.out.println("Finished migration of all tables.");
     }
 
+    private static boolean hasCellKeys(String table) {
+        // the metadata table is keyed by table name, and the default column family is never written to
+        return !table.equals(RocksDbKeyValueService.METADATA_TABLE_NAME.getQualifiedName())
+                && !table.equals(new String(RocksDB.DEFAULT_COLUMN_FAMILY, Charsets.UTF_8));
+    }
+
     private static void help() {
         System.out.println("RocksDbUpgrader");
         System.out.println();
         System.out.println("  Use this cli to copy your existing rocksdb database");
         System.out.println("  into a new database with possibly different settings.");
+        System.out.println("  Keys are rewritten if the two databases use comparators");
+        System.out.println("  with different key formats, e.g. when upgrading from");
+        System.out.println("  \"atlasdb-v2\" to \"atlasdb-v3\".");
         System.out.println();
         System.out.println("Usage: RocksDbUpgrader old-settings.json new-settings.json");
         System.out.println();
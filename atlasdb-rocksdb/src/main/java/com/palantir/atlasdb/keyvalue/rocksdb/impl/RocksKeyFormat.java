@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.util.Pair;
+
+/**
+ * The layout of cell keys in the column families of a {@link RocksDbKeyValueService}. A layout only works
+ * together with the comparator the column family was created with, so it is fixed by the configured
+ * {@link RocksComparatorName}.
+ */
+enum RocksKeyFormat {
+    /**
+     * row | column | timestamp | reversed varlong row length. Used with {@link RocksComparator} and
+     * {@link RocksOldComparator}, which have to decode the row length on every comparison.
+     */
+    ROW_SIZE_SUFFIX {
+        @Override
+        byte[] getKey(byte[] row, byte[] col, long timestamp) {
+            return RocksDbKeyValueServices.getKey(row, col, timestamp);
+        }
+
+        @Override
+        byte[] getRowSeekKey(byte[] row, long timestamp) {
+            return RocksDbKeyValueServices.getKey(row, timestamp);
+        }
+
+        @Override
+        Pair<Cell, Long> parseCellAndTs(byte[] key) {
+            return RocksDbKeyValueServices.parseCellAndTs(key);
+        }
+    },
+
+    /**
+     * escaped row | escaped column | inverted timestamp, laid out so that the unsigned lexicographic order
+     * of the keys is the order of {@link RocksComparator}: rows ascending, then columns ascending, then
+     * timestamps descending. This lets RocksDB use its native bytewise comparator instead of calling back
+     * into java for every comparison.
+     * <p>
+     * Rows and columns are written with every 0x00 byte replaced by 0x00 0xFF and are terminated by
+     * 0x00 0x01, which keeps them prefix free without changing their relative order. The timestamp is
+     * written big endian after flipping all bits but the sign bit, so greater timestamps sort first.
+     */
+    BYTE_COMPARABLE {
+        @Override
+        byte[] getKey(byte[] row, byte[] col, long timestamp) {
+            byte[] key = new byte[escapedLength(row) + escapedLength(col) + Longs.BYTES];
+            int pos = writeEscaped(row, key, 0);
+            pos = writeEscaped(col, key, pos);
+            writeTimestamp(timestamp, key, pos);
+            return key;
+        }
+
+        @Override
+        byte[] getRowSeekKey(byte[] row, long timestamp) {
+            // every key of the row starts with the escaped row, and no key of an earlier row does
+            byte[] key = new byte[escapedLength(row)];
+            writeEscaped(row, key, 0);
+            return key;
+        }
+
+        @Override
+        Pair<Cell, Long> parseCellAndTs(byte[] key) {
+            int rowEnd = findTerminator(key, 0);
+            int colEnd = findTerminator(key, rowEnd + 2);
+            Preconditions.checkArgument(colEnd + 2 + Longs.BYTES == key.length, "Malformed rocksdb key");
+            byte[] row = unescape(key, 0, rowEnd);
+            byte[] col = unescape(key, rowEnd + 2, colEnd);
+            return Pair.create(Cell.create(row, col), readTimestamp(key, colEnd + 2));
+        }
+    };
+
+    private static final byte ESCAPE = 0x00;
+    private static final byte ESCAPED_ZERO = (byte) 0xFF;
+    private static final byte TERMINATOR = 0x01;
+
+    abstract byte[] getKey(byte[] row, byte[] col, long timestamp);
+
+    /**
+     * Returns a key which sorts before every version of every cell of the given row that is visible at the
+     * given timestamp, and after all keys of smaller rows.
+     */
+    abstract byte[] getRowSeekKey(byte[] row, long timestamp);
+
+    abstract Pair<Cell, Long> parseCellAndTs(byte[] key);
+
+    final byte[] getKey(Cell cell, long timestamp) {
+        return getKey(cell.getRowName(), cell.getColumnName(), timestamp);
+    }
+
+    static RocksKeyFormat forComparator(String comparatorName) {
+        if (RocksComparatorName.V3.getComparatorName().equals(comparatorName)) {
+            return BYTE_COMPARABLE;
+        }
+        return ROW_SIZE_SUFFIX;
+    }
+
+    private static int escapedLength(byte[] bytes) {
+        int length = bytes.length + 2;
+        for (byte b : bytes) {
+            if (b == ESCAPE) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static int writeEscaped(byte[] bytes, byte[] dest, int pos) {
+        for (byte b : bytes) {
+            dest[pos++] = b;
+            if (b == ESCAPE) {
+                dest[pos++] = ESCAPED_ZERO;
+            }
+        }
+        dest[pos++] = ESCAPE;
+        dest[pos++] = TERMINATOR;
+        return pos;
+    }
+
+    private static int findTerminator(byte[] key, int from) {
+        for (int i = from; i < key.length - 1; i++) {
+            if (key[i] == ESCAPE) {
+                if (key[i + 1] == TERMINATOR) {
+                    return i;
+                }
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Malformed rocksdb key");
+    }
+
+    private static byte[] unescape(byte[] key, int from, int to) {
+        int zeros = 0;
+        for (int i = from; i < to; i++) {
+            if (key[i] == ESCAPE) {
+                zeros++;
+                i++;
+            }
+        }
+        if (zeros == 0) {
+            return Arrays.copyOfRange(key, from, to);
+        }
+        byte[] result = new byte[to - from - zeros];
+        int pos = 0;
+        for (int i = from; i < to; i++) {
+            result[pos++] = key[i];
+            if (key[i] == ESCAPE) {
+                i++;
+            }
+        }
+        return result;
+    }
+
+    private static void writeTimestamp(long timestamp, byte[] dest, int pos) {
+        long inverted = timestamp ^ Long.MAX_VALUE;
+        for (int i = Longs.BYTES - 1; i >= 0; i--) {
+            dest[pos + i] = (byte) inverted;
+            inverted >>>= 8;
+        }
+    }
+
+    private static long readTimestamp(byte[] key, int pos) {
+        return Longs.fromBytes(
+                key[pos],
+                key[pos + 1],
+                key[pos + 2],
+                key[pos + 3],
+                key[pos + 4],
+                key[pos + 5],
+                key[pos + 6],
+                key[pos + 7]) ^ Long.MAX_VALUE;
+    }
+}
@@ -25,8 +25,12 @@ import com.palantir.util.Pair;
 
 public class ValueRangeIterator extends RangeIterator<Value> {
 
-    ValueRangeIterator(ColumnFamily table, RocksIterator it, RangeRequest range, long maxTimestamp) {
-        super(table, it, range, maxTimestamp);
+    ValueRangeIterator(ColumnFamily table,
+                       RocksKeyFormat keyFormat,
+                       RocksIterator it,
+                       RangeRequest range,
+                       long maxTimestamp) {
+        super(table, keyFormat, it, range, maxTimestamp);
     }
 
     @Override
@@ -37,7 +41,7 @@ public class ValueRangeIterator extends RangeIterator<Value> {
             ret = Value.create(it.value(), cellAndInitialTs.rhSide);
         }
         for (it.next(); it.isValid(); it.next()) {
-            Pair<Cell, Long> cellAndTs = RocksDbKeyValueServices.parseCellAndTs(it.key());
+            Pair<Cell, Long> cellAndTs = keyFormat.parseCellAndTs(it.key());
             if (!cellAndTs.lhSide.equals(cell)) {
                 break;
             }
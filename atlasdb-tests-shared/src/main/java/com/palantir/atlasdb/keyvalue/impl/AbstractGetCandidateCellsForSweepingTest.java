@@ -28,6 +28,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -172,13 +173,40 @@ public abstract class AbstractGetCandidateCellsForSweepingTest {
                 candidates.stream().map(CandidateCellForSweeping::cell).collect(Collectors.toList()));
     }
 
+    @Test
+    public void returnCellsWhoseTimestampsAreAllIgnored() {
+        new TestDataBuilder().put(1, 1, 10L).put(2, 1, 10L).store();
+        kvs.addGarbageCollectionSentinelValues(TEST_TABLE, ImmutableList.of(cell(1, 2)));
+        assertThat(getAllCells(conservativeRequest(PtBytes.EMPTY_BYTE_ARRAY, 40L, 30L)))
+                .containsExactly(
+                        ImmutableCandidateCellForSweeping.builder()
+                                .cell(cell(1, 1))
+                                .sortedTimestamps(new long[0])
+                                .isLatestValueEmpty(false)
+                                .numCellsTsPairsExamined(1)
+                                .build(),
+                        ImmutableCandidateCellForSweeping.builder()
+                                .cell(cell(1, 2))
+                                .sortedTimestamps(new long[0])
+                                .isLatestValueEmpty(false)
+                                .numCellsTsPairsExamined(1)
+                                .build(),
+                        ImmutableCandidateCellForSweeping.builder()
+                                .cell(cell(2, 1))
+                                .sortedTimestamps(new long[0])
+                                .isLatestValueEmpty(false)
+                                .numCellsTsPairsExamined(2)
+                                .build());
+    }
+
     private List<CandidateCellForSweeping> getAllCandidates(CandidateCellForSweepingRequest request) {
+        return ImmutableList.copyOf(Iterables.filter(getAllCells(request), cell -> cell.sortedTimestamps().length > 0));
+    }
+
+    private List<CandidateCellForSweeping> getAllCells(CandidateCellForSweepingRequest request) {
         try (ClosableIterator<List<CandidateCellForSweeping>> iter =
                     kvs.getCandidateCellsForSweeping(TEST_TABLE, request)) {
-            return ImmutableList.copyOf(
-                    Iterators.filter(
-                            Iterators.concat(Iterators.transform(iter, List::iterator)),
-                            list -> list.sortedTimestamps().length > 0));
+            return ImmutableList.copyOf(Iterators.concat(Iterators.transform(iter, List::iterator)));
         }
     }
 
@@ -21,6 +21,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongSupplier;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -60,6 +61,7 @@ public abstract class AbstractBackgroundSweeperIntegrationTest {
     private KeyValueService kvs;
     protected LockAwareTransactionManager txManager;
     protected final AtomicLong sweepTimestamp = new AtomicLong();
+    private SweepTaskRunner sweepRunner;
     private BackgroundSweeperImpl backgroundSweeper;
     private SweepBatchConfig sweepBatchConfig = ImmutableSweepBatchConfig.builder()
             .deleteBatchSize(8)
@@ -80,7 +82,7 @@ public abstract class AbstractBackgroundSweeperIntegrationTest {
                 SweepTestUtils.getPersistentLockService(kvs),
                 AtlasDbConstants.DEFAULT_SWEEP_PERSISTENT_LOCK_WAIT_MILLIS);
         CellsSweeper cellsSweeper = new CellsSweeper(txManager, kvs, persistentLockManager, ImmutableList.of());
-        SweepTaskRunner sweepRunner = new SweepTaskRunner(kvs, tsSupplier, tsSupplier, txService, ssm, cellsSweeper);
+        sweepRunner = new SweepTaskRunner(kvs, tsSupplier, tsSupplier, txService, ssm, cellsSweeper);
         backgroundSweeper = BackgroundSweeperImpl.create(
                 txManager,
                 kvs,
@@ -93,6 +95,11 @@ public abstract class AbstractBackgroundSweeperIntegrationTest {
                 persistentLockManager);
     }
 
+    @After
+    public void closeSweepRunner() {
+        sweepRunner.close();
+    }
+
     @Test
     public void smokeTest() throws Exception {
         createTable(TABLE_1, SweepStrategy.CONSERVATIVE);
@@ -105,10 +112,13 @@ public abstract class AbstractBackgroundSweeperIntegrationTest {
         putManyCells(TABLE_2, 104, 114);
         putManyCells(TABLE_3, 120, 130);
         sweepTimestamp.set(150);
-        try (SweepLocks sweepLocks = backgroundSweeper.createSweepLocks()) {
+        BackgroundSweeperImpl.SweepWorker worker = backgroundSweeper.createWorker(0);
+        try {
             for (int i = 0; i < 50; ++i) {
-                backgroundSweeper.grabLocksAndRun(sweepLocks);
+                worker.grabLocksAndRun();
             }
+        } finally {
+            worker.releaseShard();
         }
         verifyTableSwept(TABLE_1, 75, true);
         verifyTableSwept(TABLE_2, 58, false);
@@ -86,6 +86,7 @@ public abstract class AbstractSweepTaskRunnerTest {
 
     @After
     public void close() {
+        sweepRunner.close();
         kvs.close();
     }
 
@@ -477,6 +477,95 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
         }
     }
 
+    @Test
+    public void testRewritingSameValueIsNotAReadWriteConflict() {
+        String initialValue = "100";
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", initialValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        getCell(t1, "row1", "col1");
+        get(t1, "row1", "col1");
+        put(t1, "row2", "col1", initialValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row1", "col1", initialValue);
+        t2.commit();
+
+        // The version changed but the value did not, so this must still commit.
+        t1.commit();
+    }
+
+    @Test
+    public void testRewritingSameValueInRangeIsNotAReadWriteConflict() {
+        String initialValue = "100";
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", initialValue);
+        put(t0, "row2", "col1", initialValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE, RangeRequest.builder().build()));
+        put(t1, "row22", "col1", initialValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row2", "col1", initialValue);
+        t2.commit();
+
+        t1.commit();
+    }
+
+    @Test
+    public void testDeleteOfReadCellIsAReadWriteConflict() {
+        String initialValue = "100";
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", initialValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        getCell(t1, "row1", "col1");
+        put(t1, "row2", "col1", initialValue);
+
+        Transaction t2 = startTransaction();
+        delete(t2, "row1", "col1");
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWriteToPreviouslyDeletedCellIsAReadWriteConflict() {
+        String initialValue = "100";
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", initialValue);
+        t0.commit();
+
+        Transaction tDelete = startTransaction();
+        delete(tDelete, "row1", "col1");
+        tDelete.commit();
+
+        Transaction t1 = startTransaction();
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE, RangeRequest.builder().build()));
+        put(t1, "row2", "col1", initialValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row1", "col1", initialValue);
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testColumnSelection() {
         String initialValue = "100";
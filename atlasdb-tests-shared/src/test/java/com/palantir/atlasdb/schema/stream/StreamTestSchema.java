@@ -59,6 +59,7 @@ public class StreamTestSchema implements AtlasSchema {
                     .compressStreamInClient()
                     .hashFirstRowComponent()
                     .isAppendHeavyAndReadLight()
+                    .parallelWrites(4, 2)
                     .build());
 
         schema.addStreamStoreDefinition(
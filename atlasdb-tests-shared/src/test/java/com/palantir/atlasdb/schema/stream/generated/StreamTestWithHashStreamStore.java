@@ -75,6 +75,8 @@ import net.jpountz.lz4.LZ4BlockInputStream;
 public final class StreamTestWithHashStreamStore extends AbstractPersistentStreamStore {
     public static final int BLOCK_SIZE_IN_BYTES = 1000000; // 1MB. DO NOT CHANGE THIS WITHOUT AN UPGRADE TASK
     public static final int IN_MEMORY_THRESHOLD = 4000; // streams under this size are kept in memory when loaded
+    public static final int WRITE_PARALLELISM = 4; // batches of blocks stored concurrently
+    public static final int WRITE_BATCH_SIZE_IN_BLOCKS = 2; // blocks stored per transaction
     public static final String STREAM_FILE_PREFIX = "StreamTestWithHash_stream_";
     public static final String STREAM_FILE_SUFFIX = ".tmp";
 
@@ -103,6 +105,16 @@ public final class StreamTestWithHashStreamStore extends AbstractPersistentStrea
         return IN_MEMORY_THRESHOLD;
     }
 
+    @Override
+    protected int getWriteParallelism() {
+        return WRITE_PARALLELISM;
+    }
+
+    @Override
+    protected int getWriteBatchSizeInBlocks() {
+        return WRITE_BATCH_SIZE_IN_BLOCKS;
+    }
+
     @Override
     protected void storeBlock(Transaction t, long id, long blockNumber, final byte[] block) {
         Preconditions.checkArgument(block.length <= BLOCK_SIZE_IN_BYTES, "Block to store in DB must be less than BLOCK_SIZE_IN_BYTES");
@@ -122,9 +134,9 @@ public final class StreamTestWithHashStreamStore extends AbstractPersistentStrea
         StreamTestWithHashStreamMetadataTable.StreamTestWithHashStreamMetadataRow row = StreamTestWithHashStreamMetadataTable.StreamTestWithHashStreamMetadataRow.of(id);
         StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();
         Preconditions.checkState(metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
-        Builder builder = StreamMetadata.newBuilder(metadata);
-        builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);
-        metaTable.putMetadata(row, builder.build());
+        // Write the metadata back unchanged, so that blocks stored concurrently do not conflict with each other
+        // but still conflict with anything that changes the metadata, such as cleanup.
+        metaTable.putMetadata(row, metadata);
     }
 
     @Override
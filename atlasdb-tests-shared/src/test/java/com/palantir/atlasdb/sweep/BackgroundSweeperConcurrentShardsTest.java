@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.palantir.atlasdb.keyvalue.api.ImmutableSweepResults;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.schema.generated.SweepTableFactory;
+import com.palantir.atlasdb.sweep.priority.ImmutableUpdateSweepPriority;
+import com.palantir.atlasdb.sweep.priority.NextTableToSweepProvider;
+import com.palantir.atlasdb.sweep.priority.SweepPriorityStore;
+import com.palantir.atlasdb.sweep.progress.ImmutableSweepProgress;
+import com.palantir.atlasdb.sweep.progress.SweepProgress;
+import com.palantir.atlasdb.sweep.progress.SweepProgressStore;
+import com.palantir.atlasdb.sweep.progress.SweepShards;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+
+public class BackgroundSweeperConcurrentShardsTest {
+    private static final TableReference TABLE_REF = TableReference.createFromFullyQualifiedName(
+            "backgroundsweeper.concurrentshards");
+    private static final int SHARD_COUNT = 2;
+    private static final long CURRENT_TIME_MILLIS = 1000200300L;
+
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private final LockAwareTransactionManager txManager = SweepTestUtils.setupTxManager(kvs);
+    private final SweepProgressStore progressStore = Mockito.spy(new SweepProgressStore(kvs, SweepTableFactory.of()));
+    private final SweepPriorityStore priorityStore = Mockito.spy(new SweepPriorityStore(SweepTableFactory.of()));
+    private final NextTableToSweepProvider nextTableToSweepProvider = Mockito.mock(NextTableToSweepProvider.class);
+    private final SweepTaskRunner sweepTaskRunner = Mockito.mock(SweepTaskRunner.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(SHARD_COUNT);
+
+    private BackgroundSweeperImpl backgroundSweeper;
+
+    @Before
+    public void setup() {
+        backgroundSweeper = new BackgroundSweeperImpl(
+                txManager,
+                txManager.getLockService(),
+                kvs,
+                progressStore,
+                priorityStore,
+                nextTableToSweepProvider,
+                sweepTaskRunner,
+                () -> true,
+                () -> 0L, // pauseMillis
+                () -> ImmutableSweepBatchConfig.builder()
+                        .deleteBatchSize(100)
+                        .candidateBatchSize(200)
+                        .maxCellTsPairsToExamine(1000)
+                        .build(),
+                Mockito.mock(BackgroundSweeperPerformanceLogger.class),
+                Mockito.mock(SweepMetrics.class),
+                Mockito.mock(PersistentLockManager.class),
+                () -> CURRENT_TIME_MILLIS,
+                SHARD_COUNT, // sweepThreads
+                1000L);
+        Mockito.doReturn(Optional.empty()).when(nextTableToSweepProvider)
+                .chooseNextTableToSweep(Mockito.any(), Mockito.anyLong(), Mockito.any());
+        Mockito.doReturn(ImmutableSweepResults.builder()
+                .staleValuesDeleted(0)
+                .cellTsPairsExamined(10)
+                .sweptTimestamp(12345L)
+                .build())
+                .when(sweepTaskRunner).run(Mockito.eq(TABLE_REF), Mockito.any(), Mockito.any(), Mockito.any());
+        txManager.runTaskWithRetry(tx -> {
+            for (int shardIndex = 0; shardIndex < SHARD_COUNT; shardIndex++) {
+                progressStore.saveShardProgress(tx, ImmutableSweepProgress.builder()
+                        .tableRef(TABLE_REF)
+                        .startRow(SweepShards.getStartRowInclusive(shardIndex, SHARD_COUNT))
+                        .staleValuesDeleted(0L)
+                        .cellTsPairsExamined(0L)
+                        .minimumSweptTimestamp(Long.MAX_VALUE)
+                        .shardIndex(shardIndex)
+                        .shardCount(SHARD_COUNT)
+                        .build());
+            }
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void tableIsFinishedOnceWhenItsLastShardsFinishConcurrently() throws Exception {
+        // Make both sweepers finish their shards at the same time.
+        CyclicBarrier barrier = new CyclicBarrier(SHARD_COUNT);
+        Mockito.doAnswer(inv -> {
+            SweepProgress progress = (SweepProgress) inv.getArguments()[1];
+            if (progress.isFinished()) {
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+            return inv.callRealMethod();
+        }).when(progressStore).saveShardProgress(Mockito.any(), Mockito.any());
+
+        Future<Boolean> firstWorker = executor.submit(() -> backgroundSweeper.createWorker(0).runOnce());
+        Future<Boolean> secondWorker = executor.submit(() -> backgroundSweeper.createWorker(1).runOnce());
+        assertThat(firstWorker.get(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(secondWorker.get(30, TimeUnit.SECONDS)).isTrue();
+
+        Mockito.verify(priorityStore, Mockito.times(1)).update(
+                Mockito.any(),
+                Mockito.eq(TABLE_REF),
+                Mockito.eq(ImmutableUpdateSweepPriority.builder()
+                        .newStaleValuesDeleted(0L)
+                        .newCellTsPairsExamined(20L)
+                        .newMinimumSweptTimestamp(12345L)
+                        .newLastSweepTimeMillis(CURRENT_TIME_MILLIS)
+                        .build()));
+        assertThat(txManager.runTaskReadOnly(progressStore::loadAllShardProgress)).isEmpty();
+    }
+}
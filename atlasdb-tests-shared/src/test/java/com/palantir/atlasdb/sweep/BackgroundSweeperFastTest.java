@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.math.BigInteger;
 import java.util.Optional;
 
 import org.junit.Before;
@@ -22,10 +23,14 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.ImmutableSweepResults;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.sweep.priority.ImmutableSweepPriority;
 import com.palantir.atlasdb.sweep.priority.ImmutableUpdateSweepPriority;
 import com.palantir.atlasdb.sweep.priority.NextTableToSweepProvider;
 import com.palantir.atlasdb.sweep.priority.SweepPriorityStore;
@@ -35,14 +40,17 @@ import com.palantir.atlasdb.sweep.progress.SweepProgressStore;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.RemoteLockService;
 
 public class BackgroundSweeperFastTest {
     private static final TableReference TABLE_REF = TableReference.createFromFullyQualifiedName(
             "backgroundsweeper.fasttest");
+    private static final long CELL_TS_PAIRS_PER_SHARD = 1000L;
 
     private BackgroundSweeperImpl backgroundSweeper;
     private KeyValueService kvs = Mockito.mock(KeyValueService.class);
+    private RemoteLockService lockService = Mockito.mock(RemoteLockService.class);
     private SweepProgressStore progressStore = Mockito.mock(SweepProgressStore.class);
     private SweepPriorityStore priorityStore = Mockito.mock(SweepPriorityStore.class);
     private NextTableToSweepProvider nextTableToSweepProvider = Mockito.mock(NextTableToSweepProvider.class);
@@ -52,10 +60,10 @@ public class BackgroundSweeperFastTest {
     private long currentTimeMillis = 1000200300L;
 
     @Before
-    public void setup() {
+    public void setup() throws InterruptedException {
         backgroundSweeper = new BackgroundSweeperImpl(
                 mockTxManager(),
-                Mockito.mock(RemoteLockService.class),
+                lockService,
                 kvs,
                 progressStore,
                 priorityStore,
@@ -71,11 +79,16 @@ public class BackgroundSweeperFastTest {
                 Mockito.mock(BackgroundSweeperPerformanceLogger.class),
                 sweepMetrics,
                 Mockito.mock(PersistentLockManager.class),
-                () -> currentTimeMillis);
+                () -> currentTimeMillis,
+                2, // sweepThreads
+                CELL_TS_PAIRS_PER_SHARD);
+        Mockito.doReturn(new LockRefreshToken(BigInteger.ONE, Long.MAX_VALUE))
+                .when(lockService).lock(Mockito.anyString(), Mockito.any());
+        Mockito.doReturn(ImmutableList.of()).when(priorityStore).loadNewPriorities(Mockito.any());
     }
 
     @Test
-    public void testWritePriorityAfterCompleteFreshRun() {
+    public void testWritePriorityAfterCompleteFreshRun() throws InterruptedException {
         setNoProgress();
         setNextTableToSweep(TABLE_REF);
         setupTaskRunner(ImmutableSweepResults.builder()
@@ -83,7 +96,13 @@ public class BackgroundSweeperFastTest {
                 .cellTsPairsExamined(10)
                 .sweptTimestamp(12345L)
                 .build());
-        backgroundSweeper.runOnce();
+        runOnce();
+        Mockito.verify(priorityStore).update(
+                Mockito.any(),
+                Mockito.eq(TABLE_REF),
+                Mockito.eq(ImmutableUpdateSweepPriority.builder()
+                        .newWriteCount(0L)
+                        .build()));
         Mockito.verify(priorityStore).update(
                 Mockito.any(),
                 Mockito.eq(TABLE_REF),
@@ -92,12 +111,11 @@ public class BackgroundSweeperFastTest {
                         .newCellTsPairsExamined(10)
                         .newMinimumSweptTimestamp(12345L)
                         .newLastSweepTimeMillis(currentTimeMillis)
-                        .newWriteCount(0L)
                         .build()));
     }
 
     @Test
-    public void testWritePriorityAfterSecondRunCompletesSweep() {
+    public void testWritePriorityAfterSecondRunCompletesSweep() throws InterruptedException {
         setProgress(ImmutableSweepProgress.builder()
                         .tableRef(TABLE_REF)
                         .staleValuesDeleted(3)
@@ -111,7 +129,7 @@ public class BackgroundSweeperFastTest {
                 .sweptTimestamp(9999L)
                 .previousStartRow(Optional.of(new byte[] {1, 2, 3}))
                 .build());
-        backgroundSweeper.runOnce();
+        runOnce();
         Mockito.verify(priorityStore).update(
                 Mockito.any(),
                 Mockito.eq(TABLE_REF),
@@ -121,10 +139,11 @@ public class BackgroundSweeperFastTest {
                         .newMinimumSweptTimestamp(4567L)
                         .newLastSweepTimeMillis(currentTimeMillis)
                         .build()));
+        Mockito.verify(progressStore).clearShardProgress(Mockito.any(), Mockito.eq(TABLE_REF), Mockito.eq(1));
     }
 
     @Test
-    public void testWriteProgressAfterIncompleteRun() {
+    public void testWriteProgressAfterIncompleteRun() throws InterruptedException {
         setNoProgress();
         setNextTableToSweep(TABLE_REF);
         setupTaskRunner(ImmutableSweepResults.builder()
@@ -133,8 +152,8 @@ public class BackgroundSweeperFastTest {
                 .sweptTimestamp(12345L)
                 .nextStartRow(Optional.of(new byte[] {1, 2, 3}))
                 .build());
-        backgroundSweeper.runOnce();
-        Mockito.verify(progressStore).saveProgress(
+        runOnce();
+        Mockito.verify(progressStore).saveShardProgress(
                 Mockito.any(),
                 Mockito.eq(ImmutableSweepProgress.builder()
                         .tableRef(TABLE_REF)
@@ -146,7 +165,7 @@ public class BackgroundSweeperFastTest {
     }
 
     @Test
-    public void testPutZeroWriteCountAfterFreshIncompleteRun() {
+    public void testPutZeroWriteCountAfterFreshIncompleteRun() throws InterruptedException {
         setNoProgress();
         setNextTableToSweep(TABLE_REF);
         setupTaskRunner(ImmutableSweepResults.builder()
@@ -155,7 +174,7 @@ public class BackgroundSweeperFastTest {
                 .sweptTimestamp(12345L)
                 .nextStartRow(Optional.of(new byte[] {1, 2, 3}))
                 .build());
-        backgroundSweeper.runOnce();
+        runOnce();
         Mockito.verify(priorityStore).update(
                 Mockito.any(),
                 Mockito.eq(TABLE_REF),
@@ -165,7 +184,22 @@ public class BackgroundSweeperFastTest {
     }
 
     @Test
-    public void testMetricsNotRecordedAfterIncompleteRun() {
+    public void testTableMetricsNotRecordedAfterIncompleteRun() throws InterruptedException {
+        setNoProgress();
+        setNextTableToSweep(TABLE_REF);
+        setupTaskRunner(ImmutableSweepResults.builder()
+                .staleValuesDeleted(2)
+                .cellTsPairsExamined(10)
+                .sweptTimestamp(12345L)
+                .nextStartRow(Optional.of(new byte[] {1, 2, 3}))
+                .build());
+        runOnce();
+        Mockito.verify(sweepMetrics, Mockito.never()).examinedCells(Mockito.any(), Mockito.anyLong());
+        Mockito.verify(sweepMetrics, Mockito.never()).deletedCells(Mockito.any(), Mockito.anyLong());
+    }
+
+    @Test
+    public void testRecordWorkerMetricsAfterEachRun() throws InterruptedException {
         setNoProgress();
         setNextTableToSweep(TABLE_REF);
         setupTaskRunner(ImmutableSweepResults.builder()
@@ -174,12 +208,13 @@ public class BackgroundSweeperFastTest {
                 .sweptTimestamp(12345L)
                 .nextStartRow(Optional.of(new byte[] {1, 2, 3}))
                 .build());
-        backgroundSweeper.runOnce();
-        Mockito.verifyZeroInteractions(sweepMetrics);
+        backgroundSweeper.createWorker(1).runOnce();
+        Mockito.verify(sweepMetrics).workerSweptBatch(Mockito.eq(1), Mockito.eq(10L), Mockito.eq(2L),
+                Mockito.anyLong());
     }
 
     @Test
-    public void testRecordCumulativeMetricsAfterCompleteRun() {
+    public void testRecordCumulativeMetricsAfterCompleteRun() throws InterruptedException {
         setProgress(ImmutableSweepProgress.builder()
                 .tableRef(TABLE_REF)
                 .staleValuesDeleted(3)
@@ -192,13 +227,13 @@ public class BackgroundSweeperFastTest {
                 .cellTsPairsExamined(10)
                 .sweptTimestamp(12345L)
                 .build());
-        backgroundSweeper.runOnce();
+        runOnce();
         Mockito.verify(sweepMetrics).examinedCells(TABLE_REF, 21);
         Mockito.verify(sweepMetrics).deletedCells(TABLE_REF, 5);
     }
 
     @Test
-    public void testCompactInternallyAfterCompleteRunIfNonZeroDeletes() {
+    public void testCompactInternallyAfterCompleteRunIfNonZeroDeletes() throws InterruptedException {
         setNoProgress();
         setNextTableToSweep(TABLE_REF);
         setupTaskRunner(ImmutableSweepResults.builder()
@@ -206,12 +241,12 @@ public class BackgroundSweeperFastTest {
                 .cellTsPairsExamined(10)
                 .sweptTimestamp(12345L)
                 .build());
-        backgroundSweeper.runOnce();
+        runOnce();
         Mockito.verify(kvs).compactInternally(TABLE_REF);
     }
 
     @Test
-    public void testDontCompactInternallyAfterCompleteRunIfZeroDeletes() {
+    public void testDontCompactInternallyAfterCompleteRunIfZeroDeletes() throws InterruptedException {
         setNoProgress();
         setNextTableToSweep(TABLE_REF);
         setupTaskRunner(ImmutableSweepResults.builder()
@@ -219,25 +254,107 @@ public class BackgroundSweeperFastTest {
                 .cellTsPairsExamined(10)
                 .sweptTimestamp(12345L)
                 .build());
-        backgroundSweeper.runOnce();
+        runOnce();
         Mockito.verify(kvs, Mockito.never()).compactInternally(TABLE_REF);
     }
 
+    @Test
+    public void testSplitLargeTableIntoShards() throws InterruptedException {
+        setNoProgress();
+        setNextTableToSweep(TABLE_REF);
+        Mockito.doReturn(ImmutableList.of(ImmutableSweepPriority.builder()
+                .tableRef(TABLE_REF)
+                .writeCount(10L)
+                .minimumSweptTimestamp(0L)
+                .staleValuesDeleted(0L)
+                .cellTsPairsExamined(4 * CELL_TS_PAIRS_PER_SHARD)
+                .build())).when(priorityStore).loadNewPriorities(Mockito.any());
+        setupTaskRunner(ImmutableSweepResults.builder()
+                .staleValuesDeleted(0)
+                .cellTsPairsExamined(10)
+                .sweptTimestamp(12345L)
+                .nextStartRow(Optional.of(new byte[] {1, 2, 3}))
+                .build());
+        runOnce();
+        for (int shardIndex = 0; shardIndex < 4; shardIndex++) {
+            Mockito.verify(progressStore).saveShardProgress(Mockito.any(), Mockito.eq(ImmutableSweepProgress.builder()
+                    .tableRef(TABLE_REF)
+                    .staleValuesDeleted(0L)
+                    .cellTsPairsExamined(0L)
+                    .minimumSweptTimestamp(Long.MAX_VALUE)
+                    .startRow(shardIndex == 0 ? PtBytes.EMPTY_BYTE_ARRAY : new byte[] {(byte) (shardIndex * 64)})
+                    .shardIndex(shardIndex)
+                    .shardCount(4)
+                    .build()));
+        }
+        Mockito.verify(sweepTaskRunner).run(
+                Mockito.eq(TABLE_REF),
+                Mockito.any(),
+                Mockito.eq(PtBytes.EMPTY_BYTE_ARRAY),
+                Mockito.eq(new byte[] {64}));
+    }
+
+    @Test
+    public void testDoNotSweepShardLockedElsewhere() throws InterruptedException {
+        setProgress(ImmutableSweepProgress.builder()
+                .tableRef(TABLE_REF)
+                .staleValuesDeleted(3)
+                .cellTsPairsExamined(11)
+                .minimumSweptTimestamp(4567L)
+                .startRow(new byte[] {1, 2, 3})
+                .build());
+        Mockito.doReturn(null).when(lockService).lock(Mockito.anyString(), Mockito.any());
+        Mockito.doReturn(Optional.empty()).when(nextTableToSweepProvider)
+                .chooseNextTableToSweep(Mockito.any(), Mockito.anyLong(), Mockito.eq(ImmutableSet.of(TABLE_REF)));
+        runOnce();
+        Mockito.verify(sweepTaskRunner, Mockito.never())
+                .run(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testShutdownClosesSweepTaskRunner() {
+        backgroundSweeper.shutdown();
+        Mockito.verify(sweepTaskRunner).close();
+    }
+
+    private void runOnce() throws InterruptedException {
+        backgroundSweeper.createWorker(0).runOnce();
+    }
+
     private void setNoProgress() {
-        Mockito.doReturn(Optional.empty()).when(progressStore).loadProgress(Mockito.any());
+        Mockito.doReturn(ImmutableList.of()).when(progressStore).loadAllShardProgress(Mockito.any());
+        Mockito.doReturn(ImmutableList.of()).when(progressStore)
+                .loadShardProgress(Mockito.any(), Mockito.any(), Mockito.anyInt());
     }
 
     private void setProgress(SweepProgress progress) {
-        Mockito.doReturn(Optional.of(progress)).when(progressStore).loadProgress(Mockito.any());
+        Mockito.doReturn(ImmutableList.of(progress)).when(progressStore).loadAllShardProgress(Mockito.any());
+        Mockito.doAnswer(inv -> {
+            SweepProgress saved = (SweepProgress) inv.getArguments()[1];
+            Mockito.doReturn(ImmutableList.of(saved)).when(progressStore)
+                    .loadShardProgress(Mockito.any(), Mockito.any(), Mockito.anyInt());
+            return null;
+        }).when(progressStore).saveShardProgress(Mockito.any(), Mockito.any());
+        Mockito.doReturn(ImmutableList.of(progress)).when(progressStore)
+                .loadShardProgress(Mockito.any(), Mockito.any(), Mockito.anyInt());
     }
 
     private void setNextTableToSweep(TableReference tableRef) {
         Mockito.doReturn(Optional.of(tableRef)).when(nextTableToSweepProvider)
-                .chooseNextTableToSweep(Mockito.any(), Mockito.anyLong());
+                .chooseNextTableToSweep(Mockito.any(), Mockito.anyLong(), Mockito.any());
+        Mockito.doAnswer(inv -> {
+            SweepProgress saved = (SweepProgress) inv.getArguments()[1];
+            if (saved.isFinished()) {
+                Mockito.doReturn(ImmutableList.of(saved)).when(progressStore)
+                        .loadShardProgress(Mockito.any(), Mockito.any(), Mockito.anyInt());
+            }
+            return null;
+        }).when(progressStore).saveShardProgress(Mockito.any(), Mockito.any());
     }
 
     private void setupTaskRunner(SweepResults results) {
-        Mockito.doReturn(results).when(sweepTaskRunner).run(Mockito.eq(TABLE_REF), Mockito.any(), Mockito.any());
+        Mockito.doReturn(results).when(sweepTaskRunner)
+                .run(Mockito.eq(TABLE_REF), Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     private static TransactionManager mockTxManager() {
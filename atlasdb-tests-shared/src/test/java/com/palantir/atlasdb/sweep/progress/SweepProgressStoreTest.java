@@ -23,6 +23,9 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
@@ -52,6 +55,16 @@ public class SweepProgressStoreTest {
             .tableRef(TableReference.createFromFullyQualifiedName("qwe.rty"))
             .build();
 
+    private static final SweepProgress SHARD_PROGRESS = ImmutableSweepProgress.builder()
+            .startRow(new byte[] {(byte) 0x80, 1})
+            .minimumSweptTimestamp(12345L)
+            .staleValuesDeleted(10L)
+            .cellTsPairsExamined(200L)
+            .tableRef(TableReference.createFromFullyQualifiedName("foo.bar"))
+            .shardIndex(2)
+            .shardCount(4)
+            .build();
+
     @Before
     public void setup() {
         exec = Tracers.wrap(PTExecutors.newCachedThreadPool());
@@ -103,4 +116,77 @@ public class SweepProgressStoreTest {
         Assert.assertFalse(txManager.runTaskReadOnly(progressStore::loadProgress).isPresent());
     }
 
+    @Test
+    public void testSaveAndLoadShards() {
+        SweepProgress otherShard = ImmutableSweepProgress.builder().from(SHARD_PROGRESS).shardIndex(3).build();
+        txManager.runTaskWithRetry(tx -> {
+            progressStore.saveShardProgress(tx, SHARD_PROGRESS);
+            progressStore.saveShardProgress(tx, otherShard);
+            progressStore.saveShardProgress(tx, OTHER_PROGRESS);
+            return null;
+        });
+        Assert.assertEquals(ImmutableSet.of(SHARD_PROGRESS, otherShard, OTHER_PROGRESS),
+                ImmutableSet.copyOf(txManager.runTaskWithRetry(progressStore::loadAllShardProgress)));
+        Assert.assertEquals(ImmutableSet.of(SHARD_PROGRESS, otherShard),
+                ImmutableSet.copyOf(txManager.runTaskReadOnly(
+                        tx -> progressStore.loadShardProgress(tx, SHARD_PROGRESS.tableRef(), 4))));
+    }
+
+    @Test
+    public void testFinishedShardHasNoStartRow() {
+        SweepProgress finished = ImmutableSweepProgress.builder()
+                .from(SHARD_PROGRESS)
+                .startRow(PtBytes.EMPTY_BYTE_ARRAY)
+                .isFinished(true)
+                .build();
+        txManager.runTaskWithRetry(tx -> {
+            progressStore.saveShardProgress(tx, SHARD_PROGRESS);
+            return null;
+        });
+        txManager.runTaskWithRetry(tx -> {
+            progressStore.saveShardProgress(tx, finished);
+            return null;
+        });
+        Assert.assertEquals(ImmutableList.of(finished), txManager.runTaskWithRetry(
+                progressStore::loadAllShardProgress));
+    }
+
+    @Test
+    public void testClearShards() {
+        txManager.runTaskWithRetry(tx -> {
+            progressStore.saveShardProgress(tx, SHARD_PROGRESS);
+            progressStore.saveShardProgress(tx, OTHER_PROGRESS);
+            return null;
+        });
+        txManager.runTaskWithRetry(tx -> {
+            progressStore.clearShardProgress(tx, SHARD_PROGRESS.tableRef(), SHARD_PROGRESS.shardCount());
+            return null;
+        });
+        Assert.assertEquals(ImmutableList.of(OTHER_PROGRESS), txManager.runTaskWithRetry(
+                progressStore::loadAllShardProgress));
+    }
+
+    @Test
+    public void testLegacyProgressIsMigratedToSingleShard() {
+        txManager.runTaskWithRetry(tx -> {
+            progressStore.saveProgress(tx, PROGRESS);
+            return null;
+        });
+        Assert.assertEquals(ImmutableList.of(PROGRESS), txManager.runTaskWithRetry(
+                progressStore::loadAllShardProgress));
+        Assert.assertFalse(txManager.runTaskReadOnly(progressStore::loadProgress).isPresent());
+        Assert.assertEquals(ImmutableList.of(PROGRESS), txManager.runTaskReadOnly(
+                tx -> progressStore.loadShardProgress(tx, PROGRESS.tableRef(), 1)));
+    }
+
+    @Test
+    public void testShardRowIdsAreDistinct() {
+        TableReference table = SHARD_PROGRESS.tableRef();
+        Assert.assertNotEquals(SweepProgressStore.getShardRowId(table, 0, 1),
+                SweepProgressStore.getShardRowId(table, 0, 2));
+        Assert.assertNotEquals(SweepProgressStore.getShardRowId(table, 0, 2),
+                SweepProgressStore.getShardRowId(table, 1, 2));
+        Assert.assertTrue(SweepProgressStore.getShardRowId(table, 0, 1) > 0);
+    }
+
 }
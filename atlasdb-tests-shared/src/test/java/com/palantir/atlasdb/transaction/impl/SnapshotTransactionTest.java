@@ -54,6 +54,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -65,6 +66,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.cache.ImmutableTableCache;
 import com.palantir.atlasdb.cache.TimestampCache;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.encoding.PtBytes;
@@ -180,6 +182,58 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         keyValueService.createTable(TABLE2, AtlasDbConstants.GENERIC_TABLE_METADATA);
     }
 
+    @Test
+    public void readsOfCachedImmutableTablesAreSharedAcrossTransactions() {
+        Cell cell = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+        byte[] value = PtBytes.toBytes("value");
+        long startTsBeforeWrite = timestampService.getFreshTimestamp();
+        txManager.runTaskWithRetry(txn -> {
+            txn.put(TABLE, ImmutableMap.of(cell, value));
+            return null;
+        });
+        ImmutableTableCache immutableTableCache = ImmutableTableCache.create(ImmutableSet.of(TABLE), 100);
+
+        Transaction first = createTransactionWithImmutableTableCache(immutableTableCache);
+        Assert.assertArrayEquals(value, first.get(TABLE, ImmutableSet.of(cell)).get(cell));
+        assertTrue(wasTableReadFrom(TABLE));
+
+        clearTablesReadFrom();
+        Transaction second = createTransactionWithImmutableTableCache(immutableTableCache);
+        Assert.assertArrayEquals(value, second.get(TABLE, ImmutableSet.of(cell)).get(cell));
+        assertThat(wasTableReadFrom(TABLE), is(false));
+
+        // a transaction that started before the value was committed must not see it
+        Transaction older = createTransactionWithImmutableTableCache(startTsBeforeWrite, immutableTableCache);
+        assertTrue(older.get(TABLE, ImmutableSet.of(cell)).isEmpty());
+        assertTrue(wasTableReadFrom(TABLE));
+    }
+
+    private Transaction createTransactionWithImmutableTableCache(ImmutableTableCache immutableTableCache) {
+        return createTransactionWithImmutableTableCache(timestampService.getFreshTimestamp(), immutableTableCache);
+    }
+
+    private Transaction createTransactionWithImmutableTableCache(
+            long startTs,
+            ImmutableTableCache immutableTableCache) {
+        return new SnapshotTransaction(
+                keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                NoOpCleaner.INSTANCE,
+                Suppliers.ofInstance(startTs),
+                conflictDetectionManager,
+                sweepStrategyManager,
+                startTs,
+                ImmutableList.of(),
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                null,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                false,
+                timestampCache,
+                immutableTableCache);
+    }
+
     @Test
     public void testConcurrentWriteChangedConflicts() throws InterruptedException, ExecutionException {
         overrideConflictHandlerForTable(TABLE, ConflictHandler.RETRY_ON_VALUE_CHANGED);
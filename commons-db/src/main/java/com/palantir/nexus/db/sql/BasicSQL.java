@@ -31,6 +31,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
@@ -50,6 +51,7 @@ import javax.annotation.Nullable;
 import org.apache.commons.lang3.Validate;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
@@ -78,6 +80,30 @@ public abstract class BasicSQL {
         boolean isSqlCancellationDisabled();
 
         SqlTimer getSqlTimer();
+
+        /**
+         * If true, statements run on the calling thread rather than being handed off to a SQL thread pool.
+         * Cancellable queries are then cancelled by a shared watchdog when the caller is interrupted or
+         * {@link #getSqlQueryTimeoutMillis()} elapses.
+         */
+        default boolean isSqlExecutedOnCallingThread() {
+            return false;
+        }
+
+        /**
+         * Timeout after which a cancellable query run on the calling thread is cancelled.
+         * Zero or negative disables the timeout.
+         */
+        default long getSqlQueryTimeoutMillis() {
+            return 0;
+        }
+
+        /**
+         * If true, threads blocked on SQL are renamed to include the statement and its start time.
+         */
+        default boolean isThreadRenamingEnabled() {
+            return true;
+        }
     }
 
     protected abstract SqlConfig getSqlConfig();
@@ -365,6 +391,17 @@ public abstract class BasicSQL {
     static ExecutorService executeService = Tracers.wrap(PTExecutors.newCachedThreadPool(
             new NamedThreadFactory(executeThreadName, true), KEEP_SQL_THREAD_ALIVE_TIMEOUT));
 
+    private static final DateTimeFormatter THREAD_NAME_TIME_FORMAT =
+            DateTimeFormat.forPattern("HH:mm:ss"); //$NON-NLS-1$
+
+    /** Renames the current thread to show the SQL it is blocked on, and returns its previous name. */
+    static String renameThreadForSql(String threadString) {
+        final String oldName = Thread.currentThread().getName();
+        final String currentTimestamp = THREAD_NAME_TIME_FORMAT.print(System.currentTimeMillis());
+        Thread.currentThread().setName(oldName + " blocking on " + threadString + " started at " + currentTimestamp);
+        return oldName;
+    }
+
     protected static enum AutoClose {
         TRUE, FALSE;
     }
@@ -380,8 +417,11 @@ public abstract class BasicSQL {
             AutoClose autoClose, @Nullable Integer fetchSize) throws PalantirInterruptedException, PalantirSqlException {
         if (isSqlCancellationDisabled()) {
             return runUninterruptablyInternal(ps, visitor, sql, autoClose, fetchSize);
+        } else if (isSqlExecutedOnCallingThread()) {
+            return runOnCallingThreadInternal(ps, visitor, sql, autoClose, fetchSize,
+                    getSqlConfig().getSqlQueryTimeoutMillis(), isThreadRenamingEnabled());
         } else {
-            return runCancellablyInternal(ps, visitor, sql, autoClose, fetchSize);
+            return runCancellablyInternal(ps, visitor, sql, autoClose, fetchSize, isThreadRenamingEnabled());
         }
     }
 
@@ -389,13 +429,48 @@ public abstract class BasicSQL {
         return getSqlConfig().isSqlCancellationDisabled();
     }
 
-    private static <T> T runUninterruptablyInternal(final PreparedStatement ps, final ResultSetVisitor<T> visitor, final FinalSQLString sql,
+    protected boolean isSqlExecutedOnCallingThread() {
+        return getSqlConfig().isSqlExecutedOnCallingThread();
+    }
+
+    protected boolean isThreadRenamingEnabled() {
+        return getSqlConfig().isThreadRenamingEnabled();
+    }
+
+    /**
+     * Runs a quick call that should not be interrupted. Normally this hands the call off to another thread (see
+     * {@link BasicSQLUtils#runUninterruptably}); when SQL is executed on the calling thread, the caller's interrupt
+     * flag is instead held back until the call completes.
+     */
+    private <T> T runUninterruptably(Callable<T> callable, String threadString, @Nullable Connection c)
+            throws PalantirSqlException {
+        if (!isSqlExecutedOnCallingThread()) {
+            return BasicSQLUtils.runUninterruptably(callable, threadString, c, isThreadRenamingEnabled());
+        }
+        boolean interrupted = Thread.interrupted();
+        final String oldName = isThreadRenamingEnabled() ? renameThreadForSql(threadString) : null;
+        long startTime = System.currentTimeMillis();
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            throw handleInterruptions(startTime, new ExecutionException(e));
+        } finally {
+            if (oldName != null) {
+                Thread.currentThread().setName(oldName);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private <T> T runUninterruptablyInternal(final PreparedStatement ps, final ResultSetVisitor<T> visitor, final FinalSQLString sql,
             final AutoClose autoClose, @Nullable Integer fetchSize) throws PalantirInterruptedException, PalantirSqlException {
         if (Thread.currentThread().isInterrupted()) {
             SqlLoggers.CANCEL_LOGGER.debug("interrupted prior to executing uninterruptable SQL call");
             throw new PalantirInterruptedException("interrupted prior to executing uninterruptable SQL call");
         }
-        return BasicSQLUtils.runUninterruptably(new Callable<T>() {
+        return runUninterruptably(new Callable<T>() {
             @Override
             public T call() throws SQLException {
                 if (fetchSize != null) {
@@ -417,9 +492,10 @@ public abstract class BasicSQL {
     }
 
     private static <T> T runCancellablyInternal(final PreparedStatement ps, ResultSetVisitor<T> visitor, final FinalSQLString sql,
-                                        AutoClose autoClose, @Nullable Integer fetchSize) throws PalantirInterruptedException, PalantirSqlException {
+                                        AutoClose autoClose, @Nullable Integer fetchSize, boolean renameThread)
+            throws PalantirInterruptedException, PalantirSqlException {
         final String threadString = sql.toString();
-        Future<ResultSet> result = service.submit(ThreadNamingCallable.wrapWithThreadName(new Callable<ResultSet>() {
+        Callable<ResultSet> executeQuery = new Callable<ResultSet>() {
             @Override
             public ResultSet call() throws Exception {
                 if(Thread.currentThread().isInterrupted()) {
@@ -433,13 +509,14 @@ public abstract class BasicSQL {
                 }
                 return ps.executeQuery();
             }
-        }, threadString, ThreadNamingCallable.Type.APPEND));
+        };
+        Future<ResultSet> result = service.submit(renameThread
+                ? ThreadNamingCallable.wrapWithThreadName(executeQuery, threadString, ThreadNamingCallable.Type.APPEND)
+                : executeQuery);
 
         ResultSet rs = null;
         long startTime = System.currentTimeMillis();
-        final String oldName = Thread.currentThread().getName();
-        final String currentTimestamp = DateTimeFormat.forPattern("HH:mm:ss").print(System.currentTimeMillis());
-        Thread.currentThread().setName(oldName + " blocking on " + threadString + " started at " + currentTimestamp);
+        final String oldName = renameThread ? renameThreadForSql(threadString) : null;
         try {
             rs = result.get();
             return visitor.visit(rs);
@@ -456,13 +533,71 @@ public abstract class BasicSQL {
         } catch (ExecutionException ee) {
             throw handleInterruptions(startTime, ee);
         } finally {
-            Thread.currentThread().setName(oldName);
+            if (oldName != null) {
+                Thread.currentThread().setName(oldName);
+            }
             if (rs != null && autoClose == AutoClose.TRUE) {
                 ResultSets.close(rs);
             }
         }
     }
 
+    /**Execute the PreparedStatement on the calling thread, with the shared {@link SqlCancellationWatchdog} cancelling
+    it if we're interrupted or the timeout elapses. Throws a PalantirInterruptedException in case of interrupts. */
+    private static <T> T runOnCallingThreadInternal(PreparedStatement ps, ResultSetVisitor<T> visitor,
+            FinalSQLString sql, AutoClose autoClose, @Nullable Integer fetchSize, long timeoutMillis,
+            boolean renameThread) throws PalantirInterruptedException, PalantirSqlException {
+        if (Thread.currentThread().isInterrupted()) {
+            SqlLoggers.CANCEL_LOGGER.debug("interrupted prior to executing cancellable SQL call");
+            throw new PalantirInterruptedException("interrupted prior to executing cancellable SQL call");
+        }
+        ResultSet rs = null;
+        long startTime = System.currentTimeMillis();
+        final String oldName = renameThread ? renameThreadForSql(sql.toString()) : null;
+        try {
+            SqlCancellationWatchdog.WatchedStatement watched =
+                    SqlCancellationWatchdog.getInstance().watch(ps, timeoutMillis);
+            try {
+                if (fetchSize != null) {
+                    ps.setFetchSize(fetchSize);
+                }
+                rs = ps.executeQuery();
+            } catch (SQLException e) {
+                // close first so the reason can no longer change underneath us
+                watched.close();
+                throw handleCancellation(watched, startTime, e);
+            } finally {
+                watched.close();
+            }
+            return visitor.visit(rs);
+        } finally {
+            if (oldName != null) {
+                Thread.currentThread().setName(oldName);
+            }
+            if (rs != null && autoClose == AutoClose.TRUE) {
+                ResultSets.close(rs);
+            }
+        }
+    }
+
+    private static PalantirSqlException handleCancellation(SqlCancellationWatchdog.WatchedStatement watched,
+            long startTime, SQLException cause) throws PalantirSqlException {
+        SqlCancellationWatchdog.CancellationReason reason = watched.getCancellationReason();
+        if (reason == SqlCancellationWatchdog.CancellationReason.TIMED_OUT) {
+            SqlLoggers.SQL_EXCEPTION_LOG.debug("Caught SQLException", cause);
+            throw PalantirSqlException.create(new SQLTimeoutException(
+                    "SQL call cancelled after exceeding its timeout of " //$NON-NLS-1$
+                            + watched.getTimeoutMillis() + " ms", //$NON-NLS-1$
+                    cause));
+        }
+        if (reason == SqlCancellationWatchdog.CancellationReason.INTERRUPTED) {
+            // the interrupt flag is still set; drivers word their cancellation errors differently
+            SqlLoggers.SQL_EXCEPTION_LOG.debug("Caught SQLException", cause);
+            throw new PalantirInterruptedException("SQL call interrupted", cause); //$NON-NLS-1$
+        }
+        return handleInterruptions(startTime, cause);
+    }
+
     static interface PreparedStatementVisitor<T> {
         public T visit(PreparedStatement ps) throws PalantirSqlException;
     }
@@ -482,7 +617,7 @@ public abstract class BasicSQL {
         PreparedStatement ps = null;
 
         try {
-            ps = BasicSQLUtils.runUninterruptably(new Callable<PreparedStatement>() {
+            ps = runUninterruptably(new Callable<PreparedStatement>() {
                 @Override
                 public PreparedStatement call() throws Exception {
                     return createPreparedStatement(c, query.getQuery(), vs);
@@ -553,7 +688,7 @@ public abstract class BasicSQL {
         if (SqlLoggers.LOGGER.isTraceEnabled()) {
             SqlLoggers.LOGGER.trace("SQL execution query: {}", sql.getQuery());
         }
-        return BasicSQLUtils.runUninterruptably (new Callable<PreparedStatement>() {
+        return runUninterruptably(new Callable<PreparedStatement>() {
             @Override
             public PreparedStatement call() throws PalantirSqlException {
                 return wrapPreparedStatement(c, sql, vs, new PreparedStatementVisitor<PreparedStatement>() {
@@ -758,7 +893,7 @@ public abstract class BasicSQL {
         if (SqlLoggers.LOGGER.isTraceEnabled()) {
             SqlLoggers.LOGGER.trace("SQL update interval query: {}", sql.getQuery());
         }
-        return BasicSQLUtils.runUninterruptably (new Callable<PreparedStatement>() {
+        return runUninterruptably(new Callable<PreparedStatement>() {
             @Override
                    public PreparedStatement call() throws PalantirSqlException {
          return wrapPreparedStatement(c, sql, vs, new PreparedStatementVisitor<PreparedStatement>() {
@@ -777,7 +912,7 @@ public abstract class BasicSQL {
         if (SqlLoggers.LOGGER.isTraceEnabled()) {
             SqlLoggers.LOGGER.trace("SQL update many query: {}", sql.getQuery());
         }
-        BasicSQLUtils.runUninterruptably (new Callable<Void>() {
+        runUninterruptably(new Callable<Void>() {
             @Override
             public Void call() throws PalantirSqlException {
                 List<BlobHandler> cleanups = Lists.newArrayList();
@@ -820,7 +955,7 @@ public abstract class BasicSQL {
         if (SqlLoggers.LOGGER.isTraceEnabled()) {
             SqlLoggers.LOGGER.trace("SQL insert one count rows internal query: {}", sql.getQuery());
         }
-        return BasicSQLUtils.runUninterruptably (new Callable<Integer>() {
+        return runUninterruptably(new Callable<Integer>() {
             @Override
             public Integer call() throws PalantirSqlException {
                 return wrapPreparedStatement(c, sql, vs, new PreparedStatementVisitor<Integer>() {
@@ -838,7 +973,7 @@ public abstract class BasicSQL {
         if (SqlLoggers.LOGGER.isTraceEnabled()) {
             SqlLoggers.LOGGER.trace("SQL insert many query: {}", sql.getQuery());
         }
-        return BasicSQLUtils.runUninterruptably (new Callable<Boolean>() {
+        return runUninterruptably(new Callable<Boolean>() {
             @Override
             public Boolean call() throws PalantirSqlException {
                 int[] inserted = null;
@@ -30,7 +30,6 @@ import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
-import org.joda.time.format.DateTimeFormat;
 
 import com.palantir.common.concurrent.ThreadNamingCallable;
 import com.palantir.exception.PalantirSqlException;
@@ -269,28 +268,38 @@ public class BasicSQLUtils {
      */
     public static <T> T runUninterruptably(final Callable<T> callable, String threadString,
                                            final @Nullable Connection connection) throws PalantirSqlException {
-        Future<T> future = BasicSQL.executeService.submit(ThreadNamingCallable.wrapWithThreadName(
-                ThreadConfinedProxy.threadLendingCallable(connection,
-                        new Callable<T>() {
-                            @Override
-                            public T call() throws Exception {
+        return runUninterruptably(callable, threadString, connection, true);
+    }
 
-                                if(Thread.currentThread().isInterrupted()) {
-                                    cancelLogger.error("Threadpool thread has interrupt flag set!"); //$NON-NLS-1$
-                                    //we want to clear the interrupted status here -
-                                    //we cancel via the prepared statement, not interrupts
-                                    Thread.interrupted();
-                                }
-                                return callable.call();
-                            }
-                        }),
-                threadString, ThreadNamingCallable.Type.APPEND));
+    /**
+     * As {@link #runUninterruptably(Callable, String, Connection)}, but only renames the calling and pool
+     * threads after the SQL if renameThread is set.
+     */
+    public static <T> T runUninterruptably(final Callable<T> callable, String threadString,
+                                           final @Nullable Connection connection,
+                                           boolean renameThread) throws PalantirSqlException {
+        Callable<T> lendingCallable = ThreadConfinedProxy.threadLendingCallable(connection,
+                new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+
+                        if(Thread.currentThread().isInterrupted()) {
+                            cancelLogger.error("Threadpool thread has interrupt flag set!"); //$NON-NLS-1$
+                            //we want to clear the interrupted status here -
+                            //we cancel via the prepared statement, not interrupts
+                            Thread.interrupted();
+                        }
+                        return callable.call();
+                    }
+                });
+        Future<T> future = BasicSQL.executeService.submit(renameThread
+                ? ThreadNamingCallable.wrapWithThreadName(
+                        lendingCallable, threadString, ThreadNamingCallable.Type.APPEND)
+                : lendingCallable);
 
         boolean interrupted = false;
         T result = null;
-        final String oldName = Thread.currentThread().getName();
-        final String currentTimestamp = DateTimeFormat.forPattern("HH:mm:ss").print(System.currentTimeMillis());
-        Thread.currentThread().setName(oldName + " blocking on " + threadString + " started at " + currentTimestamp);
+        final String oldName = renameThread ? BasicSQL.renameThreadForSql(threadString) : null;
         try {
             long startTime = System.currentTimeMillis();
             while (true) {
@@ -305,7 +314,9 @@ public class BasicSQLUtils {
                 }
             }
         } finally {
-            Thread.currentThread().setName(oldName);
+            if (oldName != null) {
+                Thread.currentThread().setName(oldName);
+            }
             if (interrupted) {
                 Thread.currentThread().interrupt();
             }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.nexus.db.sql;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.nexus.db.sql.monitoring.logger.SqlLoggers;
+
+/**
+ * Cancels statements that are executing on their caller's thread once that thread is interrupted or the
+ * statement's deadline has passed. A single daemon thread polls every in-flight statement, so no thread
+ * handoff is needed per query just to keep the caller interruptible.
+ */
+final class SqlCancellationWatchdog {
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    enum CancellationReason {
+        INTERRUPTED, TIMED_OUT
+    }
+
+    private static class Holder {
+        static final SqlCancellationWatchdog INSTANCE = new SqlCancellationWatchdog(
+                PTExecutors.newSingleThreadScheduledExecutor(
+                        new NamedThreadFactory("SQL cancellation watchdog", true)), //$NON-NLS-1$
+                POLL_INTERVAL_MILLIS);
+    }
+
+    static SqlCancellationWatchdog getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private final Set<WatchedStatement> inFlight = Sets.newConcurrentHashSet();
+
+    @VisibleForTesting
+    SqlCancellationWatchdog(ScheduledExecutorService executor, long pollIntervalMillis) {
+        executor.scheduleWithFixedDelay(
+                this::cancelInterruptedOrTimedOut, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts watching a statement about to be executed on the current thread. The returned handle must be
+     * closed as soon as execution returns; a statement is never cancelled after its handle is closed.
+     *
+     * @param timeoutMillis the statement is cancelled once it has run for this long; zero or negative means
+     *        it is only cancelled on interrupt
+     */
+    WatchedStatement watch(Statement statement, long timeoutMillis) {
+        WatchedStatement watched = new WatchedStatement(Thread.currentThread(), statement, timeoutMillis);
+        inFlight.add(watched);
+        return watched;
+    }
+
+    @VisibleForTesting
+    void cancelInterruptedOrTimedOut() {
+        long now = System.nanoTime();
+        for (WatchedStatement watched : inFlight) {
+            try {
+                if (watched.thread.isInterrupted()) {
+                    watched.cancel(CancellationReason.INTERRUPTED);
+                } else if (watched.isPastDeadline(now)) {
+                    watched.cancel(CancellationReason.TIMED_OUT);
+                }
+            } catch (Throwable t) {
+                // never let one statement kill the watchdog for everyone else
+                SqlLoggers.CANCEL_LOGGER.error("Failed to cancel a SQL call", t); //$NON-NLS-1$
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int numInFlight() {
+        return inFlight.size();
+    }
+
+    final class WatchedStatement implements AutoCloseable {
+        private final Thread thread;
+        private final Statement statement;
+        private final long timeoutMillis;
+        private final long deadlineNanos;
+        @Nullable private CancellationReason cancellationReason; // guarded by this
+        private boolean closed; // guarded by this
+
+        private WatchedStatement(Thread thread, Statement statement, long timeoutMillis) {
+            this.thread = thread;
+            this.statement = statement;
+            this.timeoutMillis = timeoutMillis;
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        private boolean isPastDeadline(long nowNanos) {
+            return timeoutMillis > 0 && nowNanos - deadlineNanos >= 0;
+        }
+
+        long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        private synchronized void cancel(CancellationReason reason) {
+            if (closed || cancellationReason != null) {
+                return;
+            }
+            cancellationReason = reason;
+            SqlLoggers.CANCEL_LOGGER.debug("about to cancel a SQL call that was {}", reason); //$NON-NLS-1$
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                SqlLoggers.CANCEL_LOGGER.warn("Failed to cancel a SQL call that was {}", reason, e); //$NON-NLS-1$
+            }
+        }
+
+        @Nullable
+        synchronized CancellationReason getCancellationReason() {
+            return cancellationReason;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            inFlight.remove(this);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.nexus.db.sql;
+
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.palantir.common.concurrent.PTExecutors;
+
+public class SqlCancellationWatchdogTest extends Assert {
+    private final AtomicInteger cancels = new AtomicInteger();
+    private final Statement statement = (Statement) Proxy.newProxyInstance(
+            Statement.class.getClassLoader(),
+            new Class<?>[] {Statement.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("cancel")) {
+                    cancels.incrementAndGet();
+                }
+                return null;
+            });
+
+    private ScheduledExecutorService executor;
+    private SqlCancellationWatchdog watchdog;
+
+    @Before
+    public void setUp() {
+        // poll manually so the tests are deterministic
+        executor = PTExecutors.newSingleThreadScheduledExecutor();
+        watchdog = new SqlCancellationWatchdog(executor, TimeUnit.HOURS.toMillis(1));
+    }
+
+    @After
+    public void tearDown() {
+        Thread.interrupted();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCancelsStatementWhenCallerIsInterrupted() {
+        SqlCancellationWatchdog.WatchedStatement watched = watchdog.watch(statement, 0);
+        Thread.currentThread().interrupt();
+        watchdog.cancelInterruptedOrTimedOut();
+
+        assertEquals(1, cancels.get());
+        assertEquals(SqlCancellationWatchdog.CancellationReason.INTERRUPTED, watched.getCancellationReason());
+        assertTrue(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testCancelsStatementAfterTimeout() throws InterruptedException {
+        SqlCancellationWatchdog.WatchedStatement watched = watchdog.watch(statement, 1);
+        Thread.sleep(10);
+        watchdog.cancelInterruptedOrTimedOut();
+
+        assertEquals(1, cancels.get());
+        assertEquals(SqlCancellationWatchdog.CancellationReason.TIMED_OUT, watched.getCancellationReason());
+    }
+
+    @Test
+    public void testCancelsStatementOnlyOnce() {
+        watchdog.watch(statement, 0);
+        Thread.currentThread().interrupt();
+        watchdog.cancelInterruptedOrTimedOut();
+        watchdog.cancelInterruptedOrTimedOut();
+
+        assertEquals(1, cancels.get());
+    }
+
+    @Test
+    public void testDoesNotCancelRunningStatementWithoutTimeout() {
+        SqlCancellationWatchdog.WatchedStatement watched = watchdog.watch(statement, 0);
+        watchdog.cancelInterruptedOrTimedOut();
+
+        assertEquals(0, cancels.get());
+        assertNull(watched.getCancellationReason());
+    }
+
+    @Test
+    public void testDoesNotCancelClosedStatement() {
+        SqlCancellationWatchdog.WatchedStatement watched = watchdog.watch(statement, 0);
+        watched.close();
+        Thread.currentThread().interrupt();
+        watchdog.cancelInterruptedOrTimedOut();
+
+        assertEquals(0, cancels.get());
+        assertEquals(0, watchdog.numInFlight());
+    }
+}
@@ -53,6 +53,18 @@ public interface LeaderElectionService {
      */
     StillLeadingStatus isStillLeading(LeadershipToken token);
 
+    /**
+     * Like {@link #isStillLeading}, but may answer without contacting a quorum while this node holds a valid
+     * leadership lease for the token, that is while a recent quorum confirmation guarantees that no other node
+     * can have started acting as the leader. Implementations without leases just call {@link #isStillLeading}.
+     *
+     * @param token leadership token
+     * @return LEADING if the token is still the leader
+     */
+    default StillLeadingStatus isStillLeadingWithLease(LeadershipToken token) {
+        return isStillLeading(token);
+    }
+
     /**
      * Cheaply get the network location of the currently suspected leader. This will not do any network
      * calls and is meant to be callable without major performance implications. The value it returns
@@ -16,11 +16,14 @@
 
 package com.palantir.leader;
 
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.paxos.PaxosRoundFailureException;
 import com.palantir.paxos.PaxosValue;
@@ -35,6 +38,8 @@ class LeadershipEvents {
     private final Meter noQuorum;
     private final Meter proposedLeadership;
     private final Meter proposalFailure;
+    private final Meter leaseRenewed;
+    private final Timer leaseExpiryStall;
 
     public LeadershipEvents(MetricRegistry metrics) {
         gainedLeadership = metrics.meter("leadership.gained");
@@ -42,6 +47,8 @@ class LeadershipEvents {
         noQuorum = metrics.meter("leadership.no-quorum");
         proposedLeadership = metrics.meter("leadership.proposed");
         proposalFailure = metrics.meter("leadership.proposed.failure");
+        leaseRenewed = metrics.meter("leadership.lease.renewed");
+        leaseExpiryStall = metrics.timer("leadership.lease.expiry-stall");
     }
 
     public void proposedLeadershipFor(long round) {
@@ -74,4 +81,16 @@ class LeadershipEvents {
         leaderLog.debug("Specifically, leadership was not gained because of the following exception", e);
         proposalFailure.mark();
     }
+
+    public void leaseRenewed(PaxosValue value) {
+        leaderLog.debug("Renewed leadership lease", SafeArg.of("value", value));
+        leaseRenewed.mark();
+    }
+
+    public void leaseExpiryStall(PaxosValue value, long stallNanos) {
+        leaderLog.debug("Leadership lease had expired; waited for a quorum to confirm leadership",
+                SafeArg.of("value", value),
+                SafeArg.of("stallMillis", TimeUnit.NANOSECONDS.toMillis(stallNanos)));
+        leaseExpiryStall.update(stallNanos, TimeUnit.NANOSECONDS);
+    }
 }
@@ -33,6 +33,15 @@ public interface PaxosLeaderElectionEventRecorder {
     /** Called when we attempt to propose a new value. */
     void recordProposalAttempt(long round);
 
+    /** Called when a quorum confirms that we are still the leader for {@code value}, extending our leadership lease. */
+    void recordLeaseRenewal(PaxosValue value);
+
+    /**
+     * Called when a request had to wait {@code stallNanos} for a quorum to confirm our leadership for {@code value},
+     * because our leadership lease had expired.
+     */
+    void recordLeaseExpiryStall(PaxosValue value, long stallNanos);
+
     PaxosLeaderElectionEventRecorder NO_OP = new PaxosLeaderElectionEventRecorder() {
         @Override
         public void recordNotLeading(PaxosValue value) { }
@@ -45,6 +54,12 @@ public interface PaxosLeaderElectionEventRecorder {
 
         @Override
         public void recordProposalAttempt(long round) { }
+
+        @Override
+        public void recordLeaseRenewal(PaxosValue value) { }
+
+        @Override
+        public void recordLeaseExpiryStall(PaxosValue value, long stallNanos) { }
     };
 
 }
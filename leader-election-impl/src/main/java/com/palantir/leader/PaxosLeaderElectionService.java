@@ -17,6 +17,7 @@ package com.palantir.leader;
 
 import static com.google.common.collect.ImmutableList.copyOf;
 
+import java.io.Closeable;
 import java.util.AbstractMap;
 import java.util.Collections;
 import java.util.List;
@@ -31,8 +32,10 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nullable;
@@ -49,6 +52,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.net.HostAndPort;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.paxos.PaxosAcceptor;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosProposer;
@@ -65,9 +70,16 @@ import com.palantir.paxos.PaxosValue;
  *
  * @author rullman
  */
-public class PaxosLeaderElectionService implements PingableLeader, LeaderElectionService {
+public class PaxosLeaderElectionService implements PingableLeader, LeaderElectionService, Closeable {
     private static final Logger log = LoggerFactory.getLogger(PaxosLeaderElectionService.class);
 
+    /**
+     * The bound we assume on how much faster or slower the clocks of two nodes may run relative to each other while
+     * measuring a lease. This is deliberately far more pessimistic than real clock drift.
+     */
+    private static final double LEASE_CLOCK_DRIFT_RATIO = 0.1;
+    private static final int LEASE_RENEWALS_PER_DURATION = 4;
+
     private final ReentrantLock lock;
 
     final PaxosProposer proposer;
@@ -80,6 +92,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
     final long updatePollingRateInMs;
     final long randomWaitBeforeProposingLeadership;
     final long leaderPingResponseWaitMs;
+    final long leaseDurationMs;
 
     final ExecutorService executor;
 
@@ -87,6 +100,15 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
 
     private final PaxosLeaderElectionEventRecorder eventRecorder;
 
+    /**
+     * The token for which this node may hold leases, if any. A node only becomes eligible once it has been the
+     * leader for longer than any lease a previous leader can still believe it holds.
+     */
+    private final AtomicReference<LeadershipToken> leaseEligibleToken = new AtomicReference<>();
+    private final AtomicReference<LeadershipLease> currentLease = new AtomicReference<>();
+    @Nullable private final ScheduledExecutorService leaseRenewalExecutor;
+    private volatile boolean closed = false;
+
     @Deprecated // Use PaxosLeaderElectionServiceBuilder instead.
     public PaxosLeaderElectionService(PaxosProposer proposer,
                                       PaxosLearner knowledge,
@@ -99,7 +121,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
                                       long leaderPingResponseWaitMs) {
         this(proposer, knowledge, potentialLeadersToHosts, acceptors, learners, executor,
                 updatePollingWaitInMs, randomWaitBeforeProposingLeadership, leaderPingResponseWaitMs,
-                PaxosLeaderElectionEventRecorder.NO_OP);
+                0L, PaxosLeaderElectionEventRecorder.NO_OP);
     }
 
     PaxosLeaderElectionService(PaxosProposer proposer,
@@ -111,7 +133,9 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
             long updatePollingWaitInMs,
             long randomWaitBeforeProposingLeadership,
             long leaderPingResponseWaitMs,
+            long leaseDurationMs,
             PaxosLeaderElectionEventRecorder eventRecorder) {
+        Preconditions.checkArgument(leaseDurationMs >= 0, "leaseDurationMs must not be negative");
         this.proposer = proposer;
         this.knowledge = knowledge;
         // XXX This map uses something that may be proxied as a key! Be very careful if making a new map from this.
@@ -122,8 +146,18 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         this.updatePollingRateInMs = updatePollingWaitInMs;
         this.randomWaitBeforeProposingLeadership = randomWaitBeforeProposingLeadership;
         this.leaderPingResponseWaitMs = leaderPingResponseWaitMs;
+        this.leaseDurationMs = leaseDurationMs;
         lock = new ReentrantLock();
         this.eventRecorder = eventRecorder;
+        if (leasesEnabled()) {
+            long renewalIntervalMs = Math.max(1L, leaseDurationMs / LEASE_RENEWALS_PER_DURATION);
+            leaseRenewalExecutor = PTExecutors.newSingleThreadScheduledExecutor(
+                    new NamedThreadFactory("leader-lease-renewal", true));
+            leaseRenewalExecutor.scheduleWithFixedDelay(
+                    this::renewLease, renewalIntervalMs, renewalIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            leaseRenewalExecutor = null;
+        }
     }
 
     @Override
@@ -135,7 +169,12 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
             if (isLastConfirmedLeader(greatestLearned)) {
                 StillLeadingStatus leadingStatus = isStillLeading(token);
                 if (leadingStatus == StillLeadingStatus.LEADING) {
-                    return token;
+                    if (!leasesEnabled() || isLeaseEligible(token)) {
+                        return token;
+                    }
+                    waitOutPreviousLeases(token);
+                    // Check leadership again, which now also takes out our first lease.
+                    continue;
                 } else if (leadingStatus == StillLeadingStatus.NO_QUORUM) {
                     // If we don't have quorum we should just retry our calls.
                     continue;
@@ -369,6 +408,113 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         }
     }
 
+    private boolean leasesEnabled() {
+        return leaseDurationMs > 0 && !closed;
+    }
+
+    private boolean isLeaseEligible(LeadershipToken token) {
+        LeadershipToken eligible = leaseEligibleToken.get();
+        return eligible != null && eligible.sameAs(token);
+    }
+
+    /**
+     * Waits until no previous leader can still believe that it holds a lease. Any such lease was confirmed by a
+     * quorum before our own leadership was, as the two quorums share an acceptor which would otherwise have
+     * refused to confirm the previous leader; so it is enough to wait out a full lease from now, allowing for
+     * the previous leader's clock running slow.
+     */
+    private void waitOutPreviousLeases(LeadershipToken token) throws InterruptedException {
+        long waitMs = (long) Math.ceil(leaseDurationMs * (1 + LEASE_CLOCK_DRIFT_RATIO));
+        log.info("Became the leader; waiting {} ms for any previous leader's lease to expire", waitMs);
+        Thread.sleep(waitMs);
+        leaseEligibleToken.set(token);
+    }
+
+    @Override
+    public StillLeadingStatus isStillLeadingWithLease(LeadershipToken token) {
+        if (!(token instanceof PaxosLeadershipToken)) {
+            return StillLeadingStatus.NOT_LEADING;
+        }
+        if (!leasesEnabled() || !isLeaseEligible(token)) {
+            return isStillLeading(token);
+        }
+        LeadershipLease lease = currentLease.get();
+        if (lease != null && lease.token.sameAs(token) && lease.isValidAt(System.nanoTime())
+                && token.sameAs(genTokenFromValue(knowledge.getGreatestLearnedValue()))) {
+            return StillLeadingStatus.LEADING;
+        }
+        long stallStart = System.nanoTime();
+        StillLeadingStatus status = isStillLeading(token);
+        eventRecorder.recordLeaseExpiryStall(((PaxosLeadershipToken) token).value, System.nanoTime() - stallStart);
+        return status;
+    }
+
+    private void renewLease() {
+        try {
+            LeadershipToken token = leaseEligibleToken.get();
+            if (token != null) {
+                // Successful checks extend the lease as a side effect.
+                isStillLeading(token);
+            }
+        } catch (Throwable t) {
+            log.warn("Failed to renew the leadership lease", t);
+        }
+    }
+
+    /**
+     * Extends our lease after a quorum confirmed that we are still the leader. The lease is measured from when we
+     * started asking the quorum, and is cut short to allow for our clock running fast.
+     */
+    private void extendLease(LeadershipToken token, long confirmationStartNanos) {
+        if (!leasesEnabled() || !isLeaseEligible(token)) {
+            return;
+        }
+        long validityNanos = (long) (TimeUnit.MILLISECONDS.toNanos(leaseDurationMs) * (1 - LEASE_CLOCK_DRIFT_RATIO));
+        LeadershipLease renewed = new LeadershipLease(token, confirmationStartNanos + validityNanos);
+        currentLease.accumulateAndGet(renewed, (current, candidate) ->
+                current != null && current.token.sameAs(candidate.token)
+                        && current.expiryNanos - candidate.expiryNanos > 0 ? current : candidate);
+        eventRecorder.recordLeaseRenewal(((PaxosLeadershipToken) token).value);
+    }
+
+    private void revokeLease(LeadershipToken token) {
+        LeadershipToken eligible = leaseEligibleToken.get();
+        if (eligible != null && eligible.sameAs(token)) {
+            leaseEligibleToken.compareAndSet(eligible, null);
+        }
+        LeadershipLease lease = currentLease.get();
+        if (lease != null && lease.token.sameAs(token)) {
+            currentLease.compareAndSet(lease, null);
+        }
+    }
+
+    /**
+     * Stops renewing leases and gives up any lease we hold. Leadership is still checked with a quorum afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (leaseRenewalExecutor != null) {
+            leaseRenewalExecutor.shutdownNow();
+        }
+        leaseEligibleToken.set(null);
+        currentLease.set(null);
+    }
+
+    private static final class LeadershipLease {
+        final LeadershipToken token;
+        final long expiryNanos;
+
+        LeadershipLease(LeadershipToken token, long expiryNanos) {
+            this.token = token;
+            this.expiryNanos = expiryNanos;
+        }
+
+        boolean isValidAt(long nanos) {
+            return expiryNanos - nanos > 0;
+        }
+    }
+
     static class StillLeadingCall {
         private final AtomicInteger requestCount;
         private final CountDownLatch populationLatch;
@@ -531,7 +677,13 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
     private void populateStillLeadingCall(StillLeadingCall batch, LeadershipToken token) {
         try {
             batch.getRequestCountAndSetInvalid();
+            long confirmationStartNanos = System.nanoTime();
             StillLeadingStatus status = isStillLeadingInternal(token);
+            if (status == StillLeadingStatus.LEADING) {
+                extendLease(token, confirmationStartNanos);
+            } else if (status == StillLeadingStatus.NOT_LEADING) {
+                revokeLease(token);
+            }
             batch.populate(status);
         } catch (Throwable t) {
             log.error("Something went wrong while checking leadership", t);
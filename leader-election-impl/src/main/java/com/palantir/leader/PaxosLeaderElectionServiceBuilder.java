@@ -35,6 +35,7 @@ public class PaxosLeaderElectionServiceBuilder {
     private long pingRateMs;
     private long randomWaitBeforeProposingLeadershipMs;
     private long leaderPingResponseWaitMs;
+    private long leaseDurationMs = 0L;
     private PaxosLeaderElectionEventRecorder eventRecorder = PaxosLeaderElectionEventRecorder.NO_OP;
 
     public PaxosLeaderElectionServiceBuilder proposer(PaxosProposer proposer) {
@@ -84,6 +85,17 @@ public class PaxosLeaderElectionServiceBuilder {
         return this;
     }
 
+    /**
+     * Enables leadership leases. While a quorum has confirmed our leadership within the lease duration, the leader
+     * answers {@link LeaderElectionService#isStillLeadingWithLease} without contacting the quorum, and renews the
+     * lease in the background. A newly elected leader waits a little over one lease duration before serving
+     * requests. Zero, the default, disables leases.
+     */
+    public PaxosLeaderElectionServiceBuilder leaseDurationMs(long leaseDurationMs) {
+        this.leaseDurationMs = leaseDurationMs;
+        return this;
+    }
+
     public PaxosLeaderElectionServiceBuilder eventRecorder(PaxosLeaderElectionEventRecorder eventRecorder) {
         this.eventRecorder = eventRecorder;
         return this;
@@ -100,6 +112,7 @@ public class PaxosLeaderElectionServiceBuilder {
                 pingRateMs,
                 randomWaitBeforeProposingLeadershipMs,
                 leaderPingResponseWaitMs,
+                leaseDurationMs,
                 eventRecorder);
     }
 }
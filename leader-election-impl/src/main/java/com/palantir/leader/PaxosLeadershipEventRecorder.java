@@ -86,6 +86,16 @@ public class PaxosLeadershipEventRecorder implements PaxosKnowledgeEventRecorder
         }
     }
 
+    @Override
+    public void recordLeaseRenewal(PaxosValue value) {
+        events.leaseRenewed(value);
+    }
+
+    @Override
+    public void recordLeaseExpiryStall(PaxosValue value, long stallNanos) {
+        events.leaseExpiryStall(value, stallNanos);
+    }
+
     private synchronized boolean isNewRound(PaxosValue value) {
         return value != null && (currentRound == null || value.getRound() > currentRound.getRound());
     }
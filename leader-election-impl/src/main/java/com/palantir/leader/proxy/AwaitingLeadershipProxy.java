@@ -155,7 +155,7 @@ public final class AwaitingLeadershipProxy<T> extends AbstractInvocationHandler
         Object delegate = delegateRef.get();
         StillLeadingStatus leading;
         do {
-            leading = leaderElectionService.isStillLeading(leadershipToken);
+            leading = leaderElectionService.isStillLeadingWithLease(leadershipToken);
         } while (leading == StillLeadingStatus.NO_QUORUM);
 
         if (leading == StillLeadingStatus.NOT_LEADING) {
@@ -0,0 +1,585 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.persist.Persistable;
+
+/**
+ * A {@link PaxosStateLog} which appends checksummed records to rolling, preallocated segment files instead of
+ * writing a file per sequence number.
+ * <p>
+ * Concurrent writers share fsyncs: a writer whose record has not yet been made durable by another writer's
+ * fsync forces the segment up to everything appended so far, so a burst of rounds costs one fsync rather than
+ * one per round. Rounds only become visible to {@link #readRound(long)} once they are durable.
+ * <p>
+ * An in-memory index maps each sequence number to the location of its latest record, so finding the least and
+ * greatest entries does not touch the disk. Truncation is recorded in the log itself, and whole segments are
+ * deleted once every record in them has been truncated. On opening, appends continue in the newest segment unless
+ * it ends with a torn record, and segments holding no records are deleted.
+ * <p>
+ * Use {@link #create(String)} to open a log; it migrates a log directory written by {@link PaxosStateLogImpl}
+ * (one file per sequence number) into segments the first time it is opened.
+ */
+public class SegmentedPaxosStateLog<V extends Persistable & Versionable> implements PaxosStateLog<V>, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedPaxosStateLog.class);
+
+    public static final long DEFAULT_SEGMENT_SIZE_BYTES = 64L * 1024 * 1024;
+
+    @VisibleForTesting
+    static final String SEGMENT_DIRECTORY = "segments";
+    private static final String MIGRATION_DIRECTORY = "segments.migrating";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // Record layout: magic (4) | type (1) | seq (8) | payload length (4) | crc32 of type..payload (4) | payload
+    private static final int RECORD_MAGIC = 0x50617853;
+    private static final int HEADER_SIZE = 21;
+    private static final byte ROUND_RECORD = 1;
+    private static final byte TRUNCATE_RECORD = 2;
+    private static final byte MARKER_RECORD = 3;
+
+    private final File directory;
+    private final long segmentSizeBytes;
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+
+    /** Live segments by id; the greatest id is the active segment. */
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    /** The location of the latest durable record for each sequence number. */
+    private final ConcurrentSkipListMap<Long, RecordLocation> index = new ConcurrentSkipListMap<>();
+
+    @GuardedBy("appendLock") private final NavigableMap<Long, Long> seqToVersionMap = new TreeMap<>();
+    @GuardedBy("appendLock") private long truncatedUpTo = Long.MIN_VALUE;
+    @GuardedBy("appendLock") private long nextRecordOrder = 0;
+    @GuardedBy("appendLock") private Segment activeSegment;
+
+    /** Opens the log in the given directory with the default segment size. */
+    public static <V extends Persistable & Versionable> SegmentedPaxosStateLog<V> create(String path) {
+        return create(path, DEFAULT_SEGMENT_SIZE_BYTES);
+    }
+
+    /**
+     * Opens the log in the given directory. If the directory holds a log written by {@link PaxosStateLogImpl},
+     * its rounds are copied into segments, which are moved into place atomically before the old files are
+     * deleted; an interrupted migration is started again from scratch.
+     */
+    public static <V extends Persistable & Versionable> SegmentedPaxosStateLog<V> create(
+            String path, long segmentSizeBytes) {
+        Preconditions.checkArgument(segmentSizeBytes > HEADER_SIZE, "segment size is too small: %s", segmentSizeBytes);
+        File dir = new File(path);
+        try {
+            FileUtils.forceMkdir(dir);
+            File segmentDir = new File(dir, SEGMENT_DIRECTORY);
+            List<File> legacyFiles = getLegacyLogFiles(dir);
+            if (!segmentDir.exists()) {
+                File migrationDir = new File(dir, MIGRATION_DIRECTORY);
+                FileUtils.deleteDirectory(migrationDir);
+                FileUtils.forceMkdir(migrationDir);
+                if (!legacyFiles.isEmpty()) {
+                    migrateLegacyLog(path, legacyFiles, migrationDir, segmentSizeBytes);
+                }
+                Files.move(migrationDir.toPath(), segmentDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory(dir);
+                for (File legacyFile : legacyFiles) {
+                    Files.deleteIfExists(legacyFile.toPath());
+                }
+            } else if (!legacyFiles.isEmpty()) {
+                // Either left over from a migration that crashed before cleaning up, or written by
+                // PaxosStateLogImpl after the migration; in both cases the segments are authoritative.
+                log.warn("Ignoring {} paxos log files in {} which are not part of the segmented log",
+                        legacyFiles.size(), dir.getAbsolutePath());
+            }
+
+            SegmentedPaxosStateLog<V> stateLog = new SegmentedPaxosStateLog<>(segmentDir, segmentSizeBytes);
+            if (stateLog.index.isEmpty()) {
+                // As in PaxosStateLogImpl, a brand new log gets a lowest entry so #getLeastLogEntry will return
+                // the right thing, and we will not start ignoring seq 0 after a restart.
+                stateLog.writeMarker(PaxosAcceptor.NO_LOG_ENTRY);
+            }
+            return stateLog;
+        } catch (IOException e) {
+            throw new RuntimeException("IO problem related to the path " + dir.getAbsolutePath(), e);
+        }
+    }
+
+    private static void migrateLegacyLog(String path, List<File> legacyFiles, File migrationDir,
+            long segmentSizeBytes) throws IOException {
+        log.info("Migrating {} paxos log entries in {} to a segmented log", legacyFiles.size(), path);
+        PaxosStateLogImpl<PaxosValue> legacyLog = new PaxosStateLogImpl<>(path);
+        try (SegmentedPaxosStateLog<PaxosValue> migrated = new SegmentedPaxosStateLog<>(migrationDir, segmentSizeBytes)) {
+            for (File legacyFile : legacyFiles) {
+                long seq = Long.parseLong(legacyFile.getName());
+                if (seq == PaxosAcceptor.NO_LOG_ENTRY) {
+                    migrated.writeMarker(seq);
+                    continue;
+                }
+                byte[] bytes;
+                try {
+                    bytes = legacyLog.readRound(seq);
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable paxos log entry {} while migrating {}", seq, path, e);
+                    continue;
+                }
+                if (bytes != null) {
+                    // Versions are not persisted by PaxosStateLogImpl, so there is nothing to carry over.
+                    migrated.writeRecord(ROUND_RECORD, seq, bytes, null);
+                }
+            }
+        }
+    }
+
+    private static List<File> getLegacyLogFiles(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        List<File> legacyFiles = Lists.newArrayList();
+        for (File file : files) {
+            if (file.isFile() && Longs.tryParse(file.getName()) != null) {
+                legacyFiles.add(file);
+            }
+        }
+        legacyFiles.sort(Comparator.comparingLong(file -> Long.parseLong(file.getName())));
+        return legacyFiles;
+    }
+
+    @VisibleForTesting
+    SegmentedPaxosStateLog(File directory, long segmentSizeBytes) throws IOException {
+        this.directory = directory;
+        this.segmentSizeBytes = segmentSizeBytes;
+        FileUtils.forceMkdir(directory);
+        synchronized (appendLock) {
+            for (File file : getSegmentFiles()) {
+                replaySegment(openSegment(file, segmentIdFromFile(file), 0));
+            }
+            reclaimEmptySegments();
+            Map.Entry<Long, Segment> newest = segments.lastEntry();
+            if (newest != null && newest.getValue().endsCleanly) {
+                activeSegment = newest.getValue();
+            } else {
+                // Never write after a torn record left by a crash.
+                startNewSegment(segmentSizeBytes);
+            }
+        }
+    }
+
+    /**
+     * Deletes segments without a single valid record, except for a cleanly empty newest segment, which is reused.
+     * Without this, every restart that crashed or wrote nothing would leave another preallocated file behind.
+     */
+    @GuardedBy("appendLock")
+    private void reclaimEmptySegments() {
+        long newestId = segments.isEmpty() ? Long.MIN_VALUE : segments.lastKey();
+        Iterator<Segment> iter = segments.values().iterator();
+        while (iter.hasNext()) {
+            Segment segment = iter.next();
+            boolean isReusable = segment.id == newestId && segment.endsCleanly;
+            if (segment.writePosition == 0 && !isReusable) {
+                iter.remove();
+                segment.delete();
+            }
+        }
+    }
+
+    @Override
+    public void writeRound(long seq, V round) {
+        writeRecord(ROUND_RECORD, seq, round.persistToBytes(), round.getVersion());
+    }
+
+    private void writeMarker(long seq) {
+        writeRecord(MARKER_RECORD, seq, new byte[0], null);
+    }
+
+    private void writeRecord(byte type, long seq, byte[] payload, @Nullable Long version) {
+        RecordLocation location;
+        synchronized (appendLock) {
+            if (version != null) {
+                // reject old state
+                Long latestVersion = seqToVersionMap.get(seq);
+                if (latestVersion != null && version < latestVersion) {
+                    return;
+                }
+                seqToVersionMap.put(seq, version);
+            }
+            location = append(type, seq, payload);
+        }
+        awaitDurable(location);
+        synchronized (appendLock) {
+            if (seq > truncatedUpTo) {
+                index.merge(seq, location, RecordLocation::latest);
+            }
+        }
+    }
+
+    @GuardedBy("appendLock")
+    private RecordLocation append(byte type, long seq, byte[] payload) {
+        byte[] record = encodeRecord(type, seq, payload);
+        try {
+            if (activeSegment.writePosition + record.length > activeSegment.capacity) {
+                syncSegment(activeSegment);
+                startNewSegment(record.length);
+            }
+            long offset = activeSegment.writePosition;
+            activeSegment.write(offset, record);
+            activeSegment.writePosition = offset + record.length;
+            activeSegment.maxSeq = Math.max(activeSegment.maxSeq, seq);
+            return new RecordLocation(activeSegment, offset, record.length, type, nextRecordOrder++);
+        } catch (IOException e) {
+            log.error("problem writing paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+
+    /**
+     * Waits until the given record is durable. If no other writer has covered it with an fsync yet, this
+     * forces the segment up to everything that has been appended to it so far.
+     */
+    private void awaitDurable(RecordLocation location) {
+        Segment segment = location.segment;
+        long end = location.offset + location.length;
+        if (segment.syncedPosition >= end) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (segment.syncedPosition >= end) {
+                return;
+            }
+            try {
+                syncSegment(segment);
+            } catch (IOException e) {
+                log.error("problem writing paxos state", e);
+                throw Throwables.throwUncheckedException(e);
+            }
+        }
+    }
+
+    private static void syncSegment(Segment segment) throws IOException {
+        long position = segment.writePosition;
+        segment.sync();
+        segment.syncedPosition = Math.max(segment.syncedPosition, position);
+    }
+
+    @Override
+    public byte[] readRound(long seq) throws IOException {
+        RecordLocation location = index.get(seq);
+        if (location == null || location.type != ROUND_RECORD) {
+            return null;
+        }
+        byte[] record = new byte[location.length];
+        try {
+            location.segment.read(location.offset, record);
+        } catch (IOException e) {
+            if (location.segment.deleted) {
+                // truncated while we were reading
+                return null;
+            }
+            log.error("problem reading paxos state");
+            throw e;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (buffer.getInt() != RECORD_MAGIC || !isChecksumValid(buffer) || buffer.getLong(5) != seq) {
+            throw new CorruptLogFileException();
+        }
+        return Arrays.copyOfRange(record, HEADER_SIZE, record.length);
+    }
+
+    @Override
+    public long getLeastLogEntry() {
+        Map.Entry<Long, RecordLocation> entry = index.firstEntry();
+        return entry == null ? PaxosAcceptor.NO_LOG_ENTRY : entry.getKey();
+    }
+
+    @Override
+    public long getGreatestLogEntry() {
+        Map.Entry<Long, RecordLocation> entry = index.lastEntry();
+        return entry == null ? PaxosAcceptor.NO_LOG_ENTRY : entry.getKey();
+    }
+
+    @Override
+    public void truncate(long toDeleteInclusive) {
+        synchronized (appendLock) {
+            long greatestLogEntry = getGreatestLogEntry();
+            if (greatestLogEntry >= 0) {
+                // We never want to remove our most recent entry
+                toDeleteInclusive = Math.min(greatestLogEntry - 1, toDeleteInclusive);
+            }
+            if (toDeleteInclusive <= truncatedUpTo) {
+                return;
+            }
+            RecordLocation location = append(TRUNCATE_RECORD, toDeleteInclusive, new byte[0]);
+            awaitDurable(location);
+
+            truncatedUpTo = toDeleteInclusive;
+            index.headMap(toDeleteInclusive, true).clear();
+            seqToVersionMap.headMap(toDeleteInclusive, true).clear();
+
+            Iterator<Segment> iter = segments.values().iterator();
+            while (iter.hasNext()) {
+                Segment segment = iter.next();
+                if (segment != activeSegment && segment.maxSeq <= toDeleteInclusive) {
+                    iter.remove();
+                    segment.delete();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            syncSegment(activeSegment);
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    @GuardedBy("appendLock")
+    private void replaySegment(Segment segment) throws IOException {
+        segments.put(segment.id, segment);
+        long position = 0;
+        boolean isCleanEnd = true;
+        byte[] header = new byte[HEADER_SIZE];
+        while (position + HEADER_SIZE <= segment.capacity) {
+            segment.read(position, header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            if (headerBuffer.getInt() != RECORD_MAGIC) {
+                // preallocated space is zero-filled
+                isCleanEnd = isAllZeros(header);
+                break;
+            }
+            isCleanEnd = false;
+            byte type = headerBuffer.get();
+            long seq = headerBuffer.getLong();
+            int length = headerBuffer.getInt();
+            if (length < 0 || position + HEADER_SIZE + length > segment.capacity) {
+                break;
+            }
+            byte[] record = new byte[HEADER_SIZE + length];
+            segment.read(position, record);
+            if (!isChecksumValid(ByteBuffer.wrap(record))) {
+                break;
+            }
+            applyRecord(new RecordLocation(segment, position, record.length, type, nextRecordOrder++), seq);
+            segment.maxSeq = Math.max(segment.maxSeq, seq);
+            position += record.length;
+            isCleanEnd = true;
+        }
+        if (!isCleanEnd) {
+            log.warn("Paxos log segment {} ends with a corrupt or partially written record at offset {}",
+                    segment.file.getAbsolutePath(), position);
+        }
+        segment.writePosition = position;
+        segment.syncedPosition = position;
+        segment.endsCleanly = isCleanEnd;
+    }
+
+    @GuardedBy("appendLock")
+    private void applyRecord(RecordLocation location, long seq) {
+        switch (location.type) {
+            case ROUND_RECORD:
+            case MARKER_RECORD:
+                if (seq > truncatedUpTo) {
+                    index.put(seq, location);
+                }
+                break;
+            case TRUNCATE_RECORD:
+                truncatedUpTo = Math.max(truncatedUpTo, seq);
+                index.headMap(seq, true).clear();
+                break;
+            default:
+                log.warn("Ignoring paxos log record of unknown type {} for seq {}", location.type, seq);
+        }
+    }
+
+    @GuardedBy("appendLock")
+    private void startNewSegment(long minimumCapacity) throws IOException {
+        long id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        File file = new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = openSegment(file, id, Math.max(segmentSizeBytes, minimumCapacity));
+        syncDirectory(directory);
+        segments.put(id, segment);
+        activeSegment = segment;
+    }
+
+    private Collection<File> getSegmentFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX)
+                && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        List<File> segmentFiles = Lists.newArrayList(files);
+        segmentFiles.sort(Comparator.comparingLong(SegmentedPaxosStateLog::segmentIdFromFile));
+        return segmentFiles;
+    }
+
+    private static long segmentIdFromFile(File file) {
+        String name = file.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static Segment openSegment(File file, long id, long preallocateBytes) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        if (raf.length() < preallocateBytes) {
+            raf.setLength(preallocateBytes);
+        }
+        return new Segment(id, file, raf, raf.length());
+    }
+
+    /** Makes creations and renames of files in the directory durable, where the platform allows it. */
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Could not sync directory {}", dir.getAbsolutePath(), e);
+        }
+    }
+
+    private static boolean isAllZeros(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] encodeRecord(byte type, long seq, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(RECORD_MAGIC);
+        buffer.put(type);
+        buffer.putLong(seq);
+        buffer.putInt(payload.length);
+        buffer.putInt(0);
+        buffer.put(payload);
+        buffer.putInt(HEADER_SIZE - 4, checksum(buffer.array()));
+        return buffer.array();
+    }
+
+    private static boolean isChecksumValid(ByteBuffer record) {
+        return record.getInt(HEADER_SIZE - 4) == checksum(record.array());
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 4, HEADER_SIZE - 8);
+        crc.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+        return (int) crc.getValue();
+    }
+
+    private static final class RecordLocation {
+        final Segment segment;
+        final long offset;
+        final int length;
+        final byte type;
+        final long order;
+
+        RecordLocation(Segment segment, long offset, int length, byte type, long order) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.type = type;
+            this.order = order;
+        }
+
+        static RecordLocation latest(RecordLocation first, RecordLocation second) {
+            return first.order > second.order ? first : second;
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final File file;
+        final long capacity;
+        private final RandomAccessFile raf;
+
+        volatile long writePosition = 0;
+        volatile long syncedPosition = 0;
+        volatile boolean deleted = false;
+        long maxSeq = PaxosAcceptor.NO_LOG_ENTRY;
+        boolean endsCleanly = true;
+
+        Segment(long id, File file, RandomAccessFile raf, long capacity) {
+            this.id = id;
+            this.file = file;
+            this.raf = raf;
+            this.capacity = capacity;
+        }
+
+        synchronized void write(long position, byte[] bytes) throws IOException {
+            raf.seek(position);
+            raf.write(bytes);
+        }
+
+        synchronized void read(long position, byte[] into) throws IOException {
+            raf.seek(position);
+            raf.readFully(into);
+        }
+
+        void sync() throws IOException {
+            raf.getFD().sync();
+        }
+
+        synchronized void close() throws IOException {
+            raf.close();
+        }
+
+        void delete() {
+            deleted = true;
+            try {
+                close();
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                log.warn("failed to delete log segment {}", file.getAbsolutePath(), e);
+            }
+        }
+    }
+}
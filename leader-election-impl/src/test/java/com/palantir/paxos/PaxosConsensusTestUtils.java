@@ -49,7 +49,14 @@ public final class PaxosConsensusTestUtils {
 
     public static PaxosTestState setup(int numLeaders,
                                        int quorumSize) {
+        return setup(numLeaders, quorumSize, 0L);
+    }
+
+    public static PaxosTestState setup(int numLeaders,
+                                       int quorumSize,
+                                       long leaseDurationMs) {
         List<LeaderElectionService> leaders = Lists.newArrayList();
+        List<PaxosLeaderElectionService> rawLeaders = Lists.newArrayList();
         List<PaxosAcceptor> acceptors = Lists.newArrayList();
         List<PaxosLearner> learners = Lists.newArrayList();
         List<AtomicBoolean> failureToggles = Lists.newArrayList();
@@ -92,7 +99,9 @@ public final class PaxosConsensusTestUtils {
                     .pingRateMs(0L)
                     .randomWaitBeforeProposingLeadershipMs(0L)
                     .leaderPingResponseWaitMs(0L)
+                    .leaseDurationMs(leaseDurationMs)
                     .build();
+            rawLeaders.add(leader);
             leaders.add(SimulatingFailingServerProxy.newProxyInstance(
                     LeaderElectionService.class,
                     leader,
@@ -100,11 +109,12 @@ public final class PaxosConsensusTestUtils {
                     failureToggles.get(i)));
         }
 
-        return new PaxosTestState(leaders, acceptors, learners, failureToggles, executor);
+        return new PaxosTestState(leaders, rawLeaders, acceptors, learners, failureToggles, executor);
     }
 
     public static void teardown(PaxosTestState state) throws Exception {
         try {
+            state.closeAllLeaders();
             ExecutorService executor = state.getExecutor();
             executor.shutdownNow();
             boolean terminated = executor.awaitTermination(10, TimeUnit.SECONDS);
@@ -25,16 +25,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.LeaderElectionService.LeadershipToken;
 import com.palantir.leader.LeaderElectionService.StillLeadingStatus;
+import com.palantir.leader.PaxosLeaderElectionService;
 
 public class PaxosTestState {
     private final List<LeaderElectionService> leaders;
+    private final List<PaxosLeaderElectionService> rawLeaders;
     private final List<PaxosAcceptor> acceptors;
     private final List<PaxosLearner> learners;
     private final List<AtomicBoolean> failureToggles;
     private final ExecutorService executor;
 
-    public PaxosTestState(List<LeaderElectionService> leaders, List<PaxosAcceptor> acceptors, List<PaxosLearner> learners, List<AtomicBoolean> failureToggles, ExecutorService executor) {
+    public PaxosTestState(List<LeaderElectionService> leaders, List<PaxosLeaderElectionService> rawLeaders, List<PaxosAcceptor> acceptors, List<PaxosLearner> learners, List<AtomicBoolean> failureToggles, ExecutorService executor) {
         this.leaders = leaders;
+        this.rawLeaders = rawLeaders;
         this.acceptors = acceptors;
         this.learners = learners;
         this.failureToggles = failureToggles;
@@ -77,6 +80,14 @@ public class PaxosTestState {
         return leaders.get(i);
     }
 
+    public void closeLeader(int i) {
+        rawLeaders.get(i).close();
+    }
+
+    public void closeAllLeaders() {
+        rawLeaders.forEach(PaxosLeaderElectionService::close);
+    }
+
     public PaxosLearner learner(int i) {
         return learners.get(i);
     }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentedPaxosStateLogTest {
+    private static final String LEADER = "leader";
+    private static final long SMALL_SEGMENT_SIZE = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = folder.newFolder("paxos").getPath();
+    }
+
+    @Test
+    public void newLogHasLowestEntryMarker() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.readRound(PaxosAcceptor.NO_LOG_ENTRY)).isNull();
+        log.close();
+    }
+
+    @Test
+    public void canReadWrittenRounds() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+        for (long seq = 0; seq < 10; seq++) {
+            log.writeRound(seq, valueForRound(seq));
+        }
+
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(9L);
+        assertThat(readValue(log, 5)).isEqualTo(valueForRound(5));
+        assertThat(log.readRound(10)).isNull();
+        log.close();
+    }
+
+    @Test
+    public void rejectsOlderVersionsOfRound() throws IOException {
+        SegmentedPaxosStateLog<PaxosAcceptorState> log = SegmentedPaxosStateLog.create(path);
+        PaxosAcceptorState first = PaxosAcceptorState.newState(new PaxosProposalId(1, LEADER));
+        PaxosAcceptorState second = first.withPromise(new PaxosProposalId(2, LEADER));
+
+        log.writeRound(0, second);
+        log.writeRound(0, first);
+
+        PaxosAcceptorState stored = PaxosAcceptorState.BYTES_HYDRATOR.hydrateFromBytes(log.readRound(0));
+        assertThat(stored.getVersion()).isEqualTo(second.getVersion());
+        log.close();
+    }
+
+    @Test
+    public void roundsSurviveReopeningAcrossSegments() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 50; seq++) {
+            log.writeRound(seq, valueForRound(seq));
+        }
+        log.writeRound(3, valueForRound(33));
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        assertThat(getSegmentFiles().length).isGreaterThan(1);
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(reopened.getGreatestLogEntry()).isEqualTo(49L);
+        assertThat(readValue(reopened, 3)).isEqualTo(valueForRound(33));
+        assertThat(readValue(reopened, 42)).isEqualTo(valueForRound(42));
+        reopened.close();
+    }
+
+    @Test
+    public void truncateDeletesWholeSegmentsAndPersists() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 50; seq++) {
+            log.writeRound(seq, valueForRound(seq));
+        }
+        int segmentsBeforeTruncation = getSegmentFiles().length;
+
+        log.truncate(100);
+
+        assertThat(log.getLeastLogEntry()).isEqualTo(49L);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(49L);
+        assertThat(log.readRound(10)).isNull();
+        assertThat(getSegmentFiles().length).isLessThan(segmentsBeforeTruncation);
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(49L);
+        assertThat(readValue(reopened, 49)).isEqualTo(valueForRound(49));
+        reopened.close();
+    }
+
+    @Test
+    public void migratesLegacyLog() throws IOException {
+        PaxosStateLogImpl<PaxosValue> legacyLog = new PaxosStateLogImpl<>(path);
+        for (long seq = 0; seq < 5; seq++) {
+            legacyLog.writeRound(seq, valueForRound(seq));
+        }
+        legacyLog.truncate(1);
+
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+
+        assertThat(log.getLeastLogEntry()).isEqualTo(2L);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(4L);
+        for (long seq = 2; seq < 5; seq++) {
+            assertThat(readValue(log, seq)).isEqualTo(valueForRound(seq));
+        }
+        assertThat(new File(path).list()).containsExactly(SegmentedPaxosStateLog.SEGMENT_DIRECTORY);
+        log.close();
+    }
+
+    @Test
+    public void ignoresCorruptRecordsOnReplay() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+        log.writeRound(0, valueForRound(0));
+        log.close();
+
+        File segment = getSegmentFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // The marker record is 21 bytes long; flip a byte in the payload of round 0.
+            file.seek(21 + 21 + 1);
+            int original = file.read();
+            file.seek(21 + 21 + 1);
+            file.write(original ^ 0xff);
+        }
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path);
+        assertThat(reopened.readRound(0)).isNull();
+        assertThat(reopened.getGreatestLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        reopened.close();
+    }
+
+    @Test
+    public void concurrentWritersAreAllDurable() throws Exception {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE * 4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (long seq = 0; seq < 200; seq++) {
+            long round = seq;
+            executor.submit(() -> log.writeRound(round, valueForRound(round)));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE * 4);
+        for (long seq = 0; seq < 200; seq++) {
+            assertThat(readValue(reopened, seq)).isEqualTo(valueForRound(seq));
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void reopeningReusesTheNewestSegment() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+            log.writeRound(i, valueForRound(i));
+            log.close();
+        }
+        for (int i = 0; i < 5; i++) {
+            SegmentedPaxosStateLog.create(path).close();
+        }
+
+        assertThat(getSegmentFiles()).hasSize(1);
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path);
+        for (long seq = 0; seq < 5; seq++) {
+            assertThat(readValue(reopened, seq)).isEqualTo(valueForRound(seq));
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void reopeningAfterTornRecordsKeepsSegmentCountBounded() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+            log.writeRound(i, valueForRound(i));
+            log.close();
+            tearLastRecord();
+        }
+
+        // Each torn segment keeps its earlier records, but no segment is left without any.
+        assertThat(getSegmentFiles().length).isLessThanOrEqualTo(6);
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        for (int i = 0; i < 5; i++) {
+            reopened.close();
+            reopened = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        }
+        assertThat(getSegmentFiles().length).isLessThanOrEqualTo(7);
+        reopened.close();
+    }
+
+    /** Simulates a crash part way through writing the last round, by corrupting its final byte. */
+    private void tearLastRecord() throws IOException {
+        File[] segments = getSegmentFiles();
+        Arrays.sort(segments);
+        File newest = segments[segments.length - 1];
+        try (RandomAccessFile file = new RandomAccessFile(newest, "rw")) {
+            long end = findEndOfRecords(file);
+            file.seek(end - 1);
+            int original = file.read();
+            file.seek(end - 1);
+            file.write(original ^ 0xff);
+        }
+    }
+
+    private static long findEndOfRecords(RandomAccessFile file) throws IOException {
+        long end = file.length();
+        while (end > 0) {
+            file.seek(end - 1);
+            if (file.read() != 0) {
+                return end;
+            }
+            end--;
+        }
+        return 0;
+    }
+
+    private File[] getSegmentFiles() {
+        return new File(path, SegmentedPaxosStateLog.SEGMENT_DIRECTORY).listFiles();
+    }
+
+    private static PaxosValue valueForRound(long round) {
+        return new PaxosValue(LEADER, round, new byte[] {(byte) round, 1, 2, 3});
+    }
+
+    private static PaxosValue readValue(PaxosStateLog<PaxosValue> log, long seq) throws IOException {
+        return PaxosValue.BYTES_HYDRATOR.hydrateFromBytes(log.readRound(seq));
+    }
+}
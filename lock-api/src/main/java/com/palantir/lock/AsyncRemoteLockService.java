@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.palantir.common.annotation.NonIdempotent;
+
+/**
+ * A {@link RemoteLockService} which can also serve blocking lock requests without tying up
+ * the calling thread while the request waits for its locks.
+ */
+public interface AsyncRemoteLockService extends CloseableRemoteLockService {
+    /**
+     * Asynchronous version of {@link #lock(String, LockRequest)}. The returned future completes
+     * with {@code null} if the lock request failed. Cancelling the future abandons the request
+     * and releases any locks acquired on its behalf. Invalid requests fail the returned future
+     * rather than throwing.
+     */
+    @NonIdempotent
+    CompletableFuture<LockRefreshToken> lockAsync(String client, LockRequest request);
+
+    /**
+     * Asynchronous version of {@link #lockAndGetHeldLocks(String, LockRequest)}. Cancelling the
+     * future abandons the request and releases any locks acquired on its behalf. Invalid requests
+     * fail the returned future rather than throwing.
+     */
+    @NonIdempotent
+    CompletableFuture<HeldLocksToken> lockAndGetHeldLocksAsync(String client, LockRequest request);
+}
@@ -99,6 +99,15 @@ import com.google.common.base.Objects;
         return 10000;
     }
 
+    /**
+     * Returns <code>true</code> if waiting lock requests should be queued as callbacks rather
+     * than by parking a thread per waiter. This is required to serve lock requests asynchronously
+     * (see {@link AsyncRemoteLockService}). The default value is <code>false</code>.
+     */
+    public boolean isAsyncLockingEnabled() {
+        return false;
+    }
+
     @Override public final boolean equals(@Nullable Object obj) {
         if (this == obj) {
             return true;
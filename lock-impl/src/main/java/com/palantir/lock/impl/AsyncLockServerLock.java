@@ -0,0 +1,560 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * A {@link ClientAwareReadWriteLock} with the same semantics as {@link LockServerLock} (reentrancy, no barging,
+ * freezing and owner changes) which does not park a thread per waiter. Waiters are kept in a FIFO queue of
+ * futures; whenever the lock is released, the waiters at the head of the queue that can now be granted are
+ * completed on the releasing thread.
+ * <p>
+ * The blocking {@link KnownClientLock} methods are implemented on top of {@link #acquire(LockClient, LockMode)},
+ * so both the synchronous and the asynchronous lock paths of the lock server share a single wait queue.
+ */
+public class AsyncLockServerLock implements ClientAwareReadWriteLock {
+    private final LockDescriptor descriptor;
+    private final LockClientIndices clients;
+
+    @GuardedBy("this") private boolean frozen;
+    @GuardedBy("this") private int writeLockCount = 0;
+    @GuardedBy("this") private int writeLockHolder = 0;
+    @GuardedBy("this") private TIntIntMap readLockHolders;
+    @GuardedBy("this") private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    public AsyncLockServerLock(LockDescriptor descriptor, LockClientIndices clients) {
+        this.descriptor = Preconditions.checkNotNull(descriptor);
+        this.clients = Preconditions.checkNotNull(clients);
+    }
+
+    @Override
+    public LockDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    @Override
+    public KnownClientLock get(LockClient client, LockMode mode) {
+        Preconditions.checkNotNull(client);
+        Preconditions.checkNotNull(mode);
+        return new AsyncKnownClientLock(clients.toIndex(client), mode);
+    }
+
+    @Override
+    public synchronized boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Requests the lock in the given mode for the given client. If the lock can be granted immediately, the
+     * returned acquisition is already complete; otherwise the request is queued behind the current waiters.
+     *
+     * @throws IllegalMonitorStateException if the client requests the write lock while holding the read lock
+     */
+    public Acquisition acquire(LockClient client, LockMode mode) {
+        Preconditions.checkNotNull(client);
+        return acquire(clients.toIndex(client), Preconditions.checkNotNull(mode));
+    }
+
+    private Acquisition acquire(int clientIndex, LockMode mode) {
+        Waiter waiter = new Waiter(clientIndex, mode);
+        synchronized (this) {
+            if (tryAcquire(clientIndex, mode, false)) {
+                waiter.granted = true;
+                waiter.future.complete(null);
+                return new Acquisition(waiter, null);
+            }
+            if (mode == LockMode.WRITE && writeLockCount == 0 && holdsReadLock(clientIndex)) {
+                // Waiting would never succeed, since we would be waiting on ourselves.
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(clientIndex) + " currently holds the read lock");
+            }
+            waiters.addLast(waiter);
+            return new Acquisition(waiter, getLockHolder());
+        }
+    }
+
+    /**
+     * A pending or completed request for this lock. If {@link #cancel()} returns {@code false}, the lock has
+     * been granted and the caller is responsible for releasing it.
+     */
+    public final class Acquisition {
+        private final Waiter waiter;
+        @Nullable private final LockClient holderWhenQueued;
+
+        private Acquisition(Waiter waiter, @Nullable LockClient holderWhenQueued) {
+            this.waiter = waiter;
+            this.holderWhenQueued = holderWhenQueued;
+        }
+
+        /** Completes once the lock has been granted. */
+        public CompletableFuture<Void> future() {
+            return waiter.future;
+        }
+
+        /**
+         * Returns one of the holders of the lock at the time this request was queued, or {@code null} if the
+         * lock was granted immediately.
+         */
+        @Nullable public LockClient getHolderWhenQueued() {
+            return holderWhenQueued;
+        }
+
+        /**
+         * Removes this request from the wait queue and fails its future with a {@link CancellationException}.
+         * If the request had already failed, its future is failed with that failure instead.
+         *
+         * @return {@code false} if the lock was already granted, {@code true} otherwise
+         */
+        public boolean cancel() {
+            List<Waiter> granted = ImmutableList.of();
+            RuntimeException failure;
+            synchronized (AsyncLockServerLock.this) {
+                if (waiter.granted) {
+                    return false;
+                }
+                failure = waiter.failure;
+                if (waiters.remove(waiter)) {
+                    // The cancelled waiter may have been the only thing blocking the waiters behind it.
+                    granted = grantWaiters();
+                }
+            }
+            if (failure != null) {
+                // The thread that failed this waiter may not have completed its future yet.
+                waiter.future.completeExceptionally(failure);
+            } else {
+                waiter.future.cancel(false);
+            }
+            completeAll(granted);
+            return true;
+        }
+
+        /** Returns the current holder of this lock, or {@code null} if it is not held. */
+        @Nullable public LockClient getCurrentHolder() {
+            synchronized (AsyncLockServerLock.this) {
+                return getLockHolder();
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private boolean tryAcquire(int clientIndex, LockMode mode, boolean isHeadOfQueue) {
+        if (frozen) {
+            return false;
+        }
+        boolean hasPredecessors = !isHeadOfQueue && !waiters.isEmpty();
+        switch (mode) {
+            case WRITE:
+                if (writeLockCount > 0 && holdsWriteLock(clientIndex)) {
+                    writeLockCount++;
+                    return true;
+                }
+                if (!hasPredecessors && writeLockCount == 0 && !isReadLockHeld()) {
+                    writeLockCount = 1;
+                    writeLockHolder = clientIndex;
+                    return true;
+                }
+                return false;
+            case READ:
+                if (writeLockCount == 0 && !holdsReadLock(clientIndex) && hasPredecessors) {
+                    return false;
+                }
+                if (writeLockCount > 0 && !holdsWriteLock(clientIndex)) {
+                    return false;
+                }
+                incrementReadCount(clientIndex);
+                return true;
+            default:
+                throw new EnumConstantNotPresentException(LockMode.class, mode.name());
+        }
+    }
+
+    /**
+     * Grants the lock to as many waiters at the head of the queue as possible. The returned waiters must be
+     * completed by the caller once it has left the monitor, so that their continuations do not run while
+     * this lock is held.
+     */
+    @GuardedBy("this")
+    private List<Waiter> grantWaiters() {
+        List<Waiter> granted = null;
+        while (!waiters.isEmpty()) {
+            Waiter head = waiters.peekFirst();
+            if (head.mode == LockMode.WRITE && writeLockCount == 0 && holdsReadLock(head.clientIndex)) {
+                waiters.pollFirst();
+                head.failure = new IllegalMonitorStateException(
+                        clients.fromIndex(head.clientIndex) + " currently holds the read lock");
+            } else if (tryAcquire(head.clientIndex, head.mode, true)) {
+                waiters.pollFirst();
+                head.granted = true;
+            } else {
+                break;
+            }
+            if (granted == null) {
+                granted = Lists.newArrayList();
+            }
+            granted.add(head);
+        }
+        return granted == null ? ImmutableList.of() : granted;
+    }
+
+    private static void completeAll(List<Waiter> waitersToComplete) {
+        for (Waiter waiter : waitersToComplete) {
+            if (waiter.failure != null) {
+                waiter.future.completeExceptionally(waiter.failure);
+            } else {
+                waiter.future.complete(null);
+            }
+        }
+    }
+
+    private void release(int clientIndex, LockMode mode) {
+        List<Waiter> granted;
+        synchronized (this) {
+            if (mode == LockMode.WRITE) {
+                releaseWrite(clientIndex);
+            } else {
+                decrementReadCount(clientIndex);
+            }
+            unfreezeIfFree();
+            granted = grantWaiters();
+        }
+        completeAll(granted);
+    }
+
+    @GuardedBy("this")
+    private void releaseWrite(int clientIndex) {
+        if (writeLockHolder != clientIndex || writeLockCount == 0) {
+            throw LockServerLock.throwIllegalMonitorStateException(
+                    clients.fromIndex(clientIndex) + " does not hold the write lock");
+        }
+        writeLockCount--;
+    }
+
+    @GuardedBy("this")
+    private void unfreezeIfFree() {
+        if (writeLockCount == 0 && !isReadLockHeld()) {
+            frozen = false;
+        }
+    }
+
+    private void unlockAndFreeze(int clientIndex) {
+        List<Waiter> granted;
+        synchronized (this) {
+            if (isAnonymous(clientIndex)) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        "anonymous clients cannot call unlockAndFreeze()");
+            }
+            releaseWrite(clientIndex);
+            frozen = writeLockCount > 0 || isReadLockHeld();
+            granted = grantWaiters();
+        }
+        completeAll(granted);
+    }
+
+    private synchronized void changeOwner(int oldClient, LockMode mode, LockClient newClient) {
+        int newIndex = clients.toIndex(newClient);
+        if (oldClient == newIndex) {
+            throw LockServerLock.throwIllegalMonitorStateException(
+                    "new owner must be different from old owner, owner=" + clients.fromIndex(oldClient));
+        }
+        if (frozen) {
+            throw LockServerLock.throwIllegalMonitorStateException(
+                    "Cannot change owner because the lock is frozen");
+        }
+        if (mode == LockMode.READ) {
+            if (!holdsReadLock(oldClient)) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(oldClient) + " does not hold the read lock");
+            }
+            if (writeLockCount > 0) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(oldClient) + " currently holds both the read and write locks");
+            }
+            decrementReadCount(oldClient);
+            incrementReadCount(newIndex);
+            return;
+        }
+        if (writeLockCount == 0 || writeLockHolder != oldClient) {
+            throw LockServerLock.throwIllegalMonitorStateException(
+                    clients.fromIndex(oldClient) + " does not hold the write lock");
+        }
+        if (holdsReadLock(oldClient)) {
+            throw LockServerLock.throwIllegalMonitorStateException(
+                    clients.fromIndex(oldClient) + " currently holds both the read and write locks");
+        }
+        if (writeLockCount > 1) {
+            throw LockServerLock.throwIllegalMonitorStateException(
+                    clients.fromIndex(oldClient) + " is attempting to create a lock grant"
+                            + " while being supported by multiple clients."
+                            + " This is not currently supported.");
+        }
+        writeLockHolder = newIndex;
+    }
+
+    // Returns null if there is no lock holder. Unlike LockServerSync, waiters are granted eagerly on
+    // release, so a failed acquisition always observes a holder unless the lock is being granted.
+    @GuardedBy("this") @Nullable
+    private LockClient getLockHolder() {
+        if (writeLockCount > 0) {
+            return clients.fromIndex(writeLockHolder);
+        }
+        if (!isReadLockHeld()) {
+            return null;
+        }
+        TIntIntIterator iter = readLockHolders.iterator();
+        Preconditions.checkState(iter.hasNext());
+        iter.advance();
+        return clients.fromIndex(iter.key());
+    }
+
+    private static boolean isAnonymous(int clientIndex) {
+        return clientIndex < 0;
+    }
+
+    @GuardedBy("this")
+    private boolean holdsWriteLock(int clientIndex) {
+        return clientIndex == writeLockHolder && !isAnonymous(clientIndex);
+    }
+
+    @GuardedBy("this")
+    private boolean isReadLockHeld() {
+        return readLockHolders != null && !readLockHolders.isEmpty();
+    }
+
+    @GuardedBy("this")
+    private boolean holdsReadLock(int clientIndex) {
+        return !isAnonymous(clientIndex) && readLockHolders != null && readLockHolders.get(clientIndex) > 0;
+    }
+
+    @GuardedBy("this")
+    private void incrementReadCount(int clientIndex) {
+        if (readLockHolders == null) {
+            readLockHolders = new TIntIntHashMap(1);
+        }
+        readLockHolders.adjustOrPutValue(clientIndex, 1, 1);
+    }
+
+    @GuardedBy("this")
+    private void decrementReadCount(int clientIndex) {
+        if (readLockHolders == null) {
+            throw LockServerLock.throwIllegalMonitorStateException(
+                    clients.fromIndex(clientIndex) + " does not hold the read lock");
+        }
+        int readCount = readLockHolders.remove(clientIndex);
+        if (readCount > 1) {
+            readLockHolders.put(clientIndex, readCount - 1);
+        } else if (readCount == 0) {
+            throw LockServerLock.throwIllegalMonitorStateException(
+                    clients.fromIndex(clientIndex) + " does not hold the read lock");
+        }
+    }
+
+    @GuardedBy("this")
+    private Iterable<Integer> getReadClients() {
+        if (readLockHolders == null) {
+            return ImmutableList.of();
+        }
+        return Ints.asList(readLockHolders.keys()); // (authorized)
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("descriptor", descriptor)
+                .add("writeLockCount", writeLockCount)
+                .add("writeClient", writeLockCount == 0 ? null : clients.fromIndex(writeLockHolder))
+                .add("readClients", clients.fromIndices(getReadClients()))
+                .add("waiters", waiters.size())
+                .add("isFrozen", frozen)
+                .toString();
+    }
+
+    private static final class Waiter {
+        final int clientIndex;
+        final LockMode mode;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        @GuardedBy("AsyncLockServerLock.this") boolean granted = false;
+        @GuardedBy("AsyncLockServerLock.this") RuntimeException failure = null;
+
+        Waiter(int clientIndex, LockMode mode) {
+            this.clientIndex = clientIndex;
+            this.mode = mode;
+        }
+    }
+
+    private final class AsyncKnownClientLock implements KnownClientLock {
+        private final int clientIndex;
+        private final LockMode mode;
+
+        AsyncKnownClientLock(int clientIndex, LockMode mode) {
+            this.clientIndex = clientIndex;
+            this.mode = mode;
+        }
+
+        @Override
+        public LockMode getMode() {
+            return mode;
+        }
+
+        @Override
+        public void lock() {
+            Acquisition acquisition = acquire(clientIndex, mode);
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        acquisition.future().get();
+                        return;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Acquisition acquisition = acquire(clientIndex, mode);
+            try {
+                acquisition.future().get();
+            } catch (InterruptedException e) {
+                releaseIfGranted(acquisition);
+                throw e;
+            } catch (ExecutionException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+            }
+        }
+
+        @Override
+        @Nullable public LockClient tryLock() {
+            synchronized (AsyncLockServerLock.this) {
+                if (tryAcquire(clientIndex, mode, false)) {
+                    return null;
+                }
+                if (mode == LockMode.WRITE && writeLockCount == 0 && holdsReadLock(clientIndex)) {
+                    throw LockServerLock.throwIllegalMonitorStateException(
+                            clients.fromIndex(clientIndex) + " currently holds the read lock");
+                }
+                LockClient lockHolder = getLockHolder();
+                Preconditions.checkState(lockHolder != null, "lock is free but could not be acquired: %s", this);
+                return lockHolder;
+            }
+        }
+
+        @Override
+        @Nullable public LockClient tryLock(long time, TimeUnit unit) throws InterruptedException {
+            Acquisition acquisition = acquire(clientIndex, mode);
+            if (acquisition.future().isDone()) {
+                return null;
+            }
+            try {
+                acquisition.future().get(time, unit);
+                return null;
+            } catch (TimeoutException e) {
+                if (acquisition.cancel()) {
+                    throwIfFailed(acquisition);
+                    return acquisition.getHolderWhenQueued();
+                }
+                // We were granted the lock while timing out.
+                acquisition.future().join();
+                return null;
+            } catch (InterruptedException e) {
+                releaseIfGranted(acquisition);
+                throw e;
+            } catch (ExecutionException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+            }
+        }
+
+        private void throwIfFailed(Acquisition acquisition) {
+            if (!acquisition.future().isCancelled()) {
+                try {
+                    acquisition.future().join();
+                } catch (CompletionException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+                }
+            }
+        }
+
+        private void releaseIfGranted(Acquisition acquisition) {
+            if (!acquisition.cancel()) {
+                acquisition.future().join();
+                unlock();
+            }
+        }
+
+        @Override
+        public void changeOwner(LockClient newOwner) {
+            AsyncLockServerLock.this.changeOwner(clientIndex, mode, newOwner);
+        }
+
+        @Override
+        public void unlock() {
+            release(clientIndex, mode);
+        }
+
+        @Override
+        public void unlockAndFreeze() {
+            if (mode == LockMode.READ) {
+                throw LockServerLock.throwIllegalMonitorStateException("read locks cannot be frozen");
+            }
+            AsyncLockServerLock.this.unlockAndFreeze(clientIndex);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                    .add("mode", mode)
+                    .add("client", clients.fromIndex(clientIndex))
+                    .add("lock", AsyncLockServerLock.this)
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.TreeMultiset;
+import com.palantir.lock.LockClient;
+
+/**
+ * A concurrent index from each {@link LockClient} to a multiset of values. The values of a single client are
+ * updated atomically, but updates and reads for different clients do not contend with each other.
+ */
+@ThreadSafe
+final class LockClientIndex<V> {
+    private final ConcurrentMap<LockClient, Multiset<V>> valuesByClient = new ConcurrentHashMap<>();
+    private final Supplier<? extends Multiset<V>> multisetFactory;
+
+    private LockClientIndex(Supplier<? extends Multiset<V>> multisetFactory) {
+        this.multisetFactory = multisetFactory;
+    }
+
+    static <V> LockClientIndex<V> create() {
+        return new LockClientIndex<>(HashMultiset::create);
+    }
+
+    /** Creates an index which keeps the values of each client in their natural order. */
+    static <V extends Comparable<? super V>> LockClientIndex<V> createSorted() {
+        return new LockClientIndex<>(TreeMultiset::create);
+    }
+
+    void add(LockClient client, V value) {
+        valuesByClient.compute(client, (ignored, values) -> {
+            Multiset<V> result = values == null ? multisetFactory.get() : values;
+            result.add(value);
+            return result;
+        });
+    }
+
+    void remove(LockClient client, V value) {
+        valuesByClient.computeIfPresent(client, (ignored, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    /** Returns a snapshot of the values for the given client. */
+    ImmutableList<V> get(LockClient client) {
+        return read(client, ImmutableList::copyOf, ImmutableList.of());
+    }
+
+    /** Returns the first value for the given client, or {@code null} if there are none. */
+    @Nullable
+    V getFirst(LockClient client) {
+        return read(client, values -> Iterables.getFirst(values, null), null);
+    }
+
+    /** Returns the total number of values in the index. The result is only approximate while the index is in use. */
+    int size() {
+        int size = 0;
+        for (LockClient client : valuesByClient.keySet()) {
+            size += read(client, Multiset::size, 0);
+        }
+        return size;
+    }
+
+    /** Returns a snapshot of the whole index; each client's values are consistent, but clients are read in turn. */
+    ImmutableSetMultimap<LockClient, V> snapshot() {
+        ImmutableSetMultimap.Builder<LockClient, V> builder = ImmutableSetMultimap.builder();
+        for (LockClient client : valuesByClient.keySet()) {
+            builder.putAll(client, get(client));
+        }
+        return builder.build();
+    }
+
+    private <R> R read(LockClient client, Function<? super Multiset<V>, R> reader, R ifAbsent) {
+        AtomicReference<R> result = new AtomicReference<>(ifAbsent);
+        valuesByClient.computeIfPresent(client, (ignored, values) -> {
+            result.set(reader.apply(values));
+            return values;
+        });
+        return result.get();
+    }
+}
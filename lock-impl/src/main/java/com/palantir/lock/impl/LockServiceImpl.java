@@ -29,15 +29,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -52,10 +54,7 @@ import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedMap.Builder;
@@ -63,16 +62,14 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultiset;
+import com.palantir.common.annotation.NonIdempotent;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.random.SecureRandomPool;
 import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.lock.AsyncRemoteLockService;
 import com.palantir.lock.BlockingMode;
 import com.palantir.lock.CloseableRemoteLockService;
 import com.palantir.lock.ExpiringToken;
@@ -107,7 +104,8 @@ import com.palantir.util.JMXUtils;
  */
 @ThreadSafe
 public final class LockServiceImpl
-        implements LockService, CloseableRemoteLockService, RemoteLockService, LockServiceImplMBean {
+        implements LockService, CloseableRemoteLockService, RemoteLockService, AsyncRemoteLockService,
+        LockServiceImplMBean {
 
     private static final Logger log = LoggerFactory.getLogger(LockServiceImpl.class);
     private static final Logger requestLogger = LoggerFactory.getLogger("lock.request");
@@ -122,6 +120,10 @@ public final class LockServiceImpl
     @VisibleForTesting
     static final long DEBUG_SLOW_LOG_TRIGGER_MILLIS = 100;
 
+    /** How often the reaper threads look for expired tokens and grants. */
+    private static final long REAPER_TICK_MILLIS = 100;
+    private static final int REAPER_TICKS_PER_WHEEL = 1024;
+
     /** Executor for the reaper threads. */
     private final ExecutorService executor = Tracers.wrap(PTExecutors.newCachedThreadPool(
             new NamedThreadFactory(LockServiceImpl.class.getName(), true)));
@@ -176,18 +178,18 @@ public final class LockServiceImpl
     private final Runnable callOnClose;
     private volatile boolean isShutDown = false;
     private final String lockStateLoggerDir;
+    private final boolean isAsyncLockingEnabled;
+
+    /** Expires the blocking deadlines of asynchronous lock requests; only used if async locking is enabled. */
+    private final ScheduledExecutorService asyncTimeoutExecutor;
 
     private final LockClientIndices clientIndices = new LockClientIndices();
 
-    /** The backing client-aware read write lock for each lock descriptor. */
-    private final LoadingCache<LockDescriptor, ClientAwareReadWriteLock> descriptorToLockMap =
-            CacheBuilder.newBuilder().weakValues().build(
-                    new CacheLoader<LockDescriptor, ClientAwareReadWriteLock>() {
-                        @Override
-                        public ClientAwareReadWriteLock load(LockDescriptor from) {
-                            return new LockServerLock(from, clientIndices);
-                        }
-                    });
+    /**
+     * The backing client-aware read write lock for each lock descriptor. A lock is referenced by each lock request
+     * which is trying to acquire it, and by each token or grant which holds it.
+     */
+    private final LockTable lockTable = new LockTable(this::newLock);
 
     /** The locks (and canonical token) associated with each HeldLocksToken. */
     private final ConcurrentMap<HeldLocksToken, HeldLocks<HeldLocksToken>> heldLocksTokenMap =
@@ -197,31 +199,30 @@ public final class LockServiceImpl
     private final ConcurrentMap<HeldLocksGrant, HeldLocks<HeldLocksGrant>> heldLocksGrantMap =
             new MapMaker().makeMap();
 
-    /** The priority queue of lock tokens waiting to be reaped. */
-    private final BlockingQueue<HeldLocksToken> lockTokenReaperQueue =
-            new PriorityBlockingQueue<HeldLocksToken>(1, ExpiringToken.COMPARATOR);
+    /**
+     * The lock tokens waiting to be reaped. A token is checked once its expiration (as of when it was scheduled)
+     * has passed; refreshing a token does not touch the wheel, as the reaper reschedules tokens which turn out
+     * to have been refreshed.
+     */
+    private final TimingWheel<HeldLocksToken> lockTokenReaperWheel =
+            new TimingWheel<>(REAPER_TICK_MILLIS, REAPER_TICKS_PER_WHEEL, System.currentTimeMillis());
 
-    /** The priority queue of lock grants waiting to be reaped. */
-    private final BlockingQueue<HeldLocksGrant> lockGrantReaperQueue =
-            new PriorityBlockingQueue<HeldLocksGrant>(1, ExpiringToken.COMPARATOR);
+    /** The lock grants waiting to be reaped. */
+    private final TimingWheel<HeldLocksGrant> lockGrantReaperWheel =
+            new TimingWheel<>(REAPER_TICK_MILLIS, REAPER_TICKS_PER_WHEEL, System.currentTimeMillis());
 
     /** The mapping from lock client to the set of tokens held by that client. */
-    private final SetMultimap<LockClient, HeldLocksToken> lockClientMultimap =
-            Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, HeldLocksToken>create());
+    private final LockClientIndex<HeldLocksToken> lockClientMultimap = LockClientIndex.create();
 
-    private final SetMultimap<LockClient, LockRequest> outstandingLockRequestMultimap =
-        Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, LockRequest>create());
+    private final LockClientIndex<LockRequest> outstandingLockRequestMultimap = LockClientIndex.create();
 
     private final Set<Thread> indefinitelyBlockingThreads =
             Sets.newConcurrentHashSet();
 
-    private final Multimap<LockClient, Long> versionIdMap = Multimaps.synchronizedMultimap(
-            Multimaps.newMultimap(Maps.<LockClient, Collection<Long>>newHashMap(), new Supplier<TreeMultiset<Long>>() {
-                @Override
-                public TreeMultiset<Long> get() {
-                    return TreeMultiset.create();
-                }
-            }));
+    private final Set<AsyncLockAttempt> outstandingAsyncLockAttempts =
+            Sets.newConcurrentHashSet();
+
+    private final LockClientIndex<Long> versionIdMap = LockClientIndex.createSorted();
 
     private static final AtomicInteger instanceCount = new AtomicInteger();
     private static final int MAX_FAILED_LOCKS_TO_LOG = 20;
@@ -257,18 +258,30 @@ public final class LockServiceImpl
         maxNormalLockAge = SimpleTimeDuration.of(options.getMaxNormalLockAge());
         randomBitCount = options.getRandomBitCount();
         lockStateLoggerDir = options.getLockStateLoggerDir();
+        isAsyncLockingEnabled = options.isAsyncLockingEnabled();
+        asyncTimeoutExecutor = isAsyncLockingEnabled
+                ? PTExecutors.newSingleThreadScheduledExecutor(
+                        new NamedThreadFactory(LockServiceImpl.class.getName() + "-async-timeouts", true))
+                : null;
 
         slowLogTriggerMillis = options.slowLogTriggerMillis();
         executor.execute(() -> {
             Thread.currentThread().setName("Held Locks Token Reaper");
-            reapLocks(lockTokenReaperQueue, heldLocksTokenMap);
+            reapLocks(lockTokenReaperWheel, heldLocksTokenMap);
         });
         executor.execute(() -> {
             Thread.currentThread().setName("Held Locks Grant Reaper");
-            reapLocks(lockGrantReaperQueue, heldLocksGrantMap);
+            reapLocks(lockGrantReaperWheel, heldLocksGrantMap);
         });
     }
 
+    private ClientAwareReadWriteLock newLock(LockDescriptor descriptor) {
+        if (isAsyncLockingEnabled) {
+            return new AsyncLockServerLock(descriptor, clientIndices);
+        }
+        return new LockServerLock(descriptor, clientIndices);
+    }
+
     private HeldLocksToken createHeldLocksToken(LockClient client,
             SortedLockCollection<LockDescriptor> lockDescriptorMap,
             LockCollection<? extends ClientAwareReadWriteLock> heldLocksMap, TimeDuration lockTimeout,
@@ -280,9 +293,9 @@ public final class LockServiceImpl
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId, requestThread);
             HeldLocks<HeldLocksToken> heldLocks = HeldLocks.of(token, heldLocksMap);
             if (heldLocksTokenMap.putIfAbsent(token, heldLocks) == null) {
-                lockTokenReaperQueue.add(token);
+                scheduleReaping(lockTokenReaperWheel, token);
                 if (!client.isAnonymous()) {
-                    lockClientMultimap.put(client, token);
+                    lockClientMultimap.add(client, token);
                 }
                 return token;
             }
@@ -302,7 +315,7 @@ public final class LockServiceImpl
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId);
             HeldLocks<HeldLocksGrant> newHeldLocks = HeldLocks.of(grant, heldLocksMap);
             if (heldLocksGrantMap.putIfAbsent(grant, newHeldLocks) == null) {
-                lockGrantReaperQueue.add(grant);
+                scheduleReaping(lockGrantReaperWheel, grant);
                 return grant;
             }
             log.error("Lock ID collision! The RANDOM_BIT_COUNT constant must be increased. "
@@ -326,18 +339,8 @@ public final class LockServiceImpl
     }
 
     @Override
-    @SuppressWarnings("Slf4jConstantLogMessage")
-    // We're concerned about sanitizing logs at the info level and above. This method just logs at debug and info.
     public LockResponse lockWithFullLockResponse(LockClient client, LockRequest request) throws InterruptedException {
-        Preconditions.checkNotNull(client);
-        Preconditions.checkArgument(client != INTERNAL_LOCK_GRANT_CLIENT);
-        Preconditions.checkArgument(request.getLockTimeout().compareTo(maxAllowedLockTimeout) <= 0,
-                "Requested lock timeout (%s) is greater than maximum allowed lock timeout (%s)",
-                request.getLockTimeout(), maxAllowedLockTimeout);
-        Preconditions.checkArgument((request.getBlockingMode() != BLOCK_UNTIL_TIMEOUT)
-                || (request.getBlockingDuration().compareTo(maxAllowedBlockingDuration) <= 0),
-                "Requested blocking duration (%s) is greater than maximum allowed blocking duration (%s)",
-                request.getBlockingDuration(), maxAllowedBlockingDuration);
+        checkLockRequest(client, request);
         long startTime = System.currentTimeMillis();
         if (requestLogger.isDebugEnabled()) {
             requestLogger.debug("LockServiceImpl processing lock request {} for requesting thread {}",
@@ -352,7 +355,7 @@ public final class LockServiceImpl
             if (indefinitelyBlocking) {
                 indefinitelyBlockingThreads.add(Thread.currentThread());
             }
-            outstandingLockRequestMultimap.put(client, request);
+            outstandingLockRequestMultimap.add(client, request);
             Map<LockDescriptor, LockClient> failedLocks = Maps.newHashMap();
             @Nullable Long deadline = (request.getBlockingDuration() == null) ? null
                 : System.nanoTime() + request.getBlockingDuration().toNanos();
@@ -365,74 +368,170 @@ public final class LockServiceImpl
             tryLocks(client, request, request.getBlockingMode(), deadline,
                     request.getLockGroupBehavior(), locks, failedLocks);
 
-            if (request.getBlockingMode() == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE) {
-                if (log.isTraceEnabled()) {
-                    log.trace(".lock({}, {}) returns null", client, request);
-                }
-                if (requestLogger.isDebugEnabled()) {
-                    requestLogger.debug("Timed out requesting {} for requesting thread {} after {} ms",
-                            request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
-                }
-                return new LockResponse(failedLocks);
+            LockResponse response = createLockResponse(client, request, locks, failedLocks, startTime);
+            if (response.success() && Thread.interrupted()) {
+                throw new InterruptedException("Interrupted while locking.");
             }
+            return response;
+        } finally {
+            indefinitelyBlockingThreads.remove(Thread.currentThread());
+            finishLockRequest(client, request, locks);
+        }
+    }
 
-            if (locks.isEmpty() || ((request.getLockGroupBehavior() == LOCK_ALL_OR_NONE)
-                    && (locks.size() < request.getLockDescriptors().size()))) {
-                if (log.isTraceEnabled()) {
-                    log.trace(".lock({}, {}) returns null", client, request);
-                }
-                if (requestLogger.isDebugEnabled()) {
-                    requestLogger.debug("Failed to acquire all locks for {} for requesting thread {} after {} ms",
-                            request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
-                }
-                if (requestLogger.isTraceEnabled()) {
-                    StringBuilder sb = new StringBuilder("Current holders of the first {} of {} total failed locks were: [");
-                    Iterator<Entry<LockDescriptor, LockClient>> entries = failedLocks.entrySet().iterator();
-                    for (int i = 0; i < MAX_FAILED_LOCKS_TO_LOG; i++) {
-                        if (entries.hasNext()) {
-                            Entry<LockDescriptor, LockClient> entry = entries.next();
-                            sb.append(" Lock: ").append(entry.getKey().toString()).append(
-                                    ", Holder: ").append(entry.getValue().toString()).append(";");
-                        }
-                    }
-                    sb.append(" ]");
-                    requestLogger.trace(sb.toString(), MAX_FAILED_LOCKS_TO_LOG, failedLocks.size());
-                }
-                return new LockResponse(null, failedLocks);
+    /**
+     * Asynchronous version of {@link #lockWithFullLockResponse(LockClient, LockRequest)}. If
+     * {@link LockServerOptions#isAsyncLockingEnabled()} is set, waiting for a lock registers a callback
+     * on that lock instead of parking the calling thread; otherwise the request is served synchronously.
+     * <p>
+     * Invalid requests and a shut down lock server are reported through the returned future, never thrown.
+     */
+    @NonIdempotent
+    public CompletableFuture<LockResponse> lockWithFullLockResponseAsync(LockClient client, LockRequest request) {
+        try {
+            if (!isAsyncLockingEnabled || request.getBlockingMode() == DO_NOT_BLOCK) {
+                return CompletableFuture.completedFuture(lockWithFullLockResponse(client, request));
             }
-
-            Builder<LockDescriptor, LockMode> lockDescriptorMap = ImmutableSortedMap.naturalOrder();
-            for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
-                lockDescriptorMap.put(entry.getKey().getDescriptor(), entry.getValue());
+            checkLockRequest(client, request);
+            if (requestLogger.isDebugEnabled()) {
+                requestLogger.debug("LockServiceImpl processing async lock request {} for requesting thread {}",
+                        request, request.getCreatingThreadName());
             }
-            if (request.getVersionId() != null) {
-                versionIdMap.put(client, request.getVersionId());
+            if (isShutDown) {
+                throw new ServiceNotAvailableException("This lock server is shut down.");
             }
-            HeldLocksToken token = createHeldLocksToken(client, LockCollections.of(lockDescriptorMap.build()), LockCollections.of(locks),
-                    request.getLockTimeout(), request.getVersionId(), request.getCreatingThreadName());
-            locks.clear();
+            AsyncLockAttempt attempt = new AsyncLockAttempt(client, request);
+            attempt.start();
+            return attempt.result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failedFuture(e);
+        } catch (RuntimeException e) {
+            return failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<LockRefreshToken> lockAsync(String client, LockRequest request) {
+        if (request.getLockGroupBehavior() != LockGroupBehavior.LOCK_ALL_OR_NONE) {
+            return failedFuture(new IllegalArgumentException("lock() only supports LockGroupBehavior.LOCK_ALL_OR_NONE."
+                    + " Consider using lockAndGetHeldLocks()."));
+        }
+        return transform(lockWithFullLockResponseAsync(LockClient.of(client), request),
+                result -> result.success() ? result.getLockRefreshToken() : null);
+    }
+
+    @Override
+    public CompletableFuture<HeldLocksToken> lockAndGetHeldLocksAsync(String client, LockRequest request) {
+        return transform(lockWithFullLockResponseAsync(LockClient.of(client), request), LockResponse::getToken);
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(throwable);
+        return failed;
+    }
+
+    private static <T, R> CompletableFuture<R> transform(CompletableFuture<T> future,
+            java.util.function.Function<? super T, ? extends R> function) {
+        CompletableFuture<R> transformed = future.thenApply(function);
+        transformed.whenComplete((result, error) -> {
+            if (transformed.isCancelled()) {
+                future.cancel(false);
+            }
+        });
+        return transformed;
+    }
+
+    private void checkLockRequest(LockClient client, LockRequest request) {
+        Preconditions.checkNotNull(client);
+        Preconditions.checkArgument(client != INTERNAL_LOCK_GRANT_CLIENT);
+        Preconditions.checkArgument(request.getLockTimeout().compareTo(maxAllowedLockTimeout) <= 0,
+                "Requested lock timeout (%s) is greater than maximum allowed lock timeout (%s)",
+                request.getLockTimeout(), maxAllowedLockTimeout);
+        Preconditions.checkArgument((request.getBlockingMode() != BLOCK_UNTIL_TIMEOUT)
+                || (request.getBlockingDuration().compareTo(maxAllowedBlockingDuration) <= 0),
+                "Requested blocking duration (%s) is greater than maximum allowed blocking duration (%s)",
+                request.getBlockingDuration(), maxAllowedBlockingDuration);
+    }
+
+    /**
+     * Creates the response for a lock request once all of its lock attempts have been made. If a token is
+     * granted, its locks are removed from {@code locks}; any locks remaining there must be released by the
+     * caller.
+     */
+    @SuppressWarnings("Slf4jConstantLogMessage")
+    // We're concerned about sanitizing logs at the info level and above. This method just logs at debug and info.
+    private LockResponse createLockResponse(LockClient client, LockRequest request,
+            Map<ClientAwareReadWriteLock, LockMode> locks, Map<LockDescriptor, LockClient> failedLocks,
+            long startTime) {
+        if (request.getBlockingMode() == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE) {
             if (log.isTraceEnabled()) {
-                log.trace(".lock({}, {}) returns {}", client, request, token);
+                log.trace(".lock({}, {}) returns null", client, request);
             }
-            if (Thread.interrupted()) {
-                throw new InterruptedException("Interrupted while locking.");
+            if (requestLogger.isDebugEnabled()) {
+                requestLogger.debug("Timed out requesting {} for requesting thread {} after {} ms",
+                        request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
+            }
+            return new LockResponse(failedLocks);
+        }
+
+        if (locks.isEmpty() || ((request.getLockGroupBehavior() == LOCK_ALL_OR_NONE)
+                && (locks.size() < request.getLockDescriptors().size()))) {
+            if (log.isTraceEnabled()) {
+                log.trace(".lock({}, {}) returns null", client, request);
             }
             if (requestLogger.isDebugEnabled()) {
-                requestLogger.debug("Successfully acquired locks {} for requesting thread {} after {} ms",
+                requestLogger.debug("Failed to acquire all locks for {} for requesting thread {} after {} ms",
                         request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
             }
-            return new LockResponse(token, failedLocks);
-        } finally {
-            outstandingLockRequestMultimap.remove(client, request);
-            indefinitelyBlockingThreads.remove(Thread.currentThread());
-            try {
-                for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
-                    entry.getKey().get(client, entry.getValue()).unlock();
+            if (requestLogger.isTraceEnabled()) {
+                StringBuilder sb = new StringBuilder("Current holders of the first {} of {} total failed locks were: [");
+                Iterator<Entry<LockDescriptor, LockClient>> entries = failedLocks.entrySet().iterator();
+                for (int i = 0; i < MAX_FAILED_LOCKS_TO_LOG; i++) {
+                    if (entries.hasNext()) {
+                        Entry<LockDescriptor, LockClient> entry = entries.next();
+                        sb.append(" Lock: ").append(entry.getKey().toString()).append(
+                                ", Holder: ").append(entry.getValue().toString()).append(";");
+                    }
                 }
-            } catch (Throwable e) { // (authorized)
-                log.error("Internal lock server error: state has been corrupted!!", e);
-                throw Throwables.throwUncheckedException(e);
+                sb.append(" ]");
+                requestLogger.trace(sb.toString(), MAX_FAILED_LOCKS_TO_LOG, failedLocks.size());
+            }
+            return new LockResponse(null, failedLocks);
+        }
+
+        Builder<LockDescriptor, LockMode> lockDescriptorMap = ImmutableSortedMap.naturalOrder();
+        for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
+            lockDescriptorMap.put(entry.getKey().getDescriptor(), entry.getValue());
+        }
+        if (request.getVersionId() != null) {
+            versionIdMap.add(client, request.getVersionId());
+        }
+        HeldLocksToken token = createHeldLocksToken(client, LockCollections.of(lockDescriptorMap.build()), LockCollections.of(locks),
+                request.getLockTimeout(), request.getVersionId(), request.getCreatingThreadName());
+        locks.clear();
+        if (log.isTraceEnabled()) {
+            log.trace(".lock({}, {}) returns {}", client, request, token);
+        }
+        if (requestLogger.isDebugEnabled()) {
+            requestLogger.debug("Successfully acquired locks {} for requesting thread {} after {} ms",
+                    request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
+        }
+        return new LockResponse(token, failedLocks);
+    }
+
+    private void finishLockRequest(LockClient client, LockRequest request,
+            Map<ClientAwareReadWriteLock, LockMode> locks) {
+        outstandingLockRequestMultimap.remove(client, request);
+        try {
+            for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
+                entry.getKey().get(client, entry.getValue()).unlock();
+                lockTable.release(entry.getKey());
             }
+        } catch (Throwable e) { // (authorized)
+            log.error("Internal lock server error: state has been corrupted!!", e);
+            throw Throwables.throwUncheckedException(e);
         }
     }
 
@@ -451,41 +550,251 @@ public final class LockServiceImpl
             previousThreadName = updateThreadName(request);
             for (Entry<LockDescriptor, LockMode> entry : request.getLockDescriptors().entries()) {
                 if (blockingMode == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE
-                        && !descriptorToLockMap.asMap().containsKey(entry.getKey())) {
+                        && !lockTable.contains(entry.getKey())) {
                     continue;
                 }
 
-                ClientAwareReadWriteLock lock;
+                // Our reference to the lock is handed over to the locks map if we acquire it.
+                ClientAwareReadWriteLock lock = lockTable.acquire(entry.getKey());
+                boolean acquired = false;
                 try {
-                    lock = descriptorToLockMap.get(entry.getKey());
-                } catch (ExecutionException e) {
-                    throw new RuntimeException(e.getCause());
+                    if (locks.containsKey(lock)) {
+                        // This is the 2nd time we are calling tryLocks and we already locked this one.
+                        continue;
+                    }
+                    long startTime = System.currentTimeMillis();
+                    @Nullable LockClient currentHolder = tryLock(lock.get(client, entry.getValue()),
+                            blockingMode, deadline);
+                    if (log.isDebugEnabled() || isSlowLogEnabled()) {
+                        long responseTimeMillis = System.currentTimeMillis() - startTime;
+                        logSlowLockAcquisition(entry.getKey().toString(), currentHolder, responseTimeMillis);
+                    }
+                    if (currentHolder == null) {
+                        locks.put(lock, entry.getValue());
+                        acquired = true;
+                    } else {
+                        failedLocks.put(entry.getKey(), currentHolder);
+                        if (lockGroupBehavior == LOCK_ALL_OR_NONE) {
+                            return;
+                        }
+                    }
+                } finally {
+                    if (!acquired) {
+                        lockTable.release(lock);
+                    }
+                }
+            }
+        } finally {
+            if (previousThreadName != null) {
+                tryRenameThread(previousThreadName);
+            }
+        }
+    }
+
+    /**
+     * A lock request which waits for its locks without holding a thread. Lock acquisitions are attempted in
+     * request order, exactly as {@link #tryLocks} does, but a lock which is not immediately available is
+     * waited on by registering a continuation with its {@link AsyncLockServerLock}. The continuation runs on
+     * whichever thread released the lock (or expired the blocking deadline).
+     * <p>
+     * State is only touched while holding this attempt's monitor, but anything which may run another
+     * attempt's continuation (releasing locks, cancelling waiters, completing the result) is deferred until
+     * the monitor has been released, so that attempts never wait on each other's monitors.
+     */
+    private final class AsyncLockAttempt {
+        private final LockClient client;
+        private final LockRequest request;
+        private final long startTime = System.currentTimeMillis();
+        @Nullable private final Long deadline;
+        private final CompletableFuture<LockResponse> result = new CompletableFuture<>();
+
+        @GuardedBy("this") private final Map<ClientAwareReadWriteLock, LockMode> locks = Maps.newLinkedHashMap();
+        @GuardedBy("this") private final Map<LockDescriptor, LockClient> failedLocks = Maps.newHashMap();
+        @GuardedBy("this") private Iterator<Entry<LockDescriptor, LockMode>> entries;
+        @GuardedBy("this") @Nullable private AsyncLockServerLock.Acquisition pending;
+        @GuardedBy("this") @Nullable private ScheduledFuture<?> pendingTimeout;
+        @GuardedBy("this") private boolean done = false;
+        @GuardedBy("this") private List<Runnable> deferredActions = Lists.newArrayList();
+
+        AsyncLockAttempt(LockClient client, LockRequest request) {
+            this.client = client;
+            this.request = request;
+            this.deadline = (request.getBlockingMode() != BLOCK_UNTIL_TIMEOUT) ? null
+                    : System.nanoTime() + request.getBlockingDuration().toNanos();
+        }
+
+        void start() {
+            outstandingLockRequestMultimap.add(client, request);
+            outstandingAsyncLockAttempts.add(this);
+            result.whenComplete((response, error) -> {
+                if (error != null) {
+                    runExclusively(this::abandon);
+                }
+            });
+            runExclusively(() -> {
+                if (request.getBlockingMode() == BLOCK_UNTIL_TIMEOUT
+                        && request.getLockGroupBehavior() == LOCK_AS_MANY_AS_POSSIBLE) {
+                    try {
+                        tryLocks(client, request, DO_NOT_BLOCK, null, LOCK_AS_MANY_AS_POSSIBLE, locks, failedLocks);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw Throwables.throwUncheckedException(e);
+                    }
+                }
+                entries = request.getLockDescriptors().entries().iterator();
+                advance();
+            });
+        }
+
+        private void runExclusively(Runnable step) {
+            boolean outermost = !Thread.holdsLock(this);
+            List<Runnable> actions = null;
+            synchronized (this) {
+                try {
+                    step.run();
+                } catch (Throwable t) {
+                    fail(t);
                 }
+                if (outermost) {
+                    actions = deferredActions;
+                    deferredActions = Lists.newArrayList();
+                }
+            }
+            if (actions != null) {
+                actions.forEach(Runnable::run);
+            }
+        }
+
+        @GuardedBy("this")
+        private void advance() {
+            while (!done) {
+                if (!entries.hasNext()) {
+                    complete();
+                    return;
+                }
+                Entry<LockDescriptor, LockMode> entry = entries.next();
+                if (request.getBlockingMode() == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE
+                        && !lockTable.contains(entry.getKey())) {
+                    continue;
+                }
+                // Our reference to the lock is released by recordResult unless we acquire the lock.
+                ClientAwareReadWriteLock lock = lockTable.acquire(entry.getKey());
                 if (locks.containsKey(lock)) {
-                    // This is the 2nd time we are calling tryLocks and we already locked this one.
+                    // We already locked this one in the non-blocking first pass.
+                    lockTable.release(lock);
                     continue;
                 }
-                long startTime = System.currentTimeMillis();
-                @Nullable LockClient currentHolder = tryLock(lock.get(client, entry.getValue()),
-                        blockingMode, deadline);
-                if (log.isDebugEnabled() || isSlowLogEnabled()) {
-                    long responseTimeMillis = System.currentTimeMillis() - startTime;
-                    logSlowLockAcquisition(entry.getKey().toString(), currentHolder, responseTimeMillis);
+                if (!(lock instanceof AsyncLockServerLock) || isPastDeadline()) {
+                    recordResult(lock, entry, lock.get(client, entry.getValue()).tryLock());
+                    continue;
                 }
-                if (currentHolder == null) {
-                    locks.put(lock, entry.getValue());
-                } else {
-                    failedLocks.put(entry.getKey(), currentHolder);
-                    if (lockGroupBehavior == LOCK_ALL_OR_NONE) {
-                        return;
-                    }
+                AsyncLockServerLock.Acquisition acquisition =
+                        ((AsyncLockServerLock) lock).acquire(client, entry.getValue());
+                if (acquisition.future().isDone()) {
+                    recordResult(lock, entry, null);
+                    continue;
+                }
+                pending = acquisition;
+                if (deadline != null) {
+                    pendingTimeout = asyncTimeoutExecutor.schedule(
+                            acquisition::cancel, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
                 }
+                long waitStartTime = System.currentTimeMillis();
+                acquisition.future().whenComplete((ignored, error) -> runExclusively(
+                        () -> onAcquisitionDone(lock, entry, acquisition, error, waitStartTime)));
+                return;
             }
-        } finally {
-            if (previousThreadName != null) {
-                tryRenameThread(previousThreadName);
+        }
+
+        @GuardedBy("this")
+        private void onAcquisitionDone(ClientAwareReadWriteLock lock, Entry<LockDescriptor, LockMode> entry,
+                AsyncLockServerLock.Acquisition acquisition, @Nullable Throwable error, long waitStartTime) {
+            pending = null;
+            if (pendingTimeout != null) {
+                pendingTimeout.cancel(false);
+                pendingTimeout = null;
+            }
+            if (done) {
+                // The request was abandoned while we were waiting, but the lock was granted anyway.
+                if (error == null) {
+                    deferredActions.add(() -> lock.get(client, entry.getValue()).unlock());
+                }
+                deferredActions.add(() -> lockTable.release(lock));
+                return;
+            }
+            @Nullable LockClient currentHolder = null;
+            if (error instanceof CancellationException) {
+                currentHolder = acquisition.getHolderWhenQueued();
+            } else if (error != null) {
+                lockTable.release(lock);
+                fail(error);
+                return;
+            }
+            if (log.isDebugEnabled() || isSlowLogEnabled()) {
+                long responseTimeMillis = System.currentTimeMillis() - waitStartTime;
+                logSlowLockAcquisition(entry.getKey().toString(), currentHolder, responseTimeMillis);
+            }
+            recordResult(lock, entry, currentHolder);
+            advance();
+        }
+
+        @GuardedBy("this")
+        private void recordResult(ClientAwareReadWriteLock lock, Entry<LockDescriptor, LockMode> entry,
+                @Nullable LockClient currentHolder) {
+            if (currentHolder == null) {
+                locks.put(lock, entry.getValue());
+                return;
+            }
+            lockTable.release(lock);
+            failedLocks.put(entry.getKey(), currentHolder);
+            if (request.getLockGroupBehavior() == LOCK_ALL_OR_NONE) {
+                complete();
             }
         }
+
+        private boolean isPastDeadline() {
+            return deadline != null && deadline - System.nanoTime() <= 0;
+        }
+
+        @GuardedBy("this")
+        private void complete() {
+            LockResponse response = createLockResponse(client, request, locks, failedLocks, startTime);
+            finish();
+            deferredActions.add(() -> {
+                if (!result.complete(response) && response.success()) {
+                    // The caller gave up on this request while we were granting it.
+                    unlock(response.getToken());
+                }
+            });
+        }
+
+        @GuardedBy("this")
+        private void fail(Throwable error) {
+            finish();
+            deferredActions.add(() -> result.completeExceptionally(error));
+        }
+
+        @GuardedBy("this")
+        private void abandon() {
+            if (!done && pending != null) {
+                // If the lock has already been granted, onAcquisitionDone will release it.
+                AsyncLockServerLock.Acquisition abandoned = pending;
+                deferredActions.add(abandoned::cancel);
+            }
+            finish();
+        }
+
+        @GuardedBy("this")
+        private void finish() {
+            if (done) {
+                return;
+            }
+            done = true;
+            outstandingAsyncLockAttempts.remove(this);
+            Map<ClientAwareReadWriteLock, LockMode> locksToRelease = ImmutableMap.copyOf(locks);
+            locks.clear();
+            deferredActions.add(() -> finishLockRequest(client, request, locksToRelease));
+        }
     }
 
     @VisibleForTesting
@@ -570,20 +879,21 @@ public final class LockServiceImpl
         LockClient client = heldLocks.realToken.getClient();
         if (client.isAnonymous()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            scheduleReaping(lockTokenReaperWheel, token);
             log.warn(UNLOCK_AND_FREEZE_FROM_ANONYMOUS_CLIENT, heldLocks.realToken);
             throw new IllegalArgumentException(
                     MessageFormatter.format(UNLOCK_AND_FREEZE_FROM_ANONYMOUS_CLIENT, heldLocks.realToken).getMessage());
         }
         if (heldLocks.locks.hasReadLock()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            scheduleReaping(lockTokenReaperWheel, token);
             log.warn(UNLOCK_AND_FREEZE, heldLocks.realToken);
             throw new IllegalArgumentException(
                     MessageFormatter.format(UNLOCK_AND_FREEZE, heldLocks.realToken).getMessage());
         }
         for (ClientAwareReadWriteLock lock : heldLocks.locks.getKeys()) {
             lock.get(client, LockMode.WRITE).unlockAndFreeze();
+            lockTable.release(lock);
         }
         lockClientMultimap.remove(client, token);
         if (heldLocks.realToken.getVersionId() != null) {
@@ -615,6 +925,7 @@ public final class LockServiceImpl
         }
         for (Entry<? extends ClientAwareReadWriteLock, LockMode> entry : heldLocks.locks.entries()) {
             entry.getKey().get(client, entry.getValue()).unlock();
+            lockTable.release(entry.getKey());
         }
         if (heldLocks.realToken.getVersionId() != null) {
             versionIdMap.remove(client, heldLocks.realToken.getVersionId());
@@ -631,12 +942,10 @@ public final class LockServiceImpl
             throw new IllegalArgumentException("Illegal client!");
         }
         ImmutableSet.Builder<HeldLocksToken> tokens = ImmutableSet.builder();
-        synchronized (lockClientMultimap) {
-            for (HeldLocksToken token : lockClientMultimap.get(client)) {
-                @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
-                if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
-                    tokens.add(token);
-                }
+        for (HeldLocksToken token : lockClientMultimap.get(client)) {
+            @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
+            if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
+                tokens.add(token);
             }
         }
         ImmutableSet<HeldLocksToken> tokenSet = tokens.build();
@@ -774,7 +1083,7 @@ public final class LockServiceImpl
         }
         if (isFrozen(heldLocks.locks.getKeys())) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            scheduleReaping(lockTokenReaperWheel, token);
             log.warn("Cannot convert to grant because token is frozen: {}", token);
             throw new IllegalArgumentException("token is frozen: " + token);
         }
@@ -783,7 +1092,7 @@ public final class LockServiceImpl
                     INTERNAL_LOCK_GRANT_CLIENT);
         } catch (IllegalMonitorStateException e) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            scheduleReaping(lockTokenReaperWheel, token);
             log.warn("Failure converting {} to grant", token, e);
             throw e;
         }
@@ -894,20 +1203,18 @@ public final class LockServiceImpl
 
     @Override
     @Nullable public Long getMinLockedInVersionId(LockClient client) {
-        Long versionId = null;
-        synchronized (versionIdMap) {
-            Collection<Long> versionsForClient = versionIdMap.get(client);
-            if (versionsForClient != null && !versionsForClient.isEmpty()) {
-                versionId = versionsForClient.iterator().next();
-            }
-        }
+        Long versionId = versionIdMap.getFirst(client);
         if (log.isTraceEnabled()) {
             log.trace(".getMinLockedInVersionId() returns {}", versionId);
         }
         return versionId;
     }
 
-    private <T extends ExpiringToken> void reapLocks(BlockingQueue<T> queue,
+    private <T extends ExpiringToken> void scheduleReaping(TimingWheel<T> wheel, T token) {
+        wheel.schedule(token, token.getExpirationDateMs() + maxAllowedClockDrift.toMillis());
+    }
+
+    private <T extends ExpiringToken> void reapLocks(TimingWheel<T> wheel,
             ConcurrentMap<T, HeldLocks<T>> heldLocksMap) {
         while (true) {
             // shutdownNow() sends interrupt signal to the running threads to terminate them.
@@ -918,38 +1225,19 @@ public final class LockServiceImpl
                 break;
             }
             try {
-                T token = null;
                 try {
-                    token = queue.take();
-                    long timeUntilTokenExpiredMs = token.getExpirationDateMs() - currentTimeMillis()
-                            + maxAllowedClockDrift.toMillis();
-                    // it's possible that new lock requests will come in with a shorter timeout - so limit how long we sleep here
-                    long sleepTimeMs = Math.min(timeUntilTokenExpiredMs, maxAllowedClockDrift.toMillis());
-                    if (sleepTimeMs > 0) {
-                        Thread.sleep(sleepTimeMs);
-                    }
+                    Thread.sleep(wheel.getTickMillis());
                 } catch (InterruptedException e) {
                     if (isShutDown) {
                         break;
                     } else {
                         log.warn("The lock server reaper thread should not be " +
                                 "interrupted if the server is not shutting down.", e);
-                        if (token == null) {
-                            continue;
-                        }
                     }
                 }
-                @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
-                if (heldLocks == null) {
-                    continue;
-                }
-                T realToken = heldLocks.realToken;
-                if (realToken.getExpirationDateMs() > currentTimeMillis()
-                        - maxAllowedClockDrift.toMillis()) {
-                    queue.add(realToken);
-                } else {
-                    log.warn("Lock token {} was not properly refreshed and is now being reaped.", realToken);
-                    unlockInternal(realToken, heldLocksMap);
+                long now = currentTimeMillis();
+                for (T token : wheel.advanceTo(now)) {
+                    reapIfExpired(wheel, heldLocksMap, token, now);
                 }
             } catch (Throwable t) {
                 log.error("Something went wrong while reaping locks. Attempting to continue anyway.", t);
@@ -957,6 +1245,50 @@ public final class LockServiceImpl
         }
     }
 
+    private <T extends ExpiringToken> void reapIfExpired(TimingWheel<T> wheel,
+            ConcurrentMap<T, HeldLocks<T>> heldLocksMap, T token, long now) {
+        try {
+            @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
+            if (heldLocks == null) {
+                return;
+            }
+            T realToken = heldLocks.realToken;
+            if (realToken.getExpirationDateMs() > now - maxAllowedClockDrift.toMillis()) {
+                scheduleReaping(wheel, realToken);
+            } else {
+                log.warn("Lock token {} was not properly refreshed and is now being reaped.", realToken);
+                unlockInternal(realToken, heldLocksMap);
+            }
+        } catch (Throwable t) {
+            log.error("Something went wrong while reaping {}. Attempting to continue anyway.", token, t);
+        }
+    }
+
+    @Override
+    public int getOutstandingTokenCount() {
+        return heldLocksTokenMap.size();
+    }
+
+    @Override
+    public int getOutstandingGrantCount() {
+        return heldLocksGrantMap.size();
+    }
+
+    @Override
+    public int getTokensAwaitingReapingCount() {
+        return lockTokenReaperWheel.size();
+    }
+
+    @Override
+    public long getTokenReapLagMillis() {
+        return lockTokenReaperWheel.getLastLagMillis();
+    }
+
+    @Override
+    public long getGrantReapLagMillis() {
+        return lockGrantReaperWheel.getLastLagMillis();
+    }
+
     @Override
     public LockServerOptions getLockServerOptions() {
         LockServerOptions options = new LockServerOptions() {
@@ -1003,7 +1335,7 @@ public final class LockServiceImpl
     private void logAllHeldAndOutstandingLocks() throws IOException {
         LockServiceStateLogger lockServiceStateLogger = new LockServiceStateLogger(
                 heldLocksTokenMap,
-                outstandingLockRequestMultimap,
+                outstandingLockRequestMultimap.snapshot(),
                 lockStateLoggerDir);
         lockServiceStateLogger.logLocks();
     }
@@ -1017,13 +1349,14 @@ public final class LockServiceImpl
         logString.append("maxAllowedBlockingDuration = ").append(maxAllowedBlockingDuration).append("\n");
         logString.append("randomBitCount = ").append(randomBitCount).append("\n");
 
-        logString.append("descriptorToLockMap.size = ").append(descriptorToLockMap.size()).append("\n");
-        logString.append("outstandingLockRequestMultimap.size = ").append(descriptorToLockMap.size()).append("\n");
+        logString.append("lockTable.size = ").append(lockTable.size()).append("\n");
+        logString.append("outstandingLockRequestMultimap.size = ")
+                .append(outstandingLockRequestMultimap.size()).append("\n");
         logString.append("heldLocksTokenMap.size = ").append(heldLocksTokenMap.size()).append("\n");
         logString.append("heldLocksGrantMap.size = ").append(heldLocksGrantMap.size()).append("\n");
-        logString.append("lockTokenReaperQueue.size = ").append(lockTokenReaperQueue.size()).append("\n");
-        logString.append("lockGrantReaperQueue.size = ").append(lockGrantReaperQueue.size()).append("\n");
-        logString.append("lockClientMultimap.size = ").append(lockClientMultimap.size()).append("\n");
+        logString.append("lockTokenReaperWheel.size = ").append(lockTokenReaperWheel.size()).append("\n");
+        logString.append("lockGrantReaperWheel.size = ").append(lockGrantReaperWheel.size()).append("\n");
+        logString.append("tokenReapLagMillis = ").append(getTokenReapLagMillis()).append("\n");
         logString.append("lockClientMultimap.size = ").append(lockClientMultimap.size()).append("\n");
 
         return logString;
@@ -1035,6 +1368,7 @@ public final class LockServiceImpl
         isShutDown = true;
         executor.shutdownNow();
         wakeIndefiniteBlockers();
+        failAsyncLockAttempts();
         callOnClose.run();
     }
 
@@ -1044,6 +1378,15 @@ public final class LockServiceImpl
         }
     }
 
+    private void failAsyncLockAttempts() {
+        for (AsyncLockAttempt attempt : outstandingAsyncLockAttempts) {
+            attempt.result.completeExceptionally(new ServiceNotAvailableException("This lock server is shut down."));
+        }
+        if (asyncTimeoutExecutor != null) {
+            asyncTimeoutExecutor.shutdownNow();
+        }
+    }
+
     @Override
     public long currentTimeMillis() {
         return System.currentTimeMillis();
@@ -17,4 +17,22 @@ package com.palantir.lock.impl;
 
 public interface LockServiceImplMBean {
     void logCurrentState();
+
+    /** Returns the number of lock tokens which are currently held. */
+    int getOutstandingTokenCount();
+
+    /** Returns the number of lock grants which are currently outstanding. */
+    int getOutstandingGrantCount();
+
+    /**
+     * Returns the number of lock tokens the reaper is tracking. This includes tokens which have been unlocked
+     * but whose expiration has not yet come round.
+     */
+    int getTokensAwaitingReapingCount();
+
+    /** Returns how late, after its expiration, the reaper last checked a lock token. */
+    long getTokenReapLagMillis();
+
+    /** Returns how late, after its expiration, the reaper last checked a lock grant. */
+    long getGrantReapLagMillis();
 }
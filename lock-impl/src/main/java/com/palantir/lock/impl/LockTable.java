@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.math.RoundingMode;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.math.IntMath;
+import com.palantir.lock.LockDescriptor;
+
+/**
+ * The table of live {@link ClientAwareReadWriteLock}s of a lock server, keyed by {@link LockDescriptor}.
+ * <p>
+ * Locks are reference counted: {@link #acquire(LockDescriptor)} returns the lock for a descriptor (creating it if
+ * necessary) and takes a reference to it, and every reference must eventually be returned with
+ * {@link #release(ClientAwareReadWriteLock)}. A lock is removed from the table as soon as its last reference is
+ * released, so a lock must be referenced for as long as it is held, waited on or otherwise in use. Once removed,
+ * a lock is never handed out again; the next acquisition of its descriptor creates a fresh lock.
+ * <p>
+ * The table is split into independently sized shards, and neither lookups nor reference counting take any
+ * monitors, so acquiring and releasing locks for different descriptors do not contend with each other.
+ */
+@ThreadSafe
+final class LockTable {
+    private final ConcurrentMap<LockDescriptor, Entry>[] shards;
+    private final int shardMask;
+    private final Function<LockDescriptor, ClientAwareReadWriteLock> lockFactory;
+
+    LockTable(Function<LockDescriptor, ClientAwareReadWriteLock> lockFactory) {
+        this(defaultShardCount(), lockFactory);
+    }
+
+    @SuppressWarnings("unchecked")
+    LockTable(int shardCount, Function<LockDescriptor, ClientAwareReadWriteLock> lockFactory) {
+        Preconditions.checkArgument(shardCount > 0 && Integer.bitCount(shardCount) == 1,
+                "shardCount must be a positive power of two, but was %s", shardCount);
+        this.shards = new ConcurrentMap[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+        this.shardMask = shardCount - 1;
+        this.lockFactory = Preconditions.checkNotNull(lockFactory);
+    }
+
+    private static int defaultShardCount() {
+        return IntMath.pow(2, IntMath.log2(4 * Runtime.getRuntime().availableProcessors(), RoundingMode.CEILING));
+    }
+
+    /** Returns the lock for the given descriptor, taking a reference to it. */
+    ClientAwareReadWriteLock acquire(LockDescriptor descriptor) {
+        ConcurrentMap<LockDescriptor, Entry> shard = shardFor(descriptor);
+        while (true) {
+            Entry entry = shard.get(descriptor);
+            if (entry == null) {
+                Entry newEntry = new Entry(lockFactory.apply(descriptor));
+                entry = shard.putIfAbsent(descriptor, newEntry);
+                if (entry == null) {
+                    return newEntry.lock;
+                }
+            }
+            if (entry.retain()) {
+                return entry.lock;
+            }
+            // The last reference to this lock was released concurrently; finish removing it and try again.
+            shard.remove(descriptor, entry);
+        }
+    }
+
+    /** Releases a reference to a lock returned by {@link #acquire(LockDescriptor)}. */
+    void release(ClientAwareReadWriteLock lock) {
+        LockDescriptor descriptor = lock.getDescriptor();
+        ConcurrentMap<LockDescriptor, Entry> shard = shardFor(descriptor);
+        Entry entry = shard.get(descriptor);
+        if (entry == null || entry.lock != lock) {
+            throw new IllegalStateException("Released a reference to a lock which is not in the table: " + lock);
+        }
+        if (entry.release()) {
+            shard.remove(descriptor, entry);
+        }
+    }
+
+    /** Returns {@code true} iff a lock for the given descriptor is currently referenced. */
+    boolean contains(LockDescriptor descriptor) {
+        Entry entry = shardFor(descriptor).get(descriptor);
+        return entry != null && entry.isLive();
+    }
+
+    /** Returns the number of locks in the table. The result is only approximate while the table is in use. */
+    int size() {
+        int size = 0;
+        for (ConcurrentMap<LockDescriptor, Entry> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private ConcurrentMap<LockDescriptor, Entry> shardFor(LockDescriptor descriptor) {
+        int hash = descriptor.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    private static final class Entry {
+        final ClientAwareReadWriteLock lock;
+
+        /** The number of outstanding references; zero once the entry is dead and may no longer be retained. */
+        final AtomicInteger references = new AtomicInteger(1);
+
+        Entry(ClientAwareReadWriteLock lock) {
+            this.lock = lock;
+        }
+
+        boolean retain() {
+            while (true) {
+                int current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /** Returns {@code true} iff this released the last reference. */
+        boolean release() {
+            int remaining = references.decrementAndGet();
+            Preconditions.checkState(remaining >= 0, "Lock %s was released more times than it was acquired", lock);
+            return remaining == 0;
+        }
+
+        boolean isLive() {
+            return references.get() > 0;
+        }
+    }
+}
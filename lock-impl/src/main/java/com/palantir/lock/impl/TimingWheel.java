@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.math.LongMath;
+
+/**
+ * A hashed timing wheel which tracks items until a deadline and hands them back in batches once their deadlines
+ * have passed.
+ * <p>
+ * Time is divided into ticks, and the wheel has one bucket per tick for a single revolution; an item whose
+ * deadline is more than a revolution away simply stays in its bucket for several revolutions. Scheduling an
+ * item is O(1) and only appends to a lock-free queue, so any number of threads may call
+ * {@link #schedule(Object, long)}. The buckets themselves belong to the single thread that calls
+ * {@link #advanceTo(long)}, which moves newly scheduled items into their buckets and collects every item whose
+ * deadline has passed.
+ * <p>
+ * Items are never handed back before their deadline, and are handed back at most one tick after it, provided
+ * that {@link #advanceTo(long)} is called at least once per tick.
+ */
+@ThreadSafe
+final class TimingWheel<T> {
+    private final long tickMillis;
+    private final Deque<Entry<T>>[] buckets;
+    private final int bucketMask;
+    private final Queue<Entry<T>> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** The last tick which has been processed; only accessed by the thread advancing the wheel. */
+    private long currentTick;
+    private volatile long lastLagMillis = 0;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int ticksPerWheel, long startMillis) {
+        Preconditions.checkArgument(tickMillis > 0, "tickMillis must be positive, but was %s", tickMillis);
+        Preconditions.checkArgument(ticksPerWheel > 0 && Integer.bitCount(ticksPerWheel) == 1,
+                "ticksPerWheel must be a positive power of two, but was %s", ticksPerWheel);
+        this.tickMillis = tickMillis;
+        this.buckets = new Deque[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.bucketMask = ticksPerWheel - 1;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    /** Adds an item to the wheel, to be handed back by {@link #advanceTo(long)} once the deadline has passed. */
+    void schedule(T item, long deadlineMillis) {
+        scheduled.add(new Entry<>(item, deadlineMillis));
+        size.incrementAndGet();
+    }
+
+    /**
+     * Advances the wheel to the given time and returns every item whose deadline is at or before that time. This
+     * must only be called by one thread at a time.
+     */
+    List<T> advanceTo(long nowMillis) {
+        transferScheduledEntries();
+        long targetTick = nowMillis / tickMillis;
+        if (targetTick <= currentTick) {
+            return Lists.newArrayList();
+        }
+        List<T> expired = Lists.newArrayList();
+        long maxLagMillis = 0;
+        // Every bucket holds entries for at most one tick in each revolution, so we never need more than one.
+        long firstTick = Math.max(currentTick + 1, targetTick - buckets.length + 1);
+        for (long tick = firstTick; tick <= targetTick; tick++) {
+            Iterator<Entry<T>> entries = bucketFor(tick).iterator();
+            while (entries.hasNext()) {
+                Entry<T> entry = entries.next();
+                if (entry.deadlineTick <= targetTick) {
+                    entries.remove();
+                    expired.add(entry.item);
+                    maxLagMillis = Math.max(maxLagMillis, nowMillis - entry.deadlineMillis);
+                }
+            }
+        }
+        currentTick = targetTick;
+        size.addAndGet(-expired.size());
+        lastLagMillis = maxLagMillis;
+        return expired;
+    }
+
+    private void transferScheduledEntries() {
+        Entry<T> entry;
+        while ((entry = scheduled.poll()) != null) {
+            long deadlineTick = LongMath.divide(entry.deadlineMillis, tickMillis, RoundingMode.CEILING);
+            // Entries which are already due go into the next bucket we process.
+            entry.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+            bucketFor(entry.deadlineTick).add(entry);
+        }
+    }
+
+    private Deque<Entry<T>> bucketFor(long tick) {
+        return buckets[(int) (tick & bucketMask)];
+    }
+
+    /** Returns the number of items in the wheel. */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns how long after its deadline the latest item was handed back by the most recent call to
+     * {@link #advanceTo(long)}, or zero if that call handed back nothing.
+     */
+    long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final long deadlineMillis;
+        long deadlineTick;
+
+        Entry(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
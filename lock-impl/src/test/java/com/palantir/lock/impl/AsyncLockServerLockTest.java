@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.StringLockDescriptor;
+
+public class AsyncLockServerLockTest {
+    private static final LockClient CLIENT_1 = LockClient.of("client-1");
+    private static final LockClient CLIENT_2 = LockClient.of("client-2");
+    private static final LockClient CLIENT_3 = LockClient.of("client-3");
+    private static final LockClient CLIENT_4 = LockClient.of("client-4");
+
+    private AsyncLockServerLock lock;
+
+    @Before
+    public void setUp() {
+        lock = new AsyncLockServerLock(StringLockDescriptor.of("lock"), new LockClientIndices());
+    }
+
+    @Test
+    public void freeLockIsGrantedImmediately() {
+        AsyncLockServerLock.Acquisition acquisition = lock.acquire(CLIENT_1, LockMode.WRITE);
+
+        assertThat(acquisition.future()).isCompleted();
+        assertThat(acquisition.getHolderWhenQueued()).isNull();
+        assertThat(acquisition.getCurrentHolder()).isEqualTo(CLIENT_1);
+    }
+
+    @Test
+    public void waiterIsGrantedWhenLockIsReleased() {
+        lock.get(CLIENT_1, LockMode.WRITE).lock();
+        AsyncLockServerLock.Acquisition waiter = lock.acquire(CLIENT_2, LockMode.WRITE);
+
+        assertThat(waiter.future()).isNotDone();
+        assertThat(waiter.getHolderWhenQueued()).isEqualTo(CLIENT_1);
+
+        lock.get(CLIENT_1, LockMode.WRITE).unlock();
+
+        assertThat(waiter.future()).isCompleted();
+        assertThat(waiter.getCurrentHolder()).isEqualTo(CLIENT_2);
+    }
+
+    @Test
+    public void waitersAreGrantedInOrderAndConsecutiveReadersTogether() {
+        lock.get(CLIENT_1, LockMode.WRITE).lock();
+        AsyncLockServerLock.Acquisition firstReader = lock.acquire(CLIENT_2, LockMode.READ);
+        AsyncLockServerLock.Acquisition secondReader = lock.acquire(CLIENT_3, LockMode.READ);
+        AsyncLockServerLock.Acquisition writer = lock.acquire(CLIENT_1, LockMode.WRITE);
+
+        assertThat(writer.future()).as("reentrant write locks do not wait").isCompleted();
+        lock.get(CLIENT_1, LockMode.WRITE).unlock();
+        AsyncLockServerLock.Acquisition otherWriter = lock.acquire(CLIENT_4, LockMode.WRITE);
+        lock.get(CLIENT_1, LockMode.WRITE).unlock();
+
+        assertThat(firstReader.future()).isCompleted();
+        assertThat(secondReader.future()).isCompleted();
+        assertThat(otherWriter.future()).isNotDone();
+
+        lock.get(CLIENT_2, LockMode.READ).unlock();
+        assertThat(otherWriter.future()).isNotDone();
+        lock.get(CLIENT_3, LockMode.READ).unlock();
+        assertThat(otherWriter.future()).isCompleted();
+    }
+
+    @Test
+    public void newReadersDoNotBargePastQueuedWriters() {
+        lock.get(CLIENT_1, LockMode.READ).lock();
+        AsyncLockServerLock.Acquisition writer = lock.acquire(CLIENT_2, LockMode.WRITE);
+
+        assertThat(lock.get(CLIENT_3, LockMode.READ).tryLock()).isEqualTo(CLIENT_1);
+        assertThat(lock.get(CLIENT_1, LockMode.READ).tryLock()).as("existing readers may re-enter").isNull();
+
+        lock.get(CLIENT_1, LockMode.READ).unlock();
+        lock.get(CLIENT_1, LockMode.READ).unlock();
+        assertThat(writer.future()).isCompleted();
+    }
+
+    @Test
+    public void cancellingWaiterUnblocksWaitersBehindIt() {
+        lock.get(CLIENT_1, LockMode.READ).lock();
+        AsyncLockServerLock.Acquisition writer = lock.acquire(CLIENT_2, LockMode.WRITE);
+        AsyncLockServerLock.Acquisition reader = lock.acquire(CLIENT_3, LockMode.READ);
+        assertThat(reader.future()).isNotDone();
+
+        assertThat(writer.cancel()).isTrue();
+
+        assertThat(writer.future()).isCancelled();
+        assertThat(reader.future()).isCompleted();
+        assertThat(reader.cancel()).as("granted acquisitions cannot be cancelled").isFalse();
+    }
+
+    @Test
+    public void timedTryLockReturnsHolderOnTimeout() throws InterruptedException {
+        lock.get(CLIENT_1, LockMode.WRITE).lock();
+
+        assertThat(lock.get(CLIENT_2, LockMode.WRITE).tryLock(10, TimeUnit.MILLISECONDS)).isEqualTo(CLIENT_1);
+
+        lock.get(CLIENT_1, LockMode.WRITE).unlock();
+        assertThat(lock.get(CLIENT_2, LockMode.WRITE).tryLock(10, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void frozenLockIsNotGrantedUntilFullyReleased() {
+        lock.get(CLIENT_1, LockMode.WRITE).lock();
+        lock.get(CLIENT_1, LockMode.READ).lock();
+        AsyncLockServerLock.Acquisition waiter = lock.acquire(CLIENT_2, LockMode.READ);
+
+        lock.get(CLIENT_1, LockMode.WRITE).unlockAndFreeze();
+        assertThat(lock.isFrozen()).isTrue();
+        assertThat(waiter.future()).isNotDone();
+
+        lock.get(CLIENT_1, LockMode.READ).unlock();
+        assertThat(lock.isFrozen()).isFalse();
+        assertThat(waiter.future()).isCompleted();
+    }
+
+    @Test
+    public void cannotWaitForWriteLockWhileHoldingReadLock() {
+        lock.get(CLIENT_1, LockMode.READ).lock();
+        lock.get(CLIENT_2, LockMode.READ).lock();
+
+        assertThatThrownBy(() -> lock.acquire(CLIENT_1, LockMode.WRITE))
+                .isInstanceOf(IllegalMonitorStateException.class);
+    }
+
+    @Test
+    public void writeWaiterThatFailedWhileTimingOutIsNotReportedAsGranted() {
+        lock.get(CLIENT_1, LockMode.WRITE).lock();
+        AsyncLockServerLock.Acquisition reader = lock.acquire(CLIENT_2, LockMode.READ);
+        AsyncLockServerLock.Acquisition writer = lock.acquire(CLIENT_2, LockMode.WRITE);
+
+        // Granting the read lock fails the write waiter, as it would then be waiting on itself.
+        lock.get(CLIENT_1, LockMode.WRITE).unlock();
+        assertThat(reader.future()).isCompleted();
+
+        assertThat(writer.cancel()).as("failed acquisitions were not granted").isTrue();
+        assertThatThrownBy(() -> writer.future().join()).hasCauseInstanceOf(IllegalMonitorStateException.class);
+        lock.get(CLIENT_2, LockMode.READ).unlock();
+        assertThat(lock.acquire(CLIENT_3, LockMode.WRITE).future()).isCompleted();
+    }
+
+    @Test
+    public void cancelledWaiterFutureFailsWithCancellation() {
+        lock.get(CLIENT_1, LockMode.WRITE).lock();
+        AsyncLockServerLock.Acquisition waiter = lock.acquire(CLIENT_2, LockMode.WRITE);
+        waiter.cancel();
+
+        assertThatThrownBy(() -> waiter.future().join()).isInstanceOf(CancellationException.class);
+        lock.get(CLIENT_1, LockMode.WRITE).unlock();
+        assertThat(lock.acquire(CLIENT_3, LockMode.WRITE).future()).isCompleted();
+    }
+}
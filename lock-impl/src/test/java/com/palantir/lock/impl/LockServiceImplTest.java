@@ -16,12 +16,18 @@
 package com.palantir.lock.impl;
 
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 import static uk.org.lidalia.slf4jtest.LoggingEvent.debug;
 import static uk.org.lidalia.slf4jtest.LoggingEvent.info;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.junit.After;
@@ -29,9 +35,15 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.palantir.lock.LockClient;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
 import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
 
 import uk.org.lidalia.slf4jext.Level;
 import uk.org.lidalia.slf4jtest.TestLogger;
@@ -140,4 +152,90 @@ public final class LockServiceImplTest {
         assertThat(testLockServiceImplLogger.getLoggingEvents().size(), is(0));
         assertThat(testSlowLogger.getLoggingEvents().size(), is(0));
     }
+
+    @Test
+    public void asyncLockRequestCompletesWhenConflictingLockIsReleased() throws Exception {
+        LockServiceImpl lockService = createAsyncLockService();
+        try {
+            LockRefreshToken token = lockService.lock("client-1", writeLockRequest().build());
+            CompletableFuture<LockRefreshToken> waiting = lockService.lockAsync("client-2", writeLockRequest().build());
+            assertThat(waiting.isDone(), is(false));
+
+            lockService.unlock(token);
+
+            assertThat(waiting.get(10, TimeUnit.SECONDS), is(notNullValue()));
+        } finally {
+            lockService.close();
+        }
+    }
+
+    @Test
+    public void asyncLockRequestFailsAfterBlockingDuration() throws Exception {
+        LockServiceImpl lockService = createAsyncLockService();
+        try {
+            LockRefreshToken token = lockService.lock("client-1", writeLockRequest().build());
+            LockRequest request = writeLockRequest()
+                    .blockForAtMost(SimpleTimeDuration.of(10, TimeUnit.MILLISECONDS))
+                    .build();
+
+            assertThat(lockService.lockAsync("client-2", request).get(10, TimeUnit.SECONDS), is(nullValue()));
+            assertThat(lockService.unlock(token), is(true));
+            assertThat(lockService.lock("client-2", writeLockRequest().doNotBlock().build()), is(notNullValue()));
+        } finally {
+            lockService.close();
+        }
+    }
+
+    @Test
+    public void cancellingAsyncLockRequestReleasesItsPlaceInTheQueue() throws Exception {
+        LockServiceImpl lockService = createAsyncLockService();
+        try {
+            LockRefreshToken token = lockService.lock("client-1", writeLockRequest().build());
+            CompletableFuture<LockRefreshToken> waiting = lockService.lockAsync("client-2", writeLockRequest().build());
+
+            waiting.cancel(false);
+            lockService.unlock(token);
+
+            assertThat(lockService.lock("client-3", writeLockRequest().doNotBlock().build()), is(notNullValue()));
+        } finally {
+            lockService.close();
+        }
+    }
+
+    @Test
+    public void invalidAsyncLockRequestsFailTheReturnedFuture() throws Exception {
+        LockServiceImpl lockService = createAsyncLockService();
+        try {
+            assertFailsWithIllegalArgument(
+                    lockService.lockAsync("client", writeLockRequest().lockAsManyAsPossible().build()));
+            assertFailsWithIllegalArgument(lockService.lockAndGetHeldLocksAsync("client",
+                    writeLockRequest().timeoutAfter(SimpleTimeDuration.of(1, TimeUnit.DAYS)).build()));
+        } finally {
+            lockService.close();
+        }
+    }
+
+    private static void assertFailsWithIllegalArgument(CompletableFuture<?> future) throws Exception {
+        assertThat(future.isCompletedExceptionally(), is(true));
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+    }
+
+    private static LockServiceImpl createAsyncLockService() {
+        return LockServiceImpl.create(new LockServerOptions() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean isAsyncLockingEnabled() {
+                return true;
+            }
+        });
+    }
+
+    private static LockRequest.Builder writeLockRequest() {
+        return LockRequest.builder(ImmutableSortedMap.of(StringLockDescriptor.of(TEST_LOCKID), LockMode.WRITE));
+    }
 }
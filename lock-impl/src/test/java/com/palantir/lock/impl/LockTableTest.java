@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.StringLockDescriptor;
+
+public class LockTableTest {
+    private static final LockDescriptor DESCRIPTOR = StringLockDescriptor.of("lock");
+    private static final LockClient CLIENT = LockClient.of("client");
+
+    private final LockClientIndices clients = new LockClientIndices();
+    private final LockTable table = new LockTable(4, descriptor -> new LockServerLock(descriptor, clients));
+
+    @Test
+    public void referencedLockIsReturnedAgain() {
+        ClientAwareReadWriteLock lock = table.acquire(DESCRIPTOR);
+
+        assertThat(table.acquire(DESCRIPTOR)).isSameAs(lock);
+        assertThat(table.contains(DESCRIPTOR)).isTrue();
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void lockIsRemovedWhenLastReferenceIsReleased() {
+        ClientAwareReadWriteLock lock = table.acquire(DESCRIPTOR);
+        table.acquire(DESCRIPTOR);
+
+        table.release(lock);
+        assertThat(table.contains(DESCRIPTOR)).isTrue();
+
+        table.release(lock);
+        assertThat(table.contains(DESCRIPTOR)).isFalse();
+        assertThat(table.size()).isZero();
+    }
+
+    @Test
+    public void lockIsRecreatedAfterRemoval() {
+        ClientAwareReadWriteLock lock = table.acquire(DESCRIPTOR);
+        lock.get(CLIENT, LockMode.WRITE).lock();
+        lock.get(CLIENT, LockMode.WRITE).unlockAndFreeze();
+        table.release(lock);
+
+        ClientAwareReadWriteLock newLock = table.acquire(DESCRIPTOR);
+
+        assertThat(newLock).isNotSameAs(lock);
+        assertThat(newLock.isFrozen()).isFalse();
+    }
+
+    @Test
+    public void releasingUnknownLockThrows() {
+        ClientAwareReadWriteLock lock = new LockServerLock(DESCRIPTOR, clients);
+
+        assertThatThrownBy(() -> table.release(lock)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void releasingLockFromAnotherGenerationThrows() {
+        ClientAwareReadWriteLock lock = table.acquire(DESCRIPTOR);
+        table.release(lock);
+        table.acquire(DESCRIPTOR);
+
+        assertThatThrownBy(() -> table.release(lock)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void shardCountMustBePowerOfTwo() {
+        assertThatThrownBy(() -> new LockTable(3, descriptor -> new LockServerLock(descriptor, clients)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void concurrentAcquireAndReleaseNeverSharesALockBetweenGenerations() throws Exception {
+        int numThreads = 8;
+        int iterations = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < numThreads; i++) {
+                LockClient client = LockClient.of("client-" + i);
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < iterations; j++) {
+                        ClientAwareReadWriteLock lock = table.acquire(DESCRIPTOR);
+                        KnownClientLock writeLock = lock.get(client, LockMode.WRITE);
+                        // A lock which is held must not be replaced while we hold it.
+                        writeLock.lock();
+                        assertThat(table.acquire(DESCRIPTOR)).isSameAs(lock);
+                        table.release(lock);
+                        writeLock.unlock();
+                        table.release(lock);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(table.size()).isZero();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+    private static final long TICK_MILLIS = 100;
+    private static final int TICKS_PER_WHEEL = 8;
+    private static final long START_MILLIS = 10_000;
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(TICK_MILLIS, TICKS_PER_WHEEL, START_MILLIS);
+
+    @Test
+    public void itemIsNotReturnedBeforeItsDeadline() {
+        wheel.schedule("item", START_MILLIS + 250);
+
+        assertThat(wheel.advanceTo(START_MILLIS + 200)).isEmpty();
+        assertThat(wheel.advanceTo(START_MILLIS + 299)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void itemIsReturnedWithinATickOfItsDeadline() {
+        wheel.schedule("item", START_MILLIS + 250);
+
+        assertThat(wheel.advanceTo(START_MILLIS + 300)).containsExactly("item");
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.getLastLagMillis()).isEqualTo(50);
+    }
+
+    @Test
+    public void itemsAreReturnedInBatches() {
+        wheel.schedule("first", START_MILLIS + 100);
+        wheel.schedule("second", START_MILLIS + 200);
+        wheel.schedule("third", START_MILLIS + 300);
+
+        assertThat(wheel.advanceTo(START_MILLIS + 250)).containsExactlyInAnyOrder("first", "second");
+        assertThat(wheel.advanceTo(START_MILLIS + 350)).containsExactly("third");
+    }
+
+    @Test
+    public void itemsMoreThanARevolutionAwayWaitForTheirDeadline() {
+        long deadline = START_MILLIS + 3 * TICKS_PER_WHEEL * TICK_MILLIS + 50;
+        wheel.schedule("item", deadline);
+
+        for (long now = START_MILLIS; now < deadline; now += TICK_MILLIS) {
+            assertThat(wheel.advanceTo(now)).isEmpty();
+        }
+        assertThat(wheel.advanceTo(deadline + TICK_MILLIS)).containsExactly("item");
+    }
+
+    @Test
+    public void itemAlreadyDueIsReturnedOnNextAdvance() {
+        wheel.advanceTo(START_MILLIS + 500);
+        wheel.schedule("item", START_MILLIS);
+
+        assertThat(wheel.advanceTo(START_MILLIS + 600)).containsExactly("item");
+        assertThat(wheel.getLastLagMillis()).isEqualTo(600);
+    }
+
+    @Test
+    public void advancingPastManyRevolutionsReturnsEverythingDue() {
+        for (int i = 0; i < 100; i++) {
+            wheel.schedule("item-" + i, START_MILLIS + i * 37);
+        }
+        wheel.schedule("late", START_MILLIS + 1_000_000);
+
+        assertThat(wheel.advanceTo(START_MILLIS + 100_000)).hasSize(100);
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void advancingBackwardsReturnsNothing() {
+        wheel.schedule("item", START_MILLIS - 1000);
+
+        assertThat(wheel.advanceTo(START_MILLIS - 500)).isEmpty();
+        assertThat(wheel.advanceTo(START_MILLIS + TICK_MILLIS)).containsExactly("item");
+    }
+}
@@ -21,7 +21,7 @@ import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 
-import com.palantir.lock.RemoteLockService;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
 import com.palantir.timestamp.TimestampManagementService;
 import com.palantir.timestamp.TimestampService;
 
@@ -34,8 +34,8 @@ public class TimeLockResource {
     }
 
     @Path("/lock")
-    public RemoteLockService getLockService(@PathParam("client") String client) {
-        return getTimeLockServicesForClient(client).getLockService();
+    public Object getLockService(@PathParam("client") String client) {
+        return getTimeLockServicesForClient(client).getLockResource();
     }
 
     @Path("/timestamp")
@@ -48,6 +48,11 @@ public class TimeLockResource {
         return getTimeLockServicesForClient(client).getTimestampManagementService();
     }
 
+    @Path("/transactions")
+    public TransactionStartService getTransactionStartService(@PathParam("client") String client) {
+        return getTimeLockServicesForClient(client).getTransactionStartService();
+    }
+
     private TimeLockServices getTimeLockServicesForClient(String client) {
         TimeLockServices services = clientToServices.get(client);
         if (services == null) {
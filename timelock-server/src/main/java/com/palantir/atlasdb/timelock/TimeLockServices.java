@@ -17,6 +17,8 @@ package com.palantir.atlasdb.timelock;
 
 import org.immutables.value.Value;
 
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.atlasdb.transaction.impl.LockAndTimestampTransactionStartService;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampManagementService;
 import com.palantir.timestamp.TimestampService;
@@ -27,14 +29,49 @@ public interface TimeLockServices {
             TimestampService timestampService,
             RemoteLockService lockService,
             TimestampManagementService timestampManagementService) {
+        return create(
+                timestampService,
+                lockService,
+                timestampManagementService,
+                new LockAndTimestampTransactionStartService(timestampService, lockService));
+    }
+
+    static TimeLockServices create(
+            TimestampService timestampService,
+            RemoteLockService lockService,
+            TimestampManagementService timestampManagementService,
+            TransactionStartService transactionStartService) {
         return ImmutableTimeLockServices.builder()
                 .timestampService(timestampService)
                 .lockService(lockService)
                 .timestampManagementService(timestampManagementService)
+                .transactionStartService(transactionStartService)
+                .build();
+    }
+
+    static TimeLockServices create(
+            TimestampService timestampService,
+            RemoteLockService lockService,
+            Object lockResource,
+            TimestampManagementService timestampManagementService,
+            TransactionStartService transactionStartService) {
+        return ImmutableTimeLockServices.builder()
+                .from(create(timestampService, lockService, timestampManagementService, transactionStartService))
+                .lockResource(lockResource)
                 .build();
     }
 
     TimestampManagementService getTimestampManagementService();
     TimestampService getTimestampService();
     RemoteLockService getLockService();
+
+    /**
+     * The JAX-RS resource serving the lock service endpoints. By default this is the lock service itself.
+     */
+    @Value.Default
+    default Object getLockResource() {
+        return getLockService();
+    }
+
+    TransactionStartService getTransactionStartService();
 }
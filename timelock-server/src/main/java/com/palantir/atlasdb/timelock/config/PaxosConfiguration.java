@@ -55,6 +55,27 @@ public abstract class PaxosConfiguration implements TimeLockAlgorithmConfigurati
         return 5000L;
     }
 
+    /**
+     * If positive, the leader serves requests without a quorum round trip for up to this long after a quorum last
+     * confirmed its leadership, renewing that lease in the background. A newly elected leader then waits a little
+     * longer than this before serving requests. Zero disables leader leases. Every server in the cluster must use
+     * the same value, as a newly elected leader only waits out leases as long as its own.
+     */
+    @Value.Default
+    public long leaderLeaseDurationMs() {
+        return 0L;
+    }
+
+    /**
+     * If true, the per-client paxos logs are kept in append-only segment files with group fsync, rather than in a
+     * file per paxos round. Existing logs are migrated when they are first opened; this cannot be undone by
+     * turning the option off again.
+     */
+    @Value.Default
+    public boolean useSegmentedStateLog() {
+        return false;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkArgument(paxosDataDir().exists() || paxosDataDir().mkdirs(),
@@ -65,6 +86,8 @@ public abstract class PaxosConfiguration implements TimeLockAlgorithmConfigurati
                 "Maximum wait before proposal must be positive; found '%s'.", maximumWaitBeforeProposalMs());
         Preconditions.checkArgument(leaderPingResponseWaitMs() > 0,
                 "Leader ping response wait interval must be positive; found '%s'.", leaderPingResponseWaitMs());
+        Preconditions.checkArgument(leaderLeaseDurationMs() >= 0,
+                "Leader lease duration must not be negative; found '%s'.", leaderLeaseDurationMs());
     }
 
     @Override
@@ -40,13 +40,24 @@ public class TimeLockServerConfiguration extends Configuration {
     private final Set<String> clients;
     private final boolean useClientRequestLimit;
     private final TimeLimiterConfiguration timeLimiterConfiguration;
+    private final boolean useAsyncLockService;
+
+    public TimeLockServerConfiguration(
+            TimeLockAlgorithmConfiguration algorithm,
+            ClusterConfiguration cluster,
+            Set<String> clients,
+            Boolean useClientRequestLimit,
+            TimeLimiterConfiguration timeLimiterConfiguration) {
+        this(algorithm, cluster, clients, useClientRequestLimit, timeLimiterConfiguration, null);
+    }
 
     public TimeLockServerConfiguration(
             @JsonProperty(value = "algorithm", required = false) TimeLockAlgorithmConfiguration algorithm,
             @JsonProperty(value = "cluster", required = true) ClusterConfiguration cluster,
             @JsonProperty(value = "clients", required = true) Set<String> clients,
             @JsonProperty(value = "useClientRequestLimit", required = false) Boolean useClientRequestLimit,
-            @JsonProperty(value = "timeLimiter", required = false) TimeLimiterConfiguration timeLimiterConfiguration) {
+            @JsonProperty(value = "timeLimiter", required = false) TimeLimiterConfiguration timeLimiterConfiguration,
+            @JsonProperty(value = "useAsyncLockService", required = false) Boolean useAsyncLockService) {
         checkClientNames(clients);
         if (Boolean.TRUE.equals(useClientRequestLimit)) {
             Preconditions.checkState(computeNumberOfAvailableThreads() > 0,
@@ -59,6 +70,7 @@ public class TimeLockServerConfiguration extends Configuration {
         this.useClientRequestLimit = MoreObjects.firstNonNull(useClientRequestLimit, false);
         this.timeLimiterConfiguration =
                 MoreObjects.firstNonNull(timeLimiterConfiguration, TimeLimiterConfiguration.getDefaultConfiguration());
+        this.useAsyncLockService = MoreObjects.firstNonNull(useAsyncLockService, false);
 
         if (clients.isEmpty()) {
             log.warn("TimeLockServer initialised with an empty list of 'clients'. "
@@ -105,6 +117,14 @@ public class TimeLockServerConfiguration extends Configuration {
         return timeLimiterConfiguration;
     }
 
+    /**
+     * If true, lock requests wait for their locks without holding a server thread, so the client request
+     * limit and the lock service thread pools are not used for the lock service.
+     */
+    public boolean useAsyncLockService() {
+        return useAsyncLockService;
+    }
+
     public int availableThreads() {
         if (!useClientRequestLimit()) {
             throw new IllegalStateException("Should not call availableThreads() if useClientRequestLimit is disabled");
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.lock;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+
+import com.palantir.common.annotation.Idempotent;
+import com.palantir.common.annotation.NonIdempotent;
+import com.palantir.lock.AsyncRemoteLockService;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.remoting.BlockingTimeoutException;
+import com.palantir.logsafe.Safe;
+
+/**
+ * Serves the {@link com.palantir.lock.RemoteLockService} endpoints, but suspends the HTTP request while a lock
+ * request waits for its locks instead of blocking a server thread. The other endpoints never block and are
+ * delegated directly.
+ */
+public class AsyncLockResource {
+    private final AsyncRemoteLockService lockService;
+    private final long blockingTimeLimitMillis;
+
+    /**
+     * @param blockingTimeLimitMillis how long a lock request may wait before it is abandoned and a
+     *        {@link BlockingTimeoutException} is returned to the client; non-positive values disable this limit
+     */
+    public AsyncLockResource(AsyncRemoteLockService lockService, long blockingTimeLimitMillis) {
+        this.lockService = lockService;
+        this.blockingTimeLimitMillis = blockingTimeLimitMillis;
+    }
+
+    @POST
+    @Path("lock/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @NonIdempotent
+    public void lock(@Safe @PathParam("client") String client, LockRequest request,
+            @Suspended AsyncResponse response) {
+        resumeWhenDone(response, lockService.lockAsync(client, request), "lock", client, request);
+    }
+
+    @POST
+    @Path("try-lock/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @NonIdempotent
+    public void lockAndGetHeldLocks(@Safe @PathParam("client") String client, LockRequest request,
+            @Suspended AsyncResponse response) {
+        resumeWhenDone(response, lockService.lockAndGetHeldLocksAsync(client, request),
+                "lockAndGetHeldLocks", client, request);
+    }
+
+    @POST
+    @Path("unlock")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @NonIdempotent
+    public boolean unlock(LockRefreshToken token) {
+        return lockService.unlock(token);
+    }
+
+    @POST
+    @Path("refresh-lock-tokens")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Idempotent
+    public Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens) {
+        return lockService.refreshLockRefreshTokens(tokens);
+    }
+
+    @POST
+    @Path("min-locked-in-version/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Idempotent
+    @Nullable
+    public Long getMinLockedInVersionId(@Safe @PathParam("client") String client) {
+        return lockService.getMinLockedInVersionId(client);
+    }
+
+    @POST
+    @Path("current-time-millis")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Idempotent
+    public long currentTimeMillis() {
+        return lockService.currentTimeMillis();
+    }
+
+    @POST
+    @Path("log-current-state")
+    public void logCurrentState() {
+        lockService.logCurrentState();
+    }
+
+    private void resumeWhenDone(AsyncResponse response, CompletableFuture<?> future, String method,
+            String client, LockRequest request) {
+        if (blockingTimeLimitMillis > 0) {
+            response.setTimeoutHandler(timedOut -> {
+                // Give up on the request before Jetty closes the connection, so the client can retry.
+                future.cancel(false);
+                timedOut.resume(new BlockingTimeoutException(String.format(
+                        "Lock service timed out after %s milliseconds when servicing %s for client \"%s\";"
+                                + " request was %s",
+                        blockingTimeLimitMillis, method, client, request)));
+            });
+            response.setTimeout(blockingTimeLimitMillis, TimeUnit.MILLISECONDS);
+        }
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                response.resume(result);
+            } else {
+                response.resume(error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+    }
+}
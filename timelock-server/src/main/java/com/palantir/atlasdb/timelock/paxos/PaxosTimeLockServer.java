@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.timelock.paxos;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.List;
@@ -46,12 +48,17 @@ import com.palantir.atlasdb.timelock.TimeLockServices;
 import com.palantir.atlasdb.timelock.TooManyRequestsExceptionMapper;
 import com.palantir.atlasdb.timelock.config.PaxosConfiguration;
 import com.palantir.atlasdb.timelock.config.TimeLockServerConfiguration;
+import com.palantir.atlasdb.timelock.lock.AsyncLockResource;
 import com.palantir.atlasdb.timelock.lock.BlockingTimeLimitedLockService;
 import com.palantir.atlasdb.timelock.lock.BlockingTimeouts;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.atlasdb.transaction.impl.LockAndTimestampTransactionStartService;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
 import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.PingableLeader;
 import com.palantir.leader.proxy.AwaitingLeadershipProxy;
+import com.palantir.lock.AsyncRemoteLockService;
 import com.palantir.lock.CloseableRemoteLockService;
 import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.RemoteLockService;
@@ -64,6 +71,7 @@ import com.palantir.paxos.PaxosProposerImpl;
 import com.palantir.remoting2.config.ssl.SslSocketFactories;
 import com.palantir.timestamp.PersistentTimestampService;
 import com.palantir.timestamp.TimestampBoundStore;
+import com.palantir.timestamp.TimestampService;
 
 import io.dropwizard.setup.Environment;
 
@@ -74,6 +82,7 @@ public class PaxosTimeLockServer implements TimeLockServer {
     private Set<String> remoteServers;
     private Optional<SSLSocketFactory> optionalSecurity = Optional.empty();
     private LeaderElectionService leaderElectionService;
+    private Closeable leaderElectionServiceCloser;
     private PaxosResource paxosResource;
     private Semaphore sharedThreadPool = new Semaphore(-1);
     private TimeLockServerConfiguration timeLockServerConfiguration;
@@ -96,6 +105,23 @@ public class PaxosTimeLockServer implements TimeLockServer {
         registerHealthCheck(configuration);
     }
 
+    @Override
+    public void onStop() {
+        if (leaderElectionServiceCloser != null) {
+            try {
+                leaderElectionServiceCloser.close();
+            } catch (IOException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e);
+            }
+            leaderElectionServiceCloser = null;
+        }
+    }
+
+    @Override
+    public void onStartupFailure() {
+        onStop();
+    }
+
     private void registerExceptionMappers() {
         if (timeLockServerConfiguration.useClientRequestLimit()) {
             environment.jersey().register(new TooManyRequestsExceptionMapper());
@@ -105,7 +131,9 @@ public class PaxosTimeLockServer implements TimeLockServer {
     }
 
     private void registerPaxosResource() {
-        paxosResource = PaxosResource.create(paxosConfiguration.paxosDataDir().toString());
+        paxosResource = PaxosResource.create(
+                paxosConfiguration.paxosDataDir().toString(),
+                paxosConfiguration.useSegmentedStateLog());
         environment.jersey().register(paxosResource);
     }
 
@@ -125,6 +153,7 @@ public class PaxosTimeLockServer implements TimeLockServer {
                         .build(),
                 "leader-election-service");
         leaderElectionService = localPaxosServices.leaderElectionService();
+        leaderElectionServiceCloser = localPaxosServices.leaderElectionServiceCloser();
 
         environment.jersey().register(localPaxosServices.pingableLeader());
         environment.jersey().register(new LeadershipResource(
@@ -155,6 +184,7 @@ public class PaxosTimeLockServer implements TimeLockServer {
                     .quorumSize(getQuorumSize(configuration.cluster().servers()))
                     .leaderPingResponseWaitMs(paxosConfiguration.leaderPingResponseWaitMs())
                     .randomWaitBeforeProposingLeadershipMs(paxosConfiguration.maximumWaitBeforeProposalMs())
+                    .leaseDurationMs(paxosConfiguration.leaderLeaseDurationMs())
                     .build();
     }
 
@@ -170,16 +200,50 @@ public class PaxosTimeLockServer implements TimeLockServer {
 
     @Override
     public TimeLockServices createInvalidatingTimeLockServices(String client, long slowLogTriggerMillis) {
+        ManagedTimestampService rawTimestampService = createPaxosBackedTimestampService(client);
         ManagedTimestampService timestampService = instrument(
                 ManagedTimestampService.class,
-                createPaxosBackedTimestampService(client),
+                rawTimestampService,
                 client);
+        if (timeLockServerConfiguration.useAsyncLockService()) {
+            AsyncRemoteLockService rawAsyncLockService = createAsyncLockService(slowLogTriggerMillis);
+            AsyncRemoteLockService asyncLockService = instrument(
+                    AsyncRemoteLockService.class,
+                    rawAsyncLockService,
+                    client);
+            return TimeLockServices.create(
+                    timestampService,
+                    asyncLockService,
+                    new AsyncLockResource(asyncLockService, getBlockingTimeLimitMillis()),
+                    timestampService,
+                    createTransactionStartService(rawTimestampService, rawAsyncLockService, client));
+        }
+        RemoteLockService rawLockService = createLockService(slowLogTriggerMillis);
         RemoteLockService lockService = instrument(
                 RemoteLockService.class,
-                createLockService(slowLogTriggerMillis),
+                rawLockService,
                 client);
 
-        return TimeLockServices.create(timestampService, lockService, timestampService);
+        return TimeLockServices.create(
+                timestampService,
+                lockService,
+                timestampService,
+                createTransactionStartService(rawTimestampService, rawLockService, client));
+    }
+
+    /**
+     * The transaction start service makes one lock call per transaction in a batch, so it is built on the
+     * uninstrumented services and instrumented once itself; otherwise every batch would also show up many times in
+     * the lock service timers.
+     */
+    private static TransactionStartService createTransactionStartService(
+            TimestampService timestampService,
+            RemoteLockService lockService,
+            String client) {
+        return instrument(
+                TransactionStartService.class,
+                new LockAndTimestampTransactionStartService(timestampService, lockService),
+                client);
     }
 
     private RemoteLockService createLockService(long slowLogTriggerMillis) {
@@ -189,6 +253,31 @@ public class PaxosTimeLockServer implements TimeLockServer {
                 leaderElectionService);
     }
 
+    private AsyncRemoteLockService createAsyncLockService(long slowLogTriggerMillis) {
+        // Waiting lock requests do not hold threads, so neither thread pooling nor time limiting is needed here.
+        return AwaitingLeadershipProxy.newProxyInstance(
+                AsyncRemoteLockService.class,
+                () -> LockServiceImpl.create(new LockServerOptions() {
+                    @Override
+                    public long slowLogTriggerMillis() {
+                        return slowLogTriggerMillis;
+                    }
+
+                    @Override
+                    public boolean isAsyncLockingEnabled() {
+                        return true;
+                    }
+                }),
+                leaderElectionService);
+    }
+
+    private long getBlockingTimeLimitMillis() {
+        if (!timeLockServerConfiguration.timeLimiterConfiguration().enableTimeLimiting()) {
+            return 0L;
+        }
+        return BlockingTimeouts.getBlockingTimeout(environment.getObjectMapper(), timeLockServerConfiguration);
+    }
+
     private CloseableRemoteLockService createThreadPoolingLockService(long slowLogTriggerMillis) {
         CloseableRemoteLockService lockServiceNotUsingThreadPooling = createTimeLimitedLockService(
                 slowLogTriggerMillis);